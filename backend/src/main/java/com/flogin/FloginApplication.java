@@ -2,12 +2,14 @@ package com.flogin;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
-@SpringBootApplication
+// R2DBC ConnectionFactory chỉ được tạo bởi ReactiveConfig khi bật flogin.reactive.enabled
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class FloginApplication {
 
 	public static void main(String[] args) {
@@ -1,5 +1,11 @@
 package com.flogin.controller;
 
+import com.flogin.service.AuthService;
+import com.flogin.service.RequestDeadline;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -18,6 +24,18 @@ import java.util.NoSuchElementException;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    /**
+     * Đếm lỗi validation (flogin.validation.failures theo type), không có registry (vd: test slice) thì không ghi
+     */
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
+    private void recordValidationFailure(String type) {
+        if (meterRegistry != null) {
+            meterRegistry.counter(AuthService.VALIDATION_FAILURE_METRIC, "type", type).increment();
+        }
+    }
+
     /**
      * Xử lý validation errors (@Valid, @Validated)
      * Trả về map các field errors với message chi tiết
@@ -26,6 +44,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Map<String, Object>> handleValidationExceptions(
             MethodArgumentNotValidException ex) {
         
+        recordValidationFailure("body");
         Map<String, Object> response = new HashMap<>();
         Map<String, String> errors = new HashMap<>();
         
@@ -54,6 +73,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Map<String, Object>> handleIllegalArgumentException(
             IllegalArgumentException ex) {
         
+        recordValidationFailure("argument");
         Map<String, Object> response = new HashMap<>();
         Map<String, String> errors = new HashMap<>();
         
@@ -114,6 +134,48 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
+    /**
+     * Xử lý OptimisticLockingFailureException (If-Match không khớp hoặc sửa đồng thời)
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleOptimisticLockingFailureException(
+            OptimisticLockingFailureException ex) {
+        
+        Map<String, Object> response = new HashMap<>();
+        Map<String, String> errors = new HashMap<>();
+        errors.put("version", ex.getMessage());
+        
+        response.put("success", false);
+        response.put("status", HttpStatus.PRECONDITION_FAILED.value());
+        response.put("error", "Precondition Failed");
+        response.put("message", "Tài nguyên đã bị thay đổi, vui lòng tải lại");
+        response.put("errors", errors);
+        response.put("timestamp", System.currentTimeMillis());
+        
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(response);
+    }
+
+    /**
+     * Xử lý QueryTimeoutException (query bị hủy do hết thời hạn của request, xem RequestDeadline)
+     */
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity<Map<String, Object>> handleQueryTimeoutException(
+            QueryTimeoutException ex) {
+        
+        Map<String, Object> response = new HashMap<>();
+        Map<String, String> errors = new HashMap<>();
+        errors.put("deadline", ex.getMessage());
+        
+        response.put("success", false);
+        response.put("status", HttpStatus.GATEWAY_TIMEOUT.value());
+        response.put("error", "Gateway Timeout");
+        response.put("message", "Xử lý quá thời hạn cho phép, vui lòng thử lại sau");
+        response.put("errors", errors);
+        response.put("timestamp", System.currentTimeMillis());
+        
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response);
+    }
+
     /**
      * Xử lý NullPointerException
      */
@@ -142,6 +204,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Map<String, Object>> handleHttpMessageNotReadableException(
             org.springframework.http.converter.HttpMessageNotReadableException ex) {
         
+        recordValidationFailure("unreadable");
         Map<String, Object> response = new HashMap<>();
         Map<String, String> errors = new HashMap<>();
         errors.put("general", "Malformed JSON request");
@@ -161,6 +224,10 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGlobalException(Exception ex) {
+        if (RequestDeadline.isExpired()) {
+            // Lỗi xảy ra sau khi hết thời hạn (vd: hết thời gian chờ connection) -> 504 thay vì 500
+            return handleQueryTimeoutException(new QueryTimeoutException("Request đã quá thời hạn xử lý", ex));
+        }
         Map<String, Object> response = new HashMap<>();
         Map<String, String> errors = new HashMap<>();
         errors.put("general", ex.getMessage());
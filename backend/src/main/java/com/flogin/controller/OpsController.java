@@ -0,0 +1,217 @@
+package com.flogin.controller;
+
+import com.flogin.filter.BulkheadFilter;
+import com.flogin.filter.ConcurrencyLimitFilter;
+import com.flogin.filter.ConsistencyTokenFilter;
+import com.flogin.filter.DeadlineFilter;
+import com.flogin.filter.FairSchedulingFilter;
+import com.flogin.filter.TracingFilter;
+import com.flogin.jdbc.DeadlineDataSource;
+import com.flogin.jdbc.AdaptivePoolSizer;
+import com.flogin.jdbc.HedgedReadExecutor;
+import com.flogin.jdbc.PoolTelemetry;
+import com.flogin.jdbc.ReadWriteRoutingDataSource;
+import com.flogin.jdbc.ShardRoutingDataSource;
+import com.flogin.jdbc.StatementStatsDataSource;
+import com.flogin.repository.sharded.ShardedProductRepository;
+import com.flogin.service.VirtualThreadPinningMonitor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * OpsController - Các endpoint vận hành (chỉ đọc số liệu runtime), yêu cầu JWT của user có role ADMIN
+ * (flogin.ops.admin-users)
+ */
+@RestController
+@RequestMapping("/api/ops")
+public class OpsController {
+
+    @Autowired
+    private BulkheadFilter bulkheadFilter;
+
+    @Autowired
+    private ConcurrencyLimitFilter concurrencyLimitFilter;
+
+    @Autowired
+    private FairSchedulingFilter fairSchedulingFilter;
+
+    @Autowired
+    private DeadlineFilter deadlineFilter;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Chỉ có khi bật flogin.datasource.routing.enabled
+     */
+    @Autowired(required = false)
+    private ConsistencyTokenFilter consistencyTokenFilter;
+
+    /**
+     * Chỉ có khi bật flogin.datasource.routing.hedged-reads.enabled
+     */
+    @Autowired(required = false)
+    private HedgedReadExecutor hedgedReadExecutor;
+
+    /**
+     * Chỉ có khi bật flogin.sharding.enabled
+     */
+    @Autowired(required = false)
+    private ShardedProductRepository shardedProducts;
+
+    /**
+     * Chỉ có khi bật flogin.datasource.pool-telemetry.enabled (mặc định bật)
+     */
+    @Autowired(required = false)
+    private PoolTelemetry poolTelemetry;
+
+    /**
+     * Chỉ có khi bật flogin.datasource.adaptive-pool.enabled
+     */
+    @Autowired(required = false)
+    private AdaptivePoolSizer adaptivePoolSizer;
+
+    /**
+     * Chỉ có khi bật flogin.tracing.enabled (mặc định bật)
+     */
+    @Autowired(required = false)
+    private TracingFilter tracingFilter;
+
+    /**
+     * Chỉ có khi bật spring.threads.virtual.enabled
+     */
+    @Autowired(required = false)
+    private VirtualThreadPinningMonitor pinningMonitor;
+
+    @GetMapping("/bulkheads")
+    public ResponseEntity<Map<String, Map<String, Object>>> getBulkheads() {
+        // Số liệu từng lane: đang chạy, đang chờ, số request được nhận / bị từ chối
+        return ResponseEntity.ok(bulkheadFilter.getStats());
+    }
+
+    @GetMapping("/concurrency-limit")
+    public ResponseEntity<Map<String, Object>> getConcurrencyLimit() {
+        // Limit hiện tại của /api/products, số request đang xử lý và tỉ lệ bị từ chối
+        return ResponseEntity.ok(concurrencyLimitFilter.getStats());
+    }
+
+    @GetMapping("/fair-scheduler")
+    public ResponseEntity<Map<String, Object>> getFairScheduler() {
+        // Số liệu chia lượt theo user: weight, số request được nhận / bị từ chối, thời gian chờ, tỉ lệ phục vụ
+        return ResponseEntity.ok(fairSchedulingFilter.getStats());
+    }
+
+    @GetMapping("/deadlines")
+    public ResponseEntity<Map<String, Object>> getDeadlines() throws SQLException {
+        // Số request có deadline / hết hạn, và số lần deadline được áp xuống JDBC
+        Map<String, Object> stats = deadlineFilter.getStats();
+        if (dataSource.isWrapperFor(DeadlineDataSource.class)) {
+            DeadlineDataSource deadlineDataSource = dataSource.unwrap(DeadlineDataSource.class);
+            stats.put("statementsWithTimeout", deadlineDataSource.getStatementsWithTimeout());
+            stats.put("connectionAcquireTimeouts", deadlineDataSource.getAcquireTimeouts());
+            stats.put("jdbcRejectedExpired", deadlineDataSource.getRejectedExpired());
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/datasource-routing")
+    public ResponseEntity<Map<String, Object>> getDataSourceRouting() throws SQLException {
+        // Số connection đi primary / replica, độ trễ từng replica và số consistency token đã xử lý
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (!dataSource.isWrapperFor(ReadWriteRoutingDataSource.class)) {
+            stats.put("enabled", false);
+            return ResponseEntity.ok(stats);
+        }
+        stats.put("enabled", true);
+        stats.putAll(dataSource.unwrap(ReadWriteRoutingDataSource.class).getStats());
+        if (consistencyTokenFilter != null) {
+            stats.putAll(consistencyTokenFilter.getStats());
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/hedged-reads")
+    public ResponseEntity<Map<String, Object>> getHedgedReads() {
+        // Hedge delay hiện tại, tỉ lệ query bị hedge, tỉ lệ hedge thắng và số lần hết budget
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", hedgedReadExecutor != null);
+        if (hedgedReadExecutor != null) {
+            stats.putAll(hedgedReadExecutor.getStats());
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/sharding")
+    public ResponseEntity<Map<String, Object>> getSharding() throws SQLException {
+        // Số connection và số products trên từng shard, số thao tác một shard / scatter-gather
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", shardedProducts != null);
+        if (shardedProducts != null) {
+            stats.putAll(dataSource.unwrap(ShardRoutingDataSource.class).getStats());
+            stats.putAll(shardedProducts.getStats());
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/sql-stats")
+    public ResponseEntity<Map<String, Object>> getSqlStats(@RequestParam(defaultValue = "10") int top) throws SQLException {
+        // Latency (p50/p95/p99/max) theo dạng câu SQL: top câu chậm nhất và chạy nhiều nhất
+        if (top < 1 || top > 100) {
+            throw new IllegalArgumentException("top phải trong khoảng 1..100");
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (!dataSource.isWrapperFor(StatementStatsDataSource.class)) {
+            stats.put("enabled", false);
+            return ResponseEntity.ok(stats);
+        }
+        stats.put("enabled", true);
+        stats.putAll(dataSource.unwrap(StatementStatsDataSource.class).getStats().getStats(top));
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/connection-pool")
+    public ResponseEntity<Map<String, Object>> getConnectionPool() {
+        // Từng pool: total / active / idle / pending, thời gian chờ và giữ connection (p50/p95/p99/max), timeout;
+        // từng service method: thời gian chờ / giữ connection và timeout; trạng thái adaptive pool nếu bật
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", poolTelemetry != null);
+        if (poolTelemetry != null) {
+            stats.putAll(poolTelemetry.getStats());
+        }
+        if (adaptivePoolSizer != null) {
+            stats.put("adaptive", adaptivePoolSizer.getStats());
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/tracing")
+    public ResponseEntity<Map<String, Object>> getTracing() {
+        // Tỉ lệ lấy mẫu, số request đã trace, số trace / span đã ghi, trace bị bỏ (hàng đợi đầy), lỗi ghi file
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", tracingFilter != null);
+        if (tracingFilter != null) {
+            stats.putAll(tracingFilter.getStats());
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    @GetMapping("/virtual-threads")
+    public ResponseEntity<Map<String, Object>> getVirtualThreads() {
+        // Số lần virtual thread bị pin vào carrier thread (JFR), theo loại (jdbc / bcrypt / other) và theo vị trí
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", pinningMonitor != null);
+        if (pinningMonitor != null) {
+            stats.putAll(pinningMonitor.getStats());
+        }
+        return ResponseEntity.ok(stats);
+    }
+}
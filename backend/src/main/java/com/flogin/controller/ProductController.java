@@ -1,57 +1,169 @@
 package com.flogin.controller;
 
+import com.flogin.dto.ProductDtos.BatchProductsRequest;
+import com.flogin.dto.ProductDtos.BatchProductsResponse;
+import com.flogin.dto.ProductDtos.BulkDeleteProductsRequest;
+import com.flogin.dto.ProductDtos.BulkDeleteProductsResponse;
 import com.flogin.dto.ProductDtos.CreateProductRequest;
+import com.flogin.dto.ProductDtos.PatchProductRequest;
 import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.dto.ProductDtos.ProductFieldsDto;
 import com.flogin.dto.ProductDtos.UpdateProductRequest;
+import com.flogin.service.ProductResponseCache;
 import com.flogin.service.ProductService;
+import com.flogin.service.ReadConsistency;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.NoSuchElementException;
 
 
 @RestController
 @RequestMapping("/api/products")
-@CrossOrigin(origins = "*", allowedHeaders = "*")
+@CrossOrigin(origins = "*", allowedHeaders = "*", exposedHeaders = {HttpHeaders.ETAG, ReadConsistency.TOKEN_HEADER})
 public class ProductController {
     
    
     @Autowired
     private ProductService productService;
 
+    // Cache bytes JSON (identity + gzip) của từng product theo id + version, ProductService evict sau mỗi lần ghi
+    @Autowired
+    private ProductResponseCache responseCache;
+
 
     @PostMapping
     public ResponseEntity<?> createProduct(@Valid @RequestBody CreateProductRequest request) {
             ProductDto createdProduct = productService.createProduct(request);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdProduct);
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(ProductETags.of(createdProduct)).body(createdProduct);
 
     }
 
  
     @GetMapping
-    public ResponseEntity<Page<ProductDto>> getAllProducts(
+    public ResponseEntity<Page<?>> getAllProducts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // fields= (sparse fieldset): chỉ select và trả về các field được chọn, validate theo whitelist
+        List<String> selectedFields = ProductFieldsDto.parseFields(fields);
+
+        // ETag của trang lấy từ bộ đếm thay đổi catalog (in-memory), đọc TRƯỚC khi query
+        // để một thay đổi xảy ra trong lúc query luôn làm ETag lần sau khác đi
+        String catalogVersion = productService.getCatalogVersion();
+        String eTag = catalogVersion == null ? null : ProductETags.ofCatalogPage(catalogVersion, page, size, selectedFields);
+        if (ProductETags.matchesIfNoneMatch(ifNoneMatch, eTag)) {
+            // Catalog không đổi -> 304, không query ProductRepository và không serialize JSON
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+
         // Tạo Pageable object từ page và size parameters
         Pageable pageable = PageRequest.of(page, size);
         // Gọi service để lấy products với pagination
-        Page<ProductDto> products = productService.getAll(pageable);
-        return ResponseEntity.ok(products);
+        Page<?> products = selectedFields == null
+                ? productService.getAll(pageable)
+                : productService.getAll(pageable, selectedFields);
+        if (eTag == null || ReadConsistency.isStaleRead()) {
+            // Trang đọc từ replica chưa theo kịp primary: không gắn ETag của catalog version hiện tại,
+            // nếu không client sẽ nhận 304 cho bản cũ này tới lần thay đổi catalog tiếp theo
+            return ResponseEntity.ok(products);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(products);
     }
 
     
+    @GetMapping("/batch")
+    public ResponseEntity<BatchProductsResponse> getProductsByIds(@RequestParam List<Long> ids) {
+            // Lấy nhiều products trong một request: cache trước, phần còn lại query theo chunk IN (...)
+            return ResponseEntity.ok(productService.getProductsByIds(ids));
+
+    }
+
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchProductsResponse> getProductsByIdsFromBody(@RequestBody BatchProductsRequest request) {
+            // Biến thể POST cho danh sách id dài (không vừa URL)
+            return ResponseEntity.ok(productService.getProductsByIds(request.getIds()));
+
+    }
+
+
     @GetMapping("/{id}")
-    public ResponseEntity<?> getProductById(@PathVariable long id) {
+    public ResponseEntity<?> getProductById(
+            @PathVariable long id,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+            List<String> selectedFields = ProductFieldsDto.parseFields(fields);
+
+            // Revalidate từ memory: version đã biết khớp If-None-Match -> 304, không query database
+            Long knownVersion = productService.getKnownVersion(id);
+            if (knownVersion != null && ProductETags.matchesIfNoneMatch(ifNoneMatch, ProductETags.of(knownVersion, selectedFields))) {
+                return varyOnEncoding(ResponseEntity.status(HttpStatus.NOT_MODIFIED)).eTag(ProductETags.of(knownVersion, selectedFields)).build();
+            }
+
+            if (selectedFields != null) {
+                // Sparse fieldset: chỉ select các cột được chọn (không dùng response cache của bản đầy đủ)
+                ProductFieldsDto product = productService.getProductById(id, selectedFields);
+                String eTag = ProductETags.of(product.getVersion(), selectedFields);
+                if (ProductETags.matchesIfNoneMatch(ifNoneMatch, eTag)) {
+                    return varyOnEncoding(ResponseEntity.status(HttpStatus.NOT_MODIFIED)).eTag(eTag).build();
+                }
+                return varyOnEncoding(ResponseEntity.ok()).eTag(eTag).body(product);
+            }
+
+            // Response JSON đã encode sẵn cho version hiện tại -> ghi thẳng bytes, không query database
+            boolean json = ProductResponseCache.acceptsJson(accept);
+            if (json && knownVersion != null) {
+                ProductResponseCache.Entry cached = responseCache.get(id, knownVersion);
+                if (cached != null) {
+                    return cachedResponse(cached, acceptEncoding);
+                }
+            }
+
             // Gọi service để tìm product theo ID
             ProductDto product = productService.getProductById(id);
-            return ResponseEntity.ok(product);
+            String eTag = ProductETags.of(product);
+            if (ProductETags.matchesIfNoneMatch(ifNoneMatch, eTag)) {
+                return varyOnEncoding(ResponseEntity.status(HttpStatus.NOT_MODIFIED)).eTag(eTag).build();
+            }
+            if (json) {
+                return cachedResponse(responseCache.put(product), acceptEncoding);
+            }
+            return varyOnEncoding(ResponseEntity.ok()).eTag(eTag).body(product);
+
+    }
 
+    /**
+     * Response 200 từ bytes đã encode: gzip nếu client chấp nhận và bản nén nhỏ hơn, ngược lại identity
+     */
+    private ResponseEntity<byte[]> cachedResponse(ProductResponseCache.Entry cached, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = varyOnEncoding(ResponseEntity.ok())
+                .eTag(ProductETags.of(cached.version()))
+                .contentType(MediaType.APPLICATION_JSON);
+        if (cached.gzip() != null && ProductResponseCache.acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(cached.gzip());
+        }
+        return response.body(cached.identity());
+    }
+
+    /**
+     * Cùng URL GET /{id} có thể trả bản gzip (từ cache) hoặc identity tùy Accept-Encoding:
+     * mọi response của endpoint (200 và 304, có cache hay không) đều Vary: Accept-Encoding
+     */
+    private static ResponseEntity.BodyBuilder varyOnEncoding(ResponseEntity.BodyBuilder response) {
+        return response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
     }
 
     
@@ -61,7 +173,19 @@ public class ProductController {
             @Valid @RequestBody UpdateProductRequest request) {
             // Gọi service để update product với thông tin mới
             ProductDto updatedProduct = productService.updateProduct(id, request);
-            return ResponseEntity.ok(updatedProduct);
+            return ResponseEntity.ok().eTag(ProductETags.of(updatedProduct)).body(updatedProduct);
+
+    }
+
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchProduct(
+            @PathVariable long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody PatchProductRequest request) {
+            // Chỉ cập nhật các field được gửi lên, If-Match (ETag) dùng để phát hiện sửa đồng thời -> 412
+            ProductDto patchedProduct = productService.patchProduct(id, request, ProductETags.parseIfMatch(ifMatch));
+            return ResponseEntity.ok().eTag(ProductETags.of(patchedProduct)).body(patchedProduct);
 
     }
 
@@ -74,4 +198,13 @@ public class ProductController {
             return ResponseEntity.noContent().build();
 
     }
+
+
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<BulkDeleteProductsResponse> deleteProducts(
+            @Valid @RequestBody BulkDeleteProductsRequest request) {
+            // Xóa hàng loạt theo ids hoặc filter, chia chunk để không giữ lock lâu trên bảng products
+            return ResponseEntity.ok(productService.deleteProducts(request));
+
+    }
 }
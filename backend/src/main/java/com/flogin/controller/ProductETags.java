@@ -0,0 +1,116 @@
+package com.flogin.controller;
+
+import com.flogin.dto.ProductDtos.ProductDto;
+
+import java.util.List;
+
+/**
+ * ProductETags - Tạo, parse và so khớp ETag của products
+ * ETag của một product dạng strong: "<version>" (version optimistic locking)
+ * ETag của listing dạng strong: "c<catalog version>-<page>-<size>"
+ * Response sparse fieldset (fields=) có ETag riêng, thêm hậu tố "-<field>.<field>..." vào ETag trên
+ * @see com.flogin.entity.Product#getVersion()
+ */
+public final class ProductETags {
+
+    /**
+     * Giá trị trả về khi If-Match không parse được, không bao giờ khớp với version thật
+     */
+    static final long UNMATCHABLE_VERSION = -1L;
+
+    private ProductETags() {
+    }
+
+    /**
+     * @return ETag (đã quote) cho product
+     */
+    public static String of(ProductDto product) {
+        return of(product.getVersion());
+    }
+
+    /**
+     * @return ETag (đã quote) cho product với version cho trước
+     */
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @return ETag (đã quote) cho product với version cho trước, chỉ gồm các field được chọn
+     * @param fields các field của sparse fieldset, null nếu đủ tất cả field
+     */
+    public static String of(long version, List<String> fields) {
+        return fields == null ? of(version) : "\"" + version + fieldsSuffix(fields) + "\"";
+    }
+
+    /**
+     * @return ETag (đã quote) cho một trang của listing tại catalog version cho trước
+     */
+    public static String ofCatalogPage(String catalogVersion, int page, int size) {
+        return ofCatalogPage(catalogVersion, page, size, null);
+    }
+
+    /**
+     * @return ETag (đã quote) cho một trang của listing chỉ gồm các field được chọn
+     * @param fields các field của sparse fieldset, null nếu đủ tất cả field
+     */
+    public static String ofCatalogPage(String catalogVersion, int page, int size, List<String> fields) {
+        return "\"c" + catalogVersion + "-" + page + "-" + size + (fields == null ? "" : fieldsSuffix(fields)) + "\"";
+    }
+
+    private static String fieldsSuffix(List<String> fields) {
+        // Dùng dấu chấm thay vì dấu phẩy vì If-None-Match phân tách danh sách ETag bằng dấu phẩy
+        return "-" + String.join(".", fields);
+    }
+
+    /**
+     * So khớp header If-None-Match với ETag hiện tại (weak comparison theo RFC 9110)
+     * @return true nếu client đã có đúng phiên bản này (trả về 304)
+     */
+    public static boolean matchesIfNoneMatch(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank() || eTag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*")) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse header If-Match thành version mong đợi
+     * @return null nếu không có header hoặc "*" (không kiểm tra version),
+     *         UNMATCHABLE_VERSION nếu header không hợp lệ hoặc là weak ETag (If-Match dùng strong comparison)
+     */
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.equals("*")) {
+            return null;
+        }
+        // Nhiều ETag: chỉ một câu UPDATE có điều kiện nên dùng ETag đầu tiên
+        int comma = value.indexOf(',');
+        if (comma >= 0) {
+            value = value.substring(0, comma).trim();
+        }
+        if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            return UNMATCHABLE_VERSION;
+        }
+        try {
+            return Long.parseLong(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException ex) {
+            return UNMATCHABLE_VERSION;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.flogin.controller;
+
+import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.service.ReactiveProductService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ReactiveProductController - API đọc products dạng reactive, song song với ProductController
+ * - GET /api/products/reactive: stream từng product (application/x-ndjson) hoặc JSON array
+ * - GET /api/products/reactive/{id}
+ * Handler trả Flux / Mono nên Spring MVC xử lý bằng async servlet, nhưng không phải mọi bước đều non-blocking:
+ * JWT filter vẫn load user bằng JPA trên thread Tomcat, và stream được ghi bằng servlet I/O blocking
+ * trên task executor của Spring - client đọc chậm giữ một thread của executor trong lúc ghi.
+ * Số liệu so với ProductController: ReactiveVsServletBenchmarkTest.
+ * Thêm/sửa/xóa vẫn dùng ProductController.
+ */
+@RestController
+@RequestMapping("/api/products/reactive")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+@ConditionalOnProperty(name = "flogin.reactive.enabled", havingValue = "true")
+public class ReactiveProductController {
+
+    @Autowired
+    private ReactiveProductService reactiveProductService;
+
+
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<ProductDto> getAllProducts(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        // Cùng page/size như ProductController#getAllProducts, nhưng trả về stream thay vì Page
+        return reactiveProductService.getAll(PageRequest.of(page, size));
+    }
+
+
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ProductDto> getProductById(@PathVariable long id) {
+        // Không tìm thấy -> NoSuchElementException -> 404 qua GlobalExceptionHandler
+        return reactiveProductService.getProductById(id);
+    }
+}
@@ -1,8 +1,10 @@
 package com.flogin.dto.LoginDto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.flogin.dto.UserDtos.UserDto;
 
 
+@JsonSerialize(using = LoginResponseSerializer.class)
 public class LoginResponse {
     private boolean success;
     private String message;
@@ -0,0 +1,51 @@
+package com.flogin.dto.LoginDto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.flogin.dto.UserDtos.UserDto;
+import com.flogin.dto.UserDtos.UserDtoSerializer;
+
+import java.io.IOException;
+
+/**
+ * LoginResponseSerializer - Serializer viết tay cho LoginResponse
+ * Output giữ nguyên như BeanSerializer mặc định: success, message, token, user (null vẫn được ghi)
+ * @see LoginResponse
+ */
+public class LoginResponseSerializer extends StdSerializer<LoginResponse> {
+
+    private static final SerializedString SUCCESS = new SerializedString("success");
+    private static final SerializedString MESSAGE = new SerializedString("message");
+    private static final SerializedString TOKEN = new SerializedString("token");
+    private static final SerializedString USER = new SerializedString("user");
+
+    public LoginResponseSerializer() {
+        super(LoginResponse.class);
+    }
+
+    @Override
+    public void serialize(LoginResponse response, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(response);
+
+        gen.writeFieldName(SUCCESS);
+        gen.writeBoolean(response.isSuccess());
+
+        gen.writeFieldName(MESSAGE);
+        gen.writeString(response.getMessage());
+
+        gen.writeFieldName(TOKEN);
+        gen.writeString(response.getToken());
+
+        gen.writeFieldName(USER);
+        UserDto user = response.getUser();
+        if (user == null) {
+            gen.writeNull();
+        } else {
+            UserDtoSerializer.write(user, gen);
+        }
+
+        gen.writeEndObject();
+    }
+}
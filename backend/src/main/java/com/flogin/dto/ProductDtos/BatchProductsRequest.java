@@ -0,0 +1,29 @@
+package com.flogin.dto.ProductDtos;
+
+import java.util.List;
+
+/**
+ * BatchProductsRequest - DTO cho việc lấy nhiều products theo id trong một request
+ * (biến thể POST của GET /api/products/batch?ids=..., dùng khi danh sách id quá dài cho URL)
+ * @see BatchProductsResponse
+ */
+public class BatchProductsRequest {
+
+    private List<Long> ids;
+
+    // Constructor mặc định
+    public BatchProductsRequest() {
+    }
+
+    public BatchProductsRequest(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
@@ -0,0 +1,29 @@
+package com.flogin.dto.ProductDtos;
+
+import java.util.List;
+
+/**
+ * BatchProductsResponse - Kết quả lấy nhiều products theo id
+ * products giữ đúng thứ tự id trong request, id không tồn tại nằm trong missingIds (không làm fail cả request)
+ * @see BatchProductsRequest
+ */
+public class BatchProductsResponse {
+    private List<ProductDto> products;
+    private List<Long> missingIds;
+
+    public BatchProductsResponse() {
+    }
+
+    public BatchProductsResponse(List<ProductDto> products, List<Long> missingIds) {
+        this.products = products;
+        this.missingIds = missingIds;
+    }
+
+    public List<ProductDto> getProducts() {
+        return products;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+}
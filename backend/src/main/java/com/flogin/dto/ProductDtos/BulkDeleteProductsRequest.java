@@ -0,0 +1,56 @@
+package com.flogin.dto.ProductDtos;
+
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * BulkDeleteProductsRequest - DTO cho việc xóa nhiều products
+ * Truyền danh sách ids HOẶC filter (category, nameContains), không dùng cả hai
+ * @see BulkDeleteProductsResponse
+ */
+public class BulkDeleteProductsRequest {
+
+    @Size(max = 10000, message = "Tối đa 10,000 ids mỗi request")
+    private List<Long> ids;
+
+    private String category;
+
+    @Size(min = 1, max = 100, message = "nameContains phải từ 1 đến 100 ký tự")
+    private String nameContains;
+
+    // Constructor mặc định
+    public BulkDeleteProductsRequest() {
+    }
+
+    public BulkDeleteProductsRequest(List<Long> ids, String category, String nameContains) {
+        this.ids = ids;
+        this.category = category;
+        this.nameContains = nameContains;
+    }
+
+    // Getters and Setters
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getNameContains() {
+        return nameContains;
+    }
+
+    public void setNameContains(String nameContains) {
+        this.nameContains = nameContains;
+    }
+}
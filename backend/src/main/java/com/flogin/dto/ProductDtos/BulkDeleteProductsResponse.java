@@ -0,0 +1,25 @@
+package com.flogin.dto.ProductDtos;
+
+/**
+ * @see BulkDeleteProductsRequest
+ */
+public class BulkDeleteProductsResponse {
+    private long deletedCount;
+    private int chunks;
+
+    public BulkDeleteProductsResponse() {
+    }
+
+    public BulkDeleteProductsResponse(long deletedCount, int chunks) {
+        this.deletedCount = deletedCount;
+        this.chunks = chunks;
+    }
+
+    public long getDeletedCount() {
+        return deletedCount;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+}
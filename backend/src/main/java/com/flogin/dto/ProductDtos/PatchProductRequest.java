@@ -0,0 +1,91 @@
+package com.flogin.dto.ProductDtos;
+
+import jakarta.validation.constraints.*;
+
+/**
+ * PatchProductRequest - DTO cho việc cập nhật một phần product (PATCH)
+ * Tất cả fields đều optional, field null nghĩa là giữ nguyên giá trị hiện tại
+ * @see UpdateProductRequest
+ * @see ProductDto
+ */
+public class PatchProductRequest {
+
+    @Size(min = 3, max = 100, message = "Product Name phải từ 3 đến 100 ký tự")
+    @Pattern(regexp = "^[^<>]*$", message = "Product Name không được chứa thẻ HTML (<, >)")
+    private String productName;
+
+    @DecimalMin(value = "0.01", message = "Price phải > 0")
+    @DecimalMax(value = "999999999", message = "Price không được vượt quá 999,999,999")
+    private Double price;
+
+    @Size(max = 500, message = "Description không được quá 500 ký tự")
+    @Pattern(regexp = "^[^<>]*$", message = "Description không được chứa thẻ HTML (<, >)")
+    private String description;
+
+    @Min(value = 0, message = "Quantity phải >= 0")
+    @Max(value = 99999, message = "Quantity không được vượt quá 99,999")
+    private Integer quantity;
+
+    private String category;
+
+    // Constructor mặc định
+    public PatchProductRequest() {
+    }
+
+    public PatchProductRequest(String productName, Double price, String description, Integer quantity, String category) {
+        this.productName = productName;
+        this.price = price;
+        this.description = description;
+        this.quantity = quantity;
+        this.category = category;
+    }
+
+    /**
+     * @return true nếu request có ít nhất một field cần cập nhật
+     */
+    public boolean hasChanges() {
+        return productName != null || price != null || description != null
+                || quantity != null || category != null;
+    }
+
+    // Getters and Setters
+    public String getProductName() {
+        return productName;
+    }
+
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+
+    public Double getPrice() {
+        return price;
+    }
+
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+}
@@ -1,5 +1,8 @@
 package com.flogin.dto.ProductDtos;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.flogin.entity.Category;
 import com.flogin.entity.Product;
 import jakarta.validation.constraints.*;
 
@@ -10,7 +13,9 @@ import java.math.BigDecimal;
  * @see CreateProductRequest
  * @see UpdateProductRequest
  * @see com.flogin.entity.Category
+ * @see ProductDtoSerializer
  */
+@JsonSerialize(using = ProductDtoSerializer.class)
 public class ProductDto {
 
     private long id;
@@ -36,6 +41,10 @@ public class ProductDto {
     @NotBlank(message = "Category không được rỗng")
     private String category;
 
+    // Version của product, trả về cho client qua header ETag (không nằm trong JSON body)
+    @JsonIgnore
+    private long version;
+
     // Constructor mặc định (bắt buộc cho Jackson deserialization)
     public ProductDto() {
     }
@@ -49,6 +58,16 @@ public class ProductDto {
         this.quantity = quantity;
     }
 
+    /**
+     * Constructor cho JPQL constructor expression (projection trực tiếp từ query,
+     * không load Product entity vào persistence context)
+     * @see com.flogin.repository.interfaces.ProductRepository#findAllProductDtos
+     */
+    public ProductDto(long id, Category category, double price, String productName, String description, Integer quantity, long version) {
+        this(id, category.getValue(), price, productName, description, quantity);
+        this.version = version;
+    }
+
 
 
     public long getId() {
@@ -75,6 +94,10 @@ public class ProductDto {
         return price;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public void setId(long id) {
         this.id = id;
     }
@@ -98,4 +121,8 @@ public class ProductDto {
     public void setCategory(String category) {
         this.category = category;
     }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
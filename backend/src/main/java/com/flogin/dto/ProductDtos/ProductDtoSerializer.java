@@ -0,0 +1,67 @@
+package com.flogin.dto.ProductDtos;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * ProductDtoSerializer - Serializer viết tay cho ProductDto (response nóng nhất của Product API)
+ * Ghi thẳng từng field vào JsonGenerator, không qua BeanSerializer (introspection + getter boxed),
+ * tên field được encode sẵn một lần.
+ * Output giữ nguyên từng byte so với BeanSerializer mặc định:
+ * - Thứ tự field: id, price, productName, quantity, description, category
+ * - Field null vẫn được ghi là null
+ * - version không nằm trong body (trả về qua header ETag)
+ * @see ProductDto
+ */
+public class ProductDtoSerializer extends StdSerializer<ProductDto> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString PRICE = new SerializedString("price");
+    private static final SerializedString PRODUCT_NAME = new SerializedString("productName");
+    private static final SerializedString QUANTITY = new SerializedString("quantity");
+    private static final SerializedString DESCRIPTION = new SerializedString("description");
+    private static final SerializedString CATEGORY = new SerializedString("category");
+
+    public ProductDtoSerializer() {
+        super(ProductDto.class);
+    }
+
+    @Override
+    public void serialize(ProductDto product, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(product);
+
+        gen.writeFieldName(ID);
+        gen.writeNumber(product.getId());
+
+        gen.writeFieldName(PRICE);
+        Double price = product.getPrice();
+        if (price == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(price.doubleValue());
+        }
+
+        gen.writeFieldName(PRODUCT_NAME);
+        gen.writeString(product.getProductName());
+
+        gen.writeFieldName(QUANTITY);
+        Integer quantity = product.getQuantity();
+        if (quantity == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(quantity.intValue());
+        }
+
+        gen.writeFieldName(DESCRIPTION);
+        gen.writeString(product.getDescription());
+
+        gen.writeFieldName(CATEGORY);
+        gen.writeString(product.getCategory());
+
+        gen.writeEndObject();
+    }
+}
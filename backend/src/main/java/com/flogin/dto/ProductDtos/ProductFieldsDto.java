@@ -0,0 +1,70 @@
+package com.flogin.dto.ProductDtos;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ProductFieldsDto - Product chỉ gồm các field được yêu cầu qua query parameter fields= (sparse fieldset)
+ * JSON chỉ chứa các field đó, theo cùng thứ tự với ProductDto
+ * @see ProductDto
+ * @see com.flogin.repository.interfaces.ProductRepositoryCustom#findProductFields
+ */
+public class ProductFieldsDto {
+
+    /**
+     * Whitelist các field được phép chọn, theo thứ tự field của ProductDto
+     * (trùng tên attribute của Product entity)
+     */
+    public static final List<String> FIELDS = List.of("id", "price", "productName", "quantity", "description", "category");
+
+    // Version của product, trả về cho client qua header ETag (không nằm trong JSON body)
+    @JsonIgnore
+    private final long version;
+
+    private final Map<String, Object> fields;
+
+    public ProductFieldsDto(long version, Map<String, Object> fields) {
+        this.version = version;
+        this.fields = Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * Parse và validate giá trị fields= theo whitelist
+     * @param fields danh sách field cách nhau bởi dấu phẩy, ví dụ "id,productName,price"
+     * @return các field theo thứ tự chuẩn (không trùng lặp), null nếu không truyền fields hoặc chọn đủ tất cả field
+     * @throws IllegalArgumentException nếu có field không nằm trong whitelist hoặc danh sách rỗng
+     */
+    public static List<String> parseFields(String fields) {
+        if (fields == null) {
+            return null;
+        }
+        List<String> requested = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .toList();
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("fields không được rỗng. Các field hợp lệ: " + FIELDS);
+        }
+        for (String field : requested) {
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Field '" + field + "' không hợp lệ. Các field hợp lệ: " + FIELDS);
+            }
+        }
+        List<String> selected = FIELDS.stream().filter(requested::contains).toList();
+        return selected.size() == FIELDS.size() ? null : selected;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @JsonAnyGetter
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+}
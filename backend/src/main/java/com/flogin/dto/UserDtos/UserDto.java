@@ -1,9 +1,13 @@
 package com.flogin.dto.UserDtos;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
 /**
  * @see com.flogin.entity.User
  * @see LoginResponse
+ * @see UserDtoSerializer
  */
+@JsonSerialize(using = UserDtoSerializer.class)
 public class UserDto {
   private String userName;
   private String email;
@@ -0,0 +1,40 @@
+package com.flogin.dto.UserDtos;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * UserDtoSerializer - Serializer viết tay cho UserDto, thứ tự field: userName, email
+ * @see UserDto
+ * @see com.flogin.dto.LoginDto.LoginResponseSerializer
+ */
+public class UserDtoSerializer extends StdSerializer<UserDto> {
+
+    private static final SerializedString USER_NAME = new SerializedString("userName");
+    private static final SerializedString EMAIL = new SerializedString("email");
+
+    public UserDtoSerializer() {
+        super(UserDto.class);
+    }
+
+    @Override
+    public void serialize(UserDto user, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        write(user, gen);
+    }
+
+    /**
+     * Ghi UserDto trực tiếp, dùng lại trong LoginResponseSerializer để không phải tra serializer qua provider
+     */
+    public static void write(UserDto user, JsonGenerator gen) throws IOException {
+        gen.writeStartObject(user);
+        gen.writeFieldName(USER_NAME);
+        gen.writeString(user.getUserName());
+        gen.writeFieldName(EMAIL);
+        gen.writeString(user.getEmail());
+        gen.writeEndObject();
+    }
+}
@@ -1,6 +1,8 @@
 package com.flogin.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.math.BigDecimal;
 
 /**
@@ -12,8 +14,15 @@ import java.math.BigDecimal;
  * @see jakarta.persistence.Entity
  */
 @Entity
-@Table(name = "products")
+@Table(name = "products",
+        uniqueConstraints = @UniqueConstraint(name = Product.UNIQUE_PRODUCT_NAME_CONSTRAINT, columnNames = "product_name"))
 public class Product {
+
+    /**
+     * Name of the unique index on product_name
+     * Used to recognise duplicate-name constraint violations reported by the database
+     */
+    public static final String UNIQUE_PRODUCT_NAME_CONSTRAINT = "uk_products_product_name";
     
     /**
      * Product's unique identifier (Primary Key)
@@ -35,7 +44,7 @@ public class Product {
     /**
      * Product name/title
      * Maximum length: 100 characters
-     * Must be unique (enforced at service level)
+     * Must be unique (enforced by unique index uk_products_product_name)
      * Cannot be null
      */
     @Column(name = "product_name", nullable = false, length = 100)
@@ -65,6 +74,16 @@ public class Product {
     @Column(name = "category", nullable = false, length = 50)
     private Category category;
 
+    /**
+     * Optimistic locking version
+     * Incremented on every update, exposed to clients as the product's ETag
+     * Existing rows start at 0 (column default)
+     */
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private long version;
+
     /**
      * Default constructor (required by JPA)
      */
@@ -215,4 +234,20 @@ public class Product {
     public void setPrice(double price) {
         this.price = price;
     }
+
+    /**
+     * Get optimistic locking version
+     * @return Current version of the product row
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Set optimistic locking version
+     * @param version Version of the product row
+     */
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,210 @@
+package com.flogin.filter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * AdaptiveConcurrencyLimiter - Giới hạn số request xử lý đồng thời, tự điều chỉnh theo latency (gradient)
+ * - Latency được gom theo cửa sổ (window): hết window và đủ mẫu thì mới điều chỉnh limit một lần
+ * - longRtt: latency nền (trung bình trượt qua nhiều window), shortRtt: latency trung bình của window vừa xong
+ * - gradient = tolerance * longRtt / shortRtt, kẹp trong [0.5, 1]: latency tăng vượt tolerance -> limit giảm
+ * - latency bình thường và đang dùng gần hết limit -> limit tăng thêm queueSize (căn bậc hai của limit)
+ * - Thay đổi được làm mượt (smoothing) và kẹp trong [minLimit, maxLimit]
+ * - Request bị drop (timeout / quá tải ở tầng dưới) là tín hiệu giảm kiểu AIMD:
+ *   window có drop thì limit nhân BACKOFF_RATIO, latency của request drop không vào shortRtt / longRtt
+ * Request vượt limit bị từ chối ngay (không xếp hàng), giữ latency gần mức không tải.
+ * @see ConcurrencyLimitFilter
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_RTT_WINDOWS = 600;
+    private static final int WARMUP_WINDOWS = 10;
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    // Các field dưới đây chỉ được cập nhật trong update() (synchronized)
+    private volatile double limit;
+    private volatile double longRttNanos;
+    private volatile long lastRttNanos;
+    private int windows;
+    private long windowStartNanos;
+    private long windowRttSumNanos;
+    private int windowRttSamples;
+    private int windowSamples;
+    private int windowDrops;
+    private int windowMaxInFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, long windowMs) {
+        this(initialLimit, minLimit, maxLimit, tolerance, windowMs, System::nanoTime);
+    }
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, long windowMs,
+                                      LongSupplier nanoClock) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit || tolerance < 1.0 || windowMs < 1) {
+            throw new IllegalArgumentException("Cấu hình concurrency limit không hợp lệ");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.nanoClock = nanoClock;
+        this.windowStartNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Một request đã được nhận, phải gọi release() đúng một lần khi xử lý xong
+     */
+    public final class Permit {
+        private final long startNanos = nanoClock.getAsLong();
+        private final int inFlightAtStart;
+        private boolean released;
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * @param sample true nếu latency của request này dùng để điều chỉnh limit
+         *               (false với request lỗi server, latency không phản ánh tải)
+         */
+        public void release(boolean sample) {
+            if (released) {
+                return;
+            }
+            released = true;
+            inFlight.decrementAndGet();
+            if (sample) {
+                long now = nanoClock.getAsLong();
+                update(now, now - startNanos, inFlightAtStart, false);
+            }
+        }
+
+        /**
+         * Request bị drop (504, 503 từ tầng dưới, async timeout / error): giảm limit ở cuối window
+         */
+        public void drop() {
+            if (released) {
+                return;
+            }
+            released = true;
+            inFlight.decrementAndGet();
+            long now = nanoClock.getAsLong();
+            update(now, now - startNanos, inFlightAtStart, true);
+        }
+    }
+
+    /**
+     * @return Permit nếu còn chỗ, null nếu số request đang xử lý đã chạm limit (request phải bị từ chối)
+     */
+    public Permit tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.incrementAndGet();
+                return null;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        accepted.incrementAndGet();
+        return new Permit(current + 1);
+    }
+
+    private synchronized void update(long now, long rttNanos, int inFlightAtStart, boolean dropped) {
+        if (dropped) {
+            windowDrops++;
+        } else {
+            windowRttSumNanos += Math.max(rttNanos, 1);
+            windowRttSamples++;
+        }
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightAtStart);
+        if (now - windowStartNanos < windowNanos || windowSamples < MIN_WINDOW_SAMPLES) {
+            return;
+        }
+        int rttSamples = windowRttSamples;
+        double shortRtt = rttSamples == 0 ? 0 : (double) windowRttSumNanos / rttSamples;
+        int drops = windowDrops;
+        int maxInFlight = windowMaxInFlight;
+        windowStartNanos = now;
+        windowRttSumNanos = 0;
+        windowRttSamples = 0;
+        windowSamples = 0;
+        windowDrops = 0;
+        windowMaxInFlight = 0;
+
+        // Có request bị drop -> hệ thống đã quá tải dù latency của request thành công thế nào
+        if (drops > 0) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            return;
+        }
+        lastRttNanos = (long) shortRtt;
+
+        // Latency nền: trung bình cộng trong giai đoạn warmup, sau đó trung bình trượt lũy thừa
+        windows++;
+        if (windows <= WARMUP_WINDOWS) {
+            longRttNanos += (shortRtt - longRttNanos) / windows;
+        } else {
+            longRttNanos += (shortRtt - longRttNanos) * 2.0 / (LONG_RTT_WINDOWS + 1);
+        }
+        // Latency nền bị kéo lên quá cao (sau một đợt quá tải) -> hạ dần về gần latency hiện tại
+        if (longRttNanos / shortRtt > 2.0) {
+            longRttNanos *= 0.95;
+        }
+
+        // Không đổi limit khi chưa dùng tới một nửa (tải thấp, latency không nói lên giới hạn)
+        if (maxInFlight < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRttNanos / shortRtt));
+        double queueSize = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueSize;
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return limit hiện tại, số request đang xử lý, latency nền / gần nhất và số request được nhận / bị từ chối
+     */
+    public Map<String, Object> getStats() {
+        long acceptedCount = accepted.get();
+        long rejectedCount = rejected.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("limit", getLimit());
+        stats.put("minLimit", minLimit);
+        stats.put("maxLimit", maxLimit);
+        stats.put("inFlight", getInFlight());
+        stats.put("windowMs", TimeUnit.NANOSECONDS.toMillis(windowNanos));
+        stats.put("baselineLatencyMs", TimeUnit.NANOSECONDS.toMicros((long) longRttNanos) / 1000.0);
+        stats.put("lastLatencyMs", TimeUnit.NANOSECONDS.toMicros(lastRttNanos) / 1000.0);
+        stats.put("accepted", acceptedCount);
+        stats.put("rejected", rejectedCount);
+        stats.put("rejectionRate", acceptedCount + rejectedCount == 0 ? 0.0 : (double) rejectedCount / (acceptedCount + rejectedCount));
+        return stats;
+    }
+}
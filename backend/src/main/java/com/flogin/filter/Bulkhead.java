@@ -0,0 +1,108 @@
+package com.flogin.filter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulkhead - Một làn thực thi (lane) có giới hạn số request chạy đồng thời và hàng đợi riêng
+ * - Tối đa maxConcurrent request được chạy cùng lúc
+ * - Tối đa maxQueue request được chờ, request tiếp theo bị từ chối ngay (không chờ)
+ * - Request đang chờ quá maxWaitMs cũng bị từ chối
+ * Mỗi lane có permit riêng nên một lane quá tải không chiếm chỗ của các lane khác.
+ * @see BulkheadFilter
+ */
+public class Bulkhead {
+
+    /**
+     * Kết quả khi xin vào lane
+     */
+    public enum Admission {
+        ACCEPTED,
+        REJECTED_QUEUE_FULL,
+        REJECTED_TIMEOUT
+    }
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitMs;
+
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedTimeout = new LongAdder();
+    private final LongAdder totalWaitMs = new LongAdder();
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueue, long maxWaitMs) {
+        if (maxConcurrent < 1 || maxQueue < 0 || maxWaitMs < 0) {
+            throw new IllegalArgumentException("Cấu hình bulkhead '" + name + "' không hợp lệ");
+        }
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxWaitMs = maxWaitMs;
+        // fair = true: request chờ lâu nhất được vào trước
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Xin vào lane, chờ tối đa maxWaitMs nếu lane đang đầy và hàng đợi còn chỗ.
+     * Nếu trả về ACCEPTED thì bắt buộc phải gọi release() khi xử lý xong.
+     */
+    public Admission acquire() throws InterruptedException {
+        // tryAcquire() không tham số bỏ qua fairness (chen trước request đang chờ);
+        // bản có timeout 0 tôn trọng thứ tự hàng đợi: còn request chờ trước thì không lấy permit
+        if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+            accepted.increment();
+            return Admission.ACCEPTED;
+        }
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            rejectedQueueFull.increment();
+            return Admission.REJECTED_QUEUE_FULL;
+        }
+        long start = System.nanoTime();
+        try {
+            if (permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                accepted.increment();
+                return Admission.ACCEPTED;
+            }
+            rejectedTimeout.increment();
+            return Admission.REJECTED_TIMEOUT;
+        } finally {
+            queued.decrementAndGet();
+            totalWaitMs.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return số liệu hiện tại của lane (cấu hình, đang chạy, đang chờ, số request được nhận/bị từ chối)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("maxQueue", maxQueue);
+        stats.put("maxWaitMs", maxWaitMs);
+        stats.put("active", maxConcurrent - permits.availablePermits());
+        stats.put("queued", queued.get());
+        stats.put("accepted", accepted.sum());
+        stats.put("rejectedQueueFull", rejectedQueueFull.sum());
+        stats.put("rejectedTimeout", rejectedTimeout.sum());
+        stats.put("totalQueueWaitMs", totalWaitMs.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,169 @@
+package com.flogin.filter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Filter chia request vào các làn thực thi (bulkhead) riêng biệt:
+ * - auth: /api/auth/** (BCrypt tốn CPU)
+ * - product-read: GET /api/products/** và POST /api/products/batch (multi-get)
+ * - product-write: các request thay đổi products còn lại
+ * Mỗi lane có giới hạn đồng thời, hàng đợi và thời gian chờ riêng; request bị từ chối nhận 503 + Retry-After.
+ * Chạy trước Spring Security để cả bước xác thực JWT (query users) cũng nằm trong lane.
+ * @see Bulkhead
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    static final String AUTH_LANE = "auth";
+    static final String PRODUCT_READ_LANE = "product-read";
+    static final String PRODUCT_WRITE_LANE = "product-write";
+
+    @Value("${flogin.bulkhead.enabled:true}")
+    private boolean enabled;
+
+    @Value("${flogin.bulkhead.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    @Value("${flogin.bulkhead.auth.max-concurrent:16}")
+    private int authMaxConcurrent;
+    @Value("${flogin.bulkhead.auth.max-queue:100}")
+    private int authMaxQueue;
+    @Value("${flogin.bulkhead.auth.max-wait-ms:2000}")
+    private long authMaxWaitMs;
+
+    @Value("${flogin.bulkhead.product-read.max-concurrent:200}")
+    private int readMaxConcurrent;
+    @Value("${flogin.bulkhead.product-read.max-queue:400}")
+    private int readMaxQueue;
+    @Value("${flogin.bulkhead.product-read.max-wait-ms:1000}")
+    private long readMaxWaitMs;
+
+    @Value("${flogin.bulkhead.product-write.max-concurrent:50}")
+    private int writeMaxConcurrent;
+    @Value("${flogin.bulkhead.product-write.max-queue:200}")
+    private int writeMaxQueue;
+    @Value("${flogin.bulkhead.product-write.max-wait-ms:3000}")
+    private long writeMaxWaitMs;
+
+    private final Map<String, Bulkhead> lanes = new LinkedHashMap<>();
+
+    @PostConstruct
+    void initLanes() {
+        lanes.put(AUTH_LANE, new Bulkhead(AUTH_LANE, authMaxConcurrent, authMaxQueue, authMaxWaitMs));
+        lanes.put(PRODUCT_READ_LANE, new Bulkhead(PRODUCT_READ_LANE, readMaxConcurrent, readMaxQueue, readMaxWaitMs));
+        lanes.put(PRODUCT_WRITE_LANE, new Bulkhead(PRODUCT_WRITE_LANE, writeMaxConcurrent, writeMaxQueue, writeMaxWaitMs));
+    }
+
+    /**
+     * @return số liệu của từng lane theo tên lane
+     */
+    public Map<String, Map<String, Object>> getStats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        lanes.forEach((name, lane) -> stats.put(name, lane.getStats()));
+        return stats;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || laneOf(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Bulkhead lane = lanes.get(laneOf(request));
+
+        Bulkhead.Admission admission;
+        try {
+            admission = lane.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admission = Bulkhead.Admission.REJECTED_TIMEOUT;
+        }
+        if (admission != Bulkhead.Admission.ACCEPTED) {
+            reject(response, lane, admission);
+            return;
+        }
+
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            async = request.isAsyncStarted();
+            if (async) {
+                // Request bất đồng bộ (Flux/Mono): giữ permit tới khi response thực sự hoàn tất
+                AtomicBoolean released = new AtomicBoolean();
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        if (released.compareAndSet(false, true)) {
+                            lane.release();
+                        }
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            }
+        } finally {
+            if (!async) {
+                lane.release();
+            }
+        }
+    }
+
+    /**
+     * Xác định lane của request, null nếu request không thuộc lane nào (không giới hạn)
+     */
+    static String laneOf(HttpServletRequest request) {
+        String method = request.getMethod();
+        if ("OPTIONS".equals(method)) {
+            // CORS preflight không chạm tới service
+            return null;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/api/auth/")) {
+            return AUTH_LANE;
+        }
+        if (path.equals("/api/products") || path.startsWith("/api/products/")) {
+            if ("GET".equals(method) || "HEAD".equals(method) || path.equals("/api/products/batch")) {
+                return PRODUCT_READ_LANE;
+            }
+            return PRODUCT_WRITE_LANE;
+        }
+        return null;
+    }
+
+    private void reject(HttpServletResponse response, Bulkhead lane, Bulkhead.Admission admission) throws IOException {
+        OverloadResponse.write(response, retryAfterSeconds, lane.getName(),
+                admission == Bulkhead.Admission.REJECTED_QUEUE_FULL
+                        ? "Hàng đợi đã đầy"
+                        : "Quá thời gian chờ xử lý");
+    }
+}
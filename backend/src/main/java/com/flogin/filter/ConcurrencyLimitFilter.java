@@ -0,0 +1,145 @@
+package com.flogin.filter;
+
+import com.flogin.service.RequestDeadline;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Filter giới hạn số request /api/products/** xử lý đồng thời bằng AdaptiveConcurrencyLimiter.
+ * Khi DB chậm lại, limit tự giảm và request vượt limit nhận 503 + Retry-After ngay lập tức
+ * thay vì xếp hàng trong Tomcat tới khi client timeout.
+ * Response 503 / 504 và async timeout / error cũng làm limit giảm (drop), chỉ lỗi 5xx khác của ứng dụng bị bỏ qua.
+ * Chạy trước BulkheadFilter: request bị cắt không chiếm chỗ trong hàng đợi của lane,
+ * còn thời gian chờ trong lane được tính vào latency dùng để điều chỉnh limit.
+ * @see AdaptiveConcurrencyLimiter
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    @Value("${flogin.concurrency-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${flogin.concurrency-limit.initial-limit:100}")
+    private int initialLimit;
+
+    @Value("${flogin.concurrency-limit.min-limit:10}")
+    private int minLimit;
+
+    @Value("${flogin.concurrency-limit.max-limit:1000}")
+    private int maxLimit;
+
+    @Value("${flogin.concurrency-limit.tolerance:1.5}")
+    private double tolerance;
+
+    @Value("${flogin.concurrency-limit.window-ms:500}")
+    private long windowMs;
+
+    @Value("${flogin.concurrency-limit.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @PostConstruct
+    void initLimiter() {
+        limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance, windowMs);
+    }
+
+    /**
+     * @return limit hiện tại, số request đang xử lý và tỉ lệ từ chối
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = limiter.getStats();
+        stats.put("enabled", enabled);
+        return stats;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || "OPTIONS".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !(path.equals("/api/products") || path.startsWith("/api/products/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            OverloadResponse.write(response, retryAfterSeconds, "concurrency",
+                    "Số request đang xử lý đã đạt giới hạn " + limiter.getLimit());
+            return;
+        }
+
+        boolean async = false;
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, response);
+            completed = true;
+            async = request.isAsyncStarted();
+            if (async) {
+                // Request bất đồng bộ (Flux/Mono): chỉ tính xong khi response thực sự hoàn tất
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        release(permit, response.getStatus());
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        permit.drop();
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        permit.drop();
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            }
+        } finally {
+            if (!async) {
+                if (completed) {
+                    release(permit, response.getStatus());
+                } else if (RequestDeadline.isExpired()) {
+                    // Exception sau khi hết thời hạn: DeadlineFilter sẽ trả 504 -> cũng là drop
+                    permit.drop();
+                } else {
+                    // Exception của ứng dụng không phản ánh tải -> không dùng làm mẫu
+                    permit.release(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * 503 / 504 (quá tải hoặc hết thời hạn ở tầng dưới) là drop -> giảm limit;
+     * các lỗi 5xx khác là lỗi của ứng dụng -> bỏ qua; còn lại là mẫu latency
+     */
+    private static void release(AdaptiveConcurrencyLimiter.Permit permit, int status) {
+        if (status == HttpServletResponse.SC_SERVICE_UNAVAILABLE || status == HttpServletResponse.SC_GATEWAY_TIMEOUT) {
+            permit.drop();
+        } else {
+            permit.release(status < 500);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.flogin.filter;
+
+import com.flogin.service.ReadConsistency;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filter đặt yêu cầu nhất quán khi đọc (ReadConsistency) cho mỗi request /api/**,
+ * chỉ bật khi flogin.datasource.routing.enabled=true
+ * - Header X-Consistency-Token (client gửi lại token nhận được sau lần ghi gần nhất):
+ *   các transaction đọc chỉ dùng replica đã theo kịp token, ngược lại đọc từ primary
+ * - Request ghi product và request auth: mọi query đi primary
+ * - Sau mỗi transaction ghi commit: trả token mới trong header X-Consistency-Token
+ * Token là thời điểm commit trên primary (epoch ms); token ở tương lai được coi như thời điểm hiện tại
+ * để client không thể pin mình vào primary mãi mãi.
+ */
+@Component
+@ConditionalOnProperty(name = "flogin.datasource.routing.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+
+    private final LongAdder requestsWithToken = new LongAdder();
+    private final LongAdder invalidTokens = new LongAdder();
+    private final LongAdder tokensIssued = new LongAdder();
+
+    /**
+     * @return số request gửi token, token sai định dạng và số token đã trả về
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requestsWithToken", requestsWithToken.sum());
+        stats.put("invalidTokens", invalidTokens.sum());
+        stats.put("tokensIssued", tokensIssued.sum());
+        return stats;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return "OPTIONS".equals(request.getMethod()) || !path.startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String lane = BulkheadFilter.laneOf(request);
+        boolean primaryOnly = BulkheadFilter.PRODUCT_WRITE_LANE.equals(lane) || BulkheadFilter.AUTH_LANE.equals(lane);
+        ReadConsistency.begin(tokenOf(request), primaryOnly, position -> {
+            if (!response.isCommitted()) {
+                response.setHeader(ReadConsistency.TOKEN_HEADER, String.valueOf(position));
+                tokensIssued.increment();
+            }
+        });
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadConsistency.clear();
+        }
+    }
+
+    private long tokenOf(HttpServletRequest request) {
+        String header = request.getHeader(ReadConsistency.TOKEN_HEADER);
+        if (header == null) {
+            return 0;
+        }
+        try {
+            long token = Long.parseLong(header.trim());
+            if (token >= 0) {
+                requestsWithToken.increment();
+                return Math.min(token, System.currentTimeMillis());
+            }
+        } catch (NumberFormatException ignored) {
+            // Token sai định dạng: đọc như client chưa từng ghi
+        }
+        invalidTokens.increment();
+        return 0;
+    }
+}
@@ -0,0 +1,138 @@
+package com.flogin.filter;
+
+import com.flogin.service.RequestDeadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filter đặt deadline cho mỗi request /api/** (RequestDeadline):
+ * - Header X-Request-Timeout-Ms (ms, client tự đặt, không vượt max-ms)
+ * - Không có header: mặc định theo route (auth, product-read, product-write như BulkheadFilter)
+ * Chạy đầu tiên để thời gian chờ ở concurrency limit / bulkhead / fair scheduler cũng tính vào deadline.
+ * Deadline được dùng làm query timeout và thời gian chờ connection (DeadlineDataSource).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    static final String TIMEOUT_HEADER = "X-Request-Timeout-Ms";
+
+    @Value("${flogin.deadline.enabled:true}")
+    private boolean enabled;
+
+    @Value("${flogin.deadline.max-ms:30000}")
+    private long maxMs;
+
+    @Value("${flogin.deadline.default-ms:8000}")
+    private long defaultMs;
+
+    @Value("${flogin.deadline.auth-ms:5000}")
+    private long authMs;
+
+    @Value("${flogin.deadline.product-read-ms:5000}")
+    private long productReadMs;
+
+    @Value("${flogin.deadline.product-write-ms:8000}")
+    private long productWriteMs;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder fromHeader = new LongAdder();
+    private final LongAdder invalidHeader = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder gatewayTimeouts = new LongAdder();
+
+    /**
+     * @return cấu hình và số request có deadline / hết hạn
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxMs", maxMs);
+        stats.put("defaultMs", defaultMs);
+        stats.put("authMs", authMs);
+        stats.put("productReadMs", productReadMs);
+        stats.put("productWriteMs", productWriteMs);
+        stats.put("requests", requests.sum());
+        stats.put("fromHeader", fromHeader.sum());
+        stats.put("invalidHeader", invalidHeader.sum());
+        // Request xử lý xong sau deadline (dù trả về gì), và số request trả 504
+        stats.put("expired", expired.sum());
+        stats.put("gatewayTimeouts", gatewayTimeouts.sum());
+        return stats;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !enabled || "OPTIONS".equals(request.getMethod()) || !path.startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        requests.increment();
+        RequestDeadline.start(budgetOf(request));
+        try {
+            filterChain.doFilter(request, response);
+        } catch (RuntimeException e) {
+            // Lỗi ném ra từ filter (vd: query user của JWT filter) sau khi hết hạn -> 504 thay vì 500
+            if (!RequestDeadline.isExpired() || response.isCommitted()) {
+                throw e;
+            }
+            OverloadResponse.write(response, HttpStatus.GATEWAY_TIMEOUT,
+                    "Xử lý quá thời hạn cho phép, vui lòng thử lại sau", "deadline", "Request đã quá thời hạn xử lý");
+        } finally {
+            if (RequestDeadline.isExpired()) {
+                expired.increment();
+            }
+            if (response.getStatus() == HttpStatus.GATEWAY_TIMEOUT.value()) {
+                gatewayTimeouts.increment();
+            }
+            RequestDeadline.clear();
+        }
+    }
+
+    /**
+     * Thời gian cho phép của request (ms): header nếu hợp lệ, ngược lại mặc định theo route
+     */
+    private long budgetOf(HttpServletRequest request) {
+        String header = request.getHeader(TIMEOUT_HEADER);
+        if (header != null) {
+            try {
+                long budget = Long.parseLong(header.trim());
+                if (budget > 0) {
+                    fromHeader.increment();
+                    return Math.min(budget, maxMs);
+                }
+            } catch (NumberFormatException ignored) {
+                // Header sai định dạng: dùng mặc định theo route
+            }
+            invalidHeader.increment();
+        }
+        String lane = BulkheadFilter.laneOf(request);
+        if (BulkheadFilter.AUTH_LANE.equals(lane)) {
+            return authMs;
+        }
+        if (BulkheadFilter.PRODUCT_READ_LANE.equals(lane)) {
+            return productReadMs;
+        }
+        if (BulkheadFilter.PRODUCT_WRITE_LANE.equals(lane)) {
+            return productWriteMs;
+        }
+        return defaultMs;
+    }
+}
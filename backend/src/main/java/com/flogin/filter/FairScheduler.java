@@ -0,0 +1,222 @@
+package com.flogin.filter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * FairScheduler - Chia lượt xử lý công bằng giữa các user (weighted fair queueing)
+ * - Tối đa maxConcurrent request chạy cùng lúc; khi đầy, request chờ trong hàng đợi ưu tiên
+ * - Mỗi request có finish tag = max(virtualTime, finish tag trước đó của user) + cost / weight:
+ *   user gửi nhiều request có tag tăng nhanh nên không chặn được request của user khác,
+ *   user có weight lớn được phục vụ nhiều hơn, request cost nhỏ (đọc) được ưu tiên hơn request ghi
+ * - Mỗi user chờ tối đa maxQueuePerPrincipal request, request tiếp theo của user đó bị từ chối ngay
+ * - Request chờ quá maxWaitMs cũng bị từ chối
+ * Lock chỉ giữ trong lúc tính tag và thao tác hàng đợi, không giữ trong lúc chờ.
+ * @see FairSchedulingFilter
+ */
+public class FairScheduler {
+
+    private final int maxConcurrent;
+    private final int maxQueuePerPrincipal;
+    private final long maxWaitMs;
+    private final Map<String, Integer> weights;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>((a, b) -> a.finishTag != b.finishTag
+            ? Double.compare(a.finishTag, b.finishTag)
+            : Long.compare(a.seq, b.seq));
+    private final Map<String, Flow> flows = new ConcurrentHashMap<>();
+
+    // Các field dưới đây chỉ được đọc / ghi khi giữ lock
+    private int available;
+    private double virtualTime;
+    private long seq;
+
+    public FairScheduler(int maxConcurrent, int maxQueuePerPrincipal, long maxWaitMs, Map<String, Integer> weights) {
+        if (maxConcurrent < 1 || maxQueuePerPrincipal < 0 || maxWaitMs < 0
+                || weights.values().stream().anyMatch(w -> w < 1)) {
+            throw new IllegalArgumentException("Cấu hình fair scheduler không hợp lệ");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueuePerPrincipal = maxQueuePerPrincipal;
+        this.maxWaitMs = maxWaitMs;
+        this.weights = Map.copyOf(weights);
+        this.available = maxConcurrent;
+    }
+
+    /**
+     * Hàng đợi và số liệu của một user
+     */
+    private static final class Flow {
+        final int weight;
+        double lastFinishTag;
+        int queued;
+        final LongAdder accepted = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder servedCost = new LongAdder();
+        final LongAdder totalWaitNanos = new LongAdder();
+
+        Flow(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final class Waiter {
+        final Flow flow;
+        final Thread thread = Thread.currentThread();
+        final double startTag;
+        final double finishTag;
+        final long seq;
+        volatile boolean granted;
+
+        Waiter(Flow flow, double startTag, double finishTag, long seq) {
+            this.flow = flow;
+            this.startTag = startTag;
+            this.finishTag = finishTag;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * Xin lượt xử lý cho principal, chờ tối đa maxWaitMs nếu đang đầy.
+     * Nếu trả về ACCEPTED thì bắt buộc phải gọi release() khi xử lý xong.
+     * @param cost chi phí tương đối của request (đọc rẻ hơn ghi)
+     */
+    public Bulkhead.Admission acquire(String principal, int cost) throws InterruptedException {
+        Flow flow = flows.computeIfAbsent(principal, p -> new Flow(weights.getOrDefault(p, 1)));
+        double increment = (double) cost / flow.weight;
+        Waiter waiter;
+
+        lock.lock();
+        try {
+            double startTag = Math.max(virtualTime, flow.lastFinishTag);
+            if (queue.isEmpty() && available > 0) {
+                available--;
+                virtualTime = startTag;
+                flow.lastFinishTag = startTag + increment;
+                flow.accepted.increment();
+                flow.servedCost.add(cost);
+                return Bulkhead.Admission.ACCEPTED;
+            }
+            if (flow.queued >= maxQueuePerPrincipal) {
+                flow.rejected.increment();
+                return Bulkhead.Admission.REJECTED_QUEUE_FULL;
+            }
+            waiter = new Waiter(flow, startTag, startTag + increment, seq++);
+            flow.lastFinishTag = waiter.finishTag;
+            flow.queued++;
+            queue.add(waiter);
+        } finally {
+            lock.unlock();
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        boolean interrupted = false;
+        try {
+            while (!waiter.granted) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            lock.lock();
+            try {
+                if (!waiter.granted) {
+                    // Hết thời gian chờ (hoặc bị interrupt) trước khi tới lượt
+                    queue.remove(waiter);
+                    flow.queued--;
+                    flow.rejected.increment();
+                    if (interrupted) {
+                        throw new InterruptedException();
+                    }
+                    return Bulkhead.Admission.REJECTED_TIMEOUT;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (interrupted) {
+                // Đã tới lượt ngay lúc bị interrupt: nhận lượt và giữ lại trạng thái interrupt
+                Thread.currentThread().interrupt();
+            }
+            flow.accepted.increment();
+            flow.servedCost.add(cost);
+            return Bulkhead.Admission.ACCEPTED;
+        } finally {
+            flow.totalWaitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Trả lượt xử lý: chuyển thẳng cho request có finish tag nhỏ nhất đang chờ (nếu có)
+     */
+    public void release() {
+        Waiter next;
+        lock.lock();
+        try {
+            next = queue.poll();
+            if (next == null) {
+                available++;
+                return;
+            }
+            next.flow.queued--;
+            virtualTime = Math.max(virtualTime, next.startTag);
+            next.granted = true;
+        } finally {
+            lock.unlock();
+        }
+        LockSupport.unpark(next.thread);
+    }
+
+    /**
+     * @return cấu hình, số request đang chạy / đang chờ và số liệu từng user:
+     * weight, số request được nhận / bị từ chối, thời gian chờ trung bình
+     * và serviceShare (tỉ lệ chi phí đã phục vụ của user trên tổng)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> principals = new LinkedHashMap<>();
+        long totalCost = flows.values().stream().mapToLong(f -> f.servedCost.sum()).sum();
+        int active;
+        int queued;
+        lock.lock();
+        try {
+            active = maxConcurrent - available;
+            queued = queue.size();
+            flows.forEach((name, flow) -> {
+                long accepted = flow.accepted.sum();
+                long rejected = flow.rejected.sum();
+                long requests = accepted + rejected;
+                Map<String, Object> flowStats = new LinkedHashMap<>();
+                flowStats.put("weight", flow.weight);
+                flowStats.put("queued", flow.queued);
+                flowStats.put("accepted", accepted);
+                flowStats.put("rejected", rejected);
+                flowStats.put("avgQueueWaitMs", requests == 0 ? 0.0
+                        : TimeUnit.NANOSECONDS.toMicros(flow.totalWaitNanos.sum() / requests) / 1000.0);
+                flowStats.put("serviceShare", totalCost == 0 ? 0.0 : (double) flow.servedCost.sum() / totalCost);
+                principals.put(name, flowStats);
+            });
+        } finally {
+            lock.unlock();
+        }
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("maxQueuePerPrincipal", maxQueuePerPrincipal);
+        stats.put("maxWaitMs", maxWaitMs);
+        stats.put("active", active);
+        stats.put("queued", queued);
+        stats.put("principals", principals);
+        return stats;
+    }
+}
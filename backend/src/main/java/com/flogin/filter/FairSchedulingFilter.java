@@ -0,0 +1,166 @@
+package com.flogin.filter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Filter chia lượt xử lý /api/products/** công bằng theo user đã xác thực (FairScheduler).
+ * Chạy sau Spring Security để lấy principal mà JwtAuthenticationFilter đã set:
+ * một user (integration) gửi dồn dập chỉ làm đầy hàng đợi của chính nó, không làm chậm user khác.
+ * Request đọc (cùng lane product-read của BulkheadFilter) có cost thấp hơn request ghi nên được ưu tiên.
+ * Thứ tự nhận request /api/products/**: DeadlineFilter -> ConcurrencyLimitFilter -> BulkheadFilter
+ * -> Spring Security (JWT) -> FairSchedulingFilter.
+ * Mặc định tắt (flogin.fair-scheduler.enabled): khi bật, max-concurrent là trần thật của cả đọc lẫn ghi,
+ * giới hạn lớn hơn ở bulkhead / concurrency limit không còn tác dụng và thời gian chờ trong hàng đợi
+ * của scheduler được tính vào latency mà ConcurrencyLimitFilter dùng để điều chỉnh limit.
+ * @see FairScheduler
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 10)
+public class FairSchedulingFilter extends OncePerRequestFilter {
+
+    @Value("${flogin.fair-scheduler.enabled:false}")
+    private boolean enabled;
+
+    @Value("${flogin.fair-scheduler.max-concurrent:32}")
+    private int maxConcurrent;
+
+    @Value("${flogin.fair-scheduler.max-queue-per-principal:50}")
+    private int maxQueuePerPrincipal;
+
+    @Value("${flogin.fair-scheduler.max-wait-ms:2000}")
+    private long maxWaitMs;
+
+    @Value("${flogin.fair-scheduler.read-cost:1}")
+    private int readCost;
+
+    @Value("${flogin.fair-scheduler.write-cost:4}")
+    private int writeCost;
+
+    /**
+     * Weight theo user, dạng "user1:4,user2:2" (user không có trong danh sách có weight 1)
+     */
+    @Value("${flogin.fair-scheduler.weights:}")
+    private String weightsConfig;
+
+    @Value("${flogin.fair-scheduler.retry-after-seconds:1}")
+    private int retryAfterSeconds;
+
+    private FairScheduler scheduler;
+
+    @PostConstruct
+    void initScheduler() {
+        scheduler = new FairScheduler(maxConcurrent, maxQueuePerPrincipal, maxWaitMs, parseWeights(weightsConfig));
+    }
+
+    static Map<String, Integer> parseWeights(String config) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String entry : config.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Weight không hợp lệ: " + entry.trim());
+            }
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    /**
+     * @return số liệu của scheduler và từng user (weight, số request được nhận / bị từ chối, thời gian chờ)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = scheduler.getStats();
+        stats.put("enabled", enabled);
+        return stats;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String lane = BulkheadFilter.laneOf(request);
+        return !enabled || !(BulkheadFilter.PRODUCT_READ_LANE.equals(lane) || BulkheadFilter.PRODUCT_WRITE_LANE.equals(lane));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            // Chưa xác thực: Spring Security đã trả 401/403, không cần xếp lượt
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        int cost = BulkheadFilter.PRODUCT_READ_LANE.equals(BulkheadFilter.laneOf(request)) ? readCost : writeCost;
+        Bulkhead.Admission admission;
+        try {
+            admission = scheduler.acquire(authentication.getName(), cost);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admission = Bulkhead.Admission.REJECTED_TIMEOUT;
+        }
+        if (admission != Bulkhead.Admission.ACCEPTED) {
+            OverloadResponse.write(response, retryAfterSeconds, "principal",
+                    admission == Bulkhead.Admission.REJECTED_QUEUE_FULL
+                            ? "Quá nhiều request đang chờ của user " + authentication.getName()
+                            : "Quá thời gian chờ xử lý");
+            return;
+        }
+
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            async = request.isAsyncStarted();
+            if (async) {
+                // Request bất đồng bộ (Flux/Mono): giữ lượt tới khi response thực sự hoàn tất
+                AtomicBoolean released = new AtomicBoolean();
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        if (released.compareAndSet(false, true)) {
+                            scheduler.release();
+                        }
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            }
+        } finally {
+            if (!async) {
+                scheduler.release();
+            }
+        }
+    }
+}
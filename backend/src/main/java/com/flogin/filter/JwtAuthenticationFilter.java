@@ -2,6 +2,15 @@ package com.flogin.filter;
 
 import com.flogin.service.CustomUserDetailService;
 import com.flogin.service.JwtService;
+import com.flogin.service.LayerMetricsAspect;
+import com.flogin.service.RequestDeadline;
+import com.flogin.service.RequestTrace;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.security.SecurityException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,24 +21,46 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Filter để xác thực JWT token từ header Authorization
+ * Metrics: thời gian của chính filter (không gồm các filter / controller phía sau) vào flogin.layer.duration
+ * (layer=filter), thời gian parse / verify token vào flogin.auth.jwt.parse, token bị từ chối vào
+ * flogin.auth.jwt.failures theo lý do (expired, signature, malformed, unknown_user, rejected, invalid)
+ * Tracing: span "JwtAuthenticationFilter" (request được lấy mẫu), con là span của JwtService / CustomUserDetailService
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    public static final String JWT_PARSE_METRIC = "flogin.auth.jwt.parse";
+    public static final String JWT_FAILURE_METRIC = "flogin.auth.jwt.failures";
+
     private final JwtService jwtService;
     private final CustomUserDetailService userDetailsService;
+    private final MeterRegistry meterRegistry;
+    private final Timer filterTimer;
+    private final Timer parseTimer;
 
-    public JwtAuthenticationFilter(JwtService jwtService, @Lazy CustomUserDetailService userDetailsService) {
+    public JwtAuthenticationFilter(JwtService jwtService, @Lazy CustomUserDetailService userDetailsService,
+                                   MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.meterRegistry = meterRegistry;
+        this.filterTimer = Timer.builder(LayerMetricsAspect.METRIC)
+                .description("Latency theo tầng filter / controller / service / repository")
+                .tags("layer", "filter", "class", "JwtAuthenticationFilter", "method", "doFilterInternal")
+                .register(meterRegistry);
+        this.parseTimer = Timer.builder(JWT_PARSE_METRIC)
+                .description("Thời gian mỗi lần parse và verify chữ ký JWT")
+                .register(meterRegistry);
     }
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
@@ -50,9 +81,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // Extract JWT token (bỏ "Bearer " prefix)
         jwt = authHeader.substring(7);
         
+        long start = System.nanoTime();
+        RequestTrace.Span span = RequestTrace.start("JwtAuthenticationFilter", RequestTrace.Kind.INTERNAL)
+                .attribute("flogin.layer", "filter");
         try {
             // Extract username từ JWT token
-            username = jwtService.extractUsername(jwt);
+            username = timeParse(() -> jwtService.extractUsername(jwt));
 
             // Nếu username hợp lệ và chưa có authentication trong SecurityContext
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
@@ -60,7 +94,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 UserDetails userDetails = userDetailsService.loadUserByUsername(username);
 
                 // Validate token
-                if (jwtService.validateToken(jwt, userDetails.getUsername())) {
+                if (timeParse(() -> jwtService.validateToken(jwt, userDetails.getUsername()))) {
                     // Tạo authentication token
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
@@ -72,13 +106,59 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     
                     // Set authentication vào SecurityContext
                     SecurityContextHolder.getContext().setAuthentication(authToken);
+                } else {
+                    recordFailure("rejected");
+                    span.attribute("flogin.auth.failure", "rejected");
                 }
             }
         } catch (Exception e) {
+            span.error(e);
+            if (RequestDeadline.isExpired()) {
+                // Không query được user vì request đã quá thời hạn: trả 504 (DeadlineFilter), không phải 403
+                throw e;
+            }
+            String reason = failureReason(e);
+            recordFailure(reason);
+            span.attribute("flogin.auth.failure", reason);
             // Token không hợp lệ, bỏ qua và tiếp tục filter chain
             logger.error("JWT Authentication failed: " + e.getMessage());
+        } finally {
+            filterTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            span.end();
         }
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Đo một lần parse / verify token (kể cả khi token không hợp lệ và ném exception)
+     */
+    private <T> T timeParse(Supplier<T> parse) {
+        long start = System.nanoTime();
+        try {
+            return parse.get();
+        } finally {
+            parseTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void recordFailure(String reason) {
+        meterRegistry.counter(JWT_FAILURE_METRIC, "reason", reason).increment();
+    }
+
+    private static String failureReason(Exception e) {
+        if (e instanceof ExpiredJwtException) {
+            return "expired";
+        }
+        if (e instanceof SecurityException) {
+            return "signature";
+        }
+        if (e instanceof MalformedJwtException) {
+            return "malformed";
+        }
+        if (e instanceof UsernameNotFoundException) {
+            return "unknown_user";
+        }
+        return e instanceof JwtException || e instanceof IllegalArgumentException ? "invalid" : "error";
+    }
 }
@@ -0,0 +1,47 @@
+package com.flogin.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ghi response lỗi từ filter (503 + Retry-After khi quá tải, 504 khi quá deadline),
+ * cùng format với GlobalExceptionHandler (success, status, error, message, errors, timestamp)
+ */
+final class OverloadResponse {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private OverloadResponse() {
+    }
+
+    static void write(HttpServletResponse response, int retryAfterSeconds, String errorKey, String errorMessage) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        write(response, HttpStatus.SERVICE_UNAVAILABLE, "Hệ thống đang quá tải, vui lòng thử lại sau", errorKey, errorMessage);
+    }
+
+    static void write(HttpServletResponse response, HttpStatus status, String message,
+                      String errorKey, String errorMessage) throws IOException {
+        Map<String, Object> body = new HashMap<>();
+        Map<String, String> errors = new HashMap<>();
+        errors.put(errorKey, errorMessage);
+
+        body.put("success", false);
+        body.put("status", status.value());
+        body.put("error", status.getReasonPhrase());
+        body.put("message", message);
+        body.put("errors", errors);
+        body.put("timestamp", System.currentTimeMillis());
+
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        OBJECT_MAPPER.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,117 @@
+package com.flogin.filter;
+
+import com.flogin.service.RequestTrace;
+import com.flogin.service.TraceFileExporter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filter lấy mẫu request /api/** để tracing (RequestTrace) và mở root span (SERVER) của request
+ * - Header traceparent (W3C) có cờ sampled: luôn lấy mẫu, dùng tiếp trace id của client;
+ *   còn lại lấy mẫu theo flogin.tracing.sample-rate
+ * - Request được lấy mẫu trả trace id trong header X-Trace-Id để tìm trace trong file export
+ * - Tên root span theo route template ("PUT /api/products/{id}"), status ERROR khi response 5xx
+ * Chạy ngay sau DeadlineFilter: thời gian chờ ở concurrency limit / bulkhead / fair scheduler nằm trong root span
+ * (khoảng trống trước span con đầu tiên). Request async (Mono) chỉ được đo tới lúc trả thread của servlet.
+ * Không có TraceFileExporter (TracingConfig không được nạp, vd: test slice @WebMvcTest) thì filter không làm gì.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "flogin.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingFilter extends OncePerRequestFilter {
+
+    static final String TRACEPARENT_HEADER = "traceparent";
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    @Value("${flogin.tracing.sample-rate:0.0}")
+    private double sampleRate;
+
+    @Value("${flogin.tracing.max-spans-per-trace:500}")
+    private int maxSpansPerTrace;
+
+    private final TraceFileExporter exporter;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder sampled = new LongAdder();
+
+    public TracingFilter(ObjectProvider<TraceFileExporter> exporter) {
+        this.exporter = exporter.getIfAvailable();
+    }
+
+    /**
+     * @return cấu hình lấy mẫu, số request / số request được lấy mẫu và số liệu export
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sampleRate", sampleRate);
+        stats.put("maxSpansPerTrace", maxSpansPerTrace);
+        stats.put("requests", requests.sum());
+        stats.put("sampled", sampled.sum());
+        if (exporter != null) {
+            stats.putAll(exporter.getStats());
+        }
+        return stats;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return exporter == null || "OPTIONS".equals(request.getMethod()) || !path.startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        requests.increment();
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RequestTrace trace = RequestTrace.sample(request.getMethod() + " " + path,
+                request.getHeader(TRACEPARENT_HEADER), sampleRate, maxSpansPerTrace);
+        if (trace == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        sampled.increment();
+        response.setHeader(TRACE_ID_HEADER, trace.getTraceId());
+        RequestTrace.Span root = trace.getRoot()
+                .attribute("http.request.method", request.getMethod())
+                .attribute("url.path", path);
+        boolean failed = false;
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            // Status do container đặt sau khi exception ra khỏi filter, chưa có ở đây
+            failed = true;
+            root.error(e);
+            throw e;
+        } finally {
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (route != null) {
+                root.rename(request.getMethod() + " " + route).attribute("http.route", route.toString());
+            }
+            if (!failed) {
+                root.attribute("http.response.status_code", response.getStatus());
+                if (response.getStatus() >= 500) {
+                    root.error("HTTP " + response.getStatus());
+                }
+            }
+            trace.finish();
+            exporter.export(trace);
+        }
+    }
+}
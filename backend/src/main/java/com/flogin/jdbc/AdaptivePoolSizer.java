@@ -0,0 +1,214 @@
+package com.flogin.jdbc;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AdaptivePoolSizer - Tự điều chỉnh maximumPoolSize của một pool HikariCP trong [minSize, maxSize]
+ * theo số liệu từng cửa sổ của PoolTelemetry (mỗi intervalMs một lần)
+ * - Latency database: trung bình câu SQL trong cửa sổ (thời gian giữ connection nếu không có SqlStatementStats),
+ *   latency nền là trung bình trượt qua nhiều cửa sổ (giống AdaptiveConcurrencyLimiter)
+ * - Thiếu connection (có timeout, hoặc thời gian chờ trung bình > waitRatio * latency database)
+ *   và latency database vẫn trong latencyTolerance * latency nền -> tăng step connection
+ * - Thiếu connection nhưng latency database đã tăng vượt tolerance -> database là nút thắt,
+ *   thêm connection chỉ thêm tranh chấp -> giảm step connection
+ * - shrinkAfterWindows cửa sổ liên tiếp dùng không quá (size - step) connection -> giảm 1 connection
+ * Kích thước mới áp dụng ngay cho connection tạo mới; connection idle vượt kích thước được HikariCP
+ * đóng dần (housekeeper, sau idleTimeout), nên minimumIdle được hạ xuống minSize khi bắt đầu.
+ */
+public class AdaptivePoolSizer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptivePoolSizer.class);
+
+    private static final int WARMUP_WINDOWS = 3;
+    private static final int BASELINE_WINDOWS = 30;
+    private static final long MIN_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final PoolTelemetry telemetry;
+    private final HikariDataSource pool;
+    private final String poolName;
+    private final int minSize;
+    private final int maxSize;
+    private final int step;
+    private final double waitRatio;
+    private final double latencyTolerance;
+    private final int shrinkAfterWindows;
+    private final long intervalMs;
+
+    private ScheduledExecutorService scheduler;
+
+    // Các field dưới đây chỉ được cập nhật trong adjust() (synchronized)
+    private volatile double baselineDatabaseNanos;
+    private volatile double lastDatabaseNanos;
+    private volatile double lastWaitNanos;
+    private volatile String lastDecision = "none";
+    private volatile long grown;
+    private volatile long shrunk;
+    private int baselineWindows;
+    private int underusedWindows;
+
+    /**
+     * @param telemetry phải đã gắn vào pool (PoolTelemetry.instrument)
+     */
+    public AdaptivePoolSizer(PoolTelemetry telemetry, HikariDataSource pool, int minSize, int maxSize, int step,
+                             double waitRatio, double latencyTolerance, int shrinkAfterWindows, long intervalMs) {
+        if (minSize < 1 || minSize > maxSize || step < 1 || waitRatio <= 0 || latencyTolerance < 1.0
+                || shrinkAfterWindows < 1 || intervalMs < 1) {
+            throw new IllegalArgumentException("Cấu hình adaptive pool không hợp lệ");
+        }
+        this.telemetry = telemetry;
+        this.pool = pool;
+        this.poolName = pool.getPoolName();
+        if (telemetry.getPool(poolName) != pool) {
+            throw new IllegalArgumentException("Pool chưa gắn PoolTelemetry: " + poolName);
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.step = step;
+        this.waitRatio = waitRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.shrinkAfterWindows = shrinkAfterWindows;
+        this.intervalMs = intervalMs;
+
+        HikariConfigMXBean config = pool.getHikariConfigMXBean();
+        // minimumIdle < 0: chưa cấu hình (HikariCP sẽ lấy bằng maximumPoolSize)
+        int minimumIdle = config.getMinimumIdle();
+        config.setMinimumIdle(minimumIdle < 0 ? minSize : Math.min(minimumIdle, minSize));
+        int size = config.getMaximumPoolSize();
+        if (size < minSize || size > maxSize) {
+            config.setMaximumPoolSize(Math.max(minSize, Math.min(maxSize, size)));
+        }
+    }
+
+    /**
+     * Bắt đầu điều chỉnh định kỳ trên thread riêng (daemon)
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flogin-pool-sizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                adjust();
+            } catch (RuntimeException e) {
+                log.warn("Không điều chỉnh được pool {}: {}", poolName, e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Kết thúc cửa sổ hiện tại và điều chỉnh kích thước pool một lần (public để test gọi trực tiếp)
+     * @return kích thước pool sau khi điều chỉnh
+     */
+    public synchronized int adjust() {
+        PoolTelemetry.Window window = telemetry.drainWindow(poolName);
+        int size = pool.getMaximumPoolSize();
+        double databaseNanos = window.meanDatabaseNanos();
+        double waitNanos = window.meanAcquireNanos();
+        lastDatabaseNanos = databaseNanos;
+        lastWaitNanos = waitNanos;
+
+        boolean degraded = baselineWindows >= WARMUP_WINDOWS && databaseNanos > baselineDatabaseNanos * latencyTolerance;
+        boolean starved = window.timeouts() > 0
+                || (window.acquires() > 0 && waitNanos > Math.max(waitRatio * databaseNanos, MIN_WAIT_NANOS));
+        updateBaseline(databaseNanos);
+
+        boolean underused = !starved && window.maxInUse() <= size - step;
+        underusedWindows = underused ? underusedWindows + 1 : 0;
+
+        int target = size;
+        String decision = "hold";
+        if (starved && degraded) {
+            target = Math.max(minSize, size - step);
+            decision = "shrink: database chậm";
+        } else if (starved) {
+            target = Math.min(maxSize, size + step);
+            decision = window.timeouts() > 0 ? "grow: timeout" : "grow: chờ connection";
+        } else if (underusedWindows >= shrinkAfterWindows) {
+            target = Math.max(minSize, size - 1);
+            decision = "shrink: dư connection";
+        }
+        lastDecision = target == size ? "hold" : decision;
+
+        if (target != size) {
+            underusedWindows = 0;
+            resize(target);
+            if (target > size) {
+                grown++;
+            } else {
+                shrunk++;
+            }
+            log.info("Pool {}: {} -> {} connection ({}, chờ {} ms, database {} ms, nền {} ms)", poolName, size, target,
+                    lastDecision, toMillis(waitNanos), toMillis(databaseNanos), toMillis(baselineDatabaseNanos));
+        }
+        return target;
+    }
+
+    /**
+     * Latency nền: trung bình cộng trong giai đoạn warmup, sau đó trung bình trượt lũy thừa
+     * (database chậm kéo dài sẽ dần thành latency nền mới)
+     */
+    private void updateBaseline(double databaseNanos) {
+        if (databaseNanos <= 0) {
+            return;
+        }
+        baselineWindows++;
+        if (baselineWindows <= WARMUP_WINDOWS) {
+            baselineDatabaseNanos += (databaseNanos - baselineDatabaseNanos) / baselineWindows;
+        } else {
+            baselineDatabaseNanos += (databaseNanos - baselineDatabaseNanos) * 2.0 / (BASELINE_WINDOWS + 1);
+        }
+    }
+
+    private void resize(int size) {
+        HikariConfigMXBean config = pool.getHikariConfigMXBean();
+        config.setMaximumPoolSize(size);
+        if (config.getMinimumIdle() > size) {
+            config.setMinimumIdle(size);
+        }
+    }
+
+    private static double toMillis(double nanos) {
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+
+    /**
+     * @return kích thước hiện tại và giới hạn, latency database nền / gần nhất, thời gian chờ gần nhất,
+     * số lần tăng / giảm và quyết định gần nhất
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pool", poolName);
+        stats.put("size", pool.getMaximumPoolSize());
+        stats.put("minSize", minSize);
+        stats.put("maxSize", maxSize);
+        stats.put("intervalMs", intervalMs);
+        stats.put("baselineDatabaseLatencyMs", toMillis(baselineDatabaseNanos));
+        stats.put("lastDatabaseLatencyMs", toMillis(lastDatabaseNanos));
+        stats.put("lastWaitMs", toMillis(lastWaitNanos));
+        stats.put("grown", grown);
+        stats.put("shrunk", shrunk);
+        stats.put("lastDecision", lastDecision);
+        return stats;
+    }
+}
@@ -0,0 +1,140 @@
+package com.flogin.jdbc;
+
+import com.flogin.service.RequestDeadline;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.pool.HikariPool;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DeadlineDataSource - Áp deadline của request (RequestDeadline) xuống JDBC
+ * - Lấy connection: chờ pool tối đa thời gian còn lại (nếu ngắn hơn connectionTimeout của Hikari)
+ * - Tạo statement: setQueryTimeout theo thời gian còn lại (làm tròn lên giây, tối thiểu 1s),
+ *   driver tự hủy query khi hết hạn
+ * - Đã quá hạn thì không lấy connection / tạo statement nữa (SQLTimeoutException)
+ * Thread không có deadline đi thẳng xuống DataSource gốc.
+ */
+public class DeadlineDataSource extends DelegatingDataSource {
+
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAdder statementsWithTimeout = new LongAdder();
+    private final LongAdder rejectedExpired = new LongAdder();
+
+    public DeadlineDataSource(DataSource target) {
+        super(target);
+    }
+
+    public long getAcquireTimeouts() {
+        return acquireTimeouts.sum();
+    }
+
+    public long getStatementsWithTimeout() {
+        return statementsWithTimeout.sum();
+    }
+
+    public long getRejectedExpired() {
+        return rejectedExpired.sum();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long remaining = RequestDeadline.remainingMillis();
+        if (remaining == Long.MAX_VALUE) {
+            return super.getConnection();
+        }
+        if (remaining <= 0) {
+            rejectedExpired.increment();
+            throw new SQLTimeoutException("Request đã quá thời hạn, không lấy connection");
+        }
+        return wrap(acquire(remaining));
+    }
+
+    private Connection acquire(long remainingMs) throws SQLException {
+        try {
+            return acquire(obtainTargetDataSource(), remainingMs);
+        } catch (SQLTimeoutException e) {
+            acquireTimeouts.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * Lấy connection từ target, chờ pool tối đa remainingMs nếu target là HikariCP
+     * (dùng lại cho các pool đích của ReadWriteRoutingDataSource)
+     * @throws SQLTimeoutException nếu pool không trả connection trong thời hạn còn lại
+     */
+    static Connection acquire(DataSource target, long remainingMs) throws SQLException {
+        if (target instanceof HikariDataSource hikari
+                && hikari.getHikariPoolMXBean() instanceof HikariPool pool
+                && remainingMs < hikari.getConnectionTimeout()) {
+            try {
+                return pool.getConnection(remainingMs);
+            } catch (SQLException e) {
+                SQLTimeoutException timeout = new SQLTimeoutException(
+                        "Không lấy được connection trong thời hạn còn lại " + remainingMs + "ms");
+                timeout.initCause(e);
+                throw timeout;
+            }
+        }
+        // Pool chưa khởi tạo hoặc connectionTimeout đã ngắn hơn thời gian còn lại
+        return target.getConnection();
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new DeadlineConnectionHandler(connection));
+    }
+
+    /**
+     * Đặt query timeout cho mọi statement tạo từ connection theo thời gian còn lại của request
+     */
+    private final class DeadlineConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        DeadlineConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            boolean createsStatement = name.equals("prepareStatement")
+                    || name.equals("createStatement")
+                    || name.equals("prepareCall");
+            if (createsStatement && RequestDeadline.isExpired()) {
+                rejectedExpired.increment();
+                throw new SQLTimeoutException("Request đã quá thời hạn, không thực thi query");
+            }
+            if (name.equals("unwrap") && ((Class<?>) args[0]).isInstance(proxy)) {
+                return proxy;
+            }
+
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (createsStatement && result instanceof Statement statement) {
+                long remaining = RequestDeadline.remainingMillis();
+                if (remaining != Long.MAX_VALUE) {
+                    statement.setQueryTimeout((int) Math.max(1, Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000)));
+                    statementsWithTimeout.increment();
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package com.flogin.jdbc;
+
+import com.flogin.service.RequestDeadline;
+import com.flogin.service.RequestTrace;
+import com.flogin.service.ServiceOperation;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.SQLExceptionSubclassTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * HedgedReadExecutor - Hedged read qua các replica của ReadWriteRoutingDataSource
+ * - Query chạy trên replica thứ nhất ngay trên thread gọi; quá hedge delay chưa có kết quả thì gửi cùng query
+ *   tới replica thứ hai trên pool hedge (giới hạn maxHedgeThreads, pool đầy thì bỏ qua hedge),
+ *   kết quả đến trước được dùng, attempt còn lại bị hủy (Statement.cancel + interrupt).
+ *   Replica thứ nhất lỗi trước hedge delay thì thử replica thứ hai ngay trên thread gọi
+ * - Hedge delay = percentile latency gần đây của attempt đầu tiên, giới hạn trong [minDelayMs, maxDelayMs]
+ *   (chưa đủ mẫu thì dùng maxDelayMs)
+ * - Hedge budget (token bucket): mỗi query cộng budgetRatio token, mỗi hedge tốn 1 token, tối đa budgetBurst
+ *   token -> số query bị gửi hai lần không vượt quá budgetRatio về lâu dài
+ * Chỉ có một đích (đọc phải đi primary, hoặc chỉ một replica theo kịp consistency token) thì chạy bình thường.
+ */
+public class HedgedReadExecutor implements AutoCloseable {
+
+    /**
+     * Số mẫu latency gần nhất dùng để tính percentile, và số mẫu tối thiểu trước khi dùng percentile
+     */
+    static final int LATENCY_SAMPLES = 1024;
+    static final int MIN_SAMPLES = 32;
+
+    /**
+     * Tính lại hedge delay sau mỗi chừng này mẫu (sort LATENCY_SAMPLES phần tử)
+     */
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private static final long TOKEN = 1_000;
+
+    private final ReadWriteRoutingDataSource routing;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final long budgetPerQuery;
+    private final long budgetMax;
+
+    private final SQLExceptionTranslator exceptionTranslator = new SQLExceptionSubclassTranslator();
+
+    private final AtomicInteger threads = new AtomicInteger();
+
+    private final ThreadFactory threadFactory = runnable -> {
+        Thread thread = new Thread(runnable, "flogin-hedged-read-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    /**
+     * Chỉ chạy attempt hedge: không có hàng đợi, đủ maxHedgeThreads attempt đang chạy thì từ chối
+     */
+    private final ThreadPoolExecutor hedgePool;
+
+    /**
+     * Hẹn giờ gửi hedge sau hedge delay trong khi thread gọi đang chạy attempt đầu tiên
+     */
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, threadFactory);
+
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private long samples;
+    private volatile long delayNanos;
+
+    /**
+     * Token budget nhân TOKEN (fixed-point) để cộng phần lẻ của budgetRatio
+     */
+    private final AtomicLong budget;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder singleTarget = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder budgetExhausted = new LongAdder();
+    private final LongAdder hedgeRejected = new LongAdder();
+    private final LongAdder losersCancelled = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @param percentile   percentile latency dùng làm hedge delay (vd: 95)
+     * @param budgetRatio  tỉ lệ tối đa query được hedge (vd: 0.1 = 10%)
+     * @param budgetBurst  số hedge tối đa được dồn liên tiếp
+     * @param maxHedgeThreads số attempt hedge chạy đồng thời tối đa
+     */
+    public HedgedReadExecutor(ReadWriteRoutingDataSource routing, double percentile, long minDelayMs, long maxDelayMs,
+                              double budgetRatio, int budgetBurst, int maxHedgeThreads) {
+        if (percentile <= 0 || percentile >= 100 || minDelayMs < 0 || maxDelayMs < minDelayMs
+                || budgetRatio < 0 || budgetBurst < 0 || maxHedgeThreads < 1) {
+            throw new IllegalArgumentException("Cấu hình hedged read không hợp lệ");
+        }
+        this.routing = routing;
+        this.percentile = percentile;
+        this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(minDelayMs);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.budgetPerQuery = Math.round(budgetRatio * TOKEN);
+        this.budgetMax = budgetBurst * TOKEN;
+        this.budget = new AtomicLong(budgetMax);
+        this.delayNanos = maxDelayNanos;
+        this.hedgePool = new ThreadPoolExecutor(0, maxHedgeThreads, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Chạy query đọc (có thể được hedge)
+     * @throws org.springframework.dao.DataAccessException khi mọi attempt đều lỗi
+     */
+    public <T> T query(String sql, PreparedStatementSetter setter, ResultSetExtractor<T> extractor) {
+        List<DataSource> targets = routing.readTargets(2);
+        queries.increment();
+        budget.accumulateAndGet(budgetPerQuery, (current, add) -> Math.min(budgetMax, current + add));
+        try {
+            if (targets.size() < 2) {
+                singleTarget.increment();
+                return execute(targets.get(0), sql, setter, extractor, null);
+            }
+            return hedge(targets, sql, setter, extractor);
+        } catch (SQLException e) {
+            failures.increment();
+            throw exceptionTranslator.translate("Hedged read", sql, e);
+        }
+    }
+
+    private <T> T hedge(List<DataSource> targets, String sql, PreparedStatementSetter setter,
+                        ResultSetExtractor<T> extractor) throws SQLException {
+        long remaining = RequestDeadline.remainingMillis();
+        long deadlineNanos = remaining == Long.MAX_VALUE ? Long.MAX_VALUE
+                : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, remaining));
+        Attempt<T> first = new Attempt<>(targets.get(0), sql, setter, extractor, deadlineNanos, null);
+        Attempt<T> second = new Attempt<>(targets.get(1), sql, setter, extractor, deadlineNanos, first);
+        HedgeDecision decision = new HedgeDecision();
+        ScheduledFuture<?> trigger = timer.schedule(() -> decision.onDelay(() -> launch(second)),
+                delayNanos, TimeUnit.NANOSECONDS);
+
+        first.runOnCaller();
+        trigger.cancel(false);
+        boolean hedgeConsidered = decision.close();
+        boolean hedgeLaunched = decision.launched();
+        recordLatency(first.elapsedNanos);
+
+        if (first.failure == null) {
+            if (hedgeLaunched && second.cancel()) {
+                losersCancelled.increment();
+            }
+            return first.result;
+        }
+        if (hedgeLaunched) {
+            // Attempt hedge đang chạy (hoặc đã thắng và hủy attempt đầu tiên) -> chờ kết quả của nó
+            try {
+                second.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                second.cancel();
+                throw new SQLException("Hedged read bị gián đoạn", e);
+            }
+        } else if (!hedgeConsidered && tryConsumeBudget()) {
+            // Replica thứ nhất lỗi trước hedge delay -> thử replica thứ hai ngay trên thread gọi
+            hedged.increment();
+            second.runOnCaller();
+        } else {
+            if (!hedgeConsidered) {
+                budgetExhausted.increment();
+            }
+            throw first.failure;
+        }
+        if (second.failure == null) {
+            hedgeWins.increment();
+            return second.result;
+        }
+        first.failure.addSuppressed(second.failure);
+        throw first.failure;
+    }
+
+    /**
+     * Gửi attempt hedge lên pool nếu còn budget và pool còn thread
+     * @return true nếu attempt hedge đã được gửi
+     */
+    private boolean launch(Attempt<?> hedge) {
+        if (!tryConsumeBudget()) {
+            budgetExhausted.increment();
+            return false;
+        }
+        try {
+            hedgePool.execute(hedge);
+        } catch (RejectedExecutionException e) {
+            // Pool hedge đầy: trả lại token, query chỉ chờ attempt đầu tiên
+            budget.accumulateAndGet(TOKEN, (current, add) -> Math.min(budgetMax, current + add));
+            hedgeRejected.increment();
+            return false;
+        }
+        hedged.increment();
+        return true;
+    }
+
+    /**
+     * Quyết định hedge của một query: timer hết hedge delay và thread gọi xong attempt đầu tiên,
+     * bên nào đến trước quyết định, bên sau thấy kết quả đã quyết định
+     */
+    private static final class HedgeDecision {
+        private boolean decided;
+        private boolean launched;
+
+        /**
+         * Hết hedge delay: gửi hedge nếu attempt đầu tiên chưa xong
+         */
+        synchronized void onDelay(BooleanSupplier launch) {
+            if (!decided) {
+                decided = true;
+                launched = launch.getAsBoolean();
+            }
+        }
+
+        /**
+         * Attempt đầu tiên đã xong: không gửi hedge nữa
+         * @return true nếu hedge đã được xét trước đó (gửi hoặc không)
+         */
+        synchronized boolean close() {
+            boolean wasDecided = decided;
+            decided = true;
+            return wasDecided;
+        }
+
+        synchronized boolean launched() {
+            return launched;
+        }
+    }
+
+    private boolean tryConsumeBudget() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        latencies[(int) (samples % LATENCY_SAMPLES)] = nanos;
+        samples++;
+        if (samples == MIN_SAMPLES || (samples > MIN_SAMPLES && samples % RECOMPUTE_EVERY == 0)) {
+            long[] window = Arrays.copyOf(latencies, (int) Math.min(samples, LATENCY_SAMPLES));
+            Arrays.sort(window);
+            long value = window[(int) Math.min(window.length - 1, Math.ceil(percentile / 100 * window.length) - 1)];
+            delayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, value));
+        }
+    }
+
+    /**
+     * Chạy query trên target; attempt != null thì statement được đăng ký để có thể bị hủy
+     * Replica nằm dưới StatementStatsDataSource nên span SQL của tracing được mở ở đây
+     */
+    private <T> T execute(DataSource target, String sql, PreparedStatementSetter setter,
+                          ResultSetExtractor<T> extractor, Attempt<T> attempt) throws SQLException {
+        RequestTrace.Span span = RequestTrace.current() == null ? RequestTrace.Span.NOOP
+                : RequestTrace.start("SELECT", RequestTrace.Kind.CLIENT)
+                        .attribute("db.query.text", SqlStatementStats.normalize(sql))
+                        .attribute("flogin.hedged", attempt != null);
+        long remaining = RequestDeadline.remainingMillis();
+        try {
+            if (remaining <= 0) {
+                throw new SQLTimeoutException("Request đã quá thời hạn, không thực thi query");
+            }
+            try (Connection connection = remaining == Long.MAX_VALUE
+                    ? target.getConnection()
+                    : DeadlineDataSource.acquire(target, remaining);
+                 PreparedStatement statement = connection.prepareStatement(sql)) {
+                if (attempt != null && !attempt.register(statement)) {
+                    throw new SQLException("Attempt đã bị hủy");
+                }
+                remaining = RequestDeadline.remainingMillis();
+                if (remaining != Long.MAX_VALUE) {
+                    statement.setQueryTimeout((int) Math.max(1, Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000)));
+                }
+                setter.setValues(statement);
+                try (ResultSet rs = statement.executeQuery()) {
+                    return extractor.extractData(rs);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Một lần chạy query trên một replica: attempt đầu tiên chạy trên thread gọi (runOnCaller),
+     * attempt hedge chạy trên pool (run) và thắng thì hủy attempt đầu tiên
+     */
+    private final class Attempt<T> implements Runnable {
+
+        private final DataSource target;
+        private final String sql;
+        private final PreparedStatementSetter setter;
+        private final ResultSetExtractor<T> extractor;
+        private final long deadlineNanos;
+        private final Attempt<T> rival;
+        private final String operation = ServiceOperation.current();
+        private final RequestTrace.Span span = RequestTrace.current();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private PreparedStatement statement;
+        private Thread runner;
+        private boolean cancelled;
+        private boolean finished;
+
+        long elapsedNanos;
+        T result;
+        SQLException failure;
+
+        Attempt(DataSource target, String sql, PreparedStatementSetter setter, ResultSetExtractor<T> extractor,
+                long deadlineNanos, Attempt<T> rival) {
+            this.target = target;
+            this.sql = sql;
+            this.setter = setter;
+            this.extractor = extractor;
+            this.deadlineNanos = deadlineNanos;
+            this.rival = rival;
+        }
+
+        /**
+         * Chạy trên thread gọi (deadline, trace, operation đã có sẵn trên thread)
+         */
+        void runOnCaller() {
+            try {
+                execute();
+            } finally {
+                boolean interruptedByCancel;
+                synchronized (this) {
+                    finished = true;
+                    statement = null;
+                    runner = null;
+                    interruptedByCancel = cancelled;
+                }
+                if (interruptedByCancel) {
+                    // Chỉ xóa interrupt do cancel() gây ra: sau finished = true không còn interrupt nào nữa
+                    Thread.interrupted();
+                }
+                done.countDown();
+            }
+        }
+
+        /**
+         * Chạy trên pool hedge: mang deadline, trace và operation của request sang thread của pool
+         */
+        @Override
+        public void run() {
+            if (deadlineNanos != Long.MAX_VALUE) {
+                RequestDeadline.start(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime())));
+            }
+            boolean entered = ServiceOperation.enter(operation);
+            boolean attached = RequestTrace.attach(span);
+            try {
+                execute();
+                if (failure == null && rival != null && rival.cancel()) {
+                    losersCancelled.increment();
+                }
+            } finally {
+                RequestTrace.detach(attached);
+                ServiceOperation.exit(entered);
+                RequestDeadline.clear();
+                synchronized (this) {
+                    statement = null;
+                    runner = null;
+                    finished = true;
+                }
+                // Xóa cờ interrupt (nếu bị hủy) trước khi thread quay lại pool
+                Thread.interrupted();
+                done.countDown();
+            }
+        }
+
+        private void execute() {
+            long startNanos = System.nanoTime();
+            synchronized (this) {
+                if (cancelled) {
+                    failure = new SQLException("Attempt đã bị hủy");
+                    finished = true;
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                result = HedgedReadExecutor.this.execute(target, sql, setter, extractor, this);
+            } catch (SQLException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new SQLException(e.getMessage(), e);
+            } finally {
+                elapsedNanos = System.nanoTime() - startNanos;
+            }
+        }
+
+        void await() throws InterruptedException {
+            done.await();
+        }
+
+        synchronized boolean register(PreparedStatement statement) {
+            this.statement = statement;
+            return !cancelled;
+        }
+
+        /**
+         * @return true nếu attempt còn đang chạy khi bị hủy
+         */
+        boolean cancel() {
+            PreparedStatement running;
+            synchronized (this) {
+                if (cancelled || finished) {
+                    return false;
+                }
+                cancelled = true;
+                running = statement;
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+            if (running != null) {
+                try {
+                    running.cancel();
+                } catch (SQLException ignored) {
+                    // Statement đã đóng / driver không hỗ trợ hủy: attempt tự kết thúc, kết quả bị bỏ qua
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return cấu hình, hedge delay hiện tại, tỉ lệ hedge và tỉ lệ hedge thắng
+     */
+    public Map<String, Object> getStats() {
+        long queryCount = queries.sum();
+        long hedgedCount = hedged.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("percentile", percentile);
+        stats.put("minDelayMs", TimeUnit.NANOSECONDS.toMillis(minDelayNanos));
+        stats.put("maxDelayMs", TimeUnit.NANOSECONDS.toMillis(maxDelayNanos));
+        stats.put("hedgeDelayMs", delayNanos / 1_000_000.0);
+        stats.put("budgetRatio", budgetPerQuery / (double) TOKEN);
+        stats.put("budgetAvailable", budget.get() / (double) TOKEN);
+        stats.put("queries", queryCount);
+        // Query chỉ có một đích (primary, hoặc một replica theo kịp) nên không thể hedge
+        stats.put("singleTarget", singleTarget.sum());
+        stats.put("hedged", hedgedCount);
+        stats.put("hedgeRate", queryCount == 0 ? 0.0 : (double) hedgedCount / queryCount);
+        stats.put("hedgeWins", hedgeWins.sum());
+        stats.put("hedgeWinRate", hedgedCount == 0 ? 0.0 : (double) hedgeWins.sum() / hedgedCount);
+        stats.put("budgetExhausted", budgetExhausted.sum());
+        // Đủ maxHedgeThreads attempt hedge đang chạy: không hedge thêm
+        stats.put("hedgeRejected", hedgeRejected.sum());
+        stats.put("losersCancelled", losersCancelled.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        hedgePool.shutdownNow();
+    }
+}
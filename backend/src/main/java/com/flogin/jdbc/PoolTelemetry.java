@@ -0,0 +1,329 @@
+package com.flogin.jdbc;
+
+import com.flogin.service.ServiceOperation;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PoolTelemetry - Số liệu bão hòa connection pool (HikariCP) theo pool và theo service method gọi tới
+ * - Gắn vào pool qua MetricsTrackerFactory của HikariCP: thời gian chờ lấy connection (acquire),
+ *   thời gian giữ connection (usage) và số lần hết connectionTimeout, ghi vào LatencyHistogram
+ * - Mỗi lần ghi được phân loại theo ServiceOperation của thread gọi (vd: "ProductService.getProductById",
+ *   "AuthService.authenticate"), ngoài service method thì là NO_OPERATION
+ * - Gauge total / active / idle / pending lấy trực tiếp từ pool lúc đọc số liệu
+ * - Cộng dồn theo cửa sổ (drainWindow) cho AdaptivePoolSizer: thời gian chờ trung bình, timeout,
+ *   số connection dùng đồng thời lớn nhất và latency câu SQL (nhận từ SqlStatementStats nếu có)
+ * Pool đã có metricRegistry / MetricsTrackerFactory khác thì không gắn được (HikariCP chỉ nhận một).
+ */
+public class PoolTelemetry implements SqlStatementStats.StatementListener {
+
+    static final String NO_OPERATION = "(none)";
+
+    private final Map<String, PoolMetrics> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Tên pool theo thứ tự gắn (pool chính / home shard trước)
+     */
+    private final List<String> poolNames = new CopyOnWriteArrayList<>();
+
+    /**
+     * Tên service method -> số liệu, số lượng giới hạn bởi số public method của các *Service
+     */
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    /**
+     * Service method đã mượn từng connection đang giữ trên thread (theo thứ tự mượn): thời gian giữ
+     * được tính cho method đã mượn, kể cả khi connection được trả sau khi method kết thúc (vd: open-in-view)
+     */
+    private final ThreadLocal<ArrayDeque<OperationMetrics>> borrowedBy = ThreadLocal.withInitial(ArrayDeque::new);
+    private static final int MAX_BORROWED = 16;
+
+    // Latency câu SQL trong cửa sổ hiện tại (mọi pool), dùng làm latency database cho AdaptivePoolSizer
+    private final LongAdder windowStatements = new LongAdder();
+    private final LongAdder windowStatementNanos = new LongAdder();
+
+    /**
+     * Số liệu một cửa sổ của một pool, thời gian tính bằng nano giây
+     * @param statements số câu SQL đã chạy (mọi pool), 0 nếu không có SqlStatementStats
+     */
+    public record Window(long acquires, long acquireNanos, long timeouts, int maxInUse,
+                         long usages, long usageNanos, long statements, long statementNanos) {
+
+        public double meanAcquireNanos() {
+            return acquires == 0 ? 0 : (double) acquireNanos / acquires;
+        }
+
+        /**
+         * @return latency trung bình của câu SQL, không có câu SQL thì lấy thời gian giữ connection
+         */
+        public double meanDatabaseNanos() {
+            if (statements > 0) {
+                return (double) statementNanos / statements;
+            }
+            return usages == 0 ? 0 : (double) usageNanos / usages;
+        }
+    }
+
+    private static final class OperationMetrics {
+        private final LatencyHistogram acquire = new LatencyHistogram();
+        private final LatencyHistogram usage = new LatencyHistogram();
+        private final LongAdder timeouts = new LongAdder();
+    }
+
+    private final class PoolMetrics implements IMetricsTracker {
+        private final HikariDataSource pool;
+        private final LatencyHistogram acquire = new LatencyHistogram();
+        private final LatencyHistogram usage = new LatencyHistogram();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder created = new LongAdder();
+        private final AtomicInteger inUse = new AtomicInteger();
+
+        private final LongAdder windowAcquires = new LongAdder();
+        private final LongAdder windowAcquireNanos = new LongAdder();
+        private final LongAdder windowTimeouts = new LongAdder();
+        private final LongAdder windowUsages = new LongAdder();
+        private final LongAdder windowUsageNanos = new LongAdder();
+        private final AtomicInteger windowMaxInUse = new AtomicInteger();
+
+        PoolMetrics(HikariDataSource pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            created.increment();
+        }
+
+        // Các callback dưới đây chạy trên thread lấy / trả connection nên đọc được ServiceOperation
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(elapsedAcquiredNanos);
+            OperationMetrics operation = operation();
+            acquire.record(micros);
+            operation.acquire.record(micros);
+            ArrayDeque<OperationMetrics> borrowed = borrowedBy.get();
+            if (borrowed.size() >= MAX_BORROWED) {
+                // Connection được trả trên thread khác: không giữ mãi trên thread này
+                borrowed.clear();
+            }
+            borrowed.addLast(operation);
+            windowAcquires.increment();
+            windowAcquireNanos.add(elapsedAcquiredNanos);
+            int current = inUse.incrementAndGet();
+            windowMaxInUse.accumulateAndGet(current, Math::max);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            long micros = TimeUnit.MILLISECONDS.toMicros(elapsedBorrowedMillis);
+            OperationMetrics operation = borrowedBy.get().pollLast();
+            usage.record(micros);
+            (operation != null ? operation : operation()).usage.record(micros);
+            windowUsages.increment();
+            windowUsageNanos.add(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            inUse.decrementAndGet();
+        }
+
+        /**
+         * HikariCP gọi recordConnectionAcquiredNanos (thời gian đã chờ) trước callback này cho cùng lần lấy
+         * bị timeout: thời gian chờ vẫn tính vào acquire, nhưng không có connection nào được mượn
+         */
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+            OperationMetrics operation = borrowedBy.get().pollLast();
+            (operation != null ? operation : operation()).timeouts.increment();
+            windowTimeouts.increment();
+            inUse.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gắn telemetry vào mọi pool HikariCP nằm sau dataSource
+     * @return số pool được gắn
+     */
+    public int instrumentAll(DataSource dataSource) {
+        int instrumented = 0;
+        for (HikariDataSource pool : findPools(dataSource)) {
+            if (instrument(pool)) {
+                instrumented++;
+            }
+        }
+        return instrumented;
+    }
+
+    /**
+     * Gắn telemetry vào một pool (pool đang chạy hoặc chưa khởi tạo)
+     * @return false nếu pool đã được gắn hoặc đã có metricRegistry / MetricsTrackerFactory khác
+     */
+    public boolean instrument(HikariDataSource pool) {
+        if (pool.getMetricsTrackerFactory() != null || pool.getMetricRegistry() != null) {
+            return false;
+        }
+        if (pool.getPoolName() == null) {
+            // Pool chưa khởi tạo: HikariCP chỉ đặt tên mặc định lúc khởi tạo, cần tên cố định làm khóa từ bây giờ
+            pool.setPoolName("flogin-pool-" + (pools.size() + 1));
+        }
+        PoolMetrics metrics = new PoolMetrics(pool);
+        pools.put(pool.getPoolName(), metrics);
+        poolNames.add(pool.getPoolName());
+        pool.setMetricsTrackerFactory((poolName, poolStats) -> metrics);
+        return true;
+    }
+
+    /**
+     * Tìm các pool HikariCP sau các lớp bọc (DelegatingDataSource) và routing (AbstractRoutingDataSource)
+     */
+    public static List<HikariDataSource> findPools(DataSource dataSource) {
+        List<HikariDataSource> found = new ArrayList<>();
+        collectPools(dataSource, found);
+        return found;
+    }
+
+    private static void collectPools(DataSource dataSource, List<HikariDataSource> found) {
+        if (dataSource instanceof HikariDataSource pool) {
+            if (!found.contains(pool)) {
+                found.add(pool);
+            }
+        } else if (dataSource instanceof DelegatingDataSource delegating && delegating.getTargetDataSource() != null) {
+            collectPools(delegating.getTargetDataSource(), found);
+        } else if (dataSource instanceof AbstractRoutingDataSource routing) {
+            // DataSource mặc định (primary / home shard) trước
+            if (routing.getResolvedDefaultDataSource() != null) {
+                collectPools(routing.getResolvedDefaultDataSource(), found);
+            }
+            for (DataSource target : routing.getResolvedDataSources().values()) {
+                collectPools(target, found);
+            }
+        }
+    }
+
+    /**
+     * @return pool đã gắn telemetry theo tên, null nếu không có
+     */
+    public HikariDataSource getPool(String poolName) {
+        PoolMetrics metrics = pools.get(poolName);
+        return metrics == null ? null : metrics.pool;
+    }
+
+    public List<String> getPoolNames() {
+        return List.copyOf(poolNames);
+    }
+
+    /**
+     * Số liệu cộng dồn của một pool từ lúc gắn telemetry (cho metrics dạng counter / timer, vd: Prometheus)
+     */
+    public record Totals(long acquires, long acquireMicros, long usages, long usageMicros, long timeouts) {
+    }
+
+    /**
+     * @return null nếu pool chưa gắn telemetry
+     */
+    public Totals getTotals(String poolName) {
+        PoolMetrics metrics = pools.get(poolName);
+        if (metrics == null) {
+            return null;
+        }
+        return new Totals(metrics.acquire.getCount(), metrics.acquire.getTotalMicros(),
+                metrics.usage.getCount(), metrics.usage.getTotalMicros(), metrics.timeouts.sum());
+    }
+
+    @Override
+    public void executed(String sql, long nanos, boolean failed) {
+        windowStatements.increment();
+        windowStatementNanos.add(nanos);
+    }
+
+    /**
+     * Lấy số liệu cửa sổ hiện tại của pool và bắt đầu cửa sổ mới (chỉ một nơi gọi: AdaptivePoolSizer)
+     * Latency câu SQL dùng chung cho mọi pool nên chỉ đúng khi có một pool được điều chỉnh.
+     */
+    public Window drainWindow(String poolName) {
+        PoolMetrics metrics = pools.get(poolName);
+        if (metrics == null) {
+            throw new IllegalArgumentException("Pool chưa gắn telemetry: " + poolName);
+        }
+        return new Window(
+                metrics.windowAcquires.sumThenReset(),
+                metrics.windowAcquireNanos.sumThenReset(),
+                metrics.windowTimeouts.sumThenReset(),
+                metrics.windowMaxInUse.getAndSet(metrics.inUse.get()),
+                metrics.windowUsages.sumThenReset(),
+                metrics.windowUsageNanos.sumThenReset(),
+                windowStatements.sumThenReset(),
+                windowStatementNanos.sumThenReset());
+    }
+
+    private OperationMetrics operation() {
+        String name = ServiceOperation.current();
+        return operations.computeIfAbsent(name == null ? NO_OPERATION : name, key -> new OperationMetrics());
+    }
+
+    /**
+     * @return theo từng pool: kích thước, gauge, acquire / usage (p50/p95/p99/max), timeout;
+     * theo từng service method: acquire / usage / timeout (cộng mọi pool)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> poolStats = new LinkedHashMap<>();
+        for (String name : poolNames) {
+            PoolMetrics metrics = pools.get(name);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("maximumPoolSize", metrics.pool.getMaximumPoolSize());
+            row.put("minimumIdle", metrics.pool.getMinimumIdle());
+            HikariPoolMXBean mxBean = metrics.pool.getHikariPoolMXBean();
+            if (mxBean != null) {
+                row.put("total", mxBean.getTotalConnections());
+                row.put("active", mxBean.getActiveConnections());
+                row.put("idle", mxBean.getIdleConnections());
+                row.put("pending", mxBean.getThreadsAwaitingConnection());
+            }
+            row.put("connectionsCreated", metrics.created.sum());
+            row.put("timeouts", metrics.timeouts.sum());
+            row.put("acquire", describe(metrics.acquire));
+            row.put("usage", describe(metrics.usage));
+            poolStats.put(name, row);
+        }
+
+        Map<String, Object> operationStats = new LinkedHashMap<>();
+        for (Map.Entry<String, OperationMetrics> entry : new TreeMap<>(operations).entrySet()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("timeouts", entry.getValue().timeouts.sum());
+            row.put("acquire", describe(entry.getValue().acquire));
+            row.put("usage", describe(entry.getValue().usage));
+            operationStats.put(entry.getKey(), row);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pools", poolStats);
+        stats.put("operations", operationStats);
+        return stats;
+    }
+
+    private static Map<String, Object> describe(LatencyHistogram histogram) {
+        long count = histogram.getCount();
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("count", count);
+        row.put("meanMs", count == 0 ? 0.0 : histogram.getTotalMicros() / 1000.0 / count);
+        row.put("p50Ms", histogram.percentileMicros(50) / 1000.0);
+        row.put("p95Ms", histogram.percentileMicros(95) / 1000.0);
+        row.put("p99Ms", histogram.percentileMicros(99) / 1000.0);
+        row.put("maxMs", histogram.getMaxMicros() / 1000.0);
+        return row;
+    }
+}
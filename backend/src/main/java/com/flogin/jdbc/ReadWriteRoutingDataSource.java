@@ -0,0 +1,248 @@
+package com.flogin.jdbc;
+
+import com.flogin.service.ReadConsistency;
+import com.flogin.service.RequestDeadline;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ReadWriteRoutingDataSource - Chọn DataSource khi lấy connection thật:
+ * - Transaction ghi (không readOnly) hoặc không có transaction -> primary,
+ *   sau khi commit ghi nhận position (epoch ms) vào ReadConsistency để trả consistency token
+ * - Transaction readOnly -> replica (round-robin) đã áp dụng tới position client yêu cầu,
+ *   không có replica nào theo kịp -> primary (read-your-writes)
+ * Phải được bọc trong LazyConnectionDataSourceProxy: JpaTransactionManager lấy connection
+ * ngay khi bắt đầu transaction, trước khi cờ readOnly của transaction được đặt.
+ * Position của replica: do SimulatedReplication báo (positionsReported = true, chưa báo thì chưa dùng),
+ * hoặc ước lượng bằng now - maxReplicaLagMs với replica thật.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private static final long UNKNOWN_POSITION = -1;
+
+    private static final class Replica {
+        final String name;
+        volatile long position = UNKNOWN_POSITION;
+        final LongAdder reads = new LongAdder();
+
+        Replica(String name) {
+            this.name = name;
+        }
+    }
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Map<String, Replica> replicasByName = new HashMap<>();
+    private final boolean positionsReported;
+    private final long maxReplicaLagMs;
+
+    /**
+     * Key resource đánh dấu transaction hiện tại đã đăng ký ghi nhận position sau commit
+     */
+    private final Object writeMarker = new Object();
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicLong lastWritePosition = new AtomicLong();
+
+    private final LongAdder primaryReadWrite = new LongAdder();
+    private final LongAdder primaryReadsPinned = new LongAdder();
+    private final LongAdder primaryReadsFallback = new LongAdder();
+    private final LongAdder replicaReadsStale = new LongAdder();
+    private final LongAdder commitsRecorded = new LongAdder();
+
+    /**
+     * @param replicas          tên -> DataSource của từng replica (thứ tự giữ nguyên cho round-robin)
+     * @param positionsReported true: position do setReplicaPosition báo; false: ước lượng theo maxReplicaLagMs
+     * @param maxReplicaLagMs   độ trễ replication tối đa giả định (chỉ dùng khi positionsReported = false)
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                      boolean positionsReported, long maxReplicaLagMs) {
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas.forEach((name, dataSource) -> {
+            if (PRIMARY.equals(name)) {
+                throw new IllegalArgumentException("Tên replica không được trùng '" + PRIMARY + "'");
+            }
+            Replica replica = new Replica(name);
+            this.replicas.add(replica);
+            this.replicasByName.put(name, replica);
+            targets.put(name, dataSource);
+        });
+        this.positionsReported = positionsReported;
+        this.maxReplicaLagMs = maxReplicaLagMs;
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Replica đã áp dụng mọi thay đổi commit trên primary tới position (epoch ms)
+     */
+    public void setReplicaPosition(String name, long position) {
+        Replica replica = replicasByName.get(name);
+        if (replica == null) {
+            throw new IllegalArgumentException("Không có replica '" + name + "'");
+        }
+        replica.position = position;
+    }
+
+    /**
+     * Replica tạm không dùng được (vd: đang dựng lại schema) cho tới lần setReplicaPosition tiếp theo
+     */
+    public void markReplicaUnavailable(String name) {
+        setReplicaPosition(name, UNKNOWN_POSITION);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        long remaining = RequestDeadline.remainingMillis();
+        if (remaining != Long.MAX_VALUE && remaining > 0) {
+            // Chờ pool đích (primary hoặc replica) không quá deadline của request
+            return DeadlineDataSource.acquire(target, remaining);
+        }
+        return target.getConnection();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            registerCommitListener();
+            primaryReadWrite.increment();
+            return PRIMARY;
+        }
+        List<Replica> selected = selectReplicas(1);
+        return selected.isEmpty() ? PRIMARY : selected.get(0).name;
+    }
+
+    /**
+     * Đích cho một truy vấn đọc theo ReadConsistency hiện tại (dùng cho hedged read):
+     * tối đa max replica khác nhau đã theo kịp, theo thứ tự round-robin, hoặc chỉ primary
+     */
+    public List<DataSource> readTargets(int max) {
+        List<Replica> selected = selectReplicas(max);
+        Map<Object, DataSource> resolved = getResolvedDataSources();
+        if (selected.isEmpty()) {
+            return List.of(resolved.get(PRIMARY));
+        }
+        return selected.stream().map(replica -> resolved.get(replica.name)).toList();
+    }
+
+    /**
+     * @return replica cho truy vấn đọc (replica đầu tiên được tính là nơi đọc),
+     *         rỗng nếu phải đọc từ primary
+     */
+    private List<Replica> selectReplicas(int max) {
+        long required = ReadConsistency.requiredPosition();
+        if (ReadConsistency.isPrimaryOnly()) {
+            primaryReadsPinned.increment();
+            return List.of();
+        }
+
+        List<Replica> selected = pickReplicas(required, max);
+        if (selected.isEmpty()) {
+            // Client có token mới hơn mọi replica -> pin primary; không token thì chưa replica nào sẵn sàng
+            (required > 0 ? primaryReadsPinned : primaryReadsFallback).increment();
+            return selected;
+        }
+        Replica replica = selected.get(0);
+        replica.reads.increment();
+        if (positionOf(replica) < lastWritePosition.get()) {
+            replicaReadsStale.increment();
+            ReadConsistency.markStaleRead();
+        }
+        return selected;
+    }
+
+    private List<Replica> pickReplicas(long requiredPosition, int max) {
+        int size = replicas.size();
+        if (size == 0) {
+            return List.of();
+        }
+        List<Replica> selected = new ArrayList<>(Math.min(max, size));
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size && selected.size() < max; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            long position = positionOf(replica);
+            if (position != UNKNOWN_POSITION && position >= requiredPosition) {
+                selected.add(replica);
+            }
+        }
+        return selected;
+    }
+
+    private long positionOf(Replica replica) {
+        return positionsReported ? replica.position : System.currentTimeMillis() - maxReplicaLagMs;
+    }
+
+    /**
+     * Sau khi transaction ghi commit: position = thời điểm commit xong, luôn >= thời điểm dữ liệu
+     * thực sự được ghi, nên replica đã áp dụng tới position chắc chắn thấy thay đổi này
+     */
+    private void registerCommitListener() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(writeMarker)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(writeMarker, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                long position = System.currentTimeMillis();
+                lastWritePosition.accumulateAndGet(position, Math::max);
+                commitsRecorded.increment();
+                ReadConsistency.recordWrite(position);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(writeMarker);
+            }
+        });
+    }
+
+    /**
+     * @return số connection theo đích, position và độ trễ của từng replica
+     */
+    public Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("positionsReported", positionsReported);
+        stats.put("maxReplicaLagMs", maxReplicaLagMs);
+        // Connection cho transaction ghi hoặc truy vấn ngoài transaction
+        stats.put("primaryReadWrite", primaryReadWrite.sum());
+        // Đọc phải đi primary vì request ghi / token mới hơn replica, và vì chưa có replica sẵn sàng
+        stats.put("primaryReadsPinned", primaryReadsPinned.sum());
+        stats.put("primaryReadsFallback", primaryReadsFallback.sum());
+        stats.put("replicaReadsStale", replicaReadsStale.sum());
+        stats.put("commitsRecorded", commitsRecorded.sum());
+        stats.put("lastWritePosition", lastWritePosition.get());
+
+        Map<String, Object> replicaStats = new LinkedHashMap<>();
+        for (Replica replica : replicas) {
+            long position = positionOf(replica);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("reads", replica.reads.sum());
+            entry.put("position", position);
+            entry.put("lagMs", position == UNKNOWN_POSITION ? null : Math.max(0, now - position));
+            replicaStats.put(replica.name, entry);
+        }
+        stats.put("replicas", replicaStats);
+        return stats;
+    }
+}
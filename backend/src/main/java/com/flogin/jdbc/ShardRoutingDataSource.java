@@ -0,0 +1,210 @@
+package com.flogin.jdbc;
+
+import com.flogin.service.RequestDeadline;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * ShardRoutingDataSource - Chọn shard (database) khi lấy connection thật theo shard đang chạy trên thread
+ * - callOnShard(shard, action): mọi connection lấy trong action đi tới shard đó
+ * - Ngoài callOnShard -> shard 0 (home shard, chứa các bảng không shard như users)
+ * Id toàn cục: mỗi shard sinh id bằng identity riêng bắt đầu từ MAX_SHARDS + shard, bước nhảy MAX_SHARDS,
+ * nên id & (MAX_SHARDS - 1) luôn là shard chứa dòng đó và id không trùng giữa các shard
+ * (thêm shard mới vào slot còn trống không phải đổi id cũ).
+ * Phải được bọc trong LazyConnectionDataSourceProxy: transaction bắt đầu ngoài callOnShard
+ * (vd: @Transactional của service) không được giữ connection của shard 0.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * Số slot shard tối đa mã hóa trong id (4 bit thấp)
+     */
+    public static final int MAX_SHARDS = 16;
+
+    static final int HOME_SHARD = 0;
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final int shardCount;
+    private final LongAdder[] connections;
+    private final LongAdder homeShardDefaults = new LongAdder();
+
+    /**
+     * @param shards DataSource của từng shard, vị trí trong list là số shard (slot trong id)
+     */
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        if (shards.isEmpty() || shards.size() > MAX_SHARDS) {
+            throw new IllegalArgumentException("Số shard phải từ 1 tới " + MAX_SHARDS + ": " + shards.size());
+        }
+        this.shardCount = shards.size();
+        this.connections = new LongAdder[shardCount];
+        Map<Object, Object> targets = new LinkedHashMap<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            targets.put(shard, shards.get(shard));
+            connections[shard] = new LongAdder();
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(HOME_SHARD));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * @return shard chứa dòng có id này, -1 nếu id thuộc slot chưa có shard (dòng không thể tồn tại)
+     */
+    public int shardOf(long id) {
+        int slot = (int) (id & (MAX_SHARDS - 1));
+        return id > 0 && slot < shardCount ? slot : -1;
+    }
+
+    /**
+     * Chạy action với mọi connection lấy trên thread hiện tại đi tới shard đã chọn
+     */
+    public static <T> T callOnShard(int shard, Supplier<T> action) {
+        Integer previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT_SHARD.remove();
+            } else {
+                CURRENT_SHARD.set(previous);
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        DataSource target = determineTargetDataSource();
+        long remaining = RequestDeadline.remainingMillis();
+        if (remaining != Long.MAX_VALUE && remaining > 0) {
+            // Chờ pool của shard không quá deadline của request
+            return DeadlineDataSource.acquire(target, remaining);
+        }
+        return target.getConnection();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = CURRENT_SHARD.get();
+        if (shard == null) {
+            homeShardDefaults.increment();
+            shard = HOME_SHARD;
+        }
+        connections[shard].increment();
+        return shard;
+    }
+
+    /**
+     * DataSource thật của một shard (không qua thread-local), dùng cho khởi tạo schema
+     */
+    public DataSource shardDataSource(int shard) {
+        return (DataSource) getResolvedDataSources().get(shard);
+    }
+
+    /**
+     * Cấu hình identity của cột id trên từng shard theo sơ đồ id toàn cục
+     * (START WITH MAX_SHARDS + shard, INCREMENT BY MAX_SHARDS).
+     * Chỉ tự cấu hình được với H2; SQL Server không đổi được identity đã có nên chỉ kiểm tra
+     * (phải tạo sẵn IDENTITY(MAX_SHARDS + shard, MAX_SHARDS)), database khác không được hỗ trợ.
+     * @throws IllegalStateException nếu identity không theo sơ đồ và không tự cấu hình được
+     *         (shard H2 đã có dữ liệu, SQL Server tạo sai, database khác) -> ứng dụng không khởi động
+     */
+    public void prepareIdentity(String table, String idColumn) throws SQLException {
+        for (int shard = 0; shard < shardCount; shard++) {
+            try (Connection connection = shardDataSource(shard).getConnection()) {
+                String product = connection.getMetaData().getDatabaseProductName();
+                if ("Microsoft SQL Server".equals(product)) {
+                    checkSqlServerIdentity(connection, shard, table);
+                    continue;
+                }
+                if (!"H2".equals(product)) {
+                    throw new IllegalStateException("Shard " + shard + " dùng " + product
+                            + ": không kiểm tra được identity " + table + "." + idColumn + ", sharding chỉ hỗ trợ H2 và SQL Server");
+                }
+                if (identityIncrement(connection, table, idColumn) == MAX_SHARDS) {
+                    continue;
+                }
+                try (Statement statement = connection.createStatement()) {
+                    try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                        rs.next();
+                        if (rs.getLong(1) > 0) {
+                            throw new IllegalStateException("Shard " + shard + " đã có dữ liệu trong " + table
+                                    + " với id không mã hóa shard, không thể bật sharding trên database này");
+                        }
+                    }
+                    statement.execute("ALTER TABLE " + table + " ALTER COLUMN " + idColumn
+                            + " RESTART WITH " + (MAX_SHARDS + shard));
+                    statement.execute("ALTER TABLE " + table + " ALTER COLUMN " + idColumn
+                            + " SET INCREMENT BY " + MAX_SHARDS);
+                }
+            }
+        }
+    }
+
+    private static void checkSqlServerIdentity(Connection connection, int shard, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT IDENT_SEED(?), IDENT_INCR(?)")) {
+            statement.setString(1, table);
+            statement.setString(2, table);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next() || rs.getObject(1) == null || rs.getObject(2) == null) {
+                    throw new IllegalStateException("Không tìm thấy identity của bảng " + table + " trên shard " + shard);
+                }
+                long seed = rs.getLong(1);
+                long increment = rs.getLong(2);
+                if (increment != MAX_SHARDS || seed <= 0 || (seed & (MAX_SHARDS - 1)) != shard) {
+                    throw new IllegalStateException("Shard " + shard + ": identity của " + table + " là IDENTITY("
+                            + seed + ", " + increment + "), phải tạo lại với IDENTITY(" + (MAX_SHARDS + shard)
+                            + ", " + MAX_SHARDS + ") trước khi bật sharding");
+                }
+            }
+        }
+    }
+
+    private static long identityIncrement(Connection connection, String table, String idColumn) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT IDENTITY_INCREMENT FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = ? AND COLUMN_NAME = ?")) {
+            statement.setString(1, table.toUpperCase(Locale.ROOT));
+            statement.setString(2, idColumn.toUpperCase(Locale.ROOT));
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next() || rs.getObject(1) == null) {
+                    throw new IllegalStateException("Không tìm thấy identity " + table + "." + idColumn);
+                }
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    /**
+     * @return số connection thật đã lấy theo shard, và số lần không có shard nào được chọn (đi home shard)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("shardCount", shardCount);
+        List<Long> perShard = new ArrayList<>(shardCount);
+        for (LongAdder adder : connections) {
+            perShard.add(adder.sum());
+        }
+        stats.put("connectionsPerShard", perShard);
+        stats.put("homeShardDefaults", homeShardDefaults.sum());
+        return stats;
+    }
+}
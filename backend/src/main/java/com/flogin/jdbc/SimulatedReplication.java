@@ -0,0 +1,168 @@
+package com.flogin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SimulatedReplication - Giả lập replication bất đồng bộ giữa các database H2 (chạy local / test)
+ * - Mỗi intervalMs: chụp snapshot primary (SCRIPT) tại thời điểm t
+ * - Sau lagMs: áp snapshot lên từng replica trong một transaction (xóa dữ liệu cũ + INSERT),
+ *   rồi báo position t cho ReadWriteRoutingDataSource
+ * - Schema thay đổi (lần đầu, hoặc Hibernate tạo bảng sau khi đã chụp) -> dựng lại toàn bộ replica,
+ *   replica không được dùng trong lúc dựng lại
+ * Replica chỉ đọc nên không cần giữ đúng giá trị identity / sequence.
+ */
+public class SimulatedReplication implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SimulatedReplication.class);
+
+    private static final Pattern CREATE_TABLE =
+            Pattern.compile("^CREATE (?:CACHED |MEMORY )?TABLE (\"[^\"]+\"\\.\"[^\"]+\")");
+    private static final Pattern IDENTITY_RESTART = Pattern.compile(" RESTART WITH \\d+");
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final ReadWriteRoutingDataSource routing;
+    private final long lagMs;
+    private final long intervalMs;
+
+    /**
+     * Schema (DDL đã bỏ giá trị identity) đang có trên từng replica
+     */
+    private final Map<String, String> appliedSchema = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "flogin-replication");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private record Snapshot(long position, String schema, List<String> tables,
+                            List<String> script, List<String> inserts) {
+    }
+
+    public SimulatedReplication(DataSource primary, Map<String, DataSource> replicas,
+                                ReadWriteRoutingDataSource routing, long lagMs, long intervalMs) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.routing = routing;
+        this.lagMs = lagMs;
+        this.intervalMs = intervalMs;
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::capture, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void capture() {
+        try {
+            Snapshot snapshot = snapshot();
+            // Cùng một thread, cùng độ trễ -> các snapshot được áp theo đúng thứ tự chụp
+            scheduler.schedule(() -> apply(snapshot), lagMs, TimeUnit.MILLISECONDS);
+        } catch (SQLException e) {
+            log.warn("Không chụp được snapshot primary: {}", e.getMessage());
+        }
+    }
+
+    private Snapshot snapshot() throws SQLException {
+        // Position lấy TRƯỚC khi chụp: mọi transaction commit xong trước đó đều có trong snapshot
+        long position = System.currentTimeMillis();
+        List<String> tables = new ArrayList<>();
+        List<String> script = new ArrayList<>();
+        List<String> inserts = new ArrayList<>();
+        StringBuilder schema = new StringBuilder();
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SCRIPT NOPASSWORDS NOSETTINGS")) {
+            while (rs.next()) {
+                String sql = rs.getString(1);
+                if (sql.startsWith("--")) {
+                    continue;
+                }
+                script.add(sql);
+                if (sql.startsWith("INSERT INTO ")) {
+                    inserts.add(sql);
+                    continue;
+                }
+                schema.append(IDENTITY_RESTART.matcher(sql).replaceAll("")).append('\n');
+                Matcher table = CREATE_TABLE.matcher(sql);
+                if (table.find()) {
+                    tables.add(table.group(1));
+                }
+            }
+        }
+        return new Snapshot(position, schema.toString(), tables, script, inserts);
+    }
+
+    private void apply(Snapshot snapshot) {
+        replicas.forEach((name, replica) -> {
+            try {
+                if (snapshot.schema().equals(appliedSchema.get(name))) {
+                    refreshData(replica, snapshot);
+                } else {
+                    routing.markReplicaUnavailable(name);
+                    rebuild(replica, snapshot);
+                    appliedSchema.put(name, snapshot.schema());
+                }
+                routing.setReplicaPosition(name, snapshot.position());
+            } catch (SQLException e) {
+                // Position giữ nguyên: routing tự chuyển đọc về primary khi client cần dữ liệu mới hơn
+                log.warn("Không áp được snapshot lên replica {}: {}", name, e.getMessage());
+                appliedSchema.remove(name);
+            }
+        });
+    }
+
+    /**
+     * Thay toàn bộ dữ liệu trong một transaction: reader trên replica thấy bản cũ cho tới khi commit
+     */
+    private void refreshData(DataSource replica, Snapshot snapshot) throws SQLException {
+        try (Connection connection = replica.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                for (String table : snapshot.tables()) {
+                    statement.execute("DELETE FROM " + table);
+                }
+                for (String insert : snapshot.inserts()) {
+                    statement.execute(insert);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void rebuild(DataSource replica, Snapshot snapshot) throws SQLException {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            for (String sql : snapshot.script()) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.flogin.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * SqlStatementStats - Thống kê latency theo từng dạng câu SQL (đã chuẩn hóa) và slow query log
+ * - Chuẩn hóa: literal chuỗi / số thành ?, gộp khoảng trắng, IN (?, ?, ...) thành IN (?...)
+ *   -> các lần chạy cùng query với tham số khác nhau dồn vào một dòng thống kê
+ * - Mỗi dạng SQL có một LatencyHistogram (count, tổng, max, percentile), tối đa maxStatements dạng,
+ *   vượt thì dồn vào dạng OTHER
+ * - Câu chạy lâu hơn slowThreshold được log WARN, các câu còn lại log INFO theo tỉ lệ sampleRate;
+ *   log được ghi bởi một thread riêng qua hàng đợi có giới hạn (đầy thì bỏ, đếm logDropped),
+ *   thread chạy query không chờ I/O của log
+ * - Log chỉ chứa SQL đã chuẩn hóa và kiểu của bind parameter (String(12), Long, null...), không có giá trị
+ */
+public class SqlStatementStats implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatementStats.class);
+
+    static final String OTHER = "(other)";
+
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin ?\\( ?\\?(?: ?, ?\\?)* ?\\)");
+
+    private final long slowThresholdNanos;
+    private final double sampleRate;
+    private final int maxStatements;
+
+    /**
+     * SQL gốc -> dạng chuẩn hóa (Hibernate dùng lại cùng chuỗi SQL nên chỉ chuẩn hóa một lần)
+     */
+    private final Map<String, String> normalized = new ConcurrentHashMap<>();
+
+    private final Map<String, LatencyHistogram> statements = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    private final BlockingQueue<LogEntry> logQueue;
+    private final Thread logWriter;
+
+    private final LongAdder slowLogged = new LongAdder();
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder logDropped = new LongAdder();
+
+    private final List<StatementListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Nhận từng câu SQL (SQL gốc, chưa chuẩn hóa) ngay sau khi thực thi, trên thread chạy query
+     * (vd: test đếm số câu SQL mỗi endpoint chạy)
+     */
+    public interface StatementListener {
+        void executed(String sql, long nanos, boolean failed);
+    }
+
+    private record LogEntry(boolean slow, String sql, long micros, String parameters, boolean failed) {
+    }
+
+    /**
+     * @param sampleRate    tỉ lệ câu SQL không chậm được log (0 = không log, 1 = log tất cả)
+     * @param maxStatements số dạng SQL tối đa được thống kê riêng
+     * @param logQueueSize  số dòng log chờ ghi tối đa
+     */
+    public SqlStatementStats(long slowThresholdMs, double sampleRate, int maxStatements, int logQueueSize) {
+        if (slowThresholdMs < 0 || sampleRate < 0 || sampleRate > 1 || maxStatements < 1 || logQueueSize < 1) {
+            throw new IllegalArgumentException("Cấu hình thống kê SQL không hợp lệ");
+        }
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.sampleRate = sampleRate;
+        this.maxStatements = maxStatements;
+        this.logQueue = new ArrayBlockingQueue<>(logQueueSize);
+        this.logWriter = new Thread(this::writeLog, "flogin-sql-log");
+        this.logWriter.setDaemon(true);
+        this.logWriter.start();
+    }
+
+    /**
+     * Ghi nhận một lần thực thi
+     * @param parameters bind parameter theo vị trí (chỉ đọc kiểu khi cần log), null nếu không có
+     */
+    public void record(String sql, long nanos, List<Object> parameters, boolean failed) {
+        for (StatementListener listener : listeners) {
+            listener.executed(sql, nanos, failed);
+        }
+        String shape = shapeOf(sql);
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        String key = statements.containsKey(shape) || statements.size() < maxStatements ? shape : OTHER;
+        statements.computeIfAbsent(key, k -> new LatencyHistogram()).record(micros);
+        if (failed) {
+            errors.computeIfAbsent(key, k -> new LongAdder()).increment();
+        }
+
+        boolean slow = nanos >= slowThresholdNanos;
+        if (slow || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            (slow ? slowLogged : sampled).increment();
+            if (!logQueue.offer(new LogEntry(slow, shape, micros, redact(parameters), failed))) {
+                logDropped.increment();
+            }
+        }
+    }
+
+    public void addListener(StatementListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(StatementListener listener) {
+        listeners.remove(listener);
+    }
+
+    private String shapeOf(String sql) {
+        if (sql == null) {
+            return OTHER;
+        }
+        String shape = normalized.get(sql);
+        if (shape == null) {
+            shape = normalize(sql);
+            // Giới hạn cache khi SQL gốc chứa literal (mỗi lần một chuỗi khác nhau)
+            if (normalized.size() < maxStatements * 4) {
+                normalized.put(sql, shape);
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Chuẩn hóa SQL: literal chuỗi / số thành ?, gộp khoảng trắng, danh sách IN (?, ?, ...) thành IN (?...)
+     */
+    public static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        boolean pendingSpace = false;
+        int length = sql.length();
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = !out.isEmpty();
+                continue;
+            }
+            if (pendingSpace) {
+                out.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '\'') {
+                // Literal chuỗi, '' là dấu nháy bên trong chuỗi
+                i++;
+                while (i < length && !(sql.charAt(i) == '\'' && (i + 1 >= length || sql.charAt(i + 1) != '\''))) {
+                    i += sql.charAt(i) == '\'' ? 2 : 1;
+                }
+                out.append('?');
+            } else if (Character.isDigit(c) && (out.isEmpty() || !isIdentifierPart(out.charAt(out.length() - 1)))) {
+                // Literal số (không phải một phần của tên như p1_0)
+                while (i + 1 < length && (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')) {
+                    i++;
+                }
+                out.append('?');
+            } else {
+                out.append(c);
+            }
+        }
+        return IN_LIST.matcher(out).replaceAll("in (?...)");
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '"' || c == '.';
+    }
+
+    /**
+     * Chỉ giữ kiểu (và độ dài chuỗi / mảng byte) của bind parameter, không giữ giá trị
+     */
+    public static String redact(List<Object> parameters) {
+        if (parameters == null || parameters.isEmpty()) {
+            return "[]";
+        }
+        StringBuilder out = new StringBuilder("[");
+        for (int i = 0; i < parameters.size(); i++) {
+            Object value = parameters.get(i);
+            if (i > 0) {
+                out.append(", ");
+            }
+            if (value == null) {
+                out.append("null");
+            } else if (value instanceof CharSequence text) {
+                out.append("String(").append(text.length()).append(')');
+            } else if (value instanceof byte[] bytes) {
+                out.append("byte[").append(bytes.length).append(']');
+            } else {
+                out.append(value.getClass().getSimpleName());
+            }
+        }
+        return out.append(']').toString();
+    }
+
+    private void writeLog() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                LogEntry entry = logQueue.take();
+                String status = entry.failed() ? " (lỗi)" : "";
+                if (entry.slow()) {
+                    log.warn("SQL chậm {} ms{}: {} params={}",
+                            entry.micros() / 1000.0, status, entry.sql(), entry.parameters());
+                } else {
+                    log.info("SQL (mẫu) {} ms{}: {} params={}",
+                            entry.micros() / 1000.0, status, entry.sql(), entry.parameters());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param top số dạng SQL trong mỗi danh sách (chậm nhất theo p99, chạy nhiều nhất theo count)
+     */
+    public Map<String, Object> getStats(int top) {
+        List<Map<String, Object>> rows = new ArrayList<>(statements.size());
+        long total = 0;
+        long totalErrors = 0;
+        for (Map.Entry<String, LatencyHistogram> entry : statements.entrySet()) {
+            Map<String, Object> row = describe(entry.getKey(), entry.getValue());
+            total += (Long) row.get("count");
+            totalErrors += (Long) row.get("errors");
+            rows.add(row);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("slowThresholdMs", TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos));
+        stats.put("sampleRate", sampleRate);
+        stats.put("statements", total);
+        stats.put("errors", totalErrors);
+        stats.put("distinctStatements", rows.size());
+        stats.put("maxStatements", maxStatements);
+        stats.put("slowLogged", slowLogged.sum());
+        stats.put("sampled", sampled.sum());
+        stats.put("logDropped", logDropped.sum());
+        stats.put("slowest", rows.stream()
+                .sorted(Comparator.comparing((Map<String, Object> row) -> (Double) row.get("p99Ms"))
+                        .thenComparing(row -> (Double) row.get("maxMs")).reversed())
+                .limit(top).toList());
+        stats.put("mostFrequent", rows.stream()
+                .sorted(Comparator.comparing((Map<String, Object> row) -> (Long) row.get("count")).reversed())
+                .limit(top).toList());
+        return stats;
+    }
+
+    private Map<String, Object> describe(String sql, LatencyHistogram histogram) {
+        long count = histogram.getCount();
+        LongAdder failed = errors.get(sql);
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("sql", sql);
+        row.put("count", count);
+        row.put("errors", failed == null ? 0L : failed.sum());
+        row.put("totalMs", histogram.getTotalMicros() / 1000.0);
+        row.put("meanMs", count == 0 ? 0.0 : histogram.getTotalMicros() / 1000.0 / count);
+        row.put("p50Ms", histogram.percentileMicros(50) / 1000.0);
+        row.put("p95Ms", histogram.percentileMicros(95) / 1000.0);
+        row.put("p99Ms", histogram.percentileMicros(99) / 1000.0);
+        row.put("maxMs", histogram.getMaxMicros() / 1000.0);
+        return row;
+    }
+
+    @Override
+    public void close() {
+        logWriter.interrupt();
+    }
+}
@@ -0,0 +1,167 @@
+package com.flogin.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StatementStatsDataSource - Đo thời gian thực thi từng câu SQL đi qua DataSource
+ * - Bọc Connection / Statement bằng JDK proxy, mỗi lần execute* (kể cả executeBatch) được ghi vào
+ *   SqlStatementStats cùng SQL và bind parameter của PreparedStatement
+ * - Chỉ đo lời gọi execute (tới khi driver trả kết quả / ResultSet đầu tiên), không tính thời gian đọc ResultSet
+ * Query chạy thẳng trên pool của replica (HedgedReadExecutor) không đi qua DataSource này nên không được đo.
+ */
+public class StatementStatsDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final SqlStatementStats stats;
+
+    public StatementStatsDataSource(DataSource target, SqlStatementStats stats) {
+        super(target);
+        this.stats = stats;
+    }
+
+    public SqlStatementStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    /**
+     * Dừng thread ghi log (DataSource bean được đóng khi context dừng)
+     */
+    @Override
+    public void close() {
+        stats.close();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Bọc Statement / PreparedStatement / CallableStatement do connection tạo ra
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("unwrap") && ((Class<?>) args[0]).isInstance(proxy)) {
+                return proxy;
+            }
+            Object result = StatementStatsDataSource.invoke(target, method, args);
+            boolean createsStatement = name.equals("prepareStatement")
+                    || name.equals("createStatement")
+                    || name.equals("prepareCall");
+            if (createsStatement && result instanceof Statement statement) {
+                String sql = name.equals("createStatement") ? null : (String) args[0];
+                return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                        new Class<?>[]{method.getReturnType()}, new StatementHandler(statement, sql, (Connection) proxy));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Ghi bind parameter (setXxx theo vị trí) và đo thời gian các lời gọi execute*
+     */
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final Connection connection;
+
+        /**
+         * SQL của PreparedStatement, null với Statement thường (SQL nằm trong tham số execute / addBatch)
+         */
+        private final String sql;
+        private String batchSql;
+        private List<Object> parameters;
+
+        StatementHandler(Statement target, String sql, Connection connection) {
+            this.target = target;
+            this.sql = sql;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (name.startsWith("set") && target instanceof PreparedStatement
+                    && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                // setNull(index, sqlType): giá trị null
+                bind(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters = null;
+            } else if (name.equals("addBatch") && args != null && batchSql == null) {
+                batchSql = (String) args[0];
+            } else if (name.equals("clearBatch")) {
+                batchSql = null;
+            } else if (name.equals("getConnection")) {
+                return connection;
+            } else if (name.equals("unwrap") && ((Class<?>) args[0]).isInstance(proxy)) {
+                return proxy;
+            }
+            return StatementStatsDataSource.invoke(target, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            if (parameters == null) {
+                parameters = new ArrayList<>();
+            }
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, value);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            String executed = sql != null ? sql
+                    : args != null && args.length > 0 && args[0] instanceof String text ? text : batchSql;
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = StatementStatsDataSource.invoke(target, method, args);
+                failed = false;
+                return result;
+            } finally {
+                stats.record(executed, System.nanoTime() - start, parameters, failed);
+            }
+        }
+    }
+}
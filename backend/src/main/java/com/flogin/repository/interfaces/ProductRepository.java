@@ -1,12 +1,21 @@
 package com.flogin.repository.interfaces;
 
+import com.flogin.dto.ProductDtos.ProductDto;
 import com.flogin.entity.Category;
 import com.flogin.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,7 +26,7 @@ import java.util.Optional;
  * @see org.springframework.data.jpa.repository.JpaRepository
  */
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     
     
     List<Product> findByCategory(Category category);
@@ -37,4 +46,62 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
      //Thêm method kiểm tra tên trùng nhưng không phải chính sản phẩm đó (cho update)
     boolean existsByProductNameAndIdNot(String productName, Long id);
+
+    /**
+     * Lấy danh sách products dạng ProductDto (projection, chỉ select các cột cần thiết)
+     * Không tạo managed entity nên không có dirty-checking snapshot
+     * Sắp theo id: các trang ổn định và đọc theo primary key, không phải sort
+     */
+    @Query(value = "select new com.flogin.dto.ProductDtos.ProductDto(p.id, p.category, p.price, p.productName, p.description, p.quantity, p.version) from Product p order by p.id",
+            countQuery = "select count(p) from Product p")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    Page<ProductDto> findAllProductDtos(Pageable pageable);
+
+    /**
+     * Tìm một product theo id dạng ProductDto (projection)
+     */
+    @Query("select new com.flogin.dto.ProductDtos.ProductDto(p.id, p.category, p.price, p.productName, p.description, p.quantity, p.version) from Product p where p.id = :id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    Optional<ProductDto> findProductDtoById(@Param("id") long id);
+
+    /**
+     * Lấy một chunk products theo danh sách id dạng ProductDto (projection), không đảm bảo thứ tự
+     */
+    @Query("select new com.flogin.dto.ProductDtos.ProductDto(p.id, p.category, p.price, p.productName, p.description, p.quantity, p.version) from Product p where p.id in :ids")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "MANUAL"))
+    List<ProductDto> findProductDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Xóa product bằng một câu DELETE duy nhất (không load entity như deleteById)
+     * @return số dòng bị xóa (0 nếu không tồn tại)
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Product p where p.id = :id")
+    int deleteProductById(@Param("id") long id);
+
+    /**
+     * Xóa một chunk products theo danh sách id, mỗi lần gọi là một transaction riêng
+     * @return số dòng bị xóa
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Product p where p.id in :ids")
+    int deleteProductsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Lấy id của products khớp filter (null = bỏ qua điều kiện), dùng để xóa hàng loạt theo chunk
+     */
+    @Query("select p.id from Product p where (:category is null or p.category = :category) " +
+            "and (:keyword is null or p.productName like concat('%', :keyword, '%')) order by p.id")
+    List<Long> findIdsByFilter(@Param("category") Category category, @Param("keyword") String keyword, Pageable pageable);
+
+    /**
+     * Như findIdsByFilter nhưng bắt buộc có category: điều kiện bằng trên category cho phép dùng
+     * index ix_products_category (category, id). ORDER BY category, id cho cùng thứ tự với id
+     * (category cố định) và khớp thứ tự index nên không phải sort
+     */
+    @Query("select p.id from Product p where p.category = :category " +
+            "and (:keyword is null or p.productName like concat('%', :keyword, '%')) order by p.category, p.id")
+    List<Long> findIdsByCategory(@Param("category") Category category, @Param("keyword") String keyword, Pageable pageable);
 }
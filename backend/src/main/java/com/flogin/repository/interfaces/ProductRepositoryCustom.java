@@ -0,0 +1,57 @@
+package com.flogin.repository.interfaces;
+
+import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.dto.ProductDtos.ProductFieldsDto;
+import com.flogin.jdbc.HedgedReadExecutor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Các thao tác trên products cần query động (không khai báo được bằng @Query cố định)
+ * @see ProductRepository
+ * @see ProductRepositoryCustomImpl
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * PATCH trong một transaction: đọc tên cũ (chỉ khi đổi tên, khóa dòng), cập nhật chỉ các field được truyền vào
+     * UPDATE products SET ..., version = version + 1 WHERE id = ? [AND version = ?], rồi đọc lại trạng thái mới.
+     * Dòng bị khóa từ UPDATE tới khi commit nên trạng thái đọc lại đúng là trạng thái do UPDATE này tạo ra.
+     * @param id id của product
+     * @param changes map tên attribute của Product -> giá trị mới
+     * @param expectedVersion version client đang giữ (từ If-Match), null nếu không kiểm tra
+     * @return tên cũ và product sau khi cập nhật, empty nếu không tìm thấy hoặc version không khớp
+     */
+    Optional<PatchedProduct> patchProductFields(long id, Map<String, Object> changes, Long expectedVersion);
+
+    /**
+     * Kết quả của patchProductFields
+     * @param oldProductName tên trước khi cập nhật, null nếu PATCH không đổi tên
+     * @param product trạng thái sau khi cập nhật (kèm version mới)
+     */
+    record PatchedProduct(String oldProductName, ProductDto product) {
+    }
+
+    /**
+     * Lấy danh sách products chỉ với các cột được chọn (SELECT p.version, <fields> FROM Product p ORDER BY p.id)
+     * @param fields các field đã validate theo ProductFieldsDto#FIELDS
+     * @param pageable chỉ dùng page/size (luôn sắp theo id để các trang ổn định và trộn được giữa các shard)
+     */
+    Page<ProductFieldsDto> findProductFields(List<String> fields, Pageable pageable);
+
+    /**
+     * Tìm một product theo id chỉ với các cột được chọn
+     * @param fields các field đã validate theo ProductFieldsDto#FIELDS
+     */
+    Optional<ProductFieldsDto> findProductFieldsById(long id, List<String> fields);
+
+    /**
+     * Tìm product theo id dạng ProductDto bằng SQL thuần qua hedged read
+     * (cùng kết quả với ProductRepository#findProductDtoById)
+     */
+    Optional<ProductDto> findProductDtoById(long id, HedgedReadExecutor hedgedReads);
+}
@@ -0,0 +1,155 @@
+package com.flogin.repository.interfaces;
+
+import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.dto.ProductDtos.ProductFieldsDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.jdbc.HedgedReadExecutor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation của ProductRepositoryCustom, được Spring Data ghép vào ProductRepository
+ * @see ProductRepositoryCustom
+ */
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    /**
+     * JPQL của sparse fieldset theo từng tổ hợp field (tối đa 2^6), dựng một lần rồi dùng lại
+     * để Hibernate cũng dùng lại query plan đã parse
+     */
+    private static final Map<List<String>, String> FIELDS_QUERIES = new ConcurrentHashMap<>();
+
+    private static final Map<List<String>, String> FIELDS_BY_ID_QUERIES = new ConcurrentHashMap<>();
+
+    private static final String COUNT_QUERY = "select count(p) from Product p";
+
+    private static final String PRODUCT_NAME_BY_ID = "select p.productName from Product p where p.id = :id";
+
+    private static final String PRODUCT_DTO_BY_ID = "select new com.flogin.dto.ProductDtos.ProductDto(p.id, p.category, "
+            + "p.price, p.productName, p.description, p.quantity, p.version) from Product p where p.id = :id";
+
+    /**
+     * SQL của hedged read theo id: chạy thẳng trên connection của từng replica, không qua EntityManager
+     */
+    private static final String PRODUCT_BY_ID_SQL =
+            "SELECT id, category, price, product_name, description, quantity, version FROM products WHERE id = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public Optional<PatchedProduct> patchProductFields(long id, Map<String, Object> changes, Long expectedVersion) {
+        // Đổi tên: khóa dòng rồi mới đọc tên cũ, để tên cũ đúng là tên bị UPDATE bên dưới thay thế
+        String oldProductName = null;
+        if (changes.containsKey("productName")) {
+            oldProductName = entityManager.createQuery(PRODUCT_NAME_BY_ID, String.class)
+                    .setParameter("id", id)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultStream()
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Product> update = cb.createCriteriaUpdate(Product.class);
+        Root<Product> root = update.from(Product.class);
+
+        // Chỉ SET các cột được thay đổi, version luôn tăng 1
+        changes.forEach(update::set);
+        update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+
+        Predicate condition = cb.equal(root.get("id"), id);
+        if (expectedVersion != null) {
+            condition = cb.and(condition, cb.equal(root.get("version"), expectedVersion));
+        }
+        update.where(condition);
+
+        if (entityManager.createQuery(update).executeUpdate() == 0) {
+            return Optional.empty();
+        }
+        ProductDto product = entityManager.createQuery(PRODUCT_DTO_BY_ID, ProductDto.class)
+                .setParameter("id", id)
+                .getSingleResult();
+        return Optional.of(new PatchedProduct(oldProductName, product));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ProductFieldsDto> findProductFields(List<String> fields, Pageable pageable) {
+        TypedQuery<Object[]> query = entityManager
+                .createQuery(FIELDS_QUERIES.computeIfAbsent(fields, f -> selectFields(f) + " order by p.id"), Object[].class)
+                .setHint(HibernateHints.HINT_FLUSH_MODE, "MANUAL");
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+        List<ProductFieldsDto> content = query.getResultList().stream()
+                .map(row -> toFieldsDto(fields, row))
+                .toList();
+        // Chỉ chạy count khi không suy ra được tổng số từ trang hiện tại (giống Spring Data)
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> entityManager.createQuery(COUNT_QUERY, Long.class).getSingleResult());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ProductFieldsDto> findProductFieldsById(long id, List<String> fields) {
+        return entityManager
+                .createQuery(FIELDS_BY_ID_QUERIES.computeIfAbsent(fields, f -> selectFields(f) + " where p.id = :id"), Object[].class)
+                .setParameter("id", id)
+                .setHint(HibernateHints.HINT_FLUSH_MODE, "MANUAL")
+                .getResultStream()
+                .findFirst()
+                .map(row -> toFieldsDto(fields, row));
+    }
+
+    @Override
+    public Optional<ProductDto> findProductDtoById(long id, HedgedReadExecutor hedgedReads) {
+        return hedgedReads.query(PRODUCT_BY_ID_SQL, statement -> statement.setLong(1, id), rs -> rs.next()
+                ? Optional.of(new ProductDto(rs.getLong("id"), Category.valueOf(rs.getString("category")),
+                        rs.getDouble("price"), rs.getString("product_name"), rs.getString("description"),
+                        rs.getInt("quantity"), rs.getLong("version")))
+                : Optional.empty());
+    }
+
+    /**
+     * @return "select p.version, p.<field>, ... from Product p", chỉ nhận field trong whitelist
+     */
+    private static String selectFields(List<String> fields) {
+        StringBuilder jpql = new StringBuilder("select p.version");
+        for (String field : fields) {
+            if (!ProductFieldsDto.FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Field '" + field + "' không hợp lệ");
+            }
+            jpql.append(", p.").append(field);
+        }
+        return jpql.append(" from Product p").toString();
+    }
+
+    private static ProductFieldsDto toFieldsDto(List<String> fields, Object[] row) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            Object value = row[i + 1];
+            values.put(fields.get(i), value instanceof Category category ? category.getValue() : value);
+        }
+        return new ProductFieldsDto((Long) row[0], values);
+    }
+}
@@ -0,0 +1,88 @@
+package com.flogin.repository.reactive;
+
+import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.entity.Category;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Locale;
+
+/**
+ * ReactiveProductRepository - Đọc products qua driver R2DBC (non-blocking), tương đương
+ * các method đọc projection của ProductRepository. Chỉ đọc: ghi vẫn đi qua JPA.
+ * Hỗ trợ H2 (bind marker $1, $2...) và SQL Server (bind marker @name).
+ * @see com.flogin.repository.interfaces.ProductRepository#findAllProductDtos
+ * @see com.flogin.repository.interfaces.ProductRepository#findProductDtoById
+ */
+public class ReactiveProductRepository {
+
+    private static final String SELECT_PRODUCTS =
+            "SELECT id, category, price, product_name, description, quantity, version FROM products";
+
+    private final ConnectionFactory connectionFactory;
+
+    private final boolean sqlServer;
+
+    public ReactiveProductRepository(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+        this.sqlServer = connectionFactory.getMetadata().getName().toLowerCase(Locale.ROOT).contains("sql server");
+    }
+
+    /**
+     * Stream một trang products theo thứ tự id, từng dòng được đẩy ra ngay khi driver đọc được
+     */
+    public Flux<ProductDto> findAll(long offset, int limit) {
+        String sql = SELECT_PRODUCTS + " ORDER BY id OFFSET " + marker(0, "offset")
+                + " ROWS FETCH NEXT " + marker(1, "limit") + " ROWS ONLY";
+        return Flux.usingWhen(connectionFactory.create(),
+                connection -> {
+                    Statement statement = connection.createStatement(sql);
+                    bind(statement, 0, "offset", offset);
+                    bind(statement, 1, "limit", limit);
+                    return Flux.from(statement.execute())
+                            .flatMap(result -> result.map((row, metadata) -> toDto(row)));
+                },
+                Connection::close);
+    }
+
+    public Mono<ProductDto> findById(long id) {
+        String sql = SELECT_PRODUCTS + " WHERE id = " + marker(0, "id");
+        return Flux.usingWhen(connectionFactory.create(),
+                connection -> {
+                    Statement statement = connection.createStatement(sql);
+                    bind(statement, 0, "id", id);
+                    return Flux.from(statement.execute())
+                            .flatMap(result -> result.map((row, metadata) -> toDto(row)));
+                },
+                Connection::close)
+                .next();
+    }
+
+    private String marker(int index, String name) {
+        return sqlServer ? "@" + name : "$" + (index + 1);
+    }
+
+    private void bind(Statement statement, int index, String name, Object value) {
+        if (sqlServer) {
+            statement.bind(name, value);
+        } else {
+            statement.bind(index, value);
+        }
+    }
+
+    private static ProductDto toDto(Row row) {
+        // category lưu tên enum (@Enumerated(EnumType.STRING)), ví dụ ELECTRONICS
+        return new ProductDto(
+                row.get("id", Long.class),
+                Category.valueOf(row.get("category", String.class)),
+                row.get("price", Double.class),
+                row.get("product_name", String.class),
+                row.get("description", String.class),
+                row.get("quantity", Integer.class),
+                row.get("version", Long.class));
+    }
+}
@@ -0,0 +1,51 @@
+package com.flogin.repository.sharded;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * KWayMerge - Trộn k danh sách đã sắp xếp (mỗi shard một danh sách) thành một trang đã sắp xếp
+ * Heap giữ phần tử đầu của mỗi danh sách: O((skip + limit) log k), không sort lại toàn bộ kết quả
+ */
+public final class KWayMerge {
+
+    private KWayMerge() {
+    }
+
+    private record Cursor<T>(List<T> run, int index) {
+        T head() {
+            return run.get(index);
+        }
+    }
+
+    /**
+     * @param runs  các danh sách, mỗi danh sách đã sắp xếp theo order
+     * @param skip  số phần tử đầu bỏ qua (offset của trang)
+     * @param limit số phần tử tối đa trả về (kích thước trang)
+     */
+    public static <T> List<T> merge(List<? extends List<T>> runs, Comparator<? super T> order, long skip, int limit) {
+        PriorityQueue<Cursor<T>> heap = new PriorityQueue<>(Math.max(1, runs.size()),
+                (a, b) -> order.compare(a.head(), b.head()));
+        for (List<T> run : runs) {
+            if (!run.isEmpty()) {
+                heap.add(new Cursor<>(run, 0));
+            }
+        }
+        List<T> merged = new ArrayList<>(Math.min(limit, 1024));
+        long skipped = 0;
+        while (!heap.isEmpty() && merged.size() < limit) {
+            Cursor<T> cursor = heap.poll();
+            if (skipped < skip) {
+                skipped++;
+            } else {
+                merged.add(cursor.head());
+            }
+            if (cursor.index() + 1 < cursor.run().size()) {
+                heap.add(new Cursor<>(cursor.run(), cursor.index() + 1));
+            }
+        }
+        return merged;
+    }
+}
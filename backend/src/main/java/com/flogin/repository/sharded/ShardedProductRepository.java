@@ -0,0 +1,605 @@
+package com.flogin.repository.sharded;
+
+import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.dto.ProductDtos.ProductFieldsDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.jdbc.ShardRoutingDataSource;
+import com.flogin.repository.interfaces.ProductRepository;
+import com.flogin.service.RequestDeadline;
+import com.flogin.service.RequestTrace;
+import com.flogin.service.ServiceOperation;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * ShardedProductRepository - ProductRepository chia products ra nhiều shard (ShardRoutingDataSource)
+ * - Theo id (findById, findProductDtoById, patchProductFields, deleteProductById...): chỉ chạy trên shard
+ *   mã hóa trong id, id thuộc slot chưa có shard thì coi như không tồn tại (không query)
+ * - Insert: shard = hash(productName) % số shard, nên cùng tên luôn vào cùng shard và unique index
+ *   trên product_name vẫn chặn trùng tên khi tạo mới; product đổi tên vẫn nằm ở shard cũ nên trước khi
+ *   insert còn kiểm tra tên trên các shard khác. Đổi tên chỉ được kiểm tra bằng existsByProductNameAndIdNot
+ *   trên mọi shard (không chặn được request đổi tên chạy đồng thời với request tạo / đổi tên cùng tên)
+ * - Danh sách, tìm kiếm, count: scatter-gather song song trên mọi shard, mỗi shard trả offset + size dòng
+ *   đầu theo id, trộn bằng KWayMerge; tổng số dòng = tổng count của các shard
+ * - Theo danh sách id (findProductDtosByIdIn, deleteProductsByIdIn): nhóm id theo shard, chỉ gọi shard có id
+ * - Method kế thừa từ JpaRepository: findAll (Sort / Pageable / Example) scatter-gather rồi trộn theo Sort
+ *   (thêm id để thứ tự ổn định), findAllById / deleteAll(Iterable) / deleteAllById nhóm theo shard,
+ *   saveAll gọi save cho từng product, getReferenceById đọc luôn entity trên shard của id,
+ *   flush không làm gì (mỗi thao tác đã commit trên shard của nó)
+ * Mỗi shard chạy trong transaction riêng (REQUIRES_NEW), thao tác nhiều shard không atomic giữa các shard.
+ * Chỉ findBy(Example, Function) (fluent query, không trộn được kết quả) ném UnsupportedOperationException.
+ */
+public class ShardedProductRepository implements InvocationHandler, AutoCloseable {
+
+    private static final Comparator<ProductDto> DTO_BY_ID = Comparator.comparingLong(ProductDto::getId);
+
+    private static final Comparator<Product> PRODUCT_BY_ID = Comparator.comparingLong(Product::getId);
+
+    private static final Comparator<ProductFieldsDto> FIELDS_BY_ID =
+            Comparator.comparingLong(product -> (Long) product.getFields().get("id"));
+
+    /**
+     * Method chỉ chạy trên shard của id (tham số đầu tiên), và các method trong đó có ghi dữ liệu
+     */
+    private static final Set<String> BY_ID_METHODS = Set.of("findById", "existsById", "deleteById",
+            "findProductDtoById", "findProductFieldsById", "patchProductFields", "deleteProductById");
+
+    private static final Set<String> BY_ID_WRITES = Set.of("deleteById", "patchProductFields", "deleteProductById");
+
+    private final ProductRepository delegate;
+    private final ShardRoutingDataSource routing;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final ProductRepository repository;
+
+    private final AtomicInteger threads = new AtomicInteger();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "flogin-shard-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder singleShard = new LongAdder();
+    private final LongAdder scatterGather = new LongAdder();
+    private final LongAdder rowsFetched = new LongAdder();
+    private final LongAdder rowsReturned = new LongAdder();
+    private final LongAdder[] insertsPerShard;
+
+    /**
+     * @param delegate ProductRepository của Spring Data JPA, mọi lời gọi chạy trên DataSource đã route theo shard
+     */
+    public ShardedProductRepository(ProductRepository delegate, ShardRoutingDataSource routing,
+                                    PlatformTransactionManager transactionManager) {
+        this.delegate = delegate;
+        this.routing = routing;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.insertsPerShard = new LongAdder[routing.getShardCount()];
+        for (int shard = 0; shard < insertsPerShard.length; shard++) {
+            insertsPerShard[shard] = new LongAdder();
+        }
+        this.repository = (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+                new Class<?>[]{ProductRepository.class}, this);
+    }
+
+    /**
+     * @return ProductRepository đã shard (JDK proxy dùng handler này)
+     */
+    public ProductRepository asRepository() {
+        return repository;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (BY_ID_METHODS.contains(name)) {
+            return findOnIdShard(method, args);
+        }
+        return switch (name) {
+            case "save" -> save((Product) args[0]);
+            case "findAllProductDtos" -> findAllProductDtos((Pageable) args[0]);
+            case "findProductFields" -> findProductFields((List<String>) args[0], (Pageable) args[1]);
+            case "findIdsByFilter" -> findIds((Pageable) args[2],
+                    shardPage -> delegate.findIdsByFilter((Category) args[0], (String) args[1], shardPage));
+            case "findIdsByCategory" -> findIds((Pageable) args[2],
+                    shardPage -> delegate.findIdsByCategory((Category) args[0], (String) args[1], shardPage));
+            case "findProductDtosByIdIn" -> byIdGroups((Collection<Long>) args[0], false,
+                    ids -> delegate.findProductDtosByIdIn(ids)).stream().flatMap(List::stream).toList();
+            case "deleteProductsByIdIn" -> byIdGroups((Collection<Long>) args[0], true,
+                    ids -> delegate.deleteProductsByIdIn(ids)).stream().mapToInt(Integer::intValue).sum();
+            case "existsByProductName", "existsByProductNameAndIdNot", "count", "exists", "findByCategory",
+                 "findByProductNameContaining", "findByPriceBetween" -> scatterInvoke(method, args);
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "toString" -> "ShardedProductRepository(" + routing.getShardCount() + " shards)";
+            default -> invokeInherited(method, args);
+        };
+    }
+
+    /**
+     * Method kế thừa từ JpaRepository (CrudRepository, PagingAndSortingRepository, QueryByExampleExecutor)
+     */
+    @SuppressWarnings("unchecked")
+    private Object invokeInherited(Method method, Object[] args) {
+        String name = method.getName();
+        Object first = args == null || args.length == 0 ? null : args[0];
+        switch (name) {
+            case "findAll":
+                return findAll(method, args);
+            case "findOne":
+                return findOne(method, args);
+            case "saveAll", "saveAllAndFlush": {
+                List<Product> saved = new ArrayList<>();
+                for (Product product : (Iterable<Product>) first) {
+                    saved.add(save(product));
+                }
+                return saved;
+            }
+            case "saveAndFlush":
+                return save((Product) first);
+            case "flush":
+                // Mỗi thao tác trên shard chạy trong transaction riêng đã commit, không còn gì để flush
+                return null;
+            case "getOne", "getById", "getReferenceById": {
+                long id = ((Number) first).longValue();
+                return delegateOnIdShard(id, false, () -> delegate.findById(id), Optional.<Product>empty())
+                        .orElseThrow(() -> new EntityNotFoundException("Không tìm thấy Product với id " + id));
+            }
+            case "delete": {
+                Product product = (Product) first;
+                return delegateOnIdShard(product.getId(), true, () -> invokeDelegate(method, args), null);
+            }
+            case "findAllById":
+                return byShard((Iterable<Long>) first, Long::longValue, false,
+                        ids -> (List<Product>) invokeDelegate(method, new Object[]{ids}))
+                        .stream().flatMap(List::stream).sorted(PRODUCT_BY_ID).toList();
+            case "deleteAllById", "deleteAllByIdInBatch":
+                byShard((Iterable<Long>) first, Long::longValue, true, ids -> invokeDelegate(method, new Object[]{ids}));
+                return null;
+            case "deleteAll", "deleteAllInBatch", "deleteInBatch":
+                if (first == null) {
+                    scatter(allShards(), true, shard -> invokeDelegate(method, args));
+                } else {
+                    byShard((Iterable<Product>) first, Product::getId, true,
+                            products -> invokeDelegate(method, new Object[]{products}));
+                }
+                return null;
+            default:
+                throw new UnsupportedOperationException("ProductRepository#" + name + " chưa hỗ trợ khi bật sharding");
+        }
+    }
+
+    /**
+     * findAll(), findAll(Sort), findAll(Pageable) và các bản nhận Example: mỗi shard sắp theo Sort (thêm id),
+     * trộn k-way theo cùng thứ tự
+     */
+    private Object findAll(Method method, Object[] args) {
+        Class<?>[] types = method.getParameterTypes();
+        Object last = types.length == 0 ? null : args[types.length - 1];
+        Example<?> example = types.length > 0 && args[0] instanceof Example<?> value ? value : null;
+        if (last instanceof Pageable pageable) {
+            Sort sort = withIdOrder(pageable.getSort());
+            Comparator<Product> order = productOrder(sort);
+            if (pageable.isUnpaged()) {
+                return new PageImpl<>(findAllSorted(example, sort, order));
+            }
+            return mergePages(pageable, order, shardPage -> {
+                Pageable sorted = PageRequest.of(0, shardPage.getPageSize(), sort);
+                return example == null ? delegate.findAll(sorted) : findAllExample(example, sorted);
+            });
+        }
+        if (last instanceof Sort requested) {
+            Sort sort = withIdOrder(requested);
+            return findAllSorted(example, sort, productOrder(sort));
+        }
+        // findAll() / findAll(Example): không có thứ tự yêu cầu -> theo id
+        return scatterInvoke(method, args);
+    }
+
+    private List<Product> findAllSorted(Example<?> example, Sort sort, Comparator<Product> order) {
+        List<List<Product>> runs = scatter(allShards(), false,
+                shard -> example == null ? delegate.findAll(sort) : findAllExample(example, sort));
+        runs.forEach(run -> rowsFetched.add(run.size()));
+        List<Product> content = KWayMerge.merge(runs, order, 0, Integer.MAX_VALUE);
+        rowsReturned.add(content.size());
+        return content;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Product> findAllExample(Example<?> example, Sort sort) {
+        return delegate.findAll((Example<Product>) example, sort);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page<Product> findAllExample(Example<?> example, Pageable pageable) {
+        return delegate.findAll((Example<Product>) example, pageable);
+    }
+
+    /**
+     * findOne(Example): tối đa một shard có kết quả, nhiều hơn một dòng thì lỗi như JpaRepository
+     */
+    private Object findOne(Method method, Object[] args) {
+        List<?> found = scatter(allShards(), false, shard -> (Optional<?>) invokeDelegate(method, args))
+                .stream().flatMap(Optional::stream).toList();
+        if (found.size() > 1) {
+            throw new IncorrectResultSizeDataAccessException(1, found.size());
+        }
+        return found.stream().findFirst();
+    }
+
+    /**
+     * Sort của shard phải có id ở cuối: các dòng bằng nhau theo Sort vẫn có thứ tự xác định để trộn và phân trang
+     */
+    private static Sort withIdOrder(Sort sort) {
+        return sort.getOrderFor("id") != null ? sort : sort.and(Sort.by("id"));
+    }
+
+    /**
+     * Comparator trong bộ nhớ cùng thứ tự với ORDER BY của Sort trên shard (null đứng đầu khi tăng dần)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Product> productOrder(Sort sort) {
+        Comparator<Product> order = null;
+        for (Sort.Order sortOrder : sort) {
+            Comparator<Comparable> values = Comparator.naturalOrder();
+            if (sortOrder.isDescending()) {
+                values = values.reversed();
+            }
+            values = switch (sortOrder.getNullHandling()) {
+                case NULLS_FIRST -> Comparator.nullsFirst(values);
+                case NULLS_LAST -> Comparator.nullsLast(values);
+                case NATIVE -> sortOrder.isDescending() ? Comparator.nullsLast(values) : Comparator.nullsFirst(values);
+            };
+            String property = sortOrder.getProperty();
+            Comparator<Product> next = Comparator.comparing(
+                    product -> (Comparable) new BeanWrapperImpl(product).getPropertyValue(property), values);
+            order = order == null ? next : order.thenComparing(next);
+        }
+        return order == null ? PRODUCT_BY_ID : order;
+    }
+
+    /**
+     * Chạy action trên shard của id, id không thuộc shard nào thì trả về missing (không query)
+     */
+    private <T> T delegateOnIdShard(long id, boolean write, Supplier<T> action, T missing) {
+        int shard = routing.shardOf(id);
+        if (shard < 0) {
+            return missing;
+        }
+        singleShard.increment();
+        return onShard(shard, write, action);
+    }
+
+    private Object findOnIdShard(Method method, Object[] args) {
+        long id = ((Number) args[0]).longValue();
+        int shard = routing.shardOf(id);
+        if (shard < 0) {
+            // Id không thuộc shard nào: kết quả giống như không tìm thấy
+            Class<?> type = method.getReturnType();
+            return type == Optional.class ? Optional.empty()
+                    : type == boolean.class ? Boolean.FALSE
+                    : type == int.class ? 0
+                    : null;
+        }
+        singleShard.increment();
+        return onShard(shard, BY_ID_WRITES.contains(method.getName()), () -> invokeDelegate(method, args));
+    }
+
+    private Product save(Product product) {
+        if (product.getId() != 0) {
+            int shard = routing.shardOf(product.getId());
+            if (shard < 0) {
+                throw new IllegalArgumentException("Product id " + product.getId() + " không thuộc shard nào");
+            }
+            singleShard.increment();
+            return onShard(shard, true, () -> delegate.save(product));
+        }
+        int shard = placementShard(product.getProductName());
+        checkNameFreeOnOtherShards(product.getProductName(), shard);
+        singleShard.increment();
+        Product saved = onShard(shard, true, () -> {
+            Product inserted = delegate.save(product);
+            if (routing.shardOf(inserted.getId()) != shard) {
+                // Identity của shard chưa theo sơ đồ id toàn cục: id này có thể trùng với shard khác
+                // -> ném lỗi trong transaction để insert bị rollback
+                throw new IllegalStateException("Shard " + shard + " sinh id " + inserted.getId()
+                        + " không mã hóa shard, kiểm tra identity của bảng products");
+            }
+            return inserted;
+        });
+        insertsPerShard[shard].increment();
+        return saved;
+    }
+
+    /**
+     * Product được đổi tên không chuyển shard, nên tên mới có thể đã nằm ở shard khác shard đặt theo hash:
+     * unique index chỉ chặn được trùng tên trên shard đặt, các shard còn lại phải kiểm tra trước
+     * @throws DataIntegrityViolationException (mang tên unique constraint) nếu tên đã có trên shard khác
+     */
+    private void checkNameFreeOnOtherShards(String productName, int placement) {
+        List<Integer> others = allShards();
+        others.remove(Integer.valueOf(placement));
+        if (productName == null || others.isEmpty()) {
+            return;
+        }
+        if (scatter(others, false, shard -> delegate.existsByProductName(productName)).contains(Boolean.TRUE)) {
+            throw new DataIntegrityViolationException("Product name '" + productName
+                    + "' đã tồn tại trên shard khác, vi phạm " + Product.UNIQUE_PRODUCT_NAME_CONSTRAINT);
+        }
+    }
+
+    /**
+     * Shard của product mới, cố định theo tên
+     */
+    int placementShard(String productName) {
+        return productName == null ? 0 : Math.floorMod(productName.hashCode(), routing.getShardCount());
+    }
+
+    private Page<ProductDto> findAllProductDtos(Pageable pageable) {
+        // Query đã ORDER BY id trên từng shard
+        return mergePages(pageable, DTO_BY_ID, delegate::findAllProductDtos);
+    }
+
+    private Page<ProductFieldsDto> findProductFields(List<String> fields, Pageable pageable) {
+        // Cần id để trộn theo thứ tự: chưa chọn thì lấy thêm rồi bỏ đi sau khi trộn
+        boolean addId = !fields.contains("id");
+        List<String> shardFields = fields;
+        if (addId) {
+            shardFields = new ArrayList<>(fields.size() + 1);
+            shardFields.add("id");
+            shardFields.addAll(fields);
+        }
+        List<String> selected = shardFields;
+        Page<ProductFieldsDto> page = mergePages(pageable, FIELDS_BY_ID,
+                shardPage -> delegate.findProductFields(selected, shardPage));
+        if (!addId) {
+            return page;
+        }
+        return page.map(product -> {
+            Map<String, Object> values = new LinkedHashMap<>(product.getFields());
+            values.remove("id");
+            return new ProductFieldsDto(product.getVersion(), values);
+        });
+    }
+
+    private List<Long> findIds(Pageable pageable, Function<Pageable, List<Long>> shardQuery) {
+        // Query đã sắp theo id trên từng shard
+        return mergePages(pageable, Comparator.<Long>naturalOrder(),
+                shardPage -> new PageImpl<>(shardQuery.apply(shardPage))).getContent();
+    }
+
+    /**
+     * Scatter-gather một trang: mỗi shard trả offset + size dòng đầu theo thứ tự order,
+     * trộn k-way rồi bỏ offset dòng đầu
+     * @param shardQuery nhận Pageable (trang 0, size = offset + size) của shard
+     */
+    private <T> Page<T> mergePages(Pageable pageable, Comparator<? super T> order,
+                                   Function<Pageable, Page<T>> shardQuery) {
+        Pageable shardPage = Pageable.unpaged();
+        long skip = 0;
+        int limit = Integer.MAX_VALUE;
+        if (pageable.isPaged()) {
+            long window = pageable.getOffset() + pageable.getPageSize();
+            if (window > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Trang quá sâu: offset " + pageable.getOffset());
+            }
+            shardPage = PageRequest.of(0, (int) window);
+            skip = pageable.getOffset();
+            limit = pageable.getPageSize();
+        }
+        Pageable query = shardPage;
+        List<Page<T>> pages = scatter(allShards(), false, shard -> shardQuery.apply(query));
+
+        List<List<T>> runs = new ArrayList<>(pages.size());
+        long total = 0;
+        for (Page<T> page : pages) {
+            runs.add(page.getContent());
+            total += page.getTotalElements();
+            rowsFetched.add(page.getNumberOfElements());
+        }
+        List<T> content = KWayMerge.merge(runs, order, skip, limit);
+        rowsReturned.add(content.size());
+        return pageable.isPaged() ? new PageImpl<>(content, pageable, total) : new PageImpl<>(content);
+    }
+
+    /**
+     * Nhóm id theo shard (bỏ id không thuộc shard nào) và chỉ gọi các shard có id
+     */
+    private <T> List<T> byIdGroups(Collection<Long> ids, boolean write, Function<List<Long>, T> action) {
+        return byShard(ids, Long::longValue, write, action);
+    }
+
+    /**
+     * Nhóm phần tử theo shard của id (bỏ phần tử có id không thuộc shard nào) và chỉ gọi các shard có phần tử
+     */
+    private <E, T> List<T> byShard(Iterable<? extends E> items, ToLongFunction<? super E> idOf, boolean write,
+                                   Function<List<E>, T> action) {
+        Map<Integer, List<E>> groups = new TreeMap<>();
+        for (E item : items) {
+            int shard = routing.shardOf(idOf.applyAsLong(item));
+            if (shard >= 0) {
+                groups.computeIfAbsent(shard, s -> new ArrayList<>()).add(item);
+            }
+        }
+        if (groups.isEmpty()) {
+            return List.of();
+        }
+        return scatter(new ArrayList<>(groups.keySet()), write, shard -> action.apply(groups.get(shard)));
+    }
+
+    /**
+     * Gọi cùng method trên mọi shard rồi gộp: boolean -> có shard nào true, long -> tổng,
+     * List<Product> -> nối và sắp theo id
+     */
+    private Object scatterInvoke(Method method, Object[] args) {
+        List<Object> results = scatter(allShards(), false, shard -> invokeDelegate(method, args));
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return results.contains(Boolean.TRUE);
+        }
+        if (type == long.class) {
+            return results.stream().mapToLong(result -> (Long) result).sum();
+        }
+        List<Product> products = new ArrayList<>();
+        for (Object result : results) {
+            for (Object product : (List<?>) result) {
+                products.add((Product) product);
+            }
+        }
+        products.sort(PRODUCT_BY_ID);
+        return products;
+    }
+
+    private List<Integer> allShards() {
+        List<Integer> shards = new ArrayList<>(routing.getShardCount());
+        for (int shard = 0; shard < routing.getShardCount(); shard++) {
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+    /**
+     * Chạy action song song trên các shard: shard đầu tiên chạy ngay trên thread hiện tại,
+     * các shard còn lại trên executor (mang theo deadline của request)
+     * @return kết quả theo đúng thứ tự shards
+     */
+    private <T> List<T> scatter(List<Integer> shards, boolean write, IntFunction<T> action) {
+        if (shards.size() == 1) {
+            singleShard.increment();
+            int shard = shards.get(0);
+            return List.of(onShard(shard, write, () -> action.apply(shard)));
+        }
+        scatterGather.increment();
+        long remaining = RequestDeadline.remainingMillis();
+        long deadlineNanos = remaining == Long.MAX_VALUE ? Long.MAX_VALUE
+                : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, remaining));
+        String operation = ServiceOperation.current();
+        RequestTrace.Span span = RequestTrace.current();
+
+        List<Future<T>> futures = new ArrayList<>(shards.size() - 1);
+        for (int shard : shards.subList(1, shards.size())) {
+            futures.add(executor.submit(() -> {
+                if (deadlineNanos != Long.MAX_VALUE) {
+                    RequestDeadline.start(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime())));
+                }
+                boolean entered = ServiceOperation.enter(operation);
+                boolean attached = RequestTrace.attach(span);
+                try {
+                    return onShard(shard, write, () -> action.apply(shard));
+                } finally {
+                    RequestTrace.detach(attached);
+                    ServiceOperation.exit(entered);
+                    RequestDeadline.clear();
+                }
+            }));
+        }
+        try {
+            List<T> results = new ArrayList<>(shards.size());
+            int first = shards.get(0);
+            results.add(onShard(first, write, () -> action.apply(first)));
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            throw rethrow(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bị ngắt khi chờ kết quả từ các shard", e);
+        } finally {
+            // Một shard lỗi thì không cần chờ các shard còn lại
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private <T> T onShard(int shard, boolean write, Supplier<T> action) {
+        TransactionTemplate transaction = write ? writeTransaction : readTransaction;
+        return ShardRoutingDataSource.callOnShard(shard, () -> transaction.execute(status -> action.get()));
+    }
+
+    private Object invokeDelegate(Method method, Object[] args) {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw rethrow(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    /**
+     * @return số thao tác một shard / scatter-gather, số dòng các shard trả về so với số dòng thực sự dùng
+     *         (chênh lệch = chi phí phân trang sâu), số insert và số products hiện có trên từng shard
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("singleShard", singleShard.sum());
+        stats.put("scatterGather", scatterGather.sum());
+        stats.put("rowsFetched", rowsFetched.sum());
+        stats.put("rowsReturned", rowsReturned.sum());
+        List<Long> inserts = new ArrayList<>(insertsPerShard.length);
+        for (LongAdder adder : insertsPerShard) {
+            inserts.add(adder.sum());
+        }
+        stats.put("insertsPerShard", inserts);
+        stats.put("productsPerShard", scatter(allShards(), false, shard -> delegate.count()));
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
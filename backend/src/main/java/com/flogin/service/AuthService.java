@@ -5,6 +5,7 @@ import com.flogin.dto.LoginDto.LoginResponse;
 import com.flogin.dto.UserDtos.UserDto;
 import com.flogin.entity.User;
 import com.flogin.repository.interfaces.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +19,9 @@ import java.util.stream.Collectors;
 
 @Service
 public class AuthService {
+
+    public static final String LOGIN_METRIC = "flogin.auth.login";
+    public static final String VALIDATION_FAILURE_METRIC = "flogin.validation.failures";
     
     /**
      * JwtService instance để generate và manage JWT tokens
@@ -43,6 +47,13 @@ public class AuthService {
     @Autowired
     private Validator validator;
 
+    /**
+     * Đếm kết quả login (flogin.auth.login) và request login không hợp lệ (flogin.validation.failures),
+     * null khi dựng bằng constructor (unit test) thì không ghi
+     */
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
     public AuthService(JwtService jwtService, UserRepository userRepository, PasswordEncoder passwordEncoder, Validator validator) {
         this.jwtService = jwtService;
         this.userRepository = userRepository;
@@ -62,12 +73,17 @@ public class AuthService {
         if (!violations.isEmpty()) {
             // Lấy lỗi đầu tiên để trả về cho client
             String errorMessage = violations.iterator().next().getMessage();
+            recordOutcome("invalid_request");
+            if (meterRegistry != null) {
+                meterRegistry.counter(VALIDATION_FAILURE_METRIC, "type", "login").increment();
+            }
             return new LoginResponse(false, errorMessage);
         }
 
         // Step 2: Kiểm tra user có tồn tại trong database không
         Optional<User> userOptional = userRepository.findByUserName(request.getUserName());
         if (userOptional.isEmpty()) {
+            recordOutcome("unknown_user");
             return new LoginResponse(false, "Login thất bại với user name không tồn tại");
         }
         
@@ -75,9 +91,12 @@ public class AuthService {
         
         // Step 3: Verify password bằng BCryptPasswordEncoder
         // So sánh plain text password với hashed password trong database
+        // BCrypt tốn CPU: bỏ qua nếu request đã quá thời hạn (client đã bỏ cuộc)
+        RequestDeadline.checkNotExpired();
         boolean matchPassword = passwordEncoder.matches(request.getPassword(), user.getHashPassword());
 
         if (!matchPassword) {
+            recordOutcome("bad_password");
             return new LoginResponse(false, "Login với password sai");
         }
         
@@ -88,8 +107,13 @@ public class AuthService {
         UserDto userDto = new UserDto(user.getUserName(), user.getEmail());
 
         // Return success response với token và user info
+        recordOutcome("success");
         return new LoginResponse(true, "Login thành công", token, userDto);
     }
 
-
+    private void recordOutcome(String outcome) {
+        if (meterRegistry != null) {
+            meterRegistry.counter(LOGIN_METRIC, "outcome", outcome).increment();
+        }
+    }
 }
@@ -2,26 +2,55 @@ package com.flogin.service;
 
 import com.flogin.entity.User;
 import com.flogin.repository.interfaces.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
 public class CustomUserDetailService implements UserDetailsService {
 
+    /**
+     * Role được gọi /api/ops/** (số liệu vận hành), gán cho các user trong flogin.ops.admin-users
+     */
+    public static final String ADMIN_ROLE = "ADMIN";
+
     private final UserRepository userRepository;
+
+    private volatile Set<String> adminUsers = Set.of();
+
     public CustomUserDetailService(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
+
+    /**
+     * Danh sách username có role ADMIN; mặc định rỗng (không ai gọi được /api/ops/**)
+     */
+    @Value("${flogin.ops.admin-users:}")
+    public void setAdminUsers(List<String> adminUsers) {
+        this.adminUsers = adminUsers.stream()
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByUserName(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
-        return org.springframework.security.core.userdetails.User
-                .withUsername(user.getUserName())
-                .password(user.getHashPassword())
-                .build();
+        org.springframework.security.core.userdetails.User.UserBuilder builder =
+                org.springframework.security.core.userdetails.User
+                        .withUsername(user.getUserName())
+                        .password(user.getHashPassword());
+        if (adminUsers.contains(user.getUserName())) {
+            builder.roles(ADMIN_ROLE);
+        }
+        return builder.build();
     }
 }
@@ -0,0 +1,163 @@
+package com.flogin.service;
+
+import com.flogin.jdbc.HedgedReadExecutor;
+import com.flogin.jdbc.ReadWriteRoutingDataSource;
+import com.flogin.jdbc.SimulatedReplication;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cấu hình tách đọc/ghi, chỉ bật khi flogin.datasource.routing.enabled=true
+ * - Primary: pool HikariCP từ spring.datasource.* (kể cả spring.datasource.hikari.*)
+ * - Replica: mỗi URL trong flogin.datasource.routing.replica-urls một pool riêng
+ * - Transaction readOnly đọc từ replica, ghi và đọc cần dữ liệu mới (consistency token) đi primary
+ *   (ReadWriteRoutingDataSource, token do ConsistencyTokenFilter xử lý)
+ * - simulated-replication: giả lập replication có độ trễ giữa các database H2 để chạy local / test
+ * - hedged-reads: GET /api/products/{id} gửi thêm tới replica thứ hai khi replica thứ nhất chậm
+ * Yêu cầu spring.jpa.open-in-view=false: với OSIV, connection lấy ở transaction đầu tiên
+ * được giữ cho cả request nên các transaction sau không được route lại.
+ */
+@Configuration
+@ConditionalOnProperty(name = "flogin.datasource.routing.enabled", havingValue = "true")
+public class DataSourceRoutingConfig implements DisposableBean {
+
+    @Value("${flogin.datasource.routing.replica-urls:}")
+    private String[] replicaUrls;
+
+    @Value("${flogin.datasource.routing.replica-username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${flogin.datasource.routing.replica-password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${flogin.datasource.routing.replica-pool-size:10}")
+    private int replicaPoolSize;
+
+    @Value("${flogin.datasource.routing.max-replica-lag-ms:1000}")
+    private long maxReplicaLagMs;
+
+    @Value("${flogin.datasource.routing.simulated-replication.enabled:false}")
+    private boolean simulatedReplication;
+
+    @Value("${flogin.datasource.routing.simulated-replication.lag-ms:1000}")
+    private long replicationLagMs;
+
+    @Value("${flogin.datasource.routing.simulated-replication.interval-ms:200}")
+    private long replicationIntervalMs;
+
+    @Value("${flogin.datasource.routing.hedged-reads.percentile:95}")
+    private double hedgePercentile;
+
+    @Value("${flogin.datasource.routing.hedged-reads.min-delay-ms:2}")
+    private long hedgeMinDelayMs;
+
+    @Value("${flogin.datasource.routing.hedged-reads.max-delay-ms:200}")
+    private long hedgeMaxDelayMs;
+
+    @Value("${flogin.datasource.routing.hedged-reads.budget-percent:10}")
+    private double hedgeBudgetPercent;
+
+    @Value("${flogin.datasource.routing.hedged-reads.budget-burst:20}")
+    private int hedgeBudgetBurst;
+
+    @Value("${flogin.datasource.routing.hedged-reads.max-threads:10}")
+    private int hedgeMaxThreads;
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    private SimulatedReplication replication;
+
+    /**
+     * LazyConnectionDataSourceProxy: connection thật chỉ được lấy ở câu SQL đầu tiên,
+     * khi cờ readOnly của transaction đã được đặt, nên routing chọn đúng primary / replica
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment) {
+        if (environment.getProperty("spring.jpa.open-in-view", Boolean.class, true)) {
+            throw new IllegalStateException(
+                    "flogin.datasource.routing.enabled=true yêu cầu spring.jpa.open-in-view=false");
+        }
+        if (replicaUrls.length == 0) {
+            throw new IllegalStateException("flogin.datasource.routing.replica-urls chưa được cấu hình");
+        }
+
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        if (primary.getPoolName() == null) {
+            primary.setPoolName("flogin-primary");
+        }
+        pools.add(primary);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.length; i++) {
+            String url = replicaUrls[i].trim();
+            if (simulatedReplication && !url.startsWith("jdbc:h2:")) {
+                throw new IllegalStateException("simulated-replication chỉ hỗ trợ replica H2: " + url);
+            }
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("flogin-replica-" + (i + 1));
+            replica.setJdbcUrl(url);
+            replica.setUsername(replicaUsername);
+            replica.setPassword(replicaPassword);
+            replica.setMaximumPoolSize(replicaPoolSize);
+            pools.add(replica);
+            replicas.put("replica-" + (i + 1), replica);
+        }
+
+        ReadWriteRoutingDataSource routing =
+                new ReadWriteRoutingDataSource(primary, replicas, simulatedReplication, maxReplicaLagMs);
+        if (simulatedReplication) {
+            replication = new SimulatedReplication(primary, replicas, routing, replicationLagMs, replicationIntervalMs);
+        }
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Executor tự đóng khi context dừng (AutoCloseable)
+     */
+    @Bean
+    @ConditionalOnProperty(name = "flogin.datasource.routing.hedged-reads.enabled", havingValue = "true")
+    public HedgedReadExecutor hedgedReadExecutor(DataSource dataSource) throws SQLException {
+        return new HedgedReadExecutor(dataSource.unwrap(ReadWriteRoutingDataSource.class),
+                hedgePercentile, hedgeMinDelayMs, hedgeMaxDelayMs, hedgeBudgetPercent / 100, hedgeBudgetBurst, hedgeMaxThreads);
+    }
+
+    /**
+     * Chỉ bắt đầu replication khi Hibernate đã tạo xong schema, tránh áp snapshot chưa có bảng;
+     * trước lần áp đầu tiên mọi truy vấn đọc đi primary
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startReplication() {
+        if (replication != null) {
+            replication.start();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (replication != null) {
+            replication.close();
+        }
+        pools.forEach(HikariDataSource::close);
+    }
+}
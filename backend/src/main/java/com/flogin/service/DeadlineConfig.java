@@ -0,0 +1,50 @@
+package com.flogin.service;
+
+import com.flogin.jdbc.DeadlineDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Cấu hình áp deadline của request xuống JDBC, tắt bằng flogin.deadline.enabled=false
+ * - Bọc DataSource (HikariCP) bằng DeadlineDataSource: query timeout và thời gian chờ connection
+ *   lấy theo thời gian còn lại của request (RequestDeadline do DeadlineFilter đặt)
+ */
+@Configuration
+@ConditionalOnProperty(name = "flogin.deadline.enabled", havingValue = "true", matchIfMissing = true)
+public class DeadlineConfig {
+
+    /**
+     * Thứ tự bọc DataSource: DeadlineDataSource nằm sát pool (cần HikariDataSource để chờ connection
+     * theo deadline), các lớp bọc khác (SqlStatsConfig) chạy sau và nằm ngoài
+     */
+    static final int DATA_SOURCE_WRAPPER_ORDER = 0;
+
+    /**
+     * static: BeanPostProcessor phải được tạo trước các bean khác (kể cả DataSource)
+     */
+    @Bean
+    public static BeanPostProcessor deadlineDataSourcePostProcessor() {
+        return new DeadlineDataSourcePostProcessor();
+    }
+
+    private static final class DeadlineDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof DeadlineDataSource)) {
+                return new DeadlineDataSource(dataSource);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return DATA_SOURCE_WRAPPER_ORDER;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.flogin.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Đo latency từng tầng controller / service / repository vào timer flogin.layer.duration
+ * (tag layer, class, method; tầng filter do JwtAuthenticationFilter tự ghi)
+ * - Timer được tạo một lần cho mỗi (class, method) và cache lại, lời gọi chỉ tốn hai lần nanoTime và một lần record
+ * - Method trả Mono / Flux không đo (thời gian gọi method chỉ là lúc dựng pipeline)
+ * - Repository chỉ đo lời gọi ngoài cùng trên thread: ShardedProductRepository gọi tiếp repository của shard
+ *   trên cùng thread không bị đếm hai lần (shard chạy trên thread scatter-gather được đo riêng)
+ * Thứ tự ngay sau ServiceOperationAspect, ngoài advice của @Transactional (thời gian service gồm cả commit).
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "flogin.metrics.layers.enabled", havingValue = "true", matchIfMissing = true)
+public class LayerMetricsAspect {
+
+    public static final String METRIC = "flogin.layer.duration";
+
+    /**
+     * So theo tên để pointcut không phụ thuộc reactor-core có trên classpath hay không
+     */
+    static final String REACTIVE_PACKAGE = "reactor.core.publisher.";
+
+    private static final ThreadLocal<Boolean> IN_REPOSITORY = new ThreadLocal<>();
+
+    private final MeterRegistry registry;
+
+    /**
+     * Class của bean -> method -> timer
+     */
+    private final Map<Class<?>, Map<Method, Timer>> timers = new ConcurrentHashMap<>();
+
+    public LayerMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.flogin.controller.*Controller.*(..))")
+    public Object timeController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("controller", joinPoint);
+    }
+
+    @Around("execution(public * com.flogin.service.*Service.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("service", joinPoint);
+    }
+
+    @Around("execution(public * *(..)) && within(org.springframework.data.repository.Repository+)")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (IN_REPOSITORY.get() != null) {
+            return joinPoint.proceed();
+        }
+        IN_REPOSITORY.set(Boolean.TRUE);
+        try {
+            return time("repository", joinPoint);
+        } finally {
+            IN_REPOSITORY.remove();
+        }
+    }
+
+    private Object time(String layer, ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        if (method.getReturnType().getName().startsWith(REACTIVE_PACKAGE)) {
+            return joinPoint.proceed();
+        }
+        Timer timer = timerFor(layer, joinPoint.getTarget(), method);
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timerFor(String layer, Object target, Method method) {
+        return timers.computeIfAbsent(target.getClass(), key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, key -> Timer.builder(METRIC)
+                        .description("Latency theo tầng filter / controller / service / repository")
+                        .tags("layer", layer, "class", className(target), "method", method.getName())
+                        .register(registry));
+    }
+
+    /**
+     * Repository của Spring Data là proxy: lấy tên interface (ProductRepository) thay vì $ProxyNN
+     */
+    static String className(Object target) {
+        if (Proxy.isProxyClass(target.getClass())) {
+            Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(target);
+            if (interfaces.length > 0) {
+                return interfaces[0].getSimpleName();
+            }
+        }
+        return AopProxyUtils.ultimateTargetClass(target).getSimpleName();
+    }
+}
@@ -0,0 +1,88 @@
+package com.flogin.service;
+
+import com.flogin.jdbc.PoolTelemetry;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cấu hình metrics (Micrometer qua actuator), scrape dạng Prometheus tại /actuator/prometheus
+ * - Latency theo endpoint: http.server.requests của Spring Boot (tag uri là route template)
+ * - Latency theo tầng: flogin.layer.duration (tag layer = filter / controller / service / repository,
+ *   class, method) do JwtAuthenticationFilter và LayerMetricsAspect ghi
+ * - Xác thực: flogin.auth.jwt.parse, flogin.auth.jwt.failures, flogin.auth.password.hash, flogin.auth.login;
+ *   validation: flogin.validation.failures
+ * - Connection pool: hikaricp.connections.* đọc từ PoolTelemetry (PoolTelemetry đã giữ MetricsTrackerFactory
+ *   của HikariCP nên binder mặc định của Spring Boot bỏ qua các pool này)
+ * Histogram (bucket cho Prometheus) cấu hình bằng management.metrics.distribution.* trong application.properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder poolTelemetryMeterBinder(ObjectProvider<PoolTelemetry> poolTelemetry) {
+        return registry -> poolTelemetry.ifAvailable(telemetry -> bindPools(telemetry, registry));
+    }
+
+    private static void bindPools(PoolTelemetry telemetry, MeterRegistry registry) {
+        for (String name : telemetry.getPoolNames()) {
+            HikariDataSource pool = telemetry.getPool(name);
+            poolGauge(registry, "hikaricp.connections.active", "Connection đang được dùng", pool,
+                    HikariPoolMXBean::getActiveConnections);
+            poolGauge(registry, "hikaricp.connections.idle", "Connection rảnh", pool,
+                    HikariPoolMXBean::getIdleConnections);
+            poolGauge(registry, "hikaricp.connections.pending", "Thread đang chờ connection", pool,
+                    HikariPoolMXBean::getThreadsAwaitingConnection);
+            poolGauge(registry, "hikaricp.connections", "Tổng số connection", pool,
+                    HikariPoolMXBean::getTotalConnections);
+            Gauge.builder("hikaricp.connections.max", pool, HikariDataSource::getMaximumPoolSize)
+                    .tag("pool", name)
+                    .description("maximumPoolSize hiện tại (thay đổi khi bật adaptive-pool)")
+                    .register(registry);
+            FunctionCounter.builder("hikaricp.connections.timeout", telemetry, t -> totals(t, name, PoolTelemetry.Totals::timeouts))
+                    .tag("pool", name)
+                    .description("Số lần hết connectionTimeout khi lấy connection")
+                    .register(registry);
+            FunctionTimer.builder("hikaricp.connections.acquire", telemetry,
+                            t -> totals(t, name, PoolTelemetry.Totals::acquires),
+                            t -> totals(t, name, PoolTelemetry.Totals::acquireMicros), TimeUnit.MICROSECONDS)
+                    .tag("pool", name)
+                    .description("Thời gian chờ lấy connection")
+                    .register(registry);
+            FunctionTimer.builder("hikaricp.connections.usage", telemetry,
+                            t -> totals(t, name, PoolTelemetry.Totals::usages),
+                            t -> totals(t, name, PoolTelemetry.Totals::usageMicros), TimeUnit.MICROSECONDS)
+                    .tag("pool", name)
+                    .description("Thời gian giữ connection")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Pool chưa khởi tạo (chưa có HikariPoolMXBean) thì gauge là NaN
+     */
+    private static void poolGauge(MeterRegistry registry, String metric, String description, HikariDataSource pool,
+                                  ToIntFunction<HikariPoolMXBean> value) {
+        Gauge.builder(metric, pool, p -> p.getHikariPoolMXBean() == null
+                        ? Double.NaN : value.applyAsInt(p.getHikariPoolMXBean()))
+                .tag("pool", pool.getPoolName())
+                .description(description)
+                .register(registry);
+    }
+
+    private static long totals(PoolTelemetry telemetry, String poolName, ToLongFunction<PoolTelemetry.Totals> value) {
+        PoolTelemetry.Totals totals = telemetry.getTotals(poolName);
+        return totals == null ? 0 : value.applyAsLong(totals);
+    }
+}
@@ -0,0 +1,78 @@
+package com.flogin.service;
+
+import com.flogin.jdbc.AdaptivePoolSizer;
+import com.flogin.jdbc.PoolTelemetry;
+import com.flogin.jdbc.StatementStatsDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Cấu hình số liệu bão hòa connection pool, tắt bằng flogin.datasource.pool-telemetry.enabled=false
+ * - PoolTelemetry gắn vào mọi pool HikariCP sau DataSource (kể cả replica / shard),
+ *   phân loại theo service method (ServiceOperationAspect), số liệu: GET /api/ops/connection-pool
+ * - adaptive-pool (mặc định tắt): AdaptivePoolSizer tự điều chỉnh kích thước một pool
+ *   (pool-name, mặc định pool đầu tiên: primary / home shard) trong [min-size, max-size]
+ * Pool đã có metricRegistry / MetricsTrackerFactory khác không được gắn (HikariCP chỉ nhận một).
+ */
+@Configuration
+@ConditionalOnProperty(name = "flogin.datasource.pool-telemetry.enabled", havingValue = "true", matchIfMissing = true)
+public class PoolTelemetryConfig {
+
+    @Value("${flogin.datasource.adaptive-pool.pool-name:}")
+    private String adaptivePoolName;
+
+    @Value("${flogin.datasource.adaptive-pool.min-size:2}")
+    private int adaptiveMinSize;
+
+    @Value("${flogin.datasource.adaptive-pool.max-size:20}")
+    private int adaptiveMaxSize;
+
+    @Value("${flogin.datasource.adaptive-pool.step:2}")
+    private int adaptiveStep;
+
+    @Value("${flogin.datasource.adaptive-pool.wait-ratio:0.5}")
+    private double adaptiveWaitRatio;
+
+    @Value("${flogin.datasource.adaptive-pool.latency-tolerance:2.0}")
+    private double adaptiveLatencyTolerance;
+
+    @Value("${flogin.datasource.adaptive-pool.shrink-after-windows:12}")
+    private int adaptiveShrinkAfterWindows;
+
+    @Value("${flogin.datasource.adaptive-pool.interval-ms:5000}")
+    private long adaptiveIntervalMs;
+
+    @Bean
+    public PoolTelemetry poolTelemetry(DataSource dataSource) throws SQLException {
+        PoolTelemetry telemetry = new PoolTelemetry();
+        telemetry.instrumentAll(dataSource);
+        if (dataSource.isWrapperFor(StatementStatsDataSource.class)) {
+            // Latency câu SQL làm latency database cho AdaptivePoolSizer
+            dataSource.unwrap(StatementStatsDataSource.class).getStats().addListener(telemetry);
+        }
+        return telemetry;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "flogin.datasource.adaptive-pool.enabled", havingValue = "true")
+    public AdaptivePoolSizer adaptivePoolSizer(PoolTelemetry telemetry) {
+        if (telemetry.getPoolNames().isEmpty()) {
+            throw new IllegalStateException("flogin.datasource.adaptive-pool.enabled=true nhưng không có pool HikariCP nào được gắn telemetry");
+        }
+        String poolName = adaptivePoolName.isBlank() ? telemetry.getPoolNames().get(0) : adaptivePoolName;
+        HikariDataSource pool = telemetry.getPool(poolName);
+        if (pool == null) {
+            throw new IllegalStateException("Không có pool HikariCP tên " + poolName + " (có: " + telemetry.getPoolNames() + ")");
+        }
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(telemetry, pool, adaptiveMinSize, adaptiveMaxSize, adaptiveStep,
+                adaptiveWaitRatio, adaptiveLatencyTolerance, adaptiveShrinkAfterWindows, adaptiveIntervalMs);
+        sizer.start();
+        return sizer;
+    }
+}
@@ -0,0 +1,47 @@
+package com.flogin.service;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ProductNameRegistry - Bộ lọc in-memory các product name đã biết là đang được sử dụng
+ * Chỉ dùng để chặn sớm các trường hợp trùng tên rõ ràng trước khi INSERT/UPDATE.
+ * Tính duy nhất thực sự được đảm bảo bởi unique index trên cột product_name,
+ * nên một entry cũ (stale) chỉ tốn thêm một lần kiểm tra với database, không gây reject sai.
+ * @see ProductService
+ * @see com.flogin.entity.Product#UNIQUE_PRODUCT_NAME_CONSTRAINT
+ */
+class ProductNameRegistry {
+
+    /**
+     * Giới hạn số tên được nhớ để bộ lọc không tăng vô hạn theo kích thước catalog
+     */
+    static final int MAX_ENTRIES = 100_000;
+
+    private final Set<String> knownNames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @return true nếu tên này đã từng được ghi nhận là tồn tại (cần xác nhận lại với DB)
+     */
+    boolean mightExist(String productName) {
+        return productName != null && knownNames.contains(productName);
+    }
+
+    /**
+     * Ghi nhận tên đang được sử dụng (sau khi insert/update thành công hoặc khi gặp constraint violation)
+     */
+    void remember(String productName) {
+        if (productName != null && knownNames.size() < MAX_ENTRIES) {
+            knownNames.add(productName);
+        }
+    }
+
+    /**
+     * Xóa tên khỏi bộ lọc (product bị đổi tên, bị xóa, hoặc entry đã cũ)
+     */
+    void forget(String productName) {
+        if (productName != null) {
+            knownNames.remove(productName);
+        }
+    }
+}
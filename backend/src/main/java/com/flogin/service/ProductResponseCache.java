@@ -0,0 +1,146 @@
+package com.flogin.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flogin.dto.ProductDtos.ProductDto;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ProductResponseCache - Cache response JSON đã encode sẵn của từng product (identity + gzip)
+ * Key là id, mỗi entry gắn với version của product: entry chỉ được dùng khi version khớp
+ * version in-memory (ProductService#getKnownVersion), nên update / delete qua instance này không bao giờ
+ * trả entry cũ. Thay đổi từ instance khác hoặc sửa thẳng DB không được thấy cho tới khi version in-memory
+ * hết hạn (flogin.products.known-version-ttl-ms): entry cũ có thể được trả về tối đa trong ttl đó.
+ * ProductService evict entry sau mỗi lần ghi thành công (update, patch, delete, bulk delete),
+ * nên mọi đường ghi đi qua service đều dọn cache, không phụ thuộc controller nào gọi.
+ * @see com.flogin.controller.ProductController#getProductById
+ */
+@Component
+public class ProductResponseCache {
+
+    /**
+     * Giới hạn số product được cache để bộ nhớ không tăng vô hạn theo kích thước catalog
+     */
+    static final int MAX_ENTRIES = 10_000;
+
+    /**
+     * Response đã encode của một product tại một version
+     * @param gzip null nếu nén không làm body nhỏ hơn
+     * @param product DTO tương ứng, dùng lại cho các response gồm nhiều products (batch)
+     */
+    public record Entry(long version, byte[] identity, byte[] gzip, ProductDto product) {
+    }
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param objectMapper cùng ObjectMapper với message converter nên body giống hệt đường thường
+     */
+    public ProductResponseCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return entry của product tại đúng version cho trước, null nếu chưa có
+     */
+    public Entry get(long id, long version) {
+        Entry entry = entries.get(id);
+        return entry != null && entry.version() == version ? entry : null;
+    }
+
+    /**
+     * @return ProductDto đã cache tại đúng version cho trước, null nếu chưa có
+     */
+    public ProductDto getProduct(long id, long version) {
+        Entry entry = get(id, version);
+        return entry == null ? null : entry.product();
+    }
+
+    /**
+     * Serialize product và lưu lại, không ghi đè entry của version mới hơn
+     */
+    public Entry put(ProductDto product) {
+        Entry entry = encode(product, objectMapper);
+        if (entries.size() < MAX_ENTRIES || entries.containsKey(product.getId())) {
+            entries.merge(product.getId(), entry,
+                (current, candidate) -> candidate.version() >= current.version() ? candidate : current);
+        }
+        return entry;
+    }
+
+    /**
+     * Xóa entry của product (sau update/patch/delete)
+     */
+    public void evict(long id) {
+        entries.remove(id);
+    }
+
+    /**
+     * Xóa toàn bộ cache (bulk delete theo filter, không biết trước các id bị xóa)
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Chỉ dùng cache khi response sẽ là JSON: không có Accept, hoặc Accept chấp nhận application/json
+     * và không nhắc tới CBOR (để content negotiation chọn converter như bình thường)
+     */
+    public static boolean acceptsJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        boolean json = false;
+        try {
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                if ("cbor".equalsIgnoreCase(mediaType.getSubtype())) {
+                    return false;
+                }
+                json |= mediaType.includes(MediaType.APPLICATION_JSON) && mediaType.getQualityValue() > 0;
+            }
+        } catch (IllegalArgumentException ex) {
+            // Accept không hợp lệ -> để Spring xử lý như bình thường
+            return false;
+        }
+        return json;
+    }
+
+    /**
+     * @return true nếu Accept-Encoding chấp nhận gzip
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0{0,3})?");
+            }
+        }
+        return false;
+    }
+
+    private static Entry encode(ProductDto product, ObjectMapper objectMapper) {
+        try {
+            byte[] identity = objectMapper.writeValueAsBytes(product);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(identity.length);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                gzip.write(identity);
+            }
+            byte[] compressed = buffer.toByteArray();
+            return new Entry(product.getVersion(), identity, compressed.length < identity.length ? compressed : null, product);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
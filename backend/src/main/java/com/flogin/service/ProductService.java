@@ -1,23 +1,49 @@
 package com.flogin.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flogin.dto.ProductDtos.BatchProductsResponse;
+import com.flogin.dto.ProductDtos.BulkDeleteProductsRequest;
+import com.flogin.dto.ProductDtos.BulkDeleteProductsResponse;
 import com.flogin.dto.ProductDtos.CreateProductRequest;
+import com.flogin.dto.ProductDtos.PatchProductRequest;
 import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.dto.ProductDtos.ProductFieldsDto;
 import com.flogin.dto.ProductDtos.UpdateProductRequest;
 import com.flogin.entity.Category;
 import com.flogin.entity.Product;
+import com.flogin.jdbc.HedgedReadExecutor;
 import com.flogin.repository.interfaces.ProductRepository;
+import com.flogin.repository.interfaces.ProductRepositoryCustom.PatchedProduct;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
+
+    /**
+     * Số products tối đa bị xóa trong một transaction khi xóa hàng loạt
+     * (giữ lock trên bảng products trong thời gian ngắn)
+     */
+    static final int BULK_DELETE_CHUNK_SIZE = 500;
+
+    /**
+     * Số id tối đa mỗi request lấy nhiều products, và số id mỗi câu SELECT ... WHERE id IN (...)
+     */
+    public static final int BATCH_GET_MAX_IDS = 1000;
+    static final int BATCH_GET_CHUNK_SIZE = 500;
     
     /**
      * ProductRepository để access product data từ database
@@ -30,11 +56,44 @@ public class ProductService {
      */
     @Autowired
     private Validator validator;
+
+    /**
+     * Hedged read cho getProductById qua các replica, chỉ có khi bật
+     * flogin.datasource.routing.hedged-reads.enabled
+     */
+    @Autowired(required = false)
+    private HedgedReadExecutor hedgedReadExecutor;
+
+    /**
+     * Cache response JSON đã encode của từng product (ProductController đọc), evict sau mỗi lần ghi thành công
+     */
+    @Autowired
+    private ProductResponseCache responseCache;
+
+    /**
+     * Bộ lọc in-memory các tên đã tồn tại, chặn sớm trùng tên rõ ràng trước khi ghi xuống DB
+     */
+    private final ProductNameRegistry productNameRegistry = new ProductNameRegistry();
+
+    /**
+     * Thời gian (ms) tin version in-memory của product khi không đọc lại DB, mặc định của flogin.products.known-version-ttl-ms
+     */
+    static final long KNOWN_VERSION_TTL_MS = 5000;
+
+    /**
+     * Version in-memory của products và bộ đếm thay đổi catalog, dùng cho ETag / conditional GET
+     */
+    private final ProductVersionTracker versionTracker = new ProductVersionTracker(KNOWN_VERSION_TTL_MS);
     
 
     public ProductService(ProductRepository productRepository, Validator validator) {
+        this(productRepository, validator, new ProductResponseCache(new ObjectMapper()));
+    }
+
+    public ProductService(ProductRepository productRepository, Validator validator, ProductResponseCache responseCache) {
         this.productRepository = productRepository;
         this.validator = validator;
+        this.responseCache = responseCache;
     }
     
     /**
@@ -43,6 +102,14 @@ public class ProductService {
     public ProductService() {
     }
 
+    /**
+     * Thay đổi từ instance khác / sửa thẳng DB được thấy chậm nhất sau ttl (0 = luôn đọc DB)
+     */
+    @Value("${flogin.products.known-version-ttl-ms:" + KNOWN_VERSION_TTL_MS + "}")
+    public void setKnownVersionTtlMillis(long ttlMillis) {
+        versionTracker.setTtlMillis(ttlMillis);
+    }
+
 
     public ProductDto createProduct(CreateProductRequest request) {
         // Step 1: Validate DTO bằng Bean Validation annotations
@@ -55,17 +122,20 @@ public class ProductService {
             throw new IllegalArgumentException(errorMessage);
         }
         
-        // Step 2: Kiểm tra tên sản phẩm đã tồn tại chưa (business rule: unique name)
-        if (productRepository.existsByProductName(request.getProductName())) {
-            throw new IllegalArgumentException("Product name '" + request.getProductName() + "' đã tồn tại");
-        }
-        
-        // Step 3: Validate category với enum (phải là một trong các giá trị hợp lệ)
+        // Step 2: Validate category với enum (phải là một trong các giá trị hợp lệ)
         if (!Category.isValid(request.getCategory())) {
             throw new IllegalArgumentException("Category '" + request.getCategory() + 
                     "' không hợp lệ. Các giá trị hợp lệ: " + Category.getAllValidValues());
         }
 
+        // Step 3: Tên đã biết là tồn tại -> xác nhận lại với DB trước khi reject (entry có thể đã cũ)
+        if (productNameRegistry.mightExist(request.getProductName())) {
+            if (productRepository.existsByProductName(request.getProductName())) {
+                throw new IllegalArgumentException("Product name '" + request.getProductName() + "' đã tồn tại");
+            }
+            productNameRegistry.forget(request.getProductName());
+        }
+
         // Convert category string sang enum
         Category category = Category.fromString(request.getCategory());
 
@@ -76,38 +146,207 @@ public class ProductService {
         product.setProductName(request.getProductName());
         product.setPrice(request.getPrice());
         
-        // Step 5: Lưu vào database
-        Product savedProduct = productRepository.save(product);
+        // Step 4: Lưu vào database (1 round trip), unique index bắt trường hợp trùng tên kể cả khi tạo đồng thời
+        Product savedProduct;
+        try {
+            savedProduct = productRepository.save(product);
+        } catch (DataIntegrityViolationException ex) {
+            if (isDuplicateProductName(ex)) {
+                productNameRegistry.remember(request.getProductName());
+                throw new IllegalArgumentException("Product name '" + request.getProductName() + "' đã tồn tại");
+            }
+            throw ex;
+        }
+        productNameRegistry.remember(savedProduct.getProductName());
+        versionTracker.changed(savedProduct.getId(), savedProduct.getVersion());
 
-        // Step 6: Convert Entity sang DTO và return
+        // Step 5: Convert Entity sang DTO và return
         return toDto(savedProduct);
     }
 
 
+    @Transactional(readOnly = true)
     public Page<ProductDto> getAll(Pageable pageable) {
-        // Lấy products từ database với pagination
-        Page<Product> productPage = productRepository.findAll(pageable);
-        // Convert mỗi Product entity sang ProductDto
-        return productPage.map(this::toDto);
+        // Lấy products từ database với pagination, select thẳng vào ProductDto (không qua entity)
+        Page<ProductDto> products = productRepository.findAllProductDtos(pageable);
+        products.forEach(product -> versionTracker.record(product.getId(), product.getVersion()));
+        return products;
+    }
+
+
+    /**
+     * Lấy danh sách products chỉ với các field được chọn (sparse fieldset, select ít cột hơn)
+     * @param fields các field đã parse bằng ProductFieldsDto#parseFields
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductFieldsDto> getAll(Pageable pageable, List<String> fields) {
+        return productRepository.findProductFields(fields, pageable);
     }
 
 
     public void deleteProduct(long id) {
-        // Kiểm tra product có tồn tại không trước khi xóa
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new NoSuchElementException("Product not found with id: " + id));
-        
-        // Xóa product khỏi database
-        productRepository.deleteById(id);
+        // Một câu DELETE duy nhất, không có dòng nào bị xóa nghĩa là product không tồn tại
+        // (tên cũ có thể còn trong productNameRegistry, sẽ được xác nhận lại với DB khi dùng tới)
+        if (productRepository.deleteProductById(id) == 0) {
+            throw new NoSuchElementException("Product not found with id: " + id);
+        }
+        removed(id);
     }
 
 
+    /**
+     * Xóa hàng loạt theo danh sách ids hoặc theo filter, chia thành các chunk
+     * BULK_DELETE_CHUNK_SIZE, mỗi chunk là một transaction riêng
+     */
+    public BulkDeleteProductsResponse deleteProducts(BulkDeleteProductsRequest request) {
+        // Step 1: Validate DTO bằng Bean Validation annotations
+        Set<ConstraintViolation<BulkDeleteProductsRequest>> violations = validator.validate(request);
+
+        if (!violations.isEmpty()) {
+            String errorMessage = "Validation failed: " + violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .collect(Collectors.joining(", "));
+            throw new IllegalArgumentException(errorMessage);
+        }
+
+        boolean hasIds = request.getIds() != null && !request.getIds().isEmpty();
+        boolean hasFilter = request.getCategory() != null || request.getNameContains() != null;
+        if (hasIds == hasFilter) {
+            // Không cho phép filter rỗng (tránh xóa toàn bộ bảng) hoặc dùng cả hai cách
+            throw new IllegalArgumentException("Phải truyền danh sách ids hoặc filter (category, nameContains), không dùng cả hai");
+        }
+        if (request.getCategory() != null && !Category.isValid(request.getCategory())) {
+            throw new IllegalArgumentException("Category '" + request.getCategory() +
+                    "' không hợp lệ. Các giá trị hợp lệ: " + Category.getAllValidValues());
+        }
+
+        long deleted = 0;
+        int chunks = 0;
+        if (hasIds) {
+            // Step 2a: Xóa theo ids, mỗi chunk một câu DELETE ... WHERE id IN (...)
+            List<Long> ids = request.getIds().stream().filter(Objects::nonNull).distinct().toList();
+            for (int from = 0; from < ids.size(); from += BULK_DELETE_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + BULK_DELETE_CHUNK_SIZE, ids.size()));
+                deleted += productRepository.deleteProductsByIdIn(chunk);
+                chunk.forEach(this::removed);
+                chunks++;
+            }
+        } else {
+            // Step 2b: Xóa theo filter, lấy từng chunk id khớp filter rồi xóa cho tới khi hết
+            Category category = request.getCategory() == null ? null : Category.fromString(request.getCategory());
+            PageRequest firstChunk = PageRequest.of(0, BULK_DELETE_CHUNK_SIZE);
+            List<Long> chunk;
+            do {
+                chunk = category == null
+                        ? productRepository.findIdsByFilter(null, request.getNameContains(), firstChunk)
+                        : productRepository.findIdsByCategory(category, request.getNameContains(), firstChunk);
+                if (!chunk.isEmpty()) {
+                    deleted += productRepository.deleteProductsByIdIn(chunk);
+                    chunk.forEach(this::removed);
+                    chunks++;
+                }
+            } while (chunk.size() == BULK_DELETE_CHUNK_SIZE);
+        }
+        return new BulkDeleteProductsResponse(deleted, chunks);
+    }
+
+
+    @Transactional(readOnly = true)
     public ProductDto getProductById(long id) {
-        // Tìm product trong database, throw exception nếu không tìm thấy
-        Product product = productRepository.findById(id)
+        // Tìm product trong database (projection sang DTO), throw exception nếu không tìm thấy
+        Optional<ProductDto> found = hedgedReadExecutor == null
+                ? productRepository.findProductDtoById(id)
+                : productRepository.findProductDtoById(id, hedgedReadExecutor);
+        ProductDto product = found
+                .orElseThrow(() -> new NoSuchElementException("Product not found with id: " + id));
+        versionTracker.record(product.getId(), product.getVersion());
+        return product;
+    }
+
+
+    /**
+     * Tìm product theo id chỉ với các field được chọn (sparse fieldset)
+     * @param fields các field đã parse bằng ProductFieldsDto#parseFields
+     */
+    @Transactional(readOnly = true)
+    public ProductFieldsDto getProductById(long id, List<String> fields) {
+        ProductFieldsDto product = productRepository.findProductFieldsById(id, fields)
                 .orElseThrow(() -> new NoSuchElementException("Product not found with id: " + id));
-        // Convert Entity sang DTO và return
-        return toDto(product);
+        versionTracker.record(id, product.getVersion());
+        return product;
+    }
+
+
+    /**
+     * Lấy nhiều products theo id trong một lần gọi
+     * @param ids danh sách id (id trùng lặp chỉ trả về một lần, theo vị trí xuất hiện đầu tiên)
+     * @return products theo đúng thứ tự ids, các id không tồn tại nằm trong missingIds
+     */
+    @Transactional(readOnly = true)
+    public BatchProductsResponse getProductsByIds(List<Long> ids) {
+        // Step 1: Validate số lượng id
+        if (ids == null || ids.stream().noneMatch(Objects::nonNull)) {
+            throw new IllegalArgumentException("Phải truyền ít nhất một id");
+        }
+        List<Long> requestedIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (requestedIds.size() > BATCH_GET_MAX_IDS) {
+            throw new IllegalArgumentException("Tối đa " + BATCH_GET_MAX_IDS + " ids mỗi request");
+        }
+
+        // Step 2: Lấy từ response cache trước (version khớp version đã biết), chỉ query những id còn thiếu
+        Map<Long, ProductDto> found = new HashMap<>();
+        List<Long> uncachedIds = new ArrayList<>();
+        for (Long id : requestedIds) {
+            Long knownVersion = versionTracker.knownVersion(id);
+            ProductDto product = knownVersion == null ? null : responseCache.getProduct(id, knownVersion);
+            if (product != null) {
+                found.put(id, product);
+            } else {
+                uncachedIds.add(id);
+            }
+        }
+
+        // Step 3: Query phần còn lại theo chunk, mỗi chunk một câu SELECT ... WHERE id IN (...)
+        for (int from = 0; from < uncachedIds.size(); from += BATCH_GET_CHUNK_SIZE) {
+            // Dừng giữa các chunk nếu request đã quá thời hạn
+            RequestDeadline.checkNotExpired();
+            List<Long> chunk = uncachedIds.subList(from, Math.min(from + BATCH_GET_CHUNK_SIZE, uncachedIds.size()));
+            for (ProductDto product : productRepository.findProductDtosByIdIn(chunk)) {
+                found.put(product.getId(), product);
+                versionTracker.record(product.getId(), product.getVersion());
+            }
+        }
+
+        // Step 4: Giữ đúng thứ tự request, id không tìm thấy đưa vào missingIds
+        List<ProductDto> products = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requestedIds) {
+            ProductDto product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new BatchProductsResponse(products, missingIds);
+    }
+
+
+    /**
+     * Version đã biết của product (không query database), chỉ tin trong flogin.products.known-version-ttl-ms
+     * @return version hiện tại, null nếu instance này chưa biết product hoặc đã quá ttl
+     */
+    public Long getKnownVersion(long id) {
+        return versionTracker.knownVersion(id);
+    }
+
+
+    /**
+     * Version của toàn catalog (không query database), thay đổi sau mỗi lần create/update/delete
+     * và sau mỗi khoảng ttl (thay đổi từ instance khác); null nếu ttl = 0
+     */
+    public String getCatalogVersion() {
+        return versionTracker.catalogVersion();
     }
 
 
@@ -129,17 +368,19 @@ public class ProductService {
                 .orElseThrow(() -> new NoSuchElementException("Product not found with id: " + id));
 
 
-       if(productRepository.existsByProductNameAndIdNot(request.getProductName(), id))
-           throw new IllegalArgumentException("Sản phẩm với tên " + request.getProductName() + " đẫ tồn tại");
-
-        
-        // Step 4: Validate category với enum values
+        // Step 3: Validate category với enum values
         if (!Category.isValid(request.getCategory())) {
             throw new IllegalArgumentException("Category '" + request.getCategory() + 
                     "' không hợp lệ. Các giá trị hợp lệ: " + Category.getAllValidValues());
         }
 
-
+        // Step 4: Chỉ kiểm tra trùng tên khi đổi tên và tên mới đã biết là tồn tại
+        String oldProductName = existingProduct.getProductName();
+        boolean nameChanged = !Objects.equals(oldProductName, request.getProductName());
+        if (nameChanged && productNameRegistry.mightExist(request.getProductName())
+                && productRepository.existsByProductNameAndIdNot(request.getProductName(), id)) {
+            throw new IllegalArgumentException("Sản phẩm với tên " + request.getProductName() + " đẫ tồn tại");
+        }
 
         // Step 5: Cập nhật các fields của existing product
         existingProduct.setProductName(request.getProductName());
@@ -148,20 +389,136 @@ public class ProductService {
         existingProduct.setCategory(Category.fromString(request.getCategory()));
         existingProduct.setDescription(request.getDescription());
 
-        // Step 6: Save updated product và return DTO
-        Product updatedProduct = productRepository.save(existingProduct);
+        // Step 6: Save updated product và return DTO (unique index bắt trường hợp trùng tên)
+        Product updatedProduct;
+        try {
+            updatedProduct = productRepository.save(existingProduct);
+        } catch (DataIntegrityViolationException ex) {
+            if (isDuplicateProductName(ex)) {
+                productNameRegistry.remember(request.getProductName());
+                throw new IllegalArgumentException("Sản phẩm với tên " + request.getProductName() + " đẫ tồn tại");
+            }
+            throw ex;
+        }
+        if (nameChanged) {
+            productNameRegistry.forget(oldProductName);
+        }
+        productNameRegistry.remember(updatedProduct.getProductName());
+        versionTracker.changed(updatedProduct.getId(), updatedProduct.getVersion());
+        responseCache.evict(updatedProduct.getId());
         return toDto(updatedProduct);
     }
 
 
+    /**
+     * Cập nhật một phần product bằng một câu UPDATE có điều kiện (không load entity trước);
+     * UPDATE và đọc lại trạng thái mới chạy trong cùng một transaction (ProductRepository#patchProductFields)
+     * @param expectedVersion version client đang giữ (If-Match), null nếu không kiểm tra
+     * @throws NoSuchElementException nếu product không tồn tại
+     * @throws OptimisticLockingFailureException nếu version không khớp (đã bị người khác sửa)
+     */
+    public ProductDto patchProduct(long id, PatchProductRequest request, Long expectedVersion) {
+        // Step 1: Validate DTO bằng Bean Validation annotations
+        Set<ConstraintViolation<PatchProductRequest>> violations = validator.validate(request);
+
+        if (!violations.isEmpty()) {
+            String errorMessage = "Validation failed: " + violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .collect(Collectors.joining(", "));
+            throw new IllegalArgumentException(errorMessage);
+        }
+        if (!request.hasChanges()) {
+            throw new IllegalArgumentException("Không có field nào để cập nhật");
+        }
+
+        // Step 2: Validate category nếu được truyền vào
+        if (request.getCategory() != null && !Category.isValid(request.getCategory())) {
+            throw new IllegalArgumentException("Category '" + request.getCategory() +
+                    "' không hợp lệ. Các giá trị hợp lệ: " + Category.getAllValidValues());
+        }
+
+        // Step 3: Tên mới đã biết là tồn tại -> xác nhận lại với DB
+        if (productNameRegistry.mightExist(request.getProductName())
+                && productRepository.existsByProductNameAndIdNot(request.getProductName(), id)) {
+            throw new IllegalArgumentException("Sản phẩm với tên " + request.getProductName() + " đẫ tồn tại");
+        }
+        // Step 4: Chỉ SET các field được truyền vào
+        Map<String, Object> changes = new LinkedHashMap<>();
+        if (request.getProductName() != null) changes.put("productName", request.getProductName());
+        if (request.getPrice() != null) changes.put("price", request.getPrice());
+        if (request.getQuantity() != null) changes.put("quantity", request.getQuantity());
+        if (request.getDescription() != null) changes.put("description", request.getDescription());
+        if (request.getCategory() != null) changes.put("category", Category.fromString(request.getCategory()));
+
+        // Step 5: UPDATE ... WHERE id = ? AND version = ? rồi đọc lại, cùng một transaction
+        // (đổi tên: thêm một câu SELECT tên cũ để bỏ khỏi registry)
+        Optional<PatchedProduct> patched;
+        try {
+            patched = productRepository.patchProductFields(id, changes, expectedVersion);
+        } catch (DataIntegrityViolationException ex) {
+            if (isDuplicateProductName(ex)) {
+                productNameRegistry.remember(request.getProductName());
+                throw new IllegalArgumentException("Sản phẩm với tên " + request.getProductName() + " đẫ tồn tại");
+            }
+            throw ex;
+        }
+
+        // Step 6: Không có dòng nào bị ảnh hưởng -> phân biệt 404 và 412 (chỉ chạy ở nhánh lỗi)
+        if (patched.isEmpty()) {
+            if (!productRepository.existsById(id)) {
+                throw new NoSuchElementException("Product not found with id: " + id);
+            }
+            throw new OptimisticLockingFailureException(
+                    "Product với id " + id + " đã bị thay đổi (version không khớp " + expectedVersion + ")");
+        }
+        String oldProductName = patched.get().oldProductName();
+        if (oldProductName != null && !oldProductName.equals(request.getProductName())) {
+            productNameRegistry.forget(oldProductName);
+        }
+        productNameRegistry.remember(request.getProductName());
+
+        // Step 7: Trạng thái mới (kèm version mới) do chính UPDATE này tạo ra
+        ProductDto patchedProduct = patched.get().product();
+        versionTracker.changed(id, patchedProduct.getVersion());
+        responseCache.evict(id);
+        return patchedProduct;
+    }
+
+
+    /**
+     * Product đã bị xóa: bỏ version đã biết và response đã cache
+     */
+    private void removed(long id) {
+        versionTracker.removed(id);
+        responseCache.evict(id);
+    }
+
+
+    /**
+     * Kiểm tra lỗi từ database có phải do vi phạm unique index product_name không
+     */
+    private boolean isDuplicateProductName(DataIntegrityViolationException ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase().contains(Product.UNIQUE_PRODUCT_NAME_CONSTRAINT)) {
+                return true;
+            }
+        }
+        String message = ex.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase().contains(Product.UNIQUE_PRODUCT_NAME_CONSTRAINT);
+    }
+
+
     private ProductDto toDto(Product product) {
         return new ProductDto(
                 product.getId(),
-                product.getCategory().getValue(), // Convert enum to string
+                product.getCategory(),
                 product.getPrice(),
                 product.getProductName(),
                 product.getDescription(),
-                product.getQuantity()
+                product.getQuantity(),
+                product.getVersion()
         );
     }
 }
\ No newline at end of file
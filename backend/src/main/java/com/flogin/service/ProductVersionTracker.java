@@ -0,0 +1,98 @@
+package com.flogin.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ProductVersionTracker - Lưu in-memory version hiện tại của từng product và bộ đếm thay đổi toàn catalog
+ * Dùng để trả lời conditional GET (If-None-Match) mà không cần query database.
+ * Chỉ ghi nhận các thay đổi đi qua instance này: thay đổi từ instance khác hoặc sửa thẳng trong DB không được
+ * thấy, nên mỗi version chỉ được tin trong ttl kể từ lần đọc / ghi DB gần nhất (hết hạn thì request rơi về
+ * đường đọc DB bình thường và làm mới entry). Version của catalog cũng đổi sau mỗi ttl.
+ * => Response cũ (304 / bytes cache) tồn tại tối đa ttl; ttl = 0 tắt revalidate từ memory.
+ * @see ProductService#getKnownVersion(long)
+ * @see ProductService#getCatalogVersion()
+ */
+class ProductVersionTracker {
+
+    /**
+     * Giới hạn số product được theo dõi để map không tăng vô hạn theo kích thước catalog
+     */
+    static final int MAX_TRACKED_PRODUCTS = 100_000;
+
+    /**
+     * Version của product và thời điểm (System.nanoTime()) đọc / ghi DB gần nhất
+     */
+    private record Known(long version, long seenAt) {
+    }
+
+    private final Map<Long, Known> versions = new ConcurrentHashMap<>();
+
+    private volatile long ttlNanos;
+
+    private final AtomicLong catalogChanges = new AtomicLong();
+
+    /**
+     * Epoch của process, để ETag của listing không bị trùng sau khi restart (bộ đếm bắt đầu lại từ 0)
+     */
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    ProductVersionTracker(long ttlMillis) {
+        setTtlMillis(ttlMillis);
+    }
+
+    void setTtlMillis(long ttlMillis) {
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttl phải >= 0");
+        }
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    /**
+     * Ghi nhận version vừa đọc/ghi của product
+     */
+    void record(long id, long version) {
+        if (versions.size() < MAX_TRACKED_PRODUCTS || versions.containsKey(id)) {
+            Known known = new Known(version, System.nanoTime());
+            versions.merge(id, known, (current, candidate) -> candidate.version() >= current.version() ? candidate : current);
+        }
+    }
+
+    /**
+     * Ghi nhận product đã thay đổi (create/update/patch) và tăng bộ đếm catalog
+     */
+    void changed(long id, long version) {
+        versions.put(id, new Known(version, System.nanoTime()));
+        catalogChanges.incrementAndGet();
+    }
+
+    /**
+     * Ghi nhận product đã bị xóa và tăng bộ đếm catalog
+     */
+    void removed(long id) {
+        versions.remove(id);
+        catalogChanges.incrementAndGet();
+    }
+
+    /**
+     * @return version đã biết của product, null nếu chưa biết hoặc đã quá ttl
+     */
+    Long knownVersion(long id) {
+        Known known = versions.get(id);
+        long ttl = ttlNanos;
+        return known == null || System.nanoTime() - known.seenAt() >= ttl ? null : known.version();
+    }
+
+    /**
+     * @return version của toàn catalog dạng "<epoch>-<số lần thay đổi>-<khoảng ttl hiện tại>", null nếu ttl = 0
+     */
+    String catalogVersion() {
+        long ttl = ttlNanos;
+        if (ttl == 0) {
+            return null;
+        }
+        return epoch + "-" + catalogChanges.get() + "-" + Long.toString(System.nanoTime() / ttl, 36);
+    }
+}
@@ -0,0 +1,64 @@
+package com.flogin.service;
+
+import com.flogin.repository.reactive.ReactiveProductRepository;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Cấu hình API đọc products dạng reactive (/api/products/reactive), chỉ bật khi flogin.reactive.enabled=true
+ * - Connection pool R2DBC riêng (non-blocking), độc lập với HikariCP/JPA nên @Transactional
+ *   của các thao tác ghi vẫn dùng JpaTransactionManager như cũ
+ * @see ReactiveProductService
+ */
+@Configuration
+@ConditionalOnProperty(name = "flogin.reactive.enabled", havingValue = "true")
+public class ReactiveConfig {
+
+    @Value("${flogin.reactive.r2dbc.url}")
+    private String url;
+
+    @Value("${flogin.reactive.r2dbc.username:}")
+    private String username;
+
+    @Value("${flogin.reactive.r2dbc.password:}")
+    private String password;
+
+    @Value("${flogin.reactive.r2dbc.pool-max-size:20}")
+    private int poolMaxSize;
+
+    private ConnectionPool connectionPool;
+
+    /**
+     * Pool không được đăng ký thành bean ConnectionFactory:
+     * DataSourceAutoConfiguration (HikariCP/JPA) tự tắt khi context có bean ConnectionFactory
+     */
+    @Bean
+    public ReactiveProductRepository reactiveProductRepository() {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("flogin-reactive")
+                .maxSize(poolMaxSize)
+                .maxIdleTime(Duration.ofMinutes(30))
+                .build());
+        return new ReactiveProductRepository(connectionPool);
+    }
+
+    @PreDestroy
+    void disposeConnectionPool() {
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.flogin.service;
+
+import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.repository.reactive.ReactiveProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.NoSuchElementException;
+
+/**
+ * ReactiveProductService - Các thao tác đọc products non-blocking, cùng kết quả với
+ * ProductService#getAll và ProductService#getProductById nhưng không giữ thread trong lúc chờ database
+ * @see ProductService
+ */
+@Service
+@ConditionalOnProperty(name = "flogin.reactive.enabled", havingValue = "true")
+public class ReactiveProductService {
+
+    @Autowired
+    private ReactiveProductRepository reactiveProductRepository;
+
+    public ReactiveProductService() {
+    }
+
+    public ReactiveProductService(ReactiveProductRepository reactiveProductRepository) {
+        this.reactiveProductRepository = reactiveProductRepository;
+    }
+
+    public Flux<ProductDto> getAll(Pageable pageable) {
+        return reactiveProductRepository.findAll(pageable.getOffset(), pageable.getPageSize());
+    }
+
+    public Mono<ProductDto> getProductById(long id) {
+        return reactiveProductRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new NoSuchElementException("Product not found with id: " + id)));
+    }
+}
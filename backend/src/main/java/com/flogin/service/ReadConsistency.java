@@ -0,0 +1,95 @@
+package com.flogin.service;
+
+import java.util.function.LongConsumer;
+
+/**
+ * ReadConsistency - Yêu cầu nhất quán khi đọc của request đang xử lý trên thread hiện tại
+ * (dùng bởi ReadWriteRoutingDataSource để chọn primary hay replica)
+ * - requiredPosition: consistency token của client (thời điểm commit ghi gần nhất, epoch ms);
+ *   chỉ đọc từ replica đã áp dụng tới thời điểm này, ngược lại đọc từ primary (read-your-writes)
+ * - primaryOnly: request ghi - mọi query (kể cả kiểm tra trùng tên trước khi ghi) đi primary
+ * Thread không có context (job nền, test) đọc từ replica bất kỳ.
+ */
+public final class ReadConsistency {
+
+    /**
+     * Header mang consistency token: server trả về sau khi ghi, client gửi lại ở các request sau
+     */
+    public static final String TOKEN_HEADER = "X-Consistency-Token";
+
+    private static final class State {
+        long requiredPosition;
+        final boolean primaryOnly;
+        final LongConsumer onWrite;
+        boolean staleRead;
+
+        State(long requiredPosition, boolean primaryOnly, LongConsumer onWrite) {
+            this.requiredPosition = requiredPosition;
+            this.primaryOnly = primaryOnly;
+            this.onWrite = onWrite;
+        }
+    }
+
+    private static final ThreadLocal<State> STATE = new ThreadLocal<>();
+
+    private ReadConsistency() {
+    }
+
+    /**
+     * @param requiredPosition consistency token client gửi lên (0 nếu không có)
+     * @param primaryOnly      true với request ghi
+     * @param onWrite          nhận token mới sau mỗi lần commit ghi (vd: đặt response header)
+     */
+    public static void begin(long requiredPosition, boolean primaryOnly, LongConsumer onWrite) {
+        STATE.set(new State(requiredPosition, primaryOnly, onWrite));
+    }
+
+    public static void clear() {
+        STATE.remove();
+    }
+
+    public static boolean isPrimaryOnly() {
+        State state = STATE.get();
+        return state != null && state.primaryOnly;
+    }
+
+    /**
+     * @return vị trí (epoch ms) replica phải áp dụng tới thì mới được đọc, 0 nếu không yêu cầu
+     */
+    public static long requiredPosition() {
+        State state = STATE.get();
+        return state == null ? 0 : state.requiredPosition;
+    }
+
+    /**
+     * Đánh dấu request đã đọc từ replica chưa áp dụng hết các ghi mà instance này biết
+     */
+    public static void markStaleRead() {
+        State state = STATE.get();
+        if (state != null) {
+            state.staleRead = true;
+        }
+    }
+
+    /**
+     * @return true nếu dữ liệu request đọc được có thể cũ hơn primary
+     *         (không nên gắn ETag theo bộ đếm thay đổi catalog cho response này)
+     */
+    public static boolean isStaleRead() {
+        State state = STATE.get();
+        return state != null && state.staleRead;
+    }
+
+    /**
+     * Ghi nhận một transaction ghi vừa commit trên primary tại position:
+     * các lần đọc sau trong cùng request cũng phải thấy dữ liệu vừa ghi
+     */
+    public static void recordWrite(long position) {
+        State state = STATE.get();
+        if (state == null) {
+            return;
+        }
+        state.requiredPosition = Math.max(state.requiredPosition, position);
+        state.onWrite.accept(state.requiredPosition);
+    }
+}
@@ -0,0 +1,58 @@
+package com.flogin.service;
+
+import org.springframework.dao.QueryTimeoutException;
+
+/**
+ * RequestDeadline - Thời hạn (deadline) của request đang xử lý trên thread hiện tại
+ * - DeadlineFilter đặt deadline khi request bắt đầu và xóa khi request kết thúc
+ * - Service kiểm tra checkNotExpired() trước các bước tốn kém (BCrypt, từng chunk query)
+ * - DeadlineDataSource dùng remainingMillis() làm query timeout và thời gian chờ lấy connection
+ * Không có deadline (job nền, test) thì remainingMillis() trả Long.MAX_VALUE và không giới hạn gì.
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * Đặt deadline cho thread hiện tại: budgetMs tính từ bây giờ
+     */
+    public static void start(long budgetMs) {
+        DEADLINE_NANOS.set(System.nanoTime() + budgetMs * 1_000_000L);
+    }
+
+    public static void clear() {
+        DEADLINE_NANOS.remove();
+    }
+
+    public static boolean isSet() {
+        return DEADLINE_NANOS.get() != null;
+    }
+
+    /**
+     * @return số ms còn lại (có thể âm nếu đã quá hạn), Long.MAX_VALUE nếu không có deadline
+     */
+    public static long remainingMillis() {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.floorDiv(deadline - System.nanoTime(), 1_000_000L);
+    }
+
+    public static boolean isExpired() {
+        return remainingMillis() <= 0;
+    }
+
+    /**
+     * Dừng xử lý nếu đã quá deadline (client đã bỏ cuộc, không nên tốn thêm DB / CPU)
+     * @throws QueryTimeoutException nếu đã quá hạn (GlobalExceptionHandler trả 504)
+     */
+    public static void checkNotExpired() {
+        if (isExpired()) {
+            throw new QueryTimeoutException("Request đã quá thời hạn xử lý");
+        }
+    }
+}
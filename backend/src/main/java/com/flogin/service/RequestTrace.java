@@ -0,0 +1,393 @@
+package com.flogin.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * RequestTrace - Trace của một request được lấy mẫu: cây span (filter, controller, service, repository, SQL)
+ * - TracingFilter quyết định lấy mẫu (sample()) và mở root span, kết thúc bằng finish() rồi export
+ * - Các tầng mở span con trên thread hiện tại bằng start() / Span.end(); span lồng nhau theo thứ tự gọi
+ * - Request không được lấy mẫu: start() chỉ đọc một ThreadLocal và trả Span.NOOP (không cấp phát gì)
+ * - Phase (phase() / endPhase()): span của các bước nối tiếp không có điểm kết thúc rõ ràng (đọc body, validate,
+ *   ghi response), tự kết thúc khi span khác không phải SQL bắt đầu, khi span cha kết thúc hoặc khi gọi endPhase()
+ * Thread phụ (scatter-gather của sharding, hedged read) gắn lại span của thread request bằng attach() / detach();
+ * span kết thúc sau khi trace đã finish (vd: lần đọc hedged bị hủy) bị bỏ qua.
+ */
+public final class RequestTrace {
+
+    /**
+     * SpanKind của OpenTelemetry (giá trị là mã số trong OTLP)
+     */
+    public enum Kind {
+        INTERNAL(1), SERVER(2), CLIENT(3);
+
+        private final int code;
+
+        Kind(int code) {
+            this.code = code;
+        }
+
+        public int code() {
+            return code;
+        }
+    }
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private final long traceIdHigh;
+    private final long traceIdLow;
+    private final int maxSpans;
+
+    /**
+     * Mốc đổi System.nanoTime() sang thời gian epoch khi export
+     */
+    private final long startEpochNanos;
+    private final long startNanoTime;
+
+    private final Span root;
+    private final List<Span> spans = new ArrayList<>();
+    private int droppedSpans;
+    private boolean finished;
+
+    private RequestTrace(String name, long traceIdHigh, long traceIdLow, long parentSpanId, int maxSpans) {
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.maxSpans = maxSpans;
+        Instant now = Instant.now();
+        this.startNanoTime = System.nanoTime();
+        this.startEpochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        this.root = new Span(this, null, parentSpanId, name, Kind.SERVER, startNanoTime, false);
+    }
+
+    /**
+     * Quyết định lấy mẫu cho request và mở trace trên thread hiện tại
+     * @param traceparent header W3C traceparent của client (null nếu không có): cờ sampled = luôn lấy mẫu,
+     *                    trace id và span id được dùng tiếp để nối với trace phía client
+     * @param sampleRate  tỉ lệ lấy mẫu request không có cờ sampled (0..1)
+     * @param maxSpans    số span tối đa giữ lại cho một trace (vượt thì bỏ, đếm vào root span)
+     * @return trace đã mở (root span là span hiện tại của thread), null nếu request không được lấy mẫu
+     */
+    public static RequestTrace sample(String name, String traceparent, double sampleRate, int maxSpans) {
+        long[] parent = parseTraceparent(traceparent);
+        boolean sampled = parent != null && (parent[3] & 1) == 1;
+        if (!sampled && (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return null;
+        }
+        RequestTrace trace = parent != null
+                ? new RequestTrace(name, parent[0], parent[1], parent[2], maxSpans)
+                : new RequestTrace(name, nonZeroId(), nonZeroId(), 0, maxSpans);
+        CURRENT.set(trace.root);
+        return trace;
+    }
+
+    /**
+     * traceparent = "00-" + trace id (32 hex) + "-" + span id (16 hex) + "-" + flags (2 hex)
+     * @return {trace id cao, trace id thấp, span id, flags}, null nếu không có hoặc sai định dạng
+     */
+    static long[] parseTraceparent(String header) {
+        if (header == null) {
+            return null;
+        }
+        String value = header.trim();
+        if (value.length() != 55 || !value.startsWith("00-") || value.charAt(35) != '-' || value.charAt(52) != '-') {
+            return null;
+        }
+        try {
+            long high = Long.parseUnsignedLong(value.substring(3, 19), 16);
+            long low = Long.parseUnsignedLong(value.substring(19, 35), 16);
+            long spanId = Long.parseUnsignedLong(value.substring(36, 52), 16);
+            long flags = Long.parseLong(value.substring(53, 55), 16);
+            if ((high == 0 && low == 0) || spanId == 0) {
+                return null;
+            }
+            return new long[]{high, low, spanId, flags};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long nonZeroId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return id;
+    }
+
+    static String hex(long value) {
+        String digits = Long.toHexString(value);
+        return "0".repeat(16 - digits.length()) + digits;
+    }
+
+    /**
+     * @return span đang mở trên thread hiện tại, null nếu thread không thuộc request được lấy mẫu
+     */
+    public static Span current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Mở span con của span hiện tại
+     * @return span mới, Span.NOOP nếu thread không thuộc request được lấy mẫu
+     */
+    public static Span start(String name, Kind kind) {
+        return start(name, kind, System.nanoTime());
+    }
+
+    /**
+     * @param startNanoTime thời điểm bắt đầu theo System.nanoTime() (vd: câu SQL đo xong mới ghi)
+     */
+    public static Span start(String name, Kind kind, long startNanoTime) {
+        Span parent = CURRENT.get();
+        if (parent == null) {
+            return Span.NOOP;
+        }
+        if (parent.phase && kind != Kind.CLIENT) {
+            // Bước tiếp theo bắt đầu: phase trước đó kết thúc (câu SQL trong phase, vd: lazy load khi ghi response,
+            // vẫn là con của phase)
+            parent.end(startNanoTime);
+            parent = parent.parent;
+        }
+        Span span = new Span(parent.trace, parent, parent.spanId, name, kind, startNanoTime, false);
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * Mở phase mới (phase đang mở trên thread kết thúc trước)
+     */
+    public static void phase(String name) {
+        Span current = CURRENT.get();
+        if (current == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (current.phase) {
+            current.end(now);
+            current = current.parent;
+        }
+        CURRENT.set(new Span(current.trace, current, current.spanId, name, Kind.INTERNAL, now, true));
+    }
+
+    /**
+     * Kết thúc phase đang mở trên thread (nếu có)
+     */
+    public static void endPhase() {
+        Span current = CURRENT.get();
+        if (current != null && current.phase) {
+            current.end();
+        }
+    }
+
+    /**
+     * Gắn span của thread khác làm span hiện tại (thread phụ chạy một phần việc của request)
+     * @return token truyền lại cho detach(), false nếu span null hoặc thread đã có span
+     */
+    public static boolean attach(Span span) {
+        if (span == null || span == Span.NOOP || CURRENT.get() != null) {
+            return false;
+        }
+        CURRENT.set(span);
+        return true;
+    }
+
+    /**
+     * @param attached giá trị attach() đã trả về
+     */
+    public static void detach(boolean attached) {
+        if (attached) {
+            CURRENT.remove();
+        }
+    }
+
+    public String getTraceId() {
+        return hex(traceIdHigh) + hex(traceIdLow);
+    }
+
+    public Span getRoot() {
+        return root;
+    }
+
+    /**
+     * Kết thúc root span (và span còn mở trên thread), bỏ trace khỏi thread; gọi trên thread đã sample()
+     */
+    public void finish() {
+        root.end();
+        CURRENT.remove();
+    }
+
+    private synchronized void add(Span span) {
+        if (finished) {
+            return;
+        }
+        if (span == root) {
+            if (droppedSpans > 0) {
+                root.attribute("flogin.trace.dropped_spans", droppedSpans);
+            }
+            spans.add(span);
+            finished = true;
+        } else if (spans.size() < maxSpans) {
+            spans.add(span);
+        } else {
+            droppedSpans++;
+        }
+    }
+
+    /**
+     * @return các span đã kết thúc (root cuối cùng), chỉ đọc sau finish()
+     */
+    synchronized List<Span> getSpans() {
+        return List.copyOf(spans);
+    }
+
+    long epochNanos(long nanoTime) {
+        return startEpochNanos + (nanoTime - startNanoTime);
+    }
+
+    /**
+     * Một span: chỉ thread đã mở span được ghi attribute / kết thúc span
+     */
+    public static final class Span {
+
+        /**
+         * Span của request không được lấy mẫu: mọi thao tác không làm gì
+         */
+        public static final Span NOOP = new Span(null, null, 0, "", Kind.INTERNAL, 0, false);
+
+        private final RequestTrace trace;
+        private final Span parent;
+        private final long parentSpanId;
+        private final long spanId;
+        private final Kind kind;
+        private final long startNanoTime;
+        private final boolean phase;
+        private String name;
+        private long endNanoTime;
+        private List<Object> attributes;
+        private String errorMessage;
+
+        private Span(RequestTrace trace, Span parent, long parentSpanId, String name, Kind kind, long startNanoTime,
+                     boolean phase) {
+            this.trace = trace;
+            this.parent = parent;
+            this.parentSpanId = parentSpanId;
+            this.spanId = trace == null ? 0 : nonZeroId();
+            this.name = name;
+            this.kind = kind;
+            this.startNanoTime = startNanoTime;
+            this.phase = phase;
+        }
+
+        /**
+         * @param value String, Long / Integer, Double hoặc Boolean
+         */
+        public Span attribute(String key, Object value) {
+            if (trace != null && value != null) {
+                if (attributes == null) {
+                    attributes = new ArrayList<>(8);
+                }
+                attributes.add(key);
+                attributes.add(value);
+            }
+            return this;
+        }
+
+        public Span rename(String name) {
+            if (trace != null) {
+                this.name = name;
+            }
+            return this;
+        }
+
+        /**
+         * Đánh dấu span lỗi (status ERROR), ghi loại exception
+         */
+        public Span error(Throwable error) {
+            attribute("exception.type", error.getClass().getName());
+            return error(error.getMessage() == null ? error.getClass().getSimpleName() : error.getMessage());
+        }
+
+        public Span error(String message) {
+            if (trace != null) {
+                this.errorMessage = message;
+            }
+            return this;
+        }
+
+        public void end() {
+            end(System.nanoTime());
+        }
+
+        /**
+         * Kết thúc span và các span con còn mở trên thread (phase, span quên end()),
+         * span cha trở lại làm span hiện tại của thread
+         */
+        public void end(long endNanoTime) {
+            if (trace == null || this.endNanoTime != 0) {
+                return;
+            }
+            Span current = CURRENT.get();
+            if (current != this && isAncestorOf(current)) {
+                for (Span child = current; child != this; child = child.parent) {
+                    if (child.endNanoTime == 0) {
+                        child.endNanoTime = endNanoTime;
+                        child.trace.add(child);
+                    }
+                }
+                current = this;
+            }
+            this.endNanoTime = endNanoTime;
+            if (current == this) {
+                if (parent == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(parent);
+                }
+            }
+            trace.add(this);
+        }
+
+        private boolean isAncestorOf(Span span) {
+            for (Span ancestor = span == null ? null : span.parent; ancestor != null; ancestor = ancestor.parent) {
+                if (ancestor == this) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Kind getKind() {
+            return kind;
+        }
+
+        long getSpanId() {
+            return spanId;
+        }
+
+        long getParentSpanId() {
+            return parentSpanId;
+        }
+
+        long getStartEpochNanos() {
+            return trace.epochNanos(startNanoTime);
+        }
+
+        long getEndEpochNanos() {
+            return trace.epochNanos(endNanoTime);
+        }
+
+        List<Object> getAttributes() {
+            return attributes == null ? List.of() : attributes;
+        }
+
+        String getErrorMessage() {
+            return errorMessage;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.flogin.service;
 
 import com.flogin.filter.JwtAuthenticationFilter;
+import com.flogin.filter.TracingFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 import jakarta.validation.ValidatorFactory;
@@ -31,11 +34,11 @@ public class SecurityConfig {
 
     /**
      * Bean BCryptPasswordEncoder để mã hóa password
-     * Sử dụng BCrypt algorithm với strength mặc định (10 rounds)
+     * Sử dụng BCrypt algorithm với strength mặc định (10 rounds), thời gian hash / verify ghi vào metrics
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        return new MeteredPasswordEncoder(new BCryptPasswordEncoder(), meterRegistry);
     }
 
     /**
@@ -54,8 +57,9 @@ public class SecurityConfig {
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(Arrays.asList("*"));
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Arrays.asList("ETag", ReadConsistency.TOKEN_HEADER, TracingFilter.TRACE_ID_HEADER));
         configuration.setAllowCredentials(false);
         
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -66,6 +70,7 @@ public class SecurityConfig {
     /**
      * Cấu hình Spring Security với JWT Authentication
      * - Yêu cầu JWT token trong header Authorization cho /api/products/**
+     * - /api/ops/** và /actuator/** (trừ health) yêu cầu thêm role ADMIN
      * - Disable CSRF (cho REST API)
      * - Stateless session
      */
@@ -75,8 +80,17 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(auth -> auth
+                // Async dispatch (kết thúc stream của /api/products/reactive) thuộc request đã được xác thực;
+                // JWT filter không chạy lại ở async dispatch nên không có authentication để kiểm tra lần hai
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 // Yêu cầu authentication (JWT) cho tất cả requests đến /api/products
                 .requestMatchers("/api/products/**").authenticated()
+                // Số liệu vận hành (bulkhead, SQL, pool, ...) chỉ dành cho user trong flogin.ops.admin-users
+                .requestMatchers("/api/ops/**").hasRole(CustomUserDetailService.ADMIN_ROLE)
+                // Health check cho load balancer không cần JWT; /actuator/prometheus lộ tên endpoint, pool, SQL
+                // nên cũng chỉ dành cho ADMIN (Prometheus scrape với bearer token của user admin)
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                .requestMatchers("/actuator/**").hasRole(CustomUserDetailService.ADMIN_ROLE)
                 // Các requests khác không cần authentication (như /api/auth/login)
                 .anyRequest().permitAll()
             )
@@ -0,0 +1,43 @@
+package com.flogin.service;
+
+/**
+ * ServiceOperation - Service method ngoài cùng đang chạy trên thread hiện tại (vd: "ProductService.createProduct")
+ * - ServiceOperationAspect đặt tên quanh các public method của class *Service trong package service
+ * - PoolTelemetry dùng tên này để phân loại thời gian chờ / giữ connection theo nơi gọi
+ * Thread phụ (scatter-gather của sharding, hedged read) nhận lại tên từ thread của request.
+ */
+public final class ServiceOperation {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ServiceOperation() {
+    }
+
+    /**
+     * @return tên service method, null nếu thread không chạy trong service method nào
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Đặt tên nếu thread chưa có (method lồng nhau giữ tên của method ngoài cùng)
+     * @return token truyền lại cho exit()
+     */
+    public static boolean enter(String operation) {
+        if (operation == null || CURRENT.get() != null) {
+            return false;
+        }
+        CURRENT.set(operation);
+        return true;
+    }
+
+    /**
+     * @param entered giá trị enter() đã trả về
+     */
+    public static void exit(boolean entered) {
+        if (entered) {
+            CURRENT.remove();
+        }
+    }
+}
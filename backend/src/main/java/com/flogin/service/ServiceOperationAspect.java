@@ -0,0 +1,33 @@
+package com.flogin.service;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ghi nhận service method đang chạy (ServiceOperation) cho số liệu connection pool theo nơi gọi
+ * HIGHEST_PRECEDENCE: chạy ngoài advice của @Transactional, nên connection lấy lúc bắt đầu transaction
+ * cũng được phân loại đúng.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "flogin.datasource.pool-telemetry.enabled", havingValue = "true", matchIfMissing = true)
+public class ServiceOperationAspect {
+
+    @Around("execution(public * com.flogin.service.*Service.*(..))")
+    public Object recordOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean entered = ServiceOperation.enter(ServiceOperation.current() == null
+                ? joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName()
+                : null);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ServiceOperation.exit(entered);
+        }
+    }
+}
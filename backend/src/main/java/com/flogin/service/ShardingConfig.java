@@ -0,0 +1,155 @@
+package com.flogin.service;
+
+import com.flogin.jdbc.ShardRoutingDataSource;
+import com.flogin.repository.interfaces.ProductRepository;
+import com.flogin.repository.sharded.ShardedProductRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Cấu hình chia bảng products ra nhiều database (shard), chỉ bật khi flogin.sharding.enabled=true
+ * - Shard 0 (home shard): pool HikariCP từ spring.datasource.*, chứa cả bảng users
+ * - Shard 1..N-1: mỗi URL trong flogin.sharding.shard-urls một pool riêng (tối đa 16 shard)
+ * - ProductRepository được thay bằng ShardedProductRepository (route theo id, scatter-gather khi liệt kê)
+ * - Khi khởi động, mọi shard chạy cùng Flyway migration với home shard (tắt Flyway thì Hibernate
+ *   tạo schema trên shard chưa có bảng products), identity của products.id được cấu hình
+ *   theo sơ đồ id toàn cục (H2) hoặc được kiểm tra (SQL Server), sai sơ đồ thì không khởi động
+ * Không dùng chung với flogin.datasource.routing (replica) và flogin.reactive (R2DBC chỉ đọc một database).
+ */
+@Configuration
+@ConditionalOnProperty(name = "flogin.sharding.enabled", havingValue = "true")
+public class ShardingConfig implements DisposableBean {
+
+    @Value("${flogin.sharding.shard-urls:}")
+    private String[] shardUrls;
+
+    @Value("${flogin.sharding.username:${spring.datasource.username:}}")
+    private String shardUsername;
+
+    @Value("${flogin.sharding.password:${spring.datasource.password:}}")
+    private String shardPassword;
+
+    @Value("${flogin.sharding.pool-size:10}")
+    private int shardPoolSize;
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    /**
+     * LazyConnectionDataSourceProxy: connection thật chỉ được lấy ở câu SQL đầu tiên,
+     * khi ShardedProductRepository đã chọn shard cho thread hiện tại
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment) {
+        if (environment.getProperty("spring.jpa.open-in-view", Boolean.class, true)) {
+            throw new IllegalStateException("flogin.sharding.enabled=true yêu cầu spring.jpa.open-in-view=false");
+        }
+        if (environment.getProperty("flogin.datasource.routing.enabled", Boolean.class, false)
+                || environment.getProperty("flogin.reactive.enabled", Boolean.class, false)) {
+            throw new IllegalStateException("flogin.sharding.enabled=true không dùng chung được với "
+                    + "flogin.datasource.routing.enabled và flogin.reactive.enabled");
+        }
+        if (shardUrls.length + 1 > ShardRoutingDataSource.MAX_SHARDS) {
+            throw new IllegalStateException("Tối đa " + ShardRoutingDataSource.MAX_SHARDS + " shard");
+        }
+
+        HikariDataSource home = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(home));
+        if (home.getPoolName() == null) {
+            home.setPoolName("flogin-shard-0");
+        }
+        pools.add(home);
+
+        List<DataSource> shards = new ArrayList<>();
+        shards.add(home);
+        for (String url : shardUrls) {
+            HikariDataSource shard = new HikariDataSource();
+            shard.setPoolName("flogin-shard-" + shards.size());
+            shard.setJdbcUrl(url.trim());
+            shard.setUsername(shardUsername);
+            shard.setPassword(shardPassword);
+            shard.setMaximumPoolSize(shardPoolSize);
+            pools.add(shard);
+            shards.add(shard);
+        }
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shards));
+    }
+
+    /**
+     * Chuẩn bị schema của các shard trước khi nhận request, executor tự đóng khi context dừng (AutoCloseable)
+     * @param productRepository repository Spring Data JPA gốc (bean "productRepository")
+     * @param flyway            Flyway của Spring Boot (đã migrate home shard), không có khi spring.flyway.enabled=false
+     */
+    @Bean
+    public ShardedProductRepository shardedProducts(@Qualifier("productRepository") ProductRepository productRepository,
+                                                    DataSource dataSource,
+                                                    PlatformTransactionManager transactionManager,
+                                                    EntityManagerFactory entityManagerFactory,
+                                                    ObjectProvider<Flyway> flyway) throws SQLException {
+        ShardRoutingDataSource routing = dataSource.unwrap(ShardRoutingDataSource.class);
+        Flyway homeFlyway = flyway.getIfAvailable();
+        for (int shard = 1; shard < routing.getShardCount(); shard++) {
+            if (homeFlyway != null) {
+                // Cùng migration (và cấu hình) với home shard
+                Flyway.configure().configuration(homeFlyway.getConfiguration())
+                        .dataSource(routing.shardDataSource(shard)).load().migrate();
+            } else if (!hasTable(routing.shardDataSource(shard), "products")) {
+                // Không dùng Flyway: Hibernate chỉ tạo schema trên home shard (connection ngoài callOnShard)
+                ShardRoutingDataSource.callOnShard(shard, () -> {
+                    entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager().exportMappedObjects(false);
+                    return null;
+                });
+            }
+        }
+        routing.prepareIdentity("products", "id");
+        return new ShardedProductRepository(productRepository, routing, transactionManager);
+    }
+
+    @Bean
+    @Primary
+    public ProductRepository shardedProductRepository(ShardedProductRepository shardedProducts) {
+        return shardedProducts.asRepository();
+    }
+
+    private static boolean hasTable(DataSource dataSource, String table) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            for (String name : List.of(table, table.toUpperCase(Locale.ROOT))) {
+                try (ResultSet rs = connection.getMetaData().getTables(null, null, name, new String[]{"TABLE"})) {
+                    if (rs.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
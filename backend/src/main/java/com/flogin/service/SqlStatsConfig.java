@@ -0,0 +1,57 @@
+package com.flogin.service;
+
+import com.flogin.jdbc.SqlStatementStats;
+import com.flogin.jdbc.StatementStatsDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Cấu hình thống kê latency theo câu SQL và slow query log, tắt bằng flogin.sql-stats.enabled=false
+ * - Bọc DataSource bằng StatementStatsDataSource (ngoài DeadlineDataSource), số liệu: GET /api/ops/sql-stats
+ * - Thay cho spring.jpa.show-sql: chỉ log câu chậm (WARN) và một phần nhỏ câu còn lại (INFO), ghi log bất đồng bộ
+ */
+@Configuration
+@ConditionalOnProperty(name = "flogin.sql-stats.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlStatsConfig {
+
+    /**
+     * static: BeanPostProcessor phải được tạo trước các bean khác (kể cả DataSource),
+     * cấu hình đọc thẳng từ Environment thay vì @Value
+     */
+    @Bean
+    public static BeanPostProcessor sqlStatsDataSourcePostProcessor(Environment environment) {
+        return new SqlStatsDataSourcePostProcessor(environment);
+    }
+
+    private static final class SqlStatsDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        private final Environment environment;
+
+        SqlStatsDataSourcePostProcessor(Environment environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof StatementStatsDataSource)) {
+                return new StatementStatsDataSource(dataSource, new SqlStatementStats(
+                        environment.getProperty("flogin.sql-stats.slow-threshold-ms", Long.class, 200L),
+                        environment.getProperty("flogin.sql-stats.sample-rate", Double.class, 0.001),
+                        environment.getProperty("flogin.sql-stats.max-statements", Integer.class, 500),
+                        environment.getProperty("flogin.sql-stats.log-queue-size", Integer.class, 1000)));
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return DeadlineConfig.DATA_SOURCE_WRAPPER_ORDER + 1;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.flogin.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TraceFileExporter - Ghi trace đã lấy mẫu ra file cục bộ theo định dạng OTLP/JSON của OpenTelemetry
+ * - Mỗi dòng là một ExportTraceServiceRequest (resourceSpans -> scopeSpans -> spans) của một trace, giống
+ *   file exporter của OpenTelemetry Collector: xem offline bằng công cụ đọc OTLP/JSON (Jaeger UI upload,
+ *   otlpjsonfile receiver của Collector) mà không cần collector chạy sẵn
+ * - Ghi bởi một thread riêng qua hàng đợi có giới hạn (đầy thì bỏ, đếm dropped), thread xử lý request không chờ I/O
+ * - File cuộn theo kích thước: file.jsonl -> file.jsonl.1 -> ... -> file.jsonl.(maxFiles - 1), file cũ nhất bị xóa
+ */
+public class TraceFileExporter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TraceFileExporter.class);
+
+    private static final int STATUS_ERROR = 2;
+
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final String serviceName;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    private final BlockingQueue<RequestTrace> queue;
+    private final Thread writer;
+
+    private final LongAdder exported = new LongAdder();
+    private final LongAdder exportedSpans = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder writeErrors = new LongAdder();
+    private final LongAdder rolled = new LongAdder();
+
+    /**
+     * Chỉ thread ghi dùng
+     */
+    private OutputStream out;
+    private long fileBytes;
+
+    /**
+     * @param maxFileBytes kích thước tối đa của một file trước khi cuộn
+     * @param maxFiles     số file giữ lại, kể cả file đang ghi
+     * @param queueSize    số trace chờ ghi tối đa
+     */
+    public TraceFileExporter(Path file, long maxFileBytes, int maxFiles, int queueSize, String serviceName) {
+        if (maxFileBytes < 1 || maxFiles < 1 || queueSize < 1) {
+            throw new IllegalArgumentException("Cấu hình export trace không hợp lệ");
+        }
+        this.file = file.toAbsolutePath();
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.serviceName = serviceName;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.writer = new Thread(this::writeLoop, "flogin-trace-export");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Đưa trace (đã finish) vào hàng đợi ghi
+     * @return false nếu hàng đợi đầy và trace bị bỏ
+     */
+    public boolean export(RequestTrace trace) {
+        if (!queue.offer(trace)) {
+            dropped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                write(queue.take());
+                if (queue.isEmpty()) {
+                    flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            // close(): ghi nốt các trace còn trong hàng đợi
+        }
+        RequestTrace trace;
+        while ((trace = queue.poll()) != null) {
+            write(trace);
+        }
+        closeFile();
+    }
+
+    private void write(RequestTrace trace) {
+        List<RequestTrace.Span> spans = trace.getSpans();
+        try {
+            byte[] line = encode(trace.getTraceId(), spans);
+            if (out == null) {
+                open();
+            }
+            if (fileBytes > 0 && fileBytes + line.length > maxFileBytes) {
+                roll();
+            }
+            out.write(line);
+            fileBytes += line.length;
+            exported.increment();
+            exportedSpans.add(spans.size());
+        } catch (IOException e) {
+            writeErrors.increment();
+            log.warn("Không ghi được trace vào {}: {}", file, e.getMessage());
+            closeFile();
+        }
+    }
+
+    /**
+     * OTLP/JSON: id dạng hex, thời gian (nano giây epoch) và số nguyên dạng chuỗi như mapping JSON của proto3
+     */
+    byte[] encode(String traceId, List<RequestTrace.Span> spans) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256 + spans.size() * 256);
+        try (JsonGenerator json = jsonFactory.createGenerator(buffer)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("resourceSpans");
+            json.writeStartObject();
+            json.writeObjectFieldStart("resource");
+            json.writeArrayFieldStart("attributes");
+            writeAttribute(json, "service.name", serviceName);
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeArrayFieldStart("scopeSpans");
+            json.writeStartObject();
+            json.writeObjectFieldStart("scope");
+            json.writeStringField("name", "com.flogin");
+            json.writeEndObject();
+            json.writeArrayFieldStart("spans");
+            for (RequestTrace.Span span : spans) {
+                writeSpan(json, traceId, span);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        buffer.write('\n');
+        return buffer.toByteArray();
+    }
+
+    private static void writeSpan(JsonGenerator json, String traceId, RequestTrace.Span span) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("traceId", traceId);
+        json.writeStringField("spanId", RequestTrace.hex(span.getSpanId()));
+        if (span.getParentSpanId() != 0) {
+            json.writeStringField("parentSpanId", RequestTrace.hex(span.getParentSpanId()));
+        }
+        json.writeStringField("name", span.getName());
+        json.writeNumberField("kind", span.getKind().code());
+        json.writeStringField("startTimeUnixNano", Long.toString(span.getStartEpochNanos()));
+        json.writeStringField("endTimeUnixNano", Long.toString(span.getEndEpochNanos()));
+        json.writeArrayFieldStart("attributes");
+        List<Object> attributes = span.getAttributes();
+        for (int i = 0; i < attributes.size(); i += 2) {
+            writeAttribute(json, (String) attributes.get(i), attributes.get(i + 1));
+        }
+        json.writeEndArray();
+        json.writeObjectFieldStart("status");
+        if (span.getErrorMessage() != null) {
+            json.writeNumberField("code", STATUS_ERROR);
+            json.writeStringField("message", span.getErrorMessage());
+        }
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private static void writeAttribute(JsonGenerator json, String key, Object value) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("key", key);
+        json.writeObjectFieldStart("value");
+        if (value instanceof Long || value instanceof Integer) {
+            json.writeStringField("intValue", value.toString());
+        } else if (value instanceof Double number) {
+            json.writeNumberField("doubleValue", number);
+        } else if (value instanceof Boolean flag) {
+            json.writeBooleanField("boolValue", flag);
+        } else {
+            json.writeStringField("stringValue", value.toString());
+        }
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private void open() throws IOException {
+        Path parent = file.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        fileBytes = Files.exists(file) ? Files.size(file) : 0;
+        // FileOutputStream (không phải channel): interrupt khi close() không làm hỏng lần ghi đang dở
+        out = new BufferedOutputStream(new FileOutputStream(file.toFile(), true), 64 * 1024);
+    }
+
+    private void roll() throws IOException {
+        closeFile();
+        if (maxFiles == 1) {
+            Files.deleteIfExists(file);
+        } else {
+            Files.deleteIfExists(rolledFile(maxFiles - 1));
+            for (int i = maxFiles - 2; i >= 1; i--) {
+                Path source = rolledFile(i);
+                if (Files.exists(source)) {
+                    Files.move(source, rolledFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, rolledFile(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        rolled.increment();
+        open();
+    }
+
+    private Path rolledFile(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void flush() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            writeErrors.increment();
+            log.warn("Không ghi được trace vào {}: {}", file, e.getMessage());
+            closeFile();
+        }
+    }
+
+    private void closeFile() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            writeErrors.increment();
+        }
+        out = null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("file", file.toString());
+        stats.put("maxFileBytes", maxFileBytes);
+        stats.put("maxFiles", maxFiles);
+        stats.put("exported", exported.sum());
+        stats.put("exportedSpans", exportedSpans.sum());
+        stats.put("queued", queue.size());
+        stats.put("dropped", dropped.sum());
+        stats.put("writeErrors", writeErrors.sum());
+        stats.put("rolled", rolled.sum());
+        return stats;
+    }
+
+    /**
+     * Dừng thread ghi sau khi ghi hết các trace đang chờ
+     */
+    @Override
+    public void close() {
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.flogin.service;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mở span (RequestTrace) cho từng lời gọi controller / service / repository của request được lấy mẫu,
+ * tên span "ProductService.updateProduct", attribute flogin.layer; exception làm span có status ERROR
+ * - Request không được lấy mẫu chỉ tốn một lần đọc ThreadLocal
+ * - Repository lồng nhau (ShardedProductRepository gọi repository của shard) đều có span, span của shard
+ *   chạy trên thread scatter-gather nằm dưới span của thread request
+ * Thứ tự trong LayerMetricsAspect, ngoài advice của @Transactional (span service gồm cả câu SQL commit).
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@ConditionalOnProperty(name = "flogin.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingAspect {
+
+    /**
+     * Class của bean -> method -> tên span
+     */
+    private final Map<Class<?>, Map<Method, String>> spanNames = new ConcurrentHashMap<>();
+
+    @Around("execution(public * com.flogin.controller.*Controller.*(..))")
+    public Object traceController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace("controller", joinPoint);
+    }
+
+    @Around("execution(public * com.flogin.service.*Service.*(..))")
+    public Object traceService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace("service", joinPoint);
+    }
+
+    @Around("execution(public * *(..)) && within(org.springframework.data.repository.Repository+)")
+    public Object traceRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return trace("repository", joinPoint);
+    }
+
+    private Object trace(String layer, ProceedingJoinPoint joinPoint) throws Throwable {
+        if (RequestTrace.current() == null) {
+            return joinPoint.proceed();
+        }
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        if (method.getReturnType().getName().startsWith(LayerMetricsAspect.REACTIVE_PACKAGE)) {
+            // Mono / Flux: lời gọi method chỉ dựng pipeline, không phải thời gian xử lý
+            return joinPoint.proceed();
+        }
+        RequestTrace.Span span = RequestTrace.start(spanName(joinPoint.getTarget(), method), RequestTrace.Kind.INTERNAL)
+                .attribute("flogin.layer", layer);
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private String spanName(Object target, Method method) {
+        return spanNames.computeIfAbsent(target.getClass(), key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(method, key -> LayerMetricsAspect.className(target) + "." + method.getName());
+    }
+}
@@ -0,0 +1,74 @@
+package com.flogin.service;
+
+import com.flogin.jdbc.SqlStatementStats;
+import com.flogin.jdbc.StatementStatsDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Cấu hình tracing trong process, tắt bằng flogin.tracing.enabled=false
+ * - TracingFilter lấy mẫu request (sample-rate hoặc header traceparent có cờ sampled), mở root span
+ * - Span con: JwtAuthenticationFilter, controller / service / repository (TracingAspect),
+ *   đọc body / validate / ghi response (TracingMvcAdvice), từng câu SQL (listener của StatementStatsDataSource)
+ * - Trace ghi ra file cục bộ dạng OTLP/JSON, cuộn theo kích thước (TraceFileExporter), số liệu: GET /api/ops/tracing
+ */
+@Configuration
+@ConditionalOnProperty(name = "flogin.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingConfig {
+
+    @Value("${flogin.tracing.export.file:traces/flogin-traces.jsonl}")
+    private String exportFile;
+
+    @Value("${flogin.tracing.export.max-file-size-mb:10}")
+    private long maxFileSizeMb;
+
+    @Value("${flogin.tracing.export.max-files:5}")
+    private int maxFiles;
+
+    @Value("${flogin.tracing.export.queue-size:1000}")
+    private int queueSize;
+
+    @Value("${spring.application.name:flogin}")
+    private String serviceName;
+
+    @Bean
+    public TraceFileExporter traceFileExporter(DataSource dataSource) throws SQLException {
+        TraceFileExporter exporter = new TraceFileExporter(Path.of(exportFile), maxFileSizeMb * 1024 * 1024,
+                maxFiles, queueSize, serviceName);
+        if (dataSource.isWrapperFor(StatementStatsDataSource.class)) {
+            // Span cho từng câu SQL (không có khi tắt flogin.sql-stats.enabled)
+            dataSource.unwrap(StatementStatsDataSource.class).getStats().addListener(TracingConfig::sqlSpan);
+        }
+        return exporter;
+    }
+
+    /**
+     * Span CLIENT cho câu SQL vừa chạy xong trên thread hiện tại: tên là loại câu (SELECT, UPDATE...),
+     * db.query.text là SQL đã chuẩn hóa (không có giá trị literal)
+     */
+    public static void sqlSpan(String sql, long nanos, boolean failed) {
+        if (RequestTrace.current() == null || sql == null) {
+            return;
+        }
+        long end = System.nanoTime();
+        String statement = SqlStatementStats.normalize(sql);
+        RequestTrace.Span span = RequestTrace.start(operationOf(statement), RequestTrace.Kind.CLIENT, end - nanos)
+                .attribute("db.query.text", statement);
+        if (failed) {
+            span.error("SQL lỗi");
+        }
+        span.end(end);
+    }
+
+    private static String operationOf(String statement) {
+        int space = statement.indexOf(' ');
+        return (space > 0 ? statement.substring(0, space) : statement).toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,164 @@
+package com.flogin.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * VirtualThreadPinningMonitor - Phát hiện virtual thread bị pin vào carrier thread
+ * (block trong synchronized hoặc native frame) bằng JFR event jdk.VirtualThreadPinned.
+ * Mỗi lần pin được phân loại theo đường đi (JDBC, BCrypt, khác) và đếm lại theo loại và theo vị trí;
+ * mỗi vị trí pin mới (frame đầu tiên của ứng dụng/thư viện) được log WARN một lần kèm stack trace rút gọn.
+ * Chỉ chạy khi bật spring.threads.virtual.enabled=true. Số liệu: GET /api/ops/virtual-threads
+ * @see #getStats()
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    /**
+     * Số frame được in ra khi log một vị trí pin mới
+     */
+    private static final int LOGGED_FRAMES = 12;
+
+    /**
+     * Số vị trí pin nhiều nhất trả về trong getStats()
+     */
+    static final int TOP_LOCATIONS = 20;
+
+    @Value("${flogin.virtual-threads.pinning-monitor.enabled:true}")
+    private boolean enabled;
+
+    @Value("${flogin.virtual-threads.pinning-monitor.threshold-ms:20}")
+    private long thresholdMs;
+
+    private final Map<String, LongAdder> pinnedCounts = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> pinnedByLocation = new ConcurrentHashMap<>();
+
+    private RecordingStream recordingStream;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        log.info("Virtual thread pinning monitor đang chạy (threshold {} ms)", thresholdMs);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    /**
+     * @return số lần pin theo loại (jdbc, bcrypt, other) từ lúc khởi động
+     */
+    public Map<String, Long> getPinnedCounts() {
+        return Collections.unmodifiableMap(pinnedCounts.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum())));
+    }
+
+    /**
+     * @return ngưỡng, tổng số lần pin, số lần theo loại và TOP_LOCATIONS vị trí pin nhiều nhất
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Long> byCategory = getPinnedCounts();
+        Map<String, Long> topLocations = new LinkedHashMap<>();
+        pinnedByLocation.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(TOP_LOCATIONS)
+                .forEach(entry -> topLocations.put(entry.getKey(), entry.getValue()));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("monitorEnabled", enabled);
+        stats.put("thresholdMs", thresholdMs);
+        stats.put("pinned", byCategory.values().stream().mapToLong(Long::longValue).sum());
+        stats.put("pinnedByCategory", byCategory);
+        stats.put("locations", pinnedByLocation.size());
+        stats.put("topLocations", topLocations);
+        return stats;
+    }
+
+    void onPinned(RecordedEvent event) {
+        List<String> frames = frames(event.getStackTrace());
+        String category = classify(frames);
+        pinnedCounts.computeIfAbsent(category, key -> new LongAdder()).increment();
+
+        String location = pinLocation(frames);
+        LongAdder added = new LongAdder();
+        LongAdder existing = pinnedByLocation.putIfAbsent(location, added);
+        (existing == null ? added : existing).increment();
+        if (existing == null) {
+            log.warn("Virtual thread bị pin {} ms ({}) tại {}\n\t{}",
+                    event.getDuration().toMillis(), category, location,
+                    String.join("\n\t", frames.subList(0, Math.min(LOGGED_FRAMES, frames.size()))));
+        }
+    }
+
+    /**
+     * Phân loại lần pin theo frame trên stack: driver JDBC / connection pool, BCrypt, hoặc khác
+     * @param frames các frame dạng "class.method:line", frame trên cùng trước
+     */
+    public static String classify(List<String> frames) {
+        for (String frame : frames) {
+            if (frame.contains("BCrypt")) {
+                return "bcrypt";
+            }
+            if (frame.startsWith("java.sql.") || frame.startsWith("com.microsoft.sqlserver.")
+                    || frame.startsWith("org.h2.") || frame.startsWith("com.zaxxer.hikari.")) {
+                return "jdbc";
+            }
+        }
+        return "other";
+    }
+
+    /**
+     * Vị trí pin: frame đầu tiên không thuộc JDK (nơi thực sự giữ monitor / gọi xuống native)
+     * @param frames các frame dạng "class.method:line", frame trên cùng trước
+     */
+    public static String pinLocation(List<String> frames) {
+        return frames.stream()
+                .filter(frame -> !frame.startsWith("java.") && !frame.startsWith("jdk."))
+                .findFirst()
+                .or(() -> frames.stream().findFirst())
+                .orElse("<không có stack trace>");
+    }
+
+    private static List<String> frames(RecordedStackTrace stackTrace) {
+        return stackTrace == null ? List.of()
+                : stackTrace.getFrames().stream().map(VirtualThreadPinningMonitor::format).toList();
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
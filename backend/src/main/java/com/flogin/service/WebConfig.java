@@ -0,0 +1,63 @@
+package com.flogin.service;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.flogin.controller.TracingMvcAdvice;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Cấu hình Spring MVC
+ * - Content negotiation theo header Accept: thêm CBOR (application/cbor) cho các client service-to-service
+ *   kéo nhiều trang products, cả response (ProductDto, Page) lẫn request body (create/update)
+ * - JSON vẫn là mặc định: converter CBOR được đặt ngay sau converter JSON, client không yêu cầu
+ *   application/cbor (hoặc Accept wildcard) vẫn nhận JSON như trước
+ * - Interceptor kết thúc span ghi response của tracing (TracingMvcAdvice) khi bật flogin.tracing.enabled
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    /**
+     * Builder của Spring Boot (prototype) để CBOR mapper có cùng modules/cấu hình với JSON mapper
+     */
+    @Autowired
+    private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    @Autowired(required = false)
+    private TracingMvcAdvice tracingMvcAdvice;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (tracingMvcAdvice != null) {
+            registry.addInterceptor(tracingMvcAdvice);
+        }
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(MappingJackson2CborHttpMessageConverter.class::isInstance);
+
+        MappingJackson2CborHttpMessageConverter cborConverter =
+                new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.factory(new CBORFactory()).build());
+
+        int jsonIndex = -1;
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2HttpMessageConverter) {
+                jsonIndex = i;
+                break;
+            }
+        }
+        if (jsonIndex >= 0) {
+            converters.add(jsonIndex + 1, cborConverter);
+        } else {
+            converters.add(cborConverter);
+        }
+    }
+}
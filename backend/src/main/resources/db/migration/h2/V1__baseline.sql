@@ -0,0 +1,23 @@
+-- Schema của users / products trước khi dùng migration (chưa có cột version và unique product_name,
+-- hai thay đổi đó nằm ở V2). Tên constraint được đặt rõ ở đây; database cũ do Hibernate tạo có thể mang tên khác.
+-- Database đã có sẵn bảng thì được baseline ở version 1 (spring.flyway.baseline-on-migrate), không chạy file này.
+
+CREATE TABLE users (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    user_name     VARCHAR(50)  NOT NULL,
+    email         VARCHAR(100) NOT NULL,
+    hash_password VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_user_name UNIQUE (user_name),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE products (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    price        FLOAT(53)    NOT NULL,
+    quantity     INTEGER      NOT NULL,
+    product_name VARCHAR(100) NOT NULL,
+    description  VARCHAR(500),
+    category     ENUM ('BOOKS', 'CLOTHING', 'ELECTRONICS', 'GROCERIES', 'TOYS') NOT NULL,
+    PRIMARY KEY (id)
+);
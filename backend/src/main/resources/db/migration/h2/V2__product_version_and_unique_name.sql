@@ -0,0 +1,8 @@
+-- Optimistic locking (ETag / If-Match) cần cột version; dòng đã có bắt đầu ở version 0.
+-- IF NOT EXISTS: database do Hibernate (ddl-auto=update) tạo sau khi entity đã có các thay đổi này
+-- được baseline ở version 1 nhưng đã có sẵn cột / constraint.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
+-- Tên sản phẩm không trùng, kể cả khi tạo đồng thời; existsByProductName / existsByProductNameAndIdNot
+-- tìm theo index của constraint này. Database đang có tên trùng phải dọn trước khi migrate.
+ALTER TABLE products ADD CONSTRAINT IF NOT EXISTS uk_products_product_name UNIQUE (product_name);
@@ -0,0 +1,9 @@
+-- Index cho các cột products được lọc (product_name đã có index của uk_products_product_name).
+-- Danh sách /api/products đọc theo primary key (id), không cần index riêng.
+
+-- findByCategory, bulk delete theo category (findIdsByFilter: WHERE category = ? ORDER BY id):
+-- đọc theo thứ tự (category, id), không phải sort
+CREATE INDEX ix_products_category ON products (category, id);
+
+-- findByPriceBetween
+CREATE INDEX ix_products_price ON products (price);
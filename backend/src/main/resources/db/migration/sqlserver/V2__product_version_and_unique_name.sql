@@ -0,0 +1,10 @@
+-- Optimistic locking (ETag / If-Match) cần cột version; dòng đã có bắt đầu ở version 0.
+-- Kiểm tra trước khi thêm: database do Hibernate (ddl-auto=update) tạo sau khi entity đã có các thay đổi này
+-- được baseline ở version 1 nhưng đã có sẵn cột / constraint.
+IF COL_LENGTH('products', 'version') IS NULL
+    ALTER TABLE products ADD version BIGINT NOT NULL CONSTRAINT df_products_version DEFAULT 0;
+
+-- Tên sản phẩm không trùng, kể cả khi tạo đồng thời; existsByProductName / existsByProductNameAndIdNot
+-- tìm theo index của constraint này. Database đang có tên trùng phải dọn trước khi migrate.
+IF OBJECT_ID('uk_products_product_name', 'UQ') IS NULL
+    ALTER TABLE products ADD CONSTRAINT uk_products_product_name UNIQUE (product_name);
@@ -0,0 +1,12 @@
+-- Index cho các cột products được lọc (product_name đã có index của uk_products_product_name).
+-- Danh sách /api/products đọc theo clustered primary key (id), index đó đã chứa mọi cột.
+-- Index nonclustered không unique luôn mang theo clustered key (id) như cột cuối của key.
+
+-- findByCategory và danh sách lọc theo category: covering (không key lookup về bảng),
+-- đọc theo thứ tự (category, id) nên findIdsByFilter (ORDER BY id) không phải sort
+CREATE INDEX ix_products_category ON products (category)
+    INCLUDE (price, quantity, version, product_name, description);
+
+-- findByPriceBetween: khoảng giá hẹp -> index seek + key lookup;
+-- index hẹp nhất bảng nên COUNT(*) của trang danh sách cũng quét index này thay vì clustered index
+CREATE INDEX ix_products_price ON products (price);
@@ -0,0 +1,180 @@
+package com.flogin;
+
+import com.flogin.filter.AdaptiveConcurrencyLimiter;
+import com.flogin.filter.ConcurrencyLimitFilter;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdaptiveConcurrencyLimiter Unit Test
+ * Dùng đồng hồ giả để điều khiển latency của từng request, window 10ms: mỗi đợt request là một window
+ */
+@DisplayName("AdaptiveConcurrencyLimiter Unit Test")
+public class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * Chạy một đợt request dùng hết limit hiện tại, mỗi request mất latencyMs
+     */
+    private void runSaturatedBatch(AdaptiveConcurrencyLimiter limiter, long latencyMs) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        AdaptiveConcurrencyLimiter.Permit permit;
+        while ((permit = limiter.tryAcquire()) != null) {
+            permits.add(permit);
+        }
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+        permits.forEach(p -> p.release(true));
+    }
+
+    @Test
+    @DisplayName("TC1: Đạt limit - request tiếp theo bị từ chối ngay, release thì nhận lại")
+    void testTryAcquire_RejectedAtLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1.5, 10, clock::get);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(limiter.tryAcquire());
+        assertNull(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+
+        first.release(false);
+        first.release(false);
+        assertEquals(1, limiter.getInFlight());
+        assertNotNull(limiter.tryAcquire());
+
+        assertEquals(3L, limiter.getStats().get("accepted"));
+        assertEquals(1L, limiter.getStats().get("rejected"));
+        assertEquals(0.25, (double) limiter.getStats().get("rejectionRate"), 1e-9);
+    }
+
+    @Test
+    @DisplayName("TC2: Latency tăng vượt tolerance - limit giảm mạnh nhưng không dưới minLimit")
+    void testLimit_DecreasesWhenLatencyRises() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 5, 200, 1.5, 10, clock::get);
+
+        // Latency nền 10ms (qua hết giai đoạn warmup)
+        for (int i = 0; i < 15; i++) {
+            runSaturatedBatch(limiter, 10);
+        }
+        int limitAtBaseline = limiter.getLimit();
+
+        // DB chậm lại: latency 100ms
+        for (int i = 0; i < 20; i++) {
+            runSaturatedBatch(limiter, 100);
+        }
+
+        assertTrue(limiter.getLimit() < limitAtBaseline / 2,
+            "limit " + limiter.getLimit() + " phải giảm mạnh so với " + limitAtBaseline);
+        assertTrue(limiter.getLimit() >= 5);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("TC3: Latency ổn định và dùng hết limit - limit tăng nhưng không vượt maxLimit")
+    void testLimit_GrowsWhenLatencyStable() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 5, 40, 1.5, 10, clock::get);
+
+        for (int i = 0; i < 50; i++) {
+            runSaturatedBatch(limiter, 10);
+        }
+
+        assertEquals(40, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("TC5: Một loạt request bị drop (504) - limit giảm theo từng window, không dưới minLimit")
+    void testLimit_DecreasesOnDrops() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 5, 200, 1.5, 10, clock::get);
+        for (int i = 0; i < 15; i++) {
+            runSaturatedBatch(limiter, 10);
+        }
+        int limitAtBaseline = limiter.getLimit();
+        Object baselineLatency = limiter.getStats().get("baselineLatencyMs");
+
+        // Latency không đổi nhưng request bị drop: vẫn giảm, và latency của drop không vào latency nền
+        int previous = limitAtBaseline;
+        for (int i = 0; i < 10; i++) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            AdaptiveConcurrencyLimiter.Permit permit;
+            while ((permit = limiter.tryAcquire()) != null) {
+                permits.add(permit);
+            }
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+            permits.forEach(AdaptiveConcurrencyLimiter.Permit::drop);
+            assertTrue(limiter.getLimit() < previous || limiter.getLimit() == 5,
+                "limit " + limiter.getLimit() + " phải giảm so với " + previous);
+            previous = limiter.getLimit();
+        }
+
+        assertTrue(limiter.getLimit() < limitAtBaseline / 2);
+        assertTrue(limiter.getLimit() >= 5);
+        assertEquals(baselineLatency, limiter.getStats().get("baselineLatencyMs"));
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("TC6: ConcurrencyLimitFilter - chuỗi 504 làm limit giảm, lỗi 500 của ứng dụng thì không")
+    void testFilter_GatewayTimeoutsLowerLimit() throws Exception {
+        ConcurrencyLimitFilter timeouts = filter();
+        runFilter(timeouts, HttpServletResponse.SC_GATEWAY_TIMEOUT, 100);
+        assertTrue((int) timeouts.getStats().get("limit") < 100,
+            "limit " + timeouts.getStats().get("limit") + " phải giảm sau một loạt 504");
+        assertTrue((int) timeouts.getStats().get("limit") >= 10);
+
+        ConcurrencyLimitFilter errors = filter();
+        runFilter(errors, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, 100);
+        assertEquals(100, errors.getStats().get("limit"));
+    }
+
+    private static ConcurrencyLimitFilter filter() {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter();
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "initialLimit", 100);
+        ReflectionTestUtils.setField(filter, "minLimit", 10);
+        ReflectionTestUtils.setField(filter, "maxLimit", 1000);
+        ReflectionTestUtils.setField(filter, "tolerance", 1.5);
+        ReflectionTestUtils.setField(filter, "windowMs", 1L);
+        ReflectionTestUtils.setField(filter, "retryAfterSeconds", 1);
+        ReflectionTestUtils.invokeMethod(filter, "initLimiter");
+        return filter;
+    }
+
+    /**
+     * Gửi tuần tự các request qua filter, mỗi request mất ít nhất 1ms (window 1ms, 10 mẫu / window)
+     */
+    private static void runFilter(ConcurrencyLimitFilter filter, int status, int requests) throws Exception {
+        for (int i = 0; i < requests; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/api/products"), response, (req, res) -> {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ((HttpServletResponse) res).setStatus(status);
+            });
+            assertEquals(status, response.getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("TC4: Cấu hình không hợp lệ - IllegalArgumentException")
+    void testConstructor_InvalidConfig() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(10, 0, 100, 1.5, 500));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(10, 20, 100, 1.5, 500));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(10, 5, 100, 0.5, 500));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(10, 5, 100, 1.5, 0));
+    }
+}
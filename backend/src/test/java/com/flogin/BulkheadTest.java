@@ -0,0 +1,108 @@
+package com.flogin;
+
+import com.flogin.filter.Bulkhead;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulkhead Unit Test
+ * Test giới hạn đồng thời, giới hạn hàng đợi và thời gian chờ của một lane
+ */
+@DisplayName("Bulkhead Unit Test")
+public class BulkheadTest {
+
+    @Test
+    @DisplayName("TC1: Lane đầy và hàng đợi đầy - request tiếp theo bị từ chối ngay")
+    void testAcquire_QueueFullRejectedImmediately() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("auth", 1, 1, 5_000);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(Bulkhead.Admission.ACCEPTED, bulkhead.acquire());
+
+            // Request thứ hai vào hàng đợi (chờ permit)
+            CountDownLatch waiting = new CountDownLatch(1);
+            Future<Bulkhead.Admission> queued = executor.submit(() -> {
+                waiting.countDown();
+                return bulkhead.acquire();
+            });
+            waiting.await();
+            while ((int) bulkhead.getStats().get("queued") == 0) {
+                Thread.sleep(5);
+            }
+
+            // Request thứ ba: hàng đợi đã đầy -> bị từ chối, không chờ
+            long start = System.nanoTime();
+            assertEquals(Bulkhead.Admission.REJECTED_QUEUE_FULL, bulkhead.acquire());
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+
+            // Giải phóng permit -> request đang chờ được nhận
+            bulkhead.release();
+            assertEquals(Bulkhead.Admission.ACCEPTED, queued.get(5, TimeUnit.SECONDS));
+            bulkhead.release();
+
+            assertEquals(2L, bulkhead.getStats().get("accepted"));
+            assertEquals(1L, bulkhead.getStats().get("rejectedQueueFull"));
+            assertEquals(0, bulkhead.getStats().get("active"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("TC2: Chờ quá maxWaitMs - bị từ chối với REJECTED_TIMEOUT")
+    void testAcquire_TimeoutRejected() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("product-write", 1, 10, 50);
+
+        assertEquals(Bulkhead.Admission.ACCEPTED, bulkhead.acquire());
+        assertEquals(Bulkhead.Admission.REJECTED_TIMEOUT, bulkhead.acquire());
+
+        assertEquals(1L, bulkhead.getStats().get("rejectedTimeout"));
+        assertEquals(0, bulkhead.getStats().get("queued"));
+    }
+
+    @Test
+    @DisplayName("TC4: Permit vừa được trả - request đang chờ được nhận, request mới đến không chen trước")
+    void testAcquire_NoBargingPastQueuedRequest() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("product-read", 1, 1, 500);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals(Bulkhead.Admission.ACCEPTED, bulkhead.acquire());
+
+            // Request thứ hai đã park trong hàng đợi của semaphore
+            Thread[] waiter = new Thread[1];
+            Future<Bulkhead.Admission> queued = executor.submit(() -> {
+                waiter[0] = Thread.currentThread();
+                return bulkhead.acquire();
+            });
+            while (waiter[0] == null || waiter[0].getState() != Thread.State.TIMED_WAITING) {
+                Thread.sleep(5);
+            }
+
+            // Trả permit rồi xin vào ngay: request mới không được lấy permit trước request đang chờ
+            bulkhead.release();
+            assertNotEquals(Bulkhead.Admission.ACCEPTED, bulkhead.acquire());
+            assertEquals(Bulkhead.Admission.ACCEPTED, queued.get(5, TimeUnit.SECONDS));
+            bulkhead.release();
+
+            assertEquals(2L, bulkhead.getStats().get("accepted"));
+            assertEquals(0, bulkhead.getStats().get("active"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("TC3: Cấu hình không hợp lệ - IllegalArgumentException")
+    void testConstructor_InvalidConfig() {
+        assertThrows(IllegalArgumentException.class, () -> new Bulkhead("auth", 0, 10, 100));
+        assertThrows(IllegalArgumentException.class, () -> new Bulkhead("auth", 1, -1, 100));
+    }
+}
@@ -0,0 +1,112 @@
+package com.flogin;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.flogin.dto.ProductDtos.CreateProductRequest;
+import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.entity.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JSON / CBOR Benchmark - So sánh kích thước payload và throughput serialize / deserialize
+ * của trang products (100 ProductDto) và CreateProductRequest giữa application/json và application/cbor
+ * Kích thước được assert (tất định); throughput chỉ được đo và in ra, không assert (phụ thuộc máy chạy).
+ */
+@DisplayName("JSON / CBOR Benchmark - kích thước payload và throughput ser/de")
+public class ContentFormatBenchmarkTest {
+
+    private static final int PAGE_SIZE = 100;
+    private static final TypeReference<List<ProductDto>> PRODUCT_LIST = new TypeReference<>() {
+    };
+
+    private ObjectMapper jsonMapper;
+    private ObjectMapper cborMapper;
+    private List<ProductDto> page;
+
+    @BeforeEach
+    void setUp() {
+        jsonMapper = new ObjectMapper();
+        cborMapper = new ObjectMapper(new CBORFactory());
+        page = new ArrayList<>(PAGE_SIZE);
+        Category[] categories = Category.values();
+        for (int i = 1; i <= PAGE_SIZE; i++) {
+            page.add(new ProductDto(i, categories[i % categories.length], 1000.0 * i + 0.99,
+                    "Sản phẩm số " + i, "Mô tả chi tiết cho sản phẩm " + i + ", bảo hành 12 tháng", i * 3, 1));
+        }
+    }
+
+    @Test
+    @DisplayName("TC1: CBOR nhỏ hơn JSON cho trang products và create request, đọc lại được cùng dữ liệu")
+    void testPayloadSize_CborSmallerThanJson() throws Exception {
+        byte[] json = jsonMapper.writeValueAsBytes(page);
+        byte[] cbor = cborMapper.writeValueAsBytes(page);
+
+        List<ProductDto> fromCbor = cborMapper.readValue(cbor, PRODUCT_LIST);
+        assertArrayEquals(json, jsonMapper.writeValueAsBytes(fromCbor), "CBOR round-trip phải giữ nguyên dữ liệu");
+        assertTrue(cbor.length < json.length, "CBOR " + cbor.length + " bytes, JSON " + json.length + " bytes");
+
+        CreateProductRequest request = new CreateProductRequest("Laptop Dell XPS 15", 35990000.0,
+                "Laptop cao cấp, màn hình OLED 3.5K", 12, "Electronics");
+        int jsonRequest = jsonMapper.writeValueAsBytes(request).length;
+        int cborRequest = cborMapper.writeValueAsBytes(request).length;
+        assertTrue(cborRequest < jsonRequest);
+
+        System.out.printf("Trang %d products: JSON %d bytes, CBOR %d bytes (%.1f%%)%n",
+                PAGE_SIZE, json.length, cbor.length, 100.0 * cbor.length / json.length);
+        System.out.printf("CreateProductRequest: JSON %d bytes, CBOR %d bytes (%.1f%%)%n",
+                jsonRequest, cborRequest, 100.0 * cborRequest / jsonRequest);
+    }
+
+    @Test
+    @DisplayName("TC2: Throughput serialize / deserialize trang products (JSON và CBOR)")
+    void testThroughput_SerializeAndDeserialize() throws Exception {
+        byte[] json = jsonMapper.writeValueAsBytes(page);
+        byte[] cbor = cborMapper.writeValueAsBytes(page);
+        // Warm-up để JIT biên dịch đường serialize / deserialize của cả hai format
+        for (int i = 0; i < 2_000; i++) {
+            jsonMapper.writeValueAsBytes(page);
+            cborMapper.writeValueAsBytes(page);
+            jsonMapper.readValue(json, PRODUCT_LIST);
+            cborMapper.readValue(cbor, PRODUCT_LIST);
+        }
+
+        double jsonWrite = pagesPerSecond(() -> jsonMapper.writeValueAsBytes(page));
+        double cborWrite = pagesPerSecond(() -> cborMapper.writeValueAsBytes(page));
+        double jsonRead = pagesPerSecond(() -> jsonMapper.readValue(json, PRODUCT_LIST));
+        double cborRead = pagesPerSecond(() -> cborMapper.readValue(cbor, PRODUCT_LIST));
+
+        assertTrue(jsonWrite > 0 && cborWrite > 0 && jsonRead > 0 && cborRead > 0);
+        System.out.printf("Serialize trang %d products: JSON %.0f trang/s, CBOR %.0f trang/s%n",
+                PAGE_SIZE, jsonWrite, cborWrite);
+        System.out.printf("Deserialize trang %d products: JSON %.0f trang/s, CBOR %.0f trang/s%n",
+                PAGE_SIZE, jsonRead, cborRead);
+    }
+
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    /**
+     * Số lần chạy operation mỗi giây, đo trong khoảng 500ms
+     */
+    private static double pagesPerSecond(Operation operation) throws Exception {
+        long deadline = System.nanoTime() + 500_000_000L;
+        long start = System.nanoTime();
+        long count = 0;
+        Object sink = null;
+        while (System.nanoTime() < deadline) {
+            sink = operation.run();
+            count++;
+        }
+        assertNotNull(sink);
+        return count * 1e9 / (System.nanoTime() - start);
+    }
+}
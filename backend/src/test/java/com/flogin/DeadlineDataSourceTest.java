@@ -0,0 +1,79 @@
+package com.flogin;
+
+import com.flogin.jdbc.DeadlineDataSource;
+import com.flogin.service.RequestDeadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DeadlineDataSource Unit Test (H2 in-memory)
+ * Test query timeout theo deadline của request, hủy query chạy quá hạn và từ chối khi đã hết hạn
+ */
+@DisplayName("DeadlineDataSource Unit Test")
+public class DeadlineDataSourceTest {
+
+    private final DeadlineDataSource dataSource = new DeadlineDataSource(
+        new DriverManagerDataSource("jdbc:h2:mem:deadline_test;DB_CLOSE_DELAY=-1", "sa", ""));
+
+    @AfterEach
+    void tearDown() {
+        RequestDeadline.clear();
+    }
+
+    @Test
+    @DisplayName("TC1: Không có deadline - statement không bị đặt query timeout")
+    void testNoDeadline_NoQueryTimeout() throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            assertEquals(0, statement.getQueryTimeout());
+        }
+        assertEquals(0L, dataSource.getStatementsWithTimeout());
+    }
+
+    @Test
+    @DisplayName("TC2: Có deadline - query timeout bằng thời gian còn lại (làm tròn lên giây)")
+    void testDeadline_QueryTimeoutFromRemaining() throws Exception {
+        RequestDeadline.start(2_500);
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+            assertEquals(3, statement.getQueryTimeout());
+        }
+        assertEquals(1L, dataSource.getStatementsWithTimeout());
+    }
+
+    @Test
+    @DisplayName("TC3: Query chạy quá deadline - bị hủy bởi driver")
+    void testDeadline_SlowQueryCancelled() throws Exception {
+        RequestDeadline.start(1_000);
+
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                 "SELECT COUNT(*) FROM SYSTEM_RANGE(1, 100000) a, SYSTEM_RANGE(1, 100000) b")) {
+            assertThrows(SQLTimeoutException.class, statement::executeQuery);
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000);
+    }
+
+    @Test
+    @DisplayName("TC4: Đã quá deadline - không lấy connection / không tạo statement")
+    void testDeadline_ExpiredRejected() throws Exception {
+        RequestDeadline.start(200);
+        try (Connection connection = dataSource.getConnection()) {
+            Thread.sleep(250);
+            assertThrows(SQLTimeoutException.class, () -> connection.prepareStatement("SELECT 1"));
+        }
+        assertThrows(SQLTimeoutException.class, dataSource::getConnection);
+        assertEquals(2L, dataSource.getRejectedExpired());
+    }
+}
@@ -0,0 +1,80 @@
+package com.flogin;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.flogin.dto.LoginDto.LoginResponse;
+import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.dto.UserDtos.UserDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Serializer viết tay Unit Test
+ * Output của ProductDtoSerializer, LoginResponseSerializer, UserDtoSerializer phải giống từng byte
+ * với BeanSerializer mặc định của Jackson (bật lại qua mix-in)
+ */
+@DisplayName("DTO Serializer Unit Test - tương thích với BeanSerializer")
+public class DtoSerializerTest {
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    static abstract class ProductDtoBeanMixin {
+        @JsonIgnore
+        abstract long getVersion();
+    }
+
+    @JsonSerialize(using = JsonSerializer.None.class)
+    static abstract class BeanMixin {
+    }
+
+    private ObjectMapper objectMapper;
+    private ObjectMapper beanObjectMapper;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper();
+        beanObjectMapper = new ObjectMapper()
+            .addMixIn(ProductDto.class, ProductDtoBeanMixin.class)
+            .addMixIn(LoginResponse.class, BeanMixin.class)
+            .addMixIn(UserDto.class, BeanMixin.class);
+    }
+
+    private void assertSameBytes(Object value) throws Exception {
+        assertEquals(beanObjectMapper.writeValueAsString(value), objectMapper.writeValueAsString(value));
+    }
+
+    @Test
+    @DisplayName("TC1: ProductDto đầy đủ field - giống BeanSerializer, không lộ version")
+    void testProductDto_SameAsBeanSerializer() throws Exception {
+        ProductDto product = new ProductDto(1L, "Electronics", 15000000.0, "Laptop \"Pro\" ư", "Gaming laptop", 10);
+        product.setVersion(7L);
+
+        assertSameBytes(product);
+        assertEquals("{\"id\":1,\"price\":1.5E7,\"productName\":\"Laptop \\\"Pro\\\" ư\",\"quantity\":10,"
+            + "\"description\":\"Gaming laptop\",\"category\":\"Electronics\"}", objectMapper.writeValueAsString(product));
+    }
+
+    @Test
+    @DisplayName("TC2: ProductDto có field null và danh sách products - giống BeanSerializer")
+    void testProductDto_NullFieldsAndList() throws Exception {
+        ProductDto empty = new ProductDto();
+        ProductDto product = new ProductDto(2L, "Books", 0.01, "Clean Code", null, null);
+
+        assertSameBytes(empty);
+        assertSameBytes(List.of(product, empty));
+    }
+
+    @Test
+    @DisplayName("TC3: LoginResponse thành công và thất bại - giống BeanSerializer")
+    void testLoginResponse_SameAsBeanSerializer() throws Exception {
+        assertSameBytes(new LoginResponse(true, "Login thành công", "jwt-token", new UserDto("admin", "admin@example.com")));
+        assertSameBytes(new LoginResponse(false, "Login thất bại"));
+        assertSameBytes(new UserDto());
+    }
+}
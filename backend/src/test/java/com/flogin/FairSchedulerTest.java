@@ -0,0 +1,194 @@
+package com.flogin;
+
+import com.flogin.filter.Bulkhead;
+import com.flogin.filter.FairScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FairScheduler Unit Test
+ * Test thứ tự phục vụ giữa các user (fair queueing), ưu tiên đọc hơn ghi, weight và p99 của user bình thường
+ * khi có một user gửi request dồn dập
+ */
+@DisplayName("FairScheduler Unit Test")
+public class FairSchedulerTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static void awaitQueued(FairScheduler scheduler, int expected) throws InterruptedException {
+        while ((int) scheduler.getStats().get("queued") < expected) {
+            Thread.sleep(2);
+        }
+    }
+
+    /**
+     * Xin lượt trên thread khác, khi tới lượt thì ghi tên vào granted và trả lượt khi được báo
+     */
+    private Future<Bulkhead.Admission> submitWaiter(FairScheduler scheduler, String principal, int cost,
+                                                   BlockingQueue<String> granted) {
+        return executor.submit(() -> {
+            Bulkhead.Admission admission = scheduler.acquire(principal, cost);
+            if (admission == Bulkhead.Admission.ACCEPTED) {
+                granted.add(principal);
+            }
+            return admission;
+        });
+    }
+
+    private static long p99(List<Long> samples) {
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        return sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+    }
+
+    @Test
+    @DisplayName("TC1: User khác được phục vụ trước các request đang dồn của user gửi nhiều")
+    void testAcquire_OtherPrincipalServedBeforeBacklog() throws Exception {
+        FairScheduler scheduler = new FairScheduler(1, 10, 5_000, Map.of());
+        BlockingQueue<String> granted = new LinkedBlockingQueue<>();
+
+        assertEquals(Bulkhead.Admission.ACCEPTED, scheduler.acquire("noisy", 1));
+        for (int i = 0; i < 5; i++) {
+            submitWaiter(scheduler, "noisy", 1, granted);
+        }
+        awaitQueued(scheduler, 5);
+        Future<Bulkhead.Admission> quiet = submitWaiter(scheduler, "quiet", 1, granted);
+        awaitQueued(scheduler, 6);
+
+        // Trả lượt -> request của quiet (vào sau cùng) được nhận trước 5 request đang chờ của noisy
+        scheduler.release();
+        assertEquals(Bulkhead.Admission.ACCEPTED, quiet.get(5, TimeUnit.SECONDS));
+        assertEquals("quiet", granted.poll(5, TimeUnit.SECONDS));
+        assertEquals(5, scheduler.getStats().get("queued"));
+    }
+
+    @Test
+    @DisplayName("TC2: Request đọc (cost thấp) được phục vụ trước request ghi đang chờ")
+    void testAcquire_ReadBeforeWrite() throws Exception {
+        FairScheduler scheduler = new FairScheduler(1, 10, 5_000, Map.of());
+        BlockingQueue<String> granted = new LinkedBlockingQueue<>();
+
+        assertEquals(Bulkhead.Admission.ACCEPTED, scheduler.acquire("holder", 1));
+        submitWaiter(scheduler, "writer", 4, granted);
+        awaitQueued(scheduler, 1);
+        submitWaiter(scheduler, "reader", 1, granted);
+        awaitQueued(scheduler, 2);
+
+        scheduler.release();
+        assertEquals("reader", granted.poll(5, TimeUnit.SECONDS));
+        scheduler.release();
+        assertEquals("writer", granted.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("TC3: User có weight 2 được phục vụ gấp đôi user weight 1 khi cùng chờ")
+    void testAcquire_WeightedShare() throws Exception {
+        FairScheduler scheduler = new FairScheduler(1, 10, 5_000, Map.of("premium", 2));
+        BlockingQueue<String> granted = new LinkedBlockingQueue<>();
+
+        assertEquals(Bulkhead.Admission.ACCEPTED, scheduler.acquire("holder", 1));
+        for (int i = 0; i < 4; i++) {
+            submitWaiter(scheduler, "premium", 1, granted);
+            awaitQueued(scheduler, 2 * i + 1);
+            submitWaiter(scheduler, "basic", 1, granted);
+            awaitQueued(scheduler, 2 * i + 2);
+        }
+
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            scheduler.release();
+            order.add(granted.poll(5, TimeUnit.SECONDS));
+        }
+        assertEquals(4, Collections.frequency(order, "premium"), order.toString());
+        assertEquals(2, Collections.frequency(order, "basic"), order.toString());
+    }
+
+    @Test
+    @DisplayName("TC4: Hàng đợi của một user đầy - chỉ user đó bị từ chối")
+    void testAcquire_PerPrincipalQueueFull() throws Exception {
+        FairScheduler scheduler = new FairScheduler(1, 2, 5_000, Map.of());
+        BlockingQueue<String> granted = new LinkedBlockingQueue<>();
+
+        assertEquals(Bulkhead.Admission.ACCEPTED, scheduler.acquire("noisy", 1));
+        submitWaiter(scheduler, "noisy", 1, granted);
+        submitWaiter(scheduler, "noisy", 1, granted);
+        awaitQueued(scheduler, 2);
+
+        assertEquals(Bulkhead.Admission.REJECTED_QUEUE_FULL, scheduler.acquire("noisy", 1));
+        Future<Bulkhead.Admission> quiet = submitWaiter(scheduler, "quiet", 1, granted);
+        awaitQueued(scheduler, 3);
+
+        scheduler.release();
+        assertEquals(Bulkhead.Admission.ACCEPTED, quiet.get(5, TimeUnit.SECONDS));
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> principals = (Map<String, Map<String, Object>>) scheduler.getStats().get("principals");
+        assertEquals(1L, principals.get("noisy").get("rejected"));
+        assertEquals(0L, principals.get("quiet").get("rejected"));
+    }
+
+    @Test
+    @DisplayName("TC5: User gửi dồn dập không làm tăng p99 thời gian chờ của user bình thường")
+    void testAcquire_NoisyTenantDoesNotInflateOthersP99() throws Exception {
+        FairScheduler scheduler = new FairScheduler(2, 100, 10_000, Map.of());
+        long serviceMs = 5;
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Long> noisyWaits = Collections.synchronizedList(new ArrayList<>());
+
+        // noisy: 16 thread liên tục gửi request, mỗi request giữ lượt serviceMs
+        for (int i = 0; i < 16; i++) {
+            executor.submit(() -> {
+                while (running.get()) {
+                    long start = System.nanoTime();
+                    if (scheduler.acquire("noisy", 1) == Bulkhead.Admission.ACCEPTED) {
+                        noisyWaits.add(System.nanoTime() - start);
+                        Thread.sleep(serviceMs);
+                        scheduler.release();
+                    }
+                }
+                return null;
+            });
+        }
+        awaitQueued(scheduler, 10);
+
+        // quiet: gửi tuần tự 100 request
+        List<Long> quietWaits = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            long start = System.nanoTime();
+            assertEquals(Bulkhead.Admission.ACCEPTED, scheduler.acquire("quiet", 1));
+            quietWaits.add(System.nanoTime() - start);
+            Thread.sleep(serviceMs);
+            scheduler.release();
+            Thread.sleep(1);
+        }
+        running.set(false);
+
+        long quietP99 = p99(quietWaits);
+        long noisyP99 = p99(noisyWaits);
+        // Với FIFO, quiet phải chờ sau ~14 request của noisy (~7 lần serviceMs);
+        // với fair queueing, quiet chỉ chờ tối đa khoảng một lượt đang chạy
+        assertTrue(quietP99 < noisyP99 / 2,
+            "quiet p99 " + quietP99 / 1_000_000 + "ms phải nhỏ hơn nhiều noisy p99 " + noisyP99 / 1_000_000 + "ms");
+        assertTrue(quietP99 < TimeUnit.MILLISECONDS.toNanos(4 * serviceMs),
+            "quiet p99 " + quietP99 / 1_000_000 + "ms");
+    }
+}
@@ -0,0 +1,215 @@
+package com.flogin;
+
+import com.flogin.jdbc.HedgedReadExecutor;
+import com.flogin.jdbc.ReadWriteRoutingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HedgedReadExecutor Unit Test (2 replica H2 in-memory, replica-1 có thể bị làm chậm)
+ * Test hedge khi replica thứ nhất chậm, hủy attempt thua, hedge budget và hedge delay theo percentile
+ */
+@DisplayName("HedgedReadExecutor Unit Test")
+public class HedgedReadExecutorTest {
+
+    private static final long SLOW_MS = 1_000;
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    /**
+     * Replica giả lập GC pause / replica quá tải: chờ SLOW_MS trước khi trả connection
+     */
+    private static final class SlowDataSource extends DelegatingDataSource {
+        volatile boolean slow;
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        SlowDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            threads.add(Thread.currentThread().getName());
+            if (slow) {
+                try {
+                    Thread.sleep(SLOW_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted", e);
+                }
+            }
+            return super.getConnection();
+        }
+    }
+
+    private final SlowDataSource replica1 = new SlowDataSource(replica("hedge_replica1_"));
+    private final SlowDataSource replica2 = new SlowDataSource(replica("hedge_replica2_"));
+    private HedgedReadExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    private static DataSource replica(String prefix) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + prefix + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, product_name VARCHAR(100))");
+        jdbcTemplate.update("INSERT INTO products VALUES (1, 'Laptop')");
+        return dataSource;
+    }
+
+    private HedgedReadExecutor executor(long minDelayMs, long maxDelayMs, double budgetRatio, int budgetBurst) {
+        return executor(minDelayMs, maxDelayMs, budgetRatio, budgetBurst, 10);
+    }
+
+    private HedgedReadExecutor executor(long minDelayMs, long maxDelayMs, double budgetRatio, int budgetBurst,
+                                        int maxHedgeThreads) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", replica1);
+        replicas.put("replica-2", replica2);
+        DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:hedge_primary;DB_CLOSE_DELAY=-1", "sa", "");
+        // positionsReported = false, độ trễ 0: cả hai replica luôn được coi là đã theo kịp
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replicas, false, 0);
+        executor = new HedgedReadExecutor(routing, 95, minDelayMs, maxDelayMs, budgetRatio, budgetBurst, maxHedgeThreads);
+        return executor;
+    }
+
+    private String findName(HedgedReadExecutor executor) {
+        return executor.query("SELECT product_name FROM products WHERE id = ?",
+                statement -> statement.setLong(1, 1),
+                rs -> rs.next() ? rs.getString(1) : null);
+    }
+
+    private static long stat(HedgedReadExecutor executor, String name) {
+        return (long) executor.getStats().get(name);
+    }
+
+    @Test
+    @DisplayName("TC1: Hai replica đều nhanh - không gửi hedge, query chạy trên thread gọi")
+    void testFastReplicas_NoHedge() {
+        // Hedge delay 5s: query H2 nhanh không bao giờ chạm tới, kể cả trên máy chậm
+        HedgedReadExecutor executor = executor(5_000, 5_000, 0.1, 10);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("Laptop", findName(executor));
+        }
+        assertEquals(10L, stat(executor, "queries"));
+        assertEquals(0L, stat(executor, "hedged"));
+        // Attempt đầu tiên không chuyển sang thread khác
+        assertEquals(Set.of(Thread.currentThread().getName()), replica1.threads);
+        assertEquals(Set.of(Thread.currentThread().getName()), replica2.threads);
+    }
+
+    @Test
+    @DisplayName("TC2: Replica thứ nhất chậm - hedge sang replica thứ hai thắng, attempt chậm bị hủy")
+    void testSlowReplica_HedgeWins() {
+        // Hedge delay 200ms: lớn hơn nhiều một query H2 nhanh, nhỏ hơn nhiều SLOW_MS
+        HedgedReadExecutor executor = executor(200, 200, 1.0, 10);
+        replica1.slow = true;
+
+        for (int i = 0; i < 10; i++) {
+            long start = System.nanoTime();
+            assertEquals("Laptop", findName(executor));
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsedMs < SLOW_MS / 2, "Latency " + elapsedMs + "ms không được chờ replica chậm");
+        }
+        // Round-robin: 5 query bắt đầu ở replica chậm, hedge của cả 5 đều thắng.
+        // Query bắt đầu ở replica nhanh hiếm khi vượt hedge delay (máy chậm / GC); khi đó hedge sang
+        // replica chậm và thua, nên chỉ assert hedged >= 5, không assert bằng
+        long hedged = stat(executor, "hedged");
+        assertTrue(hedged >= 5, "hedged = " + hedged);
+        assertEquals(5L, stat(executor, "hedgeWins"));
+        // Mỗi query được hedge kết thúc bằng việc hủy attempt thua
+        assertEquals(hedged, stat(executor, "losersCancelled"));
+    }
+
+    @Test
+    @DisplayName("TC3: Hết hedge budget - không hedge, query chờ replica chậm")
+    void testBudgetExhausted_NoHedge() {
+        // Hedge delay 200ms << SLOW_MS: query bắt đầu ở replica chậm luôn vượt delay
+        HedgedReadExecutor executor = executor(200, 200, 0, 1);
+        replica1.slow = true;
+
+        int waited = 0;
+        for (int i = 0; i < 4; i++) {
+            long start = System.nanoTime();
+            assertEquals("Laptop", findName(executor));
+            if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= SLOW_MS * 9 / 10) {
+                waited++;
+            }
+        }
+        // Chỉ 1 token ban đầu, không nạp thêm: tối đa một hedge; 2 query bắt đầu ở replica chậm
+        // nên ít nhất một query hết budget và phải chờ replica chậm
+        assertTrue(stat(executor, "hedged") <= 1, "hedged = " + stat(executor, "hedged"));
+        assertTrue(stat(executor, "budgetExhausted") >= 1, "budgetExhausted = " + stat(executor, "budgetExhausted"));
+        assertTrue(waited >= 1, "Không query nào chờ replica chậm");
+    }
+
+    @Test
+    @DisplayName("TC5: Pool hedge đầy - hedge bị bỏ qua (không tạo thêm thread), query vẫn trả kết quả")
+    void testHedgePoolFull_HedgeRejected() throws Exception {
+        HedgedReadExecutor executor = executor(50, 50, 1.0, 10, 1);
+        replica1.slow = true;
+        replica2.slow = true;
+
+        // 4 query đồng thời, cả hai replica chậm: hedge đầu tiên giữ thread duy nhất của pool ~SLOW_MS,
+        // các hedge đến sau 50ms không có thread
+        List<Future<String>> results = new ArrayList<>();
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 4; i++) {
+                results.add(callers.submit(() -> findName(executor)));
+            }
+            for (Future<String> result : results) {
+                assertEquals("Laptop", result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertTrue(stat(executor, "hedgeRejected") >= 1, "hedgeRejected = " + stat(executor, "hedgeRejected"));
+        assertTrue(stat(executor, "hedged") <= 4 - stat(executor, "hedgeRejected"));
+        long hedgeThreads = Stream.concat(replica1.threads.stream(), replica2.threads.stream())
+                .filter(name -> name.startsWith("flogin-hedged-read-")).distinct().count();
+        assertTrue(hedgeThreads <= 1, "Số thread hedge: " + hedgeThreads);
+    }
+
+    @Test
+    @DisplayName("TC4: Hedge delay giảm theo percentile latency sau khi đủ mẫu")
+    void testHedgeDelay_FollowsPercentile() {
+        HedgedReadExecutor executor = executor(1, 500, 0.1, 10);
+        assertEquals(500.0, (double) executor.getStats().get("hedgeDelayMs"), 0.0);
+
+        for (int i = 0; i < 64; i++) {
+            assertEquals("Laptop", findName(executor));
+        }
+        // Không assert số query được hedge: với delay bằng p95, khoảng 5% query nhanh vẫn có thể vượt delay
+        assertTrue((double) executor.getStats().get("hedgeDelayMs") < 100);
+        assertEquals(64L, stat(executor, "queries"));
+    }
+}
@@ -0,0 +1,144 @@
+package com.flogin;
+
+import com.flogin.entity.User;
+import com.flogin.filter.JwtAuthenticationFilter;
+import com.flogin.repository.interfaces.UserRepository;
+import com.flogin.service.CustomUserDetailService;
+import com.flogin.service.JwtService;
+import com.flogin.service.LayerMetricsAspect;
+import com.flogin.service.MeteredPasswordEncoder;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Metrics Unit Test (SimpleMeterRegistry)
+ * Test timer theo tầng filter / service, thời gian parse JWT, lý do token bị từ chối và thời gian BCrypt
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Metrics Unit Test")
+public class MetricsTest {
+
+    @Mock
+    private JwtService mockJwtService;
+
+    @Mock
+    private CustomUserDetailService mockUserDetailService;
+
+    @Mock
+    private UserRepository mockUserRepository;
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private long layerCount(String layer, String className, String method) {
+        return registry.get(LayerMetricsAspect.METRIC)
+                .tags("layer", layer, "class", className, "method", method)
+                .timer().count();
+    }
+
+    private void filter(JwtAuthenticationFilter filter, String authorization) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest(), "Filter phải chuyển tiếp request");
+    }
+
+    @Test
+    @DisplayName("TC1: Token hết hạn - ghi lý do expired, thời gian parse và thời gian filter")
+    void testJwtFilter_ExpiredToken() throws Exception {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(mockJwtService, mockUserDetailService, registry);
+        when(mockJwtService.extractUsername("expired-token"))
+                .thenThrow(new ExpiredJwtException(null, null, "JWT expired"));
+
+        filter(filter, null);
+        filter(filter, "Bearer expired-token");
+
+        assertEquals(1, registry.get(JwtAuthenticationFilter.JWT_FAILURE_METRIC).tag("reason", "expired").counter().count());
+        assertEquals(1, registry.get(JwtAuthenticationFilter.JWT_PARSE_METRIC).timer().count());
+        // Request không có token không đi qua phần xác thực nên không được đo
+        assertEquals(1, layerCount("filter", "JwtAuthenticationFilter", "doFilterInternal"));
+        verifyNoInteractions(mockUserDetailService);
+    }
+
+    @Test
+    @DisplayName("TC2: Token hợp lệ - đo cả extract và validate, không ghi lỗi")
+    void testJwtFilter_ValidToken() throws Exception {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(mockJwtService, mockUserDetailService, registry);
+        when(mockJwtService.extractUsername("valid-token")).thenReturn("testuser");
+        when(mockUserDetailService.loadUserByUsername("testuser")).thenReturn(
+                org.springframework.security.core.userdetails.User.withUsername("testuser").password("hash").build());
+        when(mockJwtService.validateToken("valid-token", "testuser")).thenReturn(true);
+
+        filter(filter, "Bearer valid-token");
+
+        assertEquals(2, registry.get(JwtAuthenticationFilter.JWT_PARSE_METRIC).timer().count());
+        assertNull(registry.find(JwtAuthenticationFilter.JWT_FAILURE_METRIC).counter());
+        assertEquals("testuser", SecurityContextHolder.getContext().getAuthentication().getName());
+    }
+
+    @Test
+    @DisplayName("TC3: Aspect đo service method theo class / method, kể cả khi method ném exception")
+    void testLayerAspect_ServiceMethod() {
+        User user = new User();
+        user.setUserName("testuser");
+        user.setHashPassword("hash");
+        when(mockUserRepository.findByUserName("testuser")).thenReturn(Optional.of(user));
+        when(mockUserRepository.findByUserName("nobody")).thenReturn(Optional.empty());
+
+        AspectJProxyFactory factory = new AspectJProxyFactory(new CustomUserDetailService(mockUserRepository));
+        factory.addAspect(new LayerMetricsAspect(registry));
+        UserDetailsService service = factory.getProxy();
+
+        assertEquals("testuser", service.loadUserByUsername("testuser").getUsername());
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("nobody"));
+
+        assertEquals(2, layerCount("service", "CustomUserDetailService", "loadUserByUsername"));
+    }
+
+    @Test
+    @DisplayName("TC4: Thời gian BCrypt ghi theo encode / matches, kết quả giữ nguyên")
+    void testMeteredPasswordEncoder() {
+        PasswordEncoder encoder = new MeteredPasswordEncoder(new BCryptPasswordEncoder(4), registry);
+
+        String hash = encoder.encode("Test123");
+        assertTrue(encoder.matches("Test123", hash));
+        assertFalse(encoder.matches("Wrong123", hash));
+
+        assertEquals(1, registry.get(MeteredPasswordEncoder.METRIC).tag("operation", "encode").timer().count());
+        assertEquals(2, registry.get(MeteredPasswordEncoder.METRIC).tag("operation", "matches").timer().count());
+    }
+}
@@ -0,0 +1,199 @@
+package com.flogin;
+
+import com.flogin.jdbc.AdaptivePoolSizer;
+import com.flogin.jdbc.PoolTelemetry;
+import com.flogin.jdbc.SqlStatementStats;
+import com.flogin.jdbc.StatementStatsDataSource;
+import com.flogin.service.ServiceOperation;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PoolTelemetry / AdaptivePoolSizer Unit Test (HikariCP thật trên H2 in-memory, pool 2 connection)
+ * Test thời gian chờ / giữ connection và timeout theo service method, và điều chỉnh kích thước pool
+ * theo thời gian chờ so với latency database
+ */
+@DisplayName("PoolTelemetry / AdaptivePoolSizer Unit Test")
+public class PoolTelemetryTest {
+
+    private static final long DATABASE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private HikariDataSource pool;
+    private PoolTelemetry telemetry;
+
+    @BeforeEach
+    void setUp() {
+        pool = new HikariDataSource();
+        pool.setPoolName("telemetry-test");
+        pool.setJdbcUrl("jdbc:h2:mem:pool_telemetry_test;DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setPassword("");
+        pool.setMaximumPoolSize(2);
+        pool.setConnectionTimeout(250);
+        telemetry = new PoolTelemetry();
+        assertTrue(telemetry.instrument(pool));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> operation(String name) {
+        Map<String, Object> operations = (Map<String, Object>) telemetry.getStats().get("operations");
+        assertTrue(operations.containsKey(name), "Không có số liệu cho " + name + ": " + operations.keySet());
+        return (Map<String, Object>) operations.get(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> poolStats() {
+        return (Map<String, Object>) ((Map<String, Object>) telemetry.getStats().get("pools")).get("telemetry-test");
+    }
+
+    private static void use(HikariDataSource pool, String operation, long holdMs) throws Exception {
+        boolean entered = ServiceOperation.enter(operation);
+        try (Connection connection = pool.getConnection()) {
+            connection.createStatement().execute("SELECT 1");
+            Thread.sleep(holdMs);
+        } finally {
+            ServiceOperation.exit(entered);
+        }
+    }
+
+    /**
+     * threads thread cùng lấy connection và giữ holdMs, mỗi lần ghi một câu SQL databaseNanos
+     */
+    private void contend(int threads, long holdMs, long databaseNanos) throws Exception {
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    use(pool, "ProductService.getAllProducts", holdMs);
+                    telemetry.executed("SELECT 1", databaseNanos, false);
+                } catch (Exception e) {
+                    // Timeout cũng được PoolTelemetry ghi nhận
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    @Test
+    @DisplayName("TC1: Tìm pool sau lớp bọc DataSource, pool đã gắn không gắn lại")
+    void testFindPools_ThroughWrappers() {
+        StatementStatsDataSource wrapped = new StatementStatsDataSource(pool, new SqlStatementStats(10_000, 0, 10, 10));
+        try {
+            assertEquals(List.of(pool), PoolTelemetry.findPools(wrapped));
+            assertEquals(0, telemetry.instrumentAll(wrapped));
+            assertEquals(List.of("telemetry-test"), telemetry.getPoolNames());
+            assertEquals(pool, telemetry.getPool("telemetry-test"));
+        } finally {
+            wrapped.close();
+        }
+    }
+
+    @Test
+    @DisplayName("TC2: Thời gian chờ / giữ connection được phân loại theo service method đã mượn connection")
+    void testAcquireAndUsage_ByOperation() throws Exception {
+        use(pool, "ProductService.getProductById", 30);
+        use(pool, "AuthService.authenticate", 0);
+        use(pool, null, 0);
+        // Connection trả sau khi service method kết thúc (vd: open-in-view) vẫn tính cho method đã mượn
+        boolean entered = ServiceOperation.enter("ProductService.getAllProducts");
+        Connection held = pool.getConnection();
+        ServiceOperation.exit(entered);
+        held.close();
+
+        Map<String, Object> getById = operation("ProductService.getProductById");
+        Map<?, ?> usage = (Map<?, ?>) getById.get("usage");
+        assertEquals(1L, usage.get("count"));
+        assertTrue((Double) usage.get("maxMs") >= 25, "usage: " + usage);
+        assertEquals(1L, ((Map<?, ?>) operation("AuthService.authenticate").get("acquire")).get("count"));
+        assertEquals(1L, ((Map<?, ?>) operation("(none)").get("acquire")).get("count"));
+        assertEquals(1L, ((Map<?, ?>) operation("(none)").get("usage")).get("count"));
+        assertEquals(1L, ((Map<?, ?>) operation("ProductService.getAllProducts").get("usage")).get("count"));
+
+        Map<String, Object> stats = poolStats();
+        assertEquals(4L, ((Map<?, ?>) stats.get("acquire")).get("count"));
+        assertEquals(2, stats.get("maximumPoolSize"));
+        assertEquals(0, stats.get("active"));
+    }
+
+    @Test
+    @DisplayName("TC3: Hết connection - timeout ghi cho pool và service method đang chờ")
+    void testTimeout_ByOperation() throws Exception {
+        try (Connection first = pool.getConnection(); Connection second = pool.getConnection()) {
+            boolean entered = ServiceOperation.enter("AuthService.authenticate");
+            try {
+                assertThrows(SQLException.class, pool::getConnection);
+            } finally {
+                ServiceOperation.exit(entered);
+            }
+            assertEquals(2, poolStats().get("active"));
+        }
+
+        assertEquals(1L, poolStats().get("timeouts"));
+        assertEquals(1L, operation("AuthService.authenticate").get("timeouts"));
+        assertNull(ServiceOperation.current());
+    }
+
+    @Test
+    @DisplayName("TC4: Chờ connection lâu hơn latency database - pool tăng; database chậm - pool giảm")
+    void testAdaptive_GrowThenShrinkOnSlowDatabase() throws Exception {
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(telemetry, pool, 2, 6, 2, 0.5, 2.0, 100, 1_000);
+
+        // Latency nền: vài cửa sổ không tranh chấp, câu SQL 1ms
+        for (int i = 0; i < 3; i++) {
+            use(pool, "ProductService.getProductById", 0);
+            telemetry.executed("SELECT 1", DATABASE_NANOS, false);
+            assertEquals(2, sizer.adjust());
+        }
+
+        // 8 thread giữ connection 50ms trên pool 2: chờ trung bình >> 0.5 * 1ms
+        contend(8, 50, DATABASE_NANOS);
+        assertEquals(4, sizer.adjust());
+        assertEquals(4, pool.getMaximumPoolSize());
+        assertEquals("grow: chờ connection", sizer.getStats().get("lastDecision"));
+
+        // Vẫn thiếu connection nhưng câu SQL chậm gấp 20 lần -> database là nút thắt, giảm pool
+        contend(12, 50, 20 * DATABASE_NANOS);
+        assertEquals(2, sizer.adjust());
+        assertEquals(1L, sizer.getStats().get("grown"));
+        assertEquals(1L, sizer.getStats().get("shrunk"));
+    }
+
+    @Test
+    @DisplayName("TC5: Timeout làm pool tăng (không vượt max-size), dư connection nhiều cửa sổ liền thì giảm dần")
+    void testAdaptive_TimeoutGrowsIdleShrinks() throws Exception {
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(telemetry, pool, 2, 3, 2, 0.5, 2.0, 2, 1_000);
+
+        contend(6, 400, DATABASE_NANOS);
+        assertTrue((Long) poolStats().get("timeouts") > 0);
+        assertEquals(3, sizer.adjust());
+        assertEquals("grow: timeout", sizer.getStats().get("lastDecision"));
+
+        // Không có tải: cửa sổ thứ hai liên tiếp mới giảm, mỗi lần 1 connection, không dưới min-size
+        assertEquals(3, sizer.adjust());
+        assertEquals(2, sizer.adjust());
+        assertEquals(2, sizer.adjust());
+        assertEquals(2, sizer.adjust());
+        assertTrue(pool.getMinimumIdle() <= 2);
+    }
+}
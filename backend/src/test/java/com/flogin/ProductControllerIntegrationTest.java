@@ -1,11 +1,18 @@
 package com.flogin;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import com.flogin.controller.ProductController;
+import com.flogin.dto.ProductDtos.BatchProductsRequest;
+import com.flogin.dto.ProductDtos.BatchProductsResponse;
 import com.flogin.dto.ProductDtos.CreateProductRequest;
+import com.flogin.dto.ProductDtos.PatchProductRequest;
 import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.dto.ProductDtos.ProductFieldsDto;
 import com.flogin.dto.ProductDtos.UpdateProductRequest;
+import com.flogin.service.ProductResponseCache;
 import com.flogin.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -14,6 +21,8 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -22,11 +31,16 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -39,6 +53,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @WebMvcTest(value = ProductController.class,
     excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
         classes = {com.flogin.service.SecurityConfig.class, com.flogin.filter.JwtAuthenticationFilter.class}))
+@Import(ProductResponseCache.class)
 @AutoConfigureMockMvc(addFilters = false)
 @DisplayName("Product API Integration Tests")
 public class ProductControllerIntegrationTest {
@@ -52,6 +67,14 @@ public class ProductControllerIntegrationTest {
     @MockitoBean
     private ProductService productService;
 
+    @Autowired
+    private ProductResponseCache responseCache;
+
+    @BeforeEach
+    void clearResponseCache() {
+        responseCache.clear();
+    }
+
 
         @Test
         @DisplayName("1. Tạo product thành công với dữ liệu hợp lệ")
@@ -105,6 +128,41 @@ public class ProductControllerIntegrationTest {
             verify(productService, times(1)).getAll(any());
         }
 
+        @Test
+        @DisplayName("(B) Lấy danh sách với fields= - chỉ trả về các field được chọn")
+        void testGetAllProducts_SparseFields() throws Exception {
+            // Arrange
+            List<String> fields = List.of("id", "price", "productName");
+            List<ProductFieldsDto> products = List.of(
+                new ProductFieldsDto(1L, new LinkedHashMap<>(Map.of("id", 1L, "price", 15000000.0, "productName", "Laptop")))
+            );
+            Page<ProductFieldsDto> page = new PageImpl<>(products, PageRequest.of(0, 10), products.size());
+
+            when(productService.getAll(any(), eq(fields)))
+                .thenReturn(page);
+
+            // Act & Assert: thứ tự field trong query không quan trọng
+            mockMvc.perform(get("/api/products").param("fields", "productName,id, price"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.content[0].productName").value("Laptop"))
+                    .andExpect(jsonPath("$.content[0].price").value(15000000.0))
+                    .andExpect(jsonPath("$.content[0].description").doesNotExist())
+                    .andExpect(jsonPath("$.content[0].category").doesNotExist());
+
+            verify(productService, times(1)).getAll(any(), eq(fields));
+            verify(productService, never()).getAll(any());
+        }
+
+        @Test
+        @DisplayName("(B) fields= có field ngoài whitelist - 400 Bad Request")
+        void testGetAllProducts_InvalidField() throws Exception {
+            mockMvc.perform(get("/api/products").param("fields", "id,hash_password"))
+                    .andExpect(status().isBadRequest());
+
+            verify(productService, never()).getAll(any());
+            verify(productService, never()).getAll(any(), any());
+        }
+
 
 
         @Test
@@ -129,6 +187,129 @@ public class ProductControllerIntegrationTest {
 
 
 
+        @Test
+        @DisplayName("4. Accept: application/cbor - trả về CBOR, decode được cùng dữ liệu")
+        void testGetProductById_Cbor() throws Exception {
+            // Arrange
+            ProductDto product = new ProductDto(1L, "Electronics", 15000000.0, "Laptop", "Gaming laptop", 10);
+
+            when(productService.getProductById(1L))
+                .thenReturn(product);
+
+            // Act & Assert
+            byte[] body = mockMvc.perform(get("/api/products/1")
+                    .accept(MediaType.parseMediaType("application/cbor")))
+                    .andExpect(status().isOk())
+                    .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                    .andExpect(content().contentType("application/cbor"))
+                    .andReturn().getResponse().getContentAsByteArray();
+
+            ProductDto decoded = new CBORMapper().readValue(body, ProductDto.class);
+            assertEquals(1L, decoded.getId());
+            assertEquals("Laptop", decoded.getProductName());
+            assertEquals("Electronics", decoded.getCategory());
+        }
+
+        @Test
+        @DisplayName("5. Đọc lại product đã cache - trả bytes từ cache, không gọi database; version hết hạn thì đọc lại DB")
+        void testGetProductById_ServedFromResponseCache() throws Exception {
+            // Arrange
+            ProductDto product = new ProductDto(77L, "Books", 120000.0, "Clean Code", "Robert C. Martin", 5);
+            product.setVersion(3L);
+
+            when(productService.getKnownVersion(77L)).thenReturn(3L);
+            when(productService.getProductById(77L)).thenReturn(product);
+
+            // Act & Assert: lần đầu đọc từ service, lần sau lấy từ cache với cùng body và ETag
+            for (int i = 0; i < 2; i++) {
+                mockMvc.perform(get("/api/products/77"))
+                        .andExpect(status().isOk())
+                        .andExpect(header().string("ETag", "\"3\""))
+                        .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                        .andExpect(content().json(objectMapper.writeValueAsString(product), true));
+            }
+            verify(productService, times(1)).getProductById(77L);
+
+            // Version đổi -> entry cũ không còn được dùng
+            when(productService.getKnownVersion(77L)).thenReturn(4L);
+            mockMvc.perform(get("/api/products/77"))
+                    .andExpect(status().isOk());
+            verify(productService, times(2)).getProductById(77L);
+
+            // Version in-memory hết hạn (ttl) -> đọc DB, thay đổi từ instance khác được thấy
+            ProductDto changed = new ProductDto(77L, "Books", 99000.0, "Clean Code 2nd", "Robert C. Martin", 5);
+            changed.setVersion(5L);
+            when(productService.getKnownVersion(77L)).thenReturn(null);
+            when(productService.getProductById(77L)).thenReturn(changed);
+            mockMvc.perform(get("/api/products/77"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"5\""))
+                    .andExpect(jsonPath("$.productName").value("Clean Code 2nd"));
+            verify(productService, times(3)).getProductById(77L);
+        }
+
+        @Test
+        @DisplayName("6. Lấy nhiều products theo ids - giữ thứ tự, trả về missingIds")
+        void testGetProductsByIds_Batch() throws Exception {
+            // Arrange
+            BatchProductsResponse response = new BatchProductsResponse(List.of(
+                new ProductDto(2L, "Electronics", 200000.0, "Mouse", "Wireless mouse", 50),
+                new ProductDto(1L, "Electronics", 15000000.0, "Laptop", "Gaming laptop", 10)
+            ), List.of(99L));
+
+            when(productService.getProductsByIds(List.of(2L, 1L, 99L)))
+                .thenReturn(response);
+
+            // Act & Assert
+            mockMvc.perform(get("/api/products/batch").param("ids", "2,1,99"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.products", hasSize(2)))
+                    .andExpect(jsonPath("$.products[0].id").value(2))
+                    .andExpect(jsonPath("$.products[1].id").value(1))
+                    .andExpect(jsonPath("$.missingIds[0]").value(99));
+
+            mockMvc.perform(post("/api/products/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(new BatchProductsRequest(List.of(2L, 1L, 99L)))))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.products[0].productName").value("Mouse"));
+
+            verify(productService, times(2)).getProductsByIds(List.of(2L, 1L, 99L));
+            verify(productService, never()).getProductById(anyLong());
+        }
+
+        @Test
+        @DisplayName("2. If-None-Match khớp version đã biết - 304 không gọi database")
+        void testGetProductById_NotModifiedFromMemory() throws Exception {
+            // Arrange
+            when(productService.getKnownVersion(1L)).thenReturn(7L);
+
+            // Act & Assert
+            mockMvc.perform(get("/api/products/1").header("If-None-Match", "\"7\""))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", "\"7\""))
+                    .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                    .andExpect(content().string(""));
+
+            verify(productService, never()).getProductById(anyLong());
+        }
+
+        @Test
+        @DisplayName("3. Listing với ETag của catalog chưa đổi - 304 không gọi database")
+        void testGetAllProducts_NotModified() throws Exception {
+            // Arrange
+            when(productService.getCatalogVersion()).thenReturn("abc-5");
+
+            // Act & Assert
+            mockMvc.perform(get("/api/products").header("If-None-Match", "\"cabc-5-0-10\""))
+                    .andExpect(status().isNotModified());
+
+            verify(productService, never()).getAll(any());
+        }
+
+
+
         @Test
         @DisplayName("1. Cập nhật product thành công")
         void testUpdateProduct_Success() throws Exception {
@@ -154,6 +335,44 @@ public class ProductControllerIntegrationTest {
 
 
 
+        @Test
+        @DisplayName("1. Patch product với If-Match - trả về ETag mới")
+        void testPatchProduct_Success() throws Exception {
+            // Arrange
+            ProductDto responseDto = new ProductDto(1L, "Electronics", 15000000.0, "Laptop", "Gaming laptop", 42);
+            responseDto.setVersion(4L);
+
+            when(productService.patchProduct(eq(1L), any(PatchProductRequest.class), eq(3L)))
+                .thenReturn(responseDto);
+
+            // Act & Assert
+            mockMvc.perform(patch("/api/products/1")
+                    .header("If-Match", "\"3\"")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"quantity\":42}"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("ETag", "\"4\""))
+                    .andExpect(jsonPath("$.quantity").value(42))
+                    .andExpect(jsonPath("$.version").doesNotExist());
+        }
+
+        @Test
+        @DisplayName("2. Patch product với version cũ - 412 Precondition Failed")
+        void testPatchProduct_StaleVersion() throws Exception {
+            // Arrange
+            when(productService.patchProduct(eq(1L), any(PatchProductRequest.class), eq(2L)))
+                .thenThrow(new OptimisticLockingFailureException("Product với id 1 đã bị thay đổi"));
+
+            // Act & Assert
+            mockMvc.perform(patch("/api/products/1")
+                    .header("If-Match", "\"2\"")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"quantity\":42}"))
+                    .andExpect(status().isPreconditionFailed());
+        }
+
+
+
         @Test
         @DisplayName("1. Xóa product thành công - 204 No Content")
         void testDeleteProduct_Success() throws Exception {
@@ -6,6 +6,7 @@ import com.flogin.dto.ProductDtos.UpdateProductRequest;
 import com.flogin.entity.Category;
 import com.flogin.entity.Product;
 import com.flogin.repository.interfaces.ProductRepository;
+import com.flogin.service.ProductResponseCache;
 import com.flogin.service.ProductService;
 import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
@@ -42,16 +43,21 @@ public class ProductServiceMockTest {
     @Mock
     private Validator validator;
 
+    @Mock
+    private ProductResponseCache responseCache;
+
     @InjectMocks
     private ProductService productService;
 
     private Product mockProduct;
+    private ProductDto mockProductDto;
     private CreateProductRequest mockCreateRequest;
     private UpdateProductRequest mockUpdateRequest;
 
     @BeforeEach
     void setUp() {
         mockProduct = new Product(1L, "Electronics", "Gaming laptop", 10, "Laptop", 15000000.0);
+        mockProductDto = new ProductDto(1L, "Electronics", 15000000.0, "Laptop", "Gaming laptop", 10);
         mockCreateRequest = new CreateProductRequest("Laptop", 15000000.0, "Gaming laptop", 10, "Electronics");
         mockUpdateRequest = new UpdateProductRequest("Laptop", 15000000.0, "Gaming laptop", 10, "Electronics");
     }
@@ -67,9 +73,9 @@ public class ProductServiceMockTest {
         @Test
         @DisplayName("1. Mock findById - Tìm product thành công")
         void testGetProductById_Success() {
-            // Arrange: Mock repository trả về product
-            when(productRepository.findById(1L))
-                .thenReturn(Optional.of(mockProduct));
+            // Arrange: Mock repository trả về product (projection)
+            when(productRepository.findProductDtoById(1L))
+                .thenReturn(Optional.of(mockProductDto));
 
             // Act
             ProductDto result = productService.getProductById(1L);
@@ -81,7 +87,7 @@ public class ProductServiceMockTest {
             assertEquals("Electronics", result.getCategory());
 
             // c) Verify repository interaction
-            verify(productRepository, times(1)).findById(1L);
+            verify(productRepository, times(1)).findProductDtoById(1L);
         }
 
 
@@ -141,16 +147,15 @@ public class ProductServiceMockTest {
         @DisplayName("5. Service delete product với mock repository")
         void testDeleteProduct_Success() {
             // Arrange
-            when(productRepository.findById(1L))
-                    .thenReturn(Optional.of(mockProduct));
-            doNothing().when(productRepository).deleteById(1L);
+            when(productRepository.deleteProductById(1L))
+                    .thenReturn(1);
 
             // Act
             productService.deleteProduct(1L);
 
-            // c) Verify repository interactions
-            verify(productRepository, times(1)).findById(1L);
-            verify(productRepository, times(1)).deleteById(1L);
+            // c) Verify repository interactions: một câu DELETE duy nhất
+            verify(productRepository, times(1)).deleteProductById(1L);
+            verifyNoMoreInteractions(productRepository);
         }
 
 
@@ -167,15 +172,15 @@ public class ProductServiceMockTest {
         @DisplayName("7. Verify repository được gọi với argument cụ thể")
         void testVerify_RepositoryCalledWithSpecificArgument() {
             // Arrange
-            when(productRepository.findById(1L))
-                    .thenReturn(Optional.of(mockProduct));
+            when(productRepository.findProductDtoById(1L))
+                    .thenReturn(Optional.of(mockProductDto));
 
             // Act
             productService.getProductById(1L);
 
             // c) Verify với argument cụ thể
-            verify(productRepository).findById(eq(1L));
-            verify(productRepository, times(1)).findById(1L);
+            verify(productRepository).findProductDtoById(eq(1L));
+            verify(productRepository, times(1)).findProductDtoById(1L);
             verifyNoMoreInteractions(productRepository);
         }
 
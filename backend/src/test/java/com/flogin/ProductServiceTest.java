@@ -1,10 +1,18 @@
 package com.flogin;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flogin.dto.ProductDtos.BatchProductsResponse;
+import com.flogin.dto.ProductDtos.BulkDeleteProductsRequest;
+import com.flogin.dto.ProductDtos.BulkDeleteProductsResponse;
 import com.flogin.dto.ProductDtos.CreateProductRequest;
+import com.flogin.dto.ProductDtos.PatchProductRequest;
 import com.flogin.dto.ProductDtos.ProductDto;
 import com.flogin.dto.ProductDtos.UpdateProductRequest;
+import com.flogin.entity.Category;
 import com.flogin.entity.Product;
 import com.flogin.repository.interfaces.ProductRepository;
+import com.flogin.repository.interfaces.ProductRepositoryCustom.PatchedProduct;
+import com.flogin.service.ProductResponseCache;
 import com.flogin.service.ProductService;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
@@ -19,6 +27,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 import java.util.*;
 
@@ -39,11 +49,14 @@ public class ProductServiceTest {
     @Mock
     private Validator mockValidator;
 
+    private ProductResponseCache responseCache;
+
     private ProductService productService;
 
     @BeforeEach
     void setUp() {
-        productService = new ProductService(productRepository, mockValidator);
+        responseCache = new ProductResponseCache(new ObjectMapper());
+        productService = new ProductService(productRepository, mockValidator, responseCache);
     }
 
     // ========================================================================================
@@ -140,17 +153,38 @@ public class ProductServiceTest {
             CreateProductRequest request = new CreateProductRequest("Laptop", 15000.0, "Gaming laptop", 10, "Electronics");
 
             when(mockValidator.validate(request)).thenReturn(Set.of());
-            when(productRepository.existsByProductName("Laptop")).thenReturn(true);
+            when(productRepository.save(any(Product.class))).thenThrow(new DataIntegrityViolationException(
+                    "could not execute statement",
+                    new RuntimeException("Violation of UNIQUE KEY constraint 'uk_products_product_name'")));
 
-            // Act & Assert
+            // Act & Assert: unique index báo trùng tên -> map sang lỗi duplicate name
             IllegalArgumentException exception = assertThrows(
                     IllegalArgumentException.class,
                     () -> productService.createProduct(request)
             );
 
             assertTrue(exception.getMessage().contains("Product name 'Laptop' đã tồn tại"));
+            verify(productRepository, never()).existsByProductName(anyString());
+        }
+
+        @Test
+        @DisplayName("TC13: Tạo lại tên đã biết là trùng - bị chặn trước khi INSERT")
+        void testCreateProduct_KnownDuplicateRejectedBeforeInsert() {
+            // Arrange: lần tạo đầu tiên bị unique index reject, tên được ghi nhận vào bộ lọc in-memory
+            CreateProductRequest request = new CreateProductRequest("Laptop", 15000.0, "Gaming laptop", 10, "Electronics");
+
+            when(mockValidator.validate(request)).thenReturn(Set.of());
+            when(productRepository.save(any(Product.class))).thenThrow(new DataIntegrityViolationException(
+                    "could not execute statement",
+                    new RuntimeException("Unique index or primary key violation: \"PUBLIC.UK_PRODUCTS_PRODUCT_NAME_INDEX_1\"")));
+            when(productRepository.existsByProductName("Laptop")).thenReturn(true);
+
+            assertThrows(IllegalArgumentException.class, () -> productService.createProduct(request));
+
+            // Act & Assert: lần thứ hai chỉ cần kiểm tra exists, không INSERT nữa
+            assertThrows(IllegalArgumentException.class, () -> productService.createProduct(request));
+            verify(productRepository, times(1)).save(any(Product.class));
             verify(productRepository, times(1)).existsByProductName("Laptop");
-            verify(productRepository, never()).save(any());
         }
 
     }
@@ -166,21 +200,22 @@ public class ProductServiceTest {
         @Test
         @DisplayName("TC14: Lấy sản phẩm thành công theo ID")
         void testGetProductById_Success() {
-            Product product = new Product(1L, "Electronics", "Gaming laptop", 10, "Laptop", 15000.0);
-            when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+            ProductDto product = new ProductDto(1L, "Electronics", 15000.0, "Laptop", "Gaming laptop", 10);
+            when(productRepository.findProductDtoById(1L)).thenReturn(Optional.of(product));
 
             ProductDto result = productService.getProductById(1L);
 
             assertNotNull(result);
             assertEquals(1L, result.getId());
             assertEquals("Laptop", result.getProductName());
-            verify(productRepository, times(1)).findById(1L);
+            verify(productRepository, times(1)).findProductDtoById(1L);
+            verify(productRepository, never()).findById(anyLong());
         }
 
         @Test
         @DisplayName("TC15: Lấy sản phẩm thất bại - ID không tồn tại")
         void testGetProductById_NotFound() {
-            when(productRepository.findById(999L)).thenReturn(Optional.empty());
+            when(productRepository.findProductDtoById(999L)).thenReturn(Optional.empty());
 
             NoSuchElementException exception = assertThrows(
                     NoSuchElementException.class,
@@ -188,7 +223,65 @@ public class ProductServiceTest {
             );
 
             assertTrue(exception.getMessage().contains("Product not found with id: 999"));
-            verify(productRepository, times(1)).findById(999L);
+            verify(productRepository, times(1)).findProductDtoById(999L);
+        }
+
+        @Test
+        @DisplayName("TC29: Lấy nhiều sản phẩm - giữ thứ tự request, dùng cache, báo id không tồn tại")
+        void testGetProductsByIds_OrderCacheAndMissing() {
+            ProductDto cachedProduct = new ProductDto(2L, "Books", 120000.0, "Clean Code", "Robert C. Martin", 5);
+            cachedProduct.setVersion(1L);
+            ProductDto product = new ProductDto(3L, "Electronics", 15000.0, "Laptop", "Gaming laptop", 10);
+            when(productRepository.findProductDtoById(2L)).thenReturn(Optional.of(cachedProduct));
+            when(productRepository.findProductDtosByIdIn(List.of(3L, 99L))).thenReturn(List.of(product));
+            // Đọc product 2 một lần để biết version hiện tại của nó
+            productService.getProductById(2L);
+            responseCache.put(cachedProduct);
+
+            BatchProductsResponse result = productService.getProductsByIds(List.of(3L, 2L, 99L, 3L));
+
+            assertEquals(List.of(3L, 2L), result.getProducts().stream().map(ProductDto::getId).toList());
+            assertEquals(List.of(99L), result.getMissingIds());
+            verify(productRepository, times(1)).findProductDtosByIdIn(List.of(3L, 99L));
+        }
+
+        @Test
+        @DisplayName("TC30: Lấy nhiều sản phẩm - query theo chunk, quá số id tối đa bị từ chối")
+        void testGetProductsByIds_ChunksAndLimit() {
+            List<Long> ids = new ArrayList<>();
+            for (long i = 1; i <= ProductService.BATCH_GET_MAX_IDS; i++) {
+                ids.add(i);
+            }
+            when(productRepository.findProductDtosByIdIn(anyCollection())).thenReturn(List.of());
+
+            BatchProductsResponse result = productService.getProductsByIds(ids);
+
+            assertEquals(ProductService.BATCH_GET_MAX_IDS, result.getMissingIds().size());
+            verify(productRepository, times(2)).findProductDtosByIdIn(anyCollection());
+
+            ids.add(ProductService.BATCH_GET_MAX_IDS + 1L);
+            assertThrows(IllegalArgumentException.class, () -> productService.getProductsByIds(ids));
+            assertThrows(IllegalArgumentException.class, () -> productService.getProductsByIds(List.of()));
+        }
+
+        @Test
+        @DisplayName("TC32: Version in-memory chỉ được tin trong ttl (thay đổi từ instance khác không được thấy), ttl = 0 luôn đọc DB")
+        void testKnownVersion_ExpiresAfterTtl() throws InterruptedException {
+            ProductDto product = new ProductDto(1L, Category.ELECTRONICS, 15000.0, "Laptop", "Gaming laptop", 10, 3L);
+            when(productRepository.findProductDtoById(1L)).thenReturn(Optional.of(product));
+
+            productService.setKnownVersionTtlMillis(60_000);
+            productService.getProductById(1L);
+            assertEquals(3L, productService.getKnownVersion(1L));
+            assertNotNull(productService.getCatalogVersion());
+
+            productService.setKnownVersionTtlMillis(1);
+            Thread.sleep(5);
+            assertNull(productService.getKnownVersion(1L));
+
+            productService.setKnownVersionTtlMillis(0);
+            assertNull(productService.getKnownVersion(1L));
+            assertNull(productService.getCatalogVersion());
         }
     }
 
@@ -275,6 +368,113 @@ public class ProductServiceTest {
         }
     }
 
+    // ========================================================================================
+    // C2) TEST PATCH (partial update với optimistic version)
+    // ========================================================================================
+
+    @Nested
+    @DisplayName("Test patchProduct() method")
+    class PatchProductTests {
+
+        @Test
+        @DisplayName("TC23: Patch chỉ quantity - một câu UPDATE có điều kiện version")
+        void testPatchProduct_OnlyQuantity() {
+            PatchProductRequest request = new PatchProductRequest(null, null, null, 42, null);
+            ProductDto patched = new ProductDto(1L, "Electronics", 15000.0, "Laptop", "Gaming laptop", 42);
+
+            when(mockValidator.validate(request)).thenReturn(Set.of());
+            when(productRepository.patchProductFields(eq(1L), anyMap(), eq(3L)))
+                    .thenReturn(Optional.of(new PatchedProduct(null, patched)));
+
+            ProductDto result = productService.patchProduct(1L, request, 3L);
+
+            assertEquals(42, result.getQuantity());
+            verify(productRepository).patchProductFields(1L, Map.of("quantity", 42), 3L);
+            verify(productRepository, never()).findById(anyLong());
+            verify(productRepository, never()).findProductDtoById(anyLong());
+            verify(productRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("TC24: Patch với version cũ - OptimisticLockingFailureException (412)")
+        void testPatchProduct_StaleVersion() {
+            PatchProductRequest request = new PatchProductRequest(null, 99.0, null, null, null);
+
+            when(mockValidator.validate(request)).thenReturn(Set.of());
+            when(productRepository.patchProductFields(eq(1L), anyMap(), eq(0L))).thenReturn(Optional.empty());
+            when(productRepository.existsById(1L)).thenReturn(true);
+
+            assertThrows(OptimisticLockingFailureException.class,
+                    () -> productService.patchProduct(1L, request, 0L));
+        }
+
+        @Test
+        @DisplayName("TC25: Patch product không tồn tại - NoSuchElementException")
+        void testPatchProduct_NotFound() {
+            PatchProductRequest request = new PatchProductRequest(null, 99.0, null, null, null);
+
+            when(mockValidator.validate(request)).thenReturn(Set.of());
+            when(productRepository.patchProductFields(eq(999L), anyMap(), isNull())).thenReturn(Optional.empty());
+            when(productRepository.existsById(999L)).thenReturn(false);
+
+            NoSuchElementException exception = assertThrows(NoSuchElementException.class,
+                    () -> productService.patchProduct(999L, request, null));
+            assertTrue(exception.getMessage().contains("Product not found with id: 999"));
+        }
+
+        @Test
+        @DisplayName("TC33: Xóa thành công thì evict response đã cache, xóa thất bại giữ nguyên cache")
+        void testDeleteProduct_EvictsResponseCache() {
+            ProductDto cached = new ProductDto(1L, "Books", 120000.0, "Clean Code", "Robert C. Martin", 5);
+            cached.setVersion(2L);
+            ProductDto other = new ProductDto(999L, "Books", 90000.0, "Refactoring", "Martin Fowler", 3);
+            other.setVersion(1L);
+            responseCache.put(cached);
+            responseCache.put(other);
+            when(productRepository.deleteProductById(1L)).thenReturn(1);
+            when(productRepository.deleteProductById(999L)).thenReturn(0);
+
+            productService.deleteProduct(1L);
+            assertThrows(NoSuchElementException.class, () -> productService.deleteProduct(999L));
+
+            assertNull(responseCache.get(1L, 2L));
+            assertNotNull(responseCache.get(999L, 1L));
+        }
+
+        @Test
+        @DisplayName("TC26: Patch không có field nào - IllegalArgumentException")
+        void testPatchProduct_NoChanges() {
+            PatchProductRequest request = new PatchProductRequest();
+
+            when(mockValidator.validate(request)).thenReturn(Set.of());
+
+            assertThrows(IllegalArgumentException.class, () -> productService.patchProduct(1L, request, null));
+            verifyNoInteractions(productRepository);
+        }
+
+        @Test
+        @DisplayName("TC31: Patch đổi tên - tên cũ được giải phóng, tạo lại tên cũ không cần kiểm tra trùng với DB")
+        void testPatchProduct_Rename_ForgetsOldName() {
+            CreateProductRequest create = new CreateProductRequest("Laptop", 15000.0, "Gaming laptop", 10, "Electronics");
+            PatchProductRequest request = new PatchProductRequest("Notebook", null, null, null, null);
+            ProductDto patched = new ProductDto(1L, "Electronics", 15000.0, "Notebook", "Gaming laptop", 10);
+
+            when(mockValidator.validate(any())).thenReturn(Set.of());
+            when(productRepository.save(any(Product.class)))
+                    .thenReturn(new Product(1L, "Electronics", "Gaming laptop", 10, "Laptop", 15000.0))
+                    .thenReturn(new Product(2L, "Electronics", "Gaming laptop", 10, "Laptop", 15000.0));
+            when(productRepository.patchProductFields(eq(1L), anyMap(), isNull()))
+                    .thenReturn(Optional.of(new PatchedProduct("Laptop", patched)));
+
+            productService.createProduct(create);
+            assertEquals("Notebook", productService.patchProduct(1L, request, null).getProductName());
+            productService.createProduct(create);
+
+            verify(productRepository, never()).existsByProductName("Laptop");
+            verify(productRepository).patchProductFields(1L, Map.of("productName", "Notebook"), null);
+        }
+    }
+
     // ========================================================================================
     // D) TEST DELETE
     // ========================================================================================
@@ -286,20 +486,20 @@ public class ProductServiceTest {
         @Test
         @DisplayName("TC20: Xóa sản phẩm thành công")
         void testDeleteProduct_Success() {
-            Product product = new Product(1L, "Electronics", "Gaming laptop", 10, "Laptop", 15000.0);
-            when(productRepository.findById(1L)).thenReturn(Optional.of(product));
-            doNothing().when(productRepository).deleteById(1L);
+            when(productRepository.deleteProductById(1L)).thenReturn(1);
 
             productService.deleteProduct(1L);
 
-            verify(productRepository, times(1)).findById(1L);
-            verify(productRepository, times(1)).deleteById(1L);
+            // Một câu DELETE duy nhất, không load entity trước
+            verify(productRepository, times(1)).deleteProductById(1L);
+            verify(productRepository, never()).findById(anyLong());
+            verify(productRepository, never()).deleteById(anyLong());
         }
 
         @Test
         @DisplayName("TC21: Xóa sản phẩm thất bại - ID không tồn tại")
         void testDeleteProduct_NotFound() {
-            when(productRepository.findById(999L)).thenReturn(Optional.empty());
+            when(productRepository.deleteProductById(999L)).thenReturn(0);
 
             NoSuchElementException exception = assertThrows(
                     NoSuchElementException.class,
@@ -308,6 +508,37 @@ public class ProductServiceTest {
 
             assertTrue(exception.getMessage().contains("Product not found with id: 999"));
         }
+
+        @Test
+        @DisplayName("TC27: Xóa hàng loạt theo ids - chia thành các chunk")
+        void testDeleteProducts_ByIdsInChunks() {
+            List<Long> ids = new ArrayList<>();
+            for (long i = 1; i <= 1200; i++) {
+                ids.add(i);
+            }
+            BulkDeleteProductsRequest request = new BulkDeleteProductsRequest(ids, null, null);
+
+            when(mockValidator.validate(request)).thenReturn(Set.of());
+            when(productRepository.deleteProductsByIdIn(anyCollection()))
+                    .thenAnswer(invocation -> ((Collection<?>) invocation.getArgument(0)).size());
+
+            BulkDeleteProductsResponse result = productService.deleteProducts(request);
+
+            assertEquals(1200, result.getDeletedCount());
+            assertEquals(3, result.getChunks());
+            verify(productRepository, times(3)).deleteProductsByIdIn(anyCollection());
+        }
+
+        @Test
+        @DisplayName("TC28: Xóa hàng loạt không có ids và filter - bị từ chối")
+        void testDeleteProducts_EmptyFilterRejected() {
+            BulkDeleteProductsRequest request = new BulkDeleteProductsRequest();
+
+            when(mockValidator.validate(request)).thenReturn(Set.of());
+
+            assertThrows(IllegalArgumentException.class, () -> productService.deleteProducts(request));
+            verifyNoInteractions(productRepository);
+        }
     }
 
     // ========================================================================================
@@ -318,19 +549,20 @@ public class ProductServiceTest {
         @DisplayName("TC22: Lấy danh sách sản phẩm với pagination")
         void testGetAll_Success() {
             Pageable pageable = PageRequest.of(0, 10);
-            List<Product> products = Arrays.asList(
-                    new Product(1L, "Electronics", "Product 1", 10, "Laptop", 15000.0),
-                    new Product(2L, "Books", "Product 2", 20, "Book", 50.0)
+            List<ProductDto> products = Arrays.asList(
+                    new ProductDto(1L, "Electronics", 15000.0, "Laptop", "Product 1", 10),
+                    new ProductDto(2L, "Books", 50.0, "Book", "Product 2", 20)
             );
-            Page<Product> productPage = new PageImpl<>(products, pageable, products.size());
+            Page<ProductDto> productPage = new PageImpl<>(products, pageable, products.size());
 
-            when(productRepository.findAll(pageable)).thenReturn(productPage);
+            when(productRepository.findAllProductDtos(pageable)).thenReturn(productPage);
 
             Page<ProductDto> result = productService.getAll(pageable);
 
             assertNotNull(result);
             assertEquals(2, result.getContent().size());
             assertEquals(0, result.getNumber());
+            verify(productRepository, never()).findAll(any(Pageable.class));
         }
 
 
@@ -0,0 +1,88 @@
+package com.flogin;
+
+import com.flogin.controller.ReactiveProductController;
+import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.service.ReactiveProductService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.NoSuchElementException;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * ReactiveProductControllerTest - Test API đọc products dạng reactive (/api/products/reactive)
+ * Response được xử lý bất đồng bộ nên cần asyncDispatch trước khi kiểm tra body
+ */
+@WebMvcTest(value = ReactiveProductController.class,
+    properties = "flogin.reactive.enabled=true",
+    excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
+        classes = {com.flogin.service.SecurityConfig.class, com.flogin.filter.JwtAuthenticationFilter.class}))
+@AutoConfigureMockMvc(addFilters = false)
+@DisplayName("Reactive Product API Tests")
+public class ReactiveProductControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ReactiveProductService reactiveProductService;
+
+    @Test
+    @DisplayName("1. Stream danh sách products dạng NDJSON - mỗi dòng một product")
+    void testGetAllProducts_Ndjson() throws Exception {
+        // Arrange
+        when(reactiveProductService.getAll(PageRequest.of(0, 2))).thenReturn(Flux.just(
+            new ProductDto(1L, "Electronics", 15000000.0, "Laptop", "Gaming laptop", 10),
+            new ProductDto(2L, "Electronics", 200000.0, "Mouse", "Wireless mouse", 50)
+        ));
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/products/reactive")
+                .param("size", "2")
+                .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                    "{\"id\":1,\"price\":1.5E7,\"productName\":\"Laptop\",\"quantity\":10,\"description\":\"Gaming laptop\",\"category\":\"Electronics\"}\n"
+                    + "{\"id\":2,\"price\":200000.0,\"productName\":\"Mouse\",\"quantity\":50,\"description\":\"Wireless mouse\",\"category\":\"Electronics\"}\n"));
+    }
+
+    @Test
+    @DisplayName("2. Lấy product theo ID không tồn tại - 404 Not Found")
+    void testGetProductById_NotFound() throws Exception {
+        // Arrange
+        when(reactiveProductService.getProductById(999L))
+            .thenReturn(Mono.error(new NoSuchElementException("Product not found with id: 999")));
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/products/reactive/999"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.errors.id").value("Product not found with id: 999"));
+    }
+}
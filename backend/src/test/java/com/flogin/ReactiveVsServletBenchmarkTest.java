@@ -0,0 +1,264 @@
+package com.flogin;
+
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import com.flogin.repository.interfaces.ProductRepository;
+import com.flogin.repository.interfaces.UserRepository;
+import com.flogin.service.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reactive / Servlet Benchmark - So sánh GET /api/products/reactive (NDJSON) với GET /api/products
+ * khi có nhiều client đồng thời gọi qua HTTP thật (server chạy trên port ngẫu nhiên)
+ * - Số liệu: latency p50 / p99 / max, số thread platform cao nhất của JVM,
+ *   số thread Tomcat (http-nio-*-exec) và task executor (task-*) đang bận cao nhất
+ * - Client chạy trên virtual thread nên không làm tăng số thread platform đo được
+ * - Bulkhead, adaptive concurrency limit, fair scheduler và deadline bị tắt để đo riêng hai cách xử lý request
+ * Chỉ assert mọi response là 200, số liệu chỉ in ra (phụ thuộc máy chạy).
+ * Chạy riêng: mvn test -Dtest=ReactiveVsServletBenchmarkTest -Dflogin.benchmark=true
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EnabledIfSystemProperty(named = "flogin.benchmark", matches = "true")
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:benchmarkdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "flogin.reactive.r2dbc.url=r2dbc:h2:mem:///benchmarkdb?options=DB_CLOSE_DELAY=-1",
+        "flogin.reactive.enabled=true",
+        "flogin.bulkhead.enabled=false",
+        "flogin.concurrency-limit.enabled=false",
+        "flogin.fair-scheduler.enabled=false",
+        "flogin.deadline.enabled=false",
+        "server.tomcat.accept-count=2000",
+        "spring.jpa.show-sql=false"
+})
+@DisplayName("Reactive / Servlet Benchmark - thread và latency khi có nhiều client đồng thời")
+public class ReactiveVsServletBenchmarkTest {
+
+    private static final int PRODUCTS = 500;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JwtService jwtService;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+        User admin = new User();
+        admin.setUserName("admin");
+        admin.setEmail("admin@example.com");
+        admin.setHashPassword(passwordEncoder.encode("admin123"));
+        token = jwtService.generateToken(userRepository.save(admin));
+
+        Category[] categories = Category.values();
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 1; i <= PRODUCTS; i++) {
+            products.add(new Product(0, categories[i % categories.length],
+                    "Mô tả chi tiết cho sản phẩm " + i + ", bảo hành 12 tháng", i, "Sản phẩm số " + i, 1000.0 * i));
+        }
+        productRepository.saveAll(products);
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("TC1: 1000 client đồng thời, trang 20 products, client đọc response ngay")
+    void testManyConcurrentClients() throws Exception {
+        compare(1000, 20, 0);
+    }
+
+    @Test
+    @DisplayName("TC2: 300 client đọc chậm (chờ 2s mới đọc), trang 500 products")
+    void testSlowReadingClients() throws Exception {
+        compare(300, PRODUCTS, 2000);
+    }
+
+    private void compare(int clients, int size, long readDelayMs) throws Exception {
+        String servletPath = "/api/products?page=0&size=" + size;
+        String reactivePath = "/api/products/reactive?page=0&size=" + size;
+        // Warm-up: JIT, pool connection và thread pool của Tomcat đã sẵn sàng trước khi đo
+        run(servletPath, "application/json", 200, size, 0);
+        run(reactivePath, "application/x-ndjson", 200, size, 0);
+
+        Result servlet = run(servletPath, "application/json", clients, size, readDelayMs);
+        Result reactive = run(reactivePath, "application/x-ndjson", clients, size, readDelayMs);
+
+        System.out.printf("%d client, size=%d, đọc chậm %dms%n", clients, size, readDelayMs);
+        System.out.println("  servlet : " + servlet);
+        System.out.println("  reactive: " + reactive);
+        assertEquals(Map.of(), servlet.errors, "servlet: " + servlet);
+        assertEquals(Map.of(), reactive.errors, "reactive: " + reactive);
+    }
+
+    private Result run(String path, String accept, int clients, int size, long readDelayMs) throws Exception {
+        byte[] request = ("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nAuthorization: Bearer " + token
+                + "\r\nAccept: " + accept + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        long[] latencies = new long[clients];
+        Map<String, Integer> errors = new ConcurrentSkipListMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ThreadSampler sampler = new ThreadSampler();
+
+        long began;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                int index = i;
+                executor.submit(() -> {
+                    try (Socket socket = new Socket()) {
+                        // Buffer nhận nhỏ: client đọc chậm làm server bị chặn khi ghi response
+                        socket.setReceiveBufferSize(4096);
+                        start.await();
+                        long sent = System.nanoTime();
+                        socket.connect(new InetSocketAddress("localhost", port));
+                        OutputStream out = socket.getOutputStream();
+                        out.write(request);
+                        out.flush();
+                        if (readDelayMs > 0) {
+                            Thread.sleep(readDelayMs);
+                        }
+                        byte[] response = socket.getInputStream().readAllBytes();
+                        latencies[index] = System.nanoTime() - sent;
+                        String status = new String(response, 0, Math.min(12, response.length), StandardCharsets.US_ASCII);
+                        if (!status.equals("HTTP/1.1 200")) {
+                            errors.merge(status, 1, Integer::sum);
+                        } else if (count(response, "productName") != size) {
+                            errors.merge("thiếu product", 1, Integer::sum);
+                        }
+                    } catch (Exception e) {
+                        errors.merge(e.getClass().getSimpleName(), 1, Integer::sum);
+                    }
+                    return null;
+                });
+            }
+            sampler.start();
+            began = System.nanoTime();
+            start.countDown();
+        }
+        long elapsed = System.nanoTime() - began;
+        sampler.stop();
+        return new Result(latencies, errors, elapsed, sampler);
+    }
+
+    private static int count(byte[] body, String token) {
+        String text = new String(body, StandardCharsets.UTF_8);
+        int count = 0;
+        for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + token.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Lấy mẫu thread của JVM mỗi 10ms: số thread platform cao nhất (ThreadMXBean peak)
+     * và số thread Tomcat / task executor đang bận (không đứng chờ task trong getTask)
+     */
+    private static class ThreadSampler implements Runnable {
+
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        private volatile boolean running = true;
+        private Thread thread;
+        private int peakTomcatBusy;
+        private int peakTaskBusy;
+        private int peakPlatform;
+
+        void start() {
+            threads.resetPeakThreadCount();
+            thread = Thread.ofPlatform().daemon().name("benchmark-sampler").start(this);
+        }
+
+        void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+            peakPlatform = threads.getPeakThreadCount();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                int tomcatBusy = 0;
+                int taskBusy = 0;
+                for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds(), 32)) {
+                    if (info == null || isIdle(info)) {
+                        continue;
+                    }
+                    if (info.getThreadName().contains("-exec-")) {
+                        tomcatBusy++;
+                    } else if (info.getThreadName().startsWith("task-")) {
+                        taskBusy++;
+                    }
+                }
+                peakTomcatBusy = Math.max(peakTomcatBusy, tomcatBusy);
+                peakTaskBusy = Math.max(peakTaskBusy, taskBusy);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        private static boolean isIdle(ThreadInfo info) {
+            return Arrays.stream(info.getStackTrace()).anyMatch(frame -> frame.getMethodName().equals("getTask"));
+        }
+    }
+
+    private record Result(long[] latencies, Map<String, Integer> errors, long elapsedNanos, ThreadSampler sampler) {
+
+        @Override
+        public String toString() {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            return String.format("p50 %d ms, p99 %d ms, max %d ms, tổng %d ms, lỗi %s"
+                            + " | thread platform cao nhất %d, Tomcat bận cao nhất %d, task executor bận cao nhất %d",
+                    millis(sorted, 0.50), millis(sorted, 0.99), sorted[sorted.length - 1] / 1_000_000,
+                    elapsedNanos / 1_000_000, errors, sampler.peakPlatform, sampler.peakTomcatBusy, sampler.peakTaskBusy);
+        }
+
+        private static long millis(long[] sorted, double percentile) {
+            return sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.flogin;
+
+import com.flogin.jdbc.ReadWriteRoutingDataSource;
+import com.flogin.jdbc.SimulatedReplication;
+import com.flogin.service.ReadConsistency;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ReadWriteRoutingDataSource Unit Test (primary + 2 replica H2 in-memory, replication giả lập trễ 1s)
+ * Test transaction ghi đi primary, transaction đọc đi replica, consistency token pin đọc vào primary
+ * cho tới khi replica theo kịp
+ */
+@DisplayName("ReadWriteRoutingDataSource Unit Test")
+public class ReadWriteRoutingDataSourceTest {
+
+    private static final long LAG_MS = 1_000;
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private SimulatedReplication replication;
+    private ReadWriteRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate writeTx;
+    private TransactionTemplate readTx;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        int id = DATABASES.incrementAndGet();
+        DataSource primary = h2("routing_primary_" + id);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", h2("routing_replica1_" + id));
+        replicas.put("replica-2", h2("routing_replica2_" + id));
+        new JdbcTemplate(primary).execute(
+                "CREATE TABLE products (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, product_name VARCHAR(255) UNIQUE)");
+
+        routing = new ReadWriteRoutingDataSource(primary, replicas, true, 0);
+        replication = new SimulatedReplication(primary, replicas, routing, LAG_MS, 50);
+        replication.start();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        writeTx = new TransactionTemplate(transactionManager);
+        readTx = new TransactionTemplate(transactionManager);
+        readTx.setReadOnly(true);
+
+        // Chờ snapshot đầu tiên (đã có bảng products) được áp lên cả hai replica
+        awaitTrue(() -> (long) replicaStats("replica-1").get("position") > 0
+                && (long) replicaStats("replica-2").get("position") > 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadConsistency.clear();
+        replication.close();
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> replicaStats(String name) {
+        return (Map<String, Object>) ((Map<String, Object>) routing.getStats().get("replicas")).get(name);
+    }
+
+    private long stat(String name) {
+        return (long) routing.getStats().get(name);
+    }
+
+    private long replicaReads() {
+        return (long) replicaStats("replica-1").get("reads") + (long) replicaStats("replica-2").get("reads");
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Hết thời gian chờ replication");
+            Thread.sleep(20);
+        }
+    }
+
+    private void insert(String productName) {
+        writeTx.executeWithoutResult(status ->
+                jdbcTemplate.update("INSERT INTO products (product_name) VALUES (?)", productName));
+    }
+
+    private int countReadOnly(String productName) {
+        return readTx.execute(status -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE product_name = ?", Integer.class, productName));
+    }
+
+    @Test
+    @DisplayName("TC1: Không có token - đọc ngay sau khi ghi đi replica và chưa thấy dữ liệu mới")
+    void testReadWithoutToken_StaleFromReplica() {
+        insert("Laptop");
+        long replicaReadsBefore = replicaReads();
+
+        assertEquals(0, countReadOnly("Laptop"));
+        assertEquals(replicaReadsBefore + 1, replicaReads());
+        assertEquals(1L, stat("commitsRecorded"));
+    }
+
+    @Test
+    @DisplayName("TC2: Có token - đọc ngay sau khi ghi đi primary và thấy dữ liệu vừa ghi")
+    void testReadWithToken_PinnedToPrimary() {
+        AtomicLong token = new AtomicLong();
+        ReadConsistency.begin(0, false, token::set);
+        insert("Laptop");
+        ReadConsistency.clear();
+        assertTrue(token.get() > 0);
+
+        ReadConsistency.begin(token.get(), false, position -> { });
+        long replicaReadsBefore = replicaReads();
+        assertEquals(1, countReadOnly("Laptop"));
+        assertEquals(replicaReadsBefore, replicaReads());
+        assertEquals(1L, stat("primaryReadsPinned"));
+    }
+
+    @Test
+    @DisplayName("TC3: Có token - replica theo kịp sau độ trễ replication thì đọc lại từ replica")
+    void testReadWithToken_ReplicaAfterCatchUp() throws Exception {
+        AtomicLong token = new AtomicLong();
+        ReadConsistency.begin(0, false, token::set);
+        insert("Laptop");
+        ReadConsistency.clear();
+
+        awaitTrue(() -> (long) replicaStats("replica-1").get("position") >= token.get()
+                && (long) replicaStats("replica-2").get("position") >= token.get());
+
+        ReadConsistency.begin(token.get(), false, position -> { });
+        long replicaReadsBefore = replicaReads();
+        assertEquals(1, countReadOnly("Laptop"));
+        assertEquals(1, countReadOnly("Laptop"));
+        assertEquals(replicaReadsBefore + 2, replicaReads());
+        assertEquals(0L, stat("primaryReadsPinned"));
+    }
+
+    @Test
+    @DisplayName("TC4: Request ghi (primaryOnly) - transaction đọc cũng đi primary")
+    void testPrimaryOnly_ReadsFromPrimary() {
+        insert("Laptop");
+
+        ReadConsistency.begin(0, true, position -> { });
+        long replicaReadsBefore = replicaReads();
+        assertEquals(1, countReadOnly("Laptop"));
+        assertEquals(replicaReadsBefore, replicaReads());
+    }
+}
@@ -0,0 +1,266 @@
+package com.flogin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flogin.jdbc.SqlStatementStats;
+import com.flogin.jdbc.StatementStatsDataSource;
+import com.flogin.service.RequestTrace;
+import com.flogin.service.TraceFileExporter;
+import com.flogin.service.TracingConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RequestTrace / TraceFileExporter Unit Test (file export trong thư mục tạm, SQL trên H2 in-memory)
+ * Test cây span theo tầng và phase, lấy mẫu theo traceparent, span từ thread phụ, giới hạn span,
+ * định dạng OTLP/JSON của file export và cuộn file
+ */
+@DisplayName("RequestTrace / TraceFileExporter Unit Test")
+public class RequestTraceTest {
+
+    private static final String TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Path directory;
+    private TraceFileExporter exporter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("flogin-traces");
+        exporter = new TraceFileExporter(directory.resolve("traces.jsonl"), 1024 * 1024, 3, 100, "flogin-test");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        exporter.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Đóng exporter (ghi hết hàng đợi) và đọc các trace trong file đang ghi
+     */
+    private List<JsonNode> exportedTraces() throws IOException {
+        exporter.close();
+        List<JsonNode> traces = new ArrayList<>();
+        for (String line : Files.readAllLines(directory.resolve("traces.jsonl"))) {
+            traces.add(objectMapper.readTree(line));
+        }
+        return traces;
+    }
+
+    private static JsonNode spansOf(JsonNode trace) {
+        return trace.get("resourceSpans").get(0).get("scopeSpans").get(0).get("spans");
+    }
+
+    private static Map<String, JsonNode> byName(JsonNode spans) {
+        Map<String, JsonNode> byName = new HashMap<>();
+        spans.forEach(span -> byName.put(span.get("name").asText(), span));
+        return byName;
+    }
+
+    private static String attribute(JsonNode span, String key) {
+        for (JsonNode attribute : span.get("attributes")) {
+            if (attribute.get("key").asText().equals(key)) {
+                JsonNode value = attribute.get("value");
+                return value.elements().next().asText();
+            }
+        }
+        return null;
+    }
+
+    private static void assertChildOf(JsonNode parent, JsonNode child) {
+        assertEquals(parent.get("spanId").asText(), child.get("parentSpanId").asText(),
+                child.get("name").asText() + " phải là con của " + parent.get("name").asText());
+        assertTrue(child.get("startTimeUnixNano").asLong() >= parent.get("startTimeUnixNano").asLong());
+        assertTrue(child.get("endTimeUnixNano").asLong() <= parent.get("endTimeUnixNano").asLong());
+    }
+
+    @Test
+    @DisplayName("TC1: Cây span filter / phase / controller / service / SQL, export OTLP/JSON")
+    void testSpanTree_ExportedAsOtlpJson() throws Exception {
+        StatementStatsDataSource dataSource = new StatementStatsDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:request_trace_test;DB_CLOSE_DELAY=-1", "sa", ""),
+                new SqlStatementStats(10_000, 0, 500, 100));
+        dataSource.getStats().addListener(TracingConfig::sqlSpan);
+
+        RequestTrace trace = RequestTrace.sample("PUT /api/products/1", null, 1.0, 100);
+        assertNotNull(trace);
+        RequestTrace.start("JwtAuthenticationFilter", RequestTrace.Kind.INTERNAL).end();
+        RequestTrace.phase("read request body");
+        RequestTrace.phase("validate request body");
+        RequestTrace.Span controller = RequestTrace.start("ProductController.updateProduct", RequestTrace.Kind.INTERNAL);
+        RequestTrace.Span service = RequestTrace.start("ProductService.updateProduct", RequestTrace.Kind.INTERNAL);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("SELECT 42");
+        }
+        service.error(new IllegalArgumentException("Product name đã tồn tại")).end();
+        controller.end();
+        RequestTrace.phase("write response body");
+        trace.getRoot().rename("PUT /api/products/{id}");
+        trace.finish();
+        assertNull(RequestTrace.current());
+        assertTrue(exporter.export(trace));
+        dataSource.close();
+
+        List<JsonNode> traces = exportedTraces();
+        assertEquals(1, traces.size());
+        JsonNode resource = traces.get(0).get("resourceSpans").get(0).get("resource");
+        assertEquals("flogin-test", attribute(resource, "service.name"));
+        Map<String, JsonNode> spans = byName(spansOf(traces.get(0)));
+        assertEquals(8, spans.size(), "spans: " + spans.keySet());
+
+        JsonNode root = spans.get("PUT /api/products/{id}");
+        assertEquals(trace.getTraceId(), root.get("traceId").asText());
+        assertEquals(32, trace.getTraceId().length());
+        assertEquals(2, root.get("kind").asInt());
+        assertNull(root.get("parentSpanId"));
+        for (String name : List.of("JwtAuthenticationFilter", "read request body", "validate request body",
+                "ProductController.updateProduct", "write response body")) {
+            assertChildOf(root, spans.get(name));
+        }
+        // Phase kết thúc khi bước kế tiếp bắt đầu
+        assertTrue(spans.get("validate request body").get("endTimeUnixNano").asLong()
+                <= spans.get("ProductController.updateProduct").get("startTimeUnixNano").asLong());
+        assertChildOf(spans.get("ProductController.updateProduct"), spans.get("ProductService.updateProduct"));
+
+        JsonNode sql = spans.get("SELECT");
+        assertChildOf(spans.get("ProductService.updateProduct"), sql);
+        assertEquals(3, sql.get("kind").asInt());
+        assertEquals("SELECT ?", attribute(sql, "db.query.text"));
+
+        JsonNode failed = spans.get("ProductService.updateProduct").get("status");
+        assertEquals(2, failed.get("code").asInt());
+        assertEquals("Product name đã tồn tại", failed.get("message").asText());
+        assertFalse(root.get("status").has("code"));
+    }
+
+    @Test
+    @DisplayName("TC2: Lấy mẫu - không lấy mẫu thì span là NOOP; traceparent có cờ sampled dùng tiếp trace id của client")
+    void testSampling_Traceparent() throws Exception {
+        assertNull(RequestTrace.sample("GET /api/products", null, 0.0, 100));
+        assertNull(RequestTrace.sample("GET /api/products", TRACEPARENT.replace("-01", "-00"), 0.0, 100));
+        assertNull(RequestTrace.sample("GET /api/products", "00-xyz-abc-01", 0.0, 100));
+        assertSame(RequestTrace.Span.NOOP, RequestTrace.start("ProductService.getAll", RequestTrace.Kind.INTERNAL));
+        RequestTrace.phase("read request body");
+        assertNull(RequestTrace.current());
+
+        RequestTrace trace = RequestTrace.sample("GET /api/products", TRACEPARENT, 0.0, 100);
+        assertNotNull(trace);
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", trace.getTraceId());
+        trace.finish();
+        exporter.export(trace);
+
+        JsonNode root = spansOf(exportedTraces().get(0)).get(0);
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", root.get("traceId").asText());
+        assertEquals("00f067aa0ba902b7", root.get("parentSpanId").asText());
+    }
+
+    @Test
+    @DisplayName("TC3: Span trên thread phụ nằm dưới span của thread request, span kết thúc sau finish bị bỏ, span con chưa end kết thúc cùng span cha")
+    void testWorkerThread_AttachAndLateSpan() throws Exception {
+        RequestTrace trace = RequestTrace.sample("GET /api/products", null, 1.0, 100);
+        RequestTrace.Span repository = RequestTrace.start("ProductRepository.findAll", RequestTrace.Kind.INTERNAL);
+        RequestTrace.Span parent = RequestTrace.current();
+
+        Thread worker = new Thread(() -> {
+            boolean attached = RequestTrace.attach(parent);
+            try {
+                RequestTrace.start("ProductRepository.findAll (shard 1)", RequestTrace.Kind.INTERNAL).end();
+            } finally {
+                RequestTrace.detach(attached);
+            }
+            assertNull(RequestTrace.current());
+        });
+        worker.start();
+        worker.join();
+
+        // Lần đọc chậm (vd: hedged read bị hủy) kết thúc sau khi request đã xong
+        RequestTrace.Span[] late = new RequestTrace.Span[1];
+        Thread loser = new Thread(() -> {
+            boolean attached = RequestTrace.attach(parent);
+            late[0] = RequestTrace.start("SELECT", RequestTrace.Kind.CLIENT);
+            RequestTrace.detach(attached);
+        });
+        loser.start();
+        loser.join();
+        // Span con quên end(): kết thúc cùng span cha, span hiện tại trở về root
+        RequestTrace.start("ProductRepository.count", RequestTrace.Kind.INTERNAL);
+        repository.end();
+        assertSame(trace.getRoot(), RequestTrace.current());
+        trace.finish();
+        late[0].end();
+        exporter.export(trace);
+
+        Map<String, JsonNode> spans = byName(spansOf(exportedTraces().get(0)));
+        assertEquals(4, spans.size(), "spans: " + spans.keySet());
+        assertChildOf(spans.get("ProductRepository.findAll"), spans.get("ProductRepository.findAll (shard 1)"));
+        assertChildOf(spans.get("ProductRepository.findAll"), spans.get("ProductRepository.count"));
+    }
+
+    @Test
+    @DisplayName("TC4: Vượt max span - span thừa bị bỏ, số span bỏ ghi trên root span")
+    void testMaxSpans_DroppedCountOnRoot() throws Exception {
+        RequestTrace trace = RequestTrace.sample("POST /api/products/batch", null, 1.0, 5);
+        for (int i = 0; i < 12; i++) {
+            RequestTrace.start("SELECT", RequestTrace.Kind.CLIENT).end();
+        }
+        trace.finish();
+        exporter.export(trace);
+
+        JsonNode spans = spansOf(exportedTraces().get(0));
+        assertEquals(6, spans.size());
+        JsonNode root = spans.get(spans.size() - 1);
+        assertEquals("POST /api/products/batch", root.get("name").asText());
+        assertEquals("7", attribute(root, "flogin.trace.dropped_spans"));
+    }
+
+    @Test
+    @DisplayName("TC5: File vượt kích thước thì cuộn, chỉ giữ max-files file, mỗi dòng là một trace hoàn chỉnh")
+    void testRollingFiles() throws Exception {
+        exporter.close();
+        exporter = new TraceFileExporter(directory.resolve("traces.jsonl"), 2_000, 3, 1000, "flogin-test");
+        for (int i = 0; i < 40; i++) {
+            RequestTrace trace = RequestTrace.sample("GET /api/products/" + i, null, 1.0, 100);
+            RequestTrace.start("ProductService.getProductById", RequestTrace.Kind.INTERNAL).end();
+            trace.finish();
+            assertTrue(exporter.export(trace));
+        }
+        exporter.close();
+
+        assertTrue(Files.exists(directory.resolve("traces.jsonl.1")));
+        assertTrue(Files.exists(directory.resolve("traces.jsonl.2")));
+        assertFalse(Files.exists(directory.resolve("traces.jsonl.3")));
+        for (String name : List.of("traces.jsonl", "traces.jsonl.1", "traces.jsonl.2")) {
+            Path file = directory.resolve(name);
+            assertTrue(Files.size(file) <= 2_000, name + ": " + Files.size(file));
+            for (String line : Files.readAllLines(file)) {
+                assertEquals(2, spansOf(objectMapper.readTree(line)).size());
+            }
+        }
+        assertTrue((Long) exporter.getStats().get("rolled") >= 2);
+        assertEquals(40L, exporter.getStats().get("exported"));
+    }
+}
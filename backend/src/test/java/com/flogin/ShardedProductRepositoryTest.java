@@ -0,0 +1,352 @@
+package com.flogin;
+
+import com.flogin.dto.ProductDtos.ProductDto;
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.jdbc.ShardRoutingDataSource;
+import com.flogin.repository.interfaces.ProductRepository;
+import com.flogin.repository.sharded.KWayMerge;
+import com.flogin.repository.sharded.ShardedProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ShardedProductRepository Unit Test (3 shard H2 in-memory)
+ * ProductRepository gốc được thay bằng bản JDBC tối giản chạy trên ShardRoutingDataSource,
+ * nên mỗi câu SQL thực sự đi tới shard do ShardedProductRepository chọn
+ * Test id toàn cục, route theo id, scatter-gather phân trang (k-way merge) và thao tác theo danh sách id
+ */
+@DisplayName("ShardedProductRepository Unit Test")
+public class ShardedProductRepositoryTest {
+
+    private static final int SHARDS = 3;
+    private static final int PRODUCTS = 30;
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private static final String SELECT_DTO =
+            "SELECT id, category, price, product_name, description, quantity, version FROM products";
+
+    private final List<DataSource> shards = new ArrayList<>();
+    private ShardRoutingDataSource routing;
+    private ShardedProductRepository sharded;
+    private ProductRepository repository;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        int run = DATABASES.incrementAndGet();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            DataSource dataSource = new DriverManagerDataSource(
+                    "jdbc:h2:mem:shard_" + run + "_" + shard + ";DB_CLOSE_DELAY=-1", "sa", "");
+            new JdbcTemplate(dataSource).execute("CREATE TABLE products (id BIGINT GENERATED BY DEFAULT AS IDENTITY "
+                    + "PRIMARY KEY, category VARCHAR(20), price DOUBLE, product_name VARCHAR(100) UNIQUE, "
+                    + "description VARCHAR(255), quantity INT, version BIGINT DEFAULT 0)");
+            shards.add(dataSource);
+        }
+        routing = new ShardRoutingDataSource(shards);
+        routing.prepareIdentity("products", "id");
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        sharded = new ShardedProductRepository(jdbcRepository(dataSource), routing,
+                new DataSourceTransactionManager(dataSource));
+        repository = sharded.asRepository();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sharded.close();
+    }
+
+    /**
+     * ProductRepository tối giản bằng JdbcTemplate (chỉ các method test dùng)
+     */
+    @SuppressWarnings("unchecked")
+    private static ProductRepository jdbcRepository(DataSource dataSource) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbc);
+        return (ProductRepository) Proxy.newProxyInstance(ProductRepository.class.getClassLoader(),
+                new Class<?>[]{ProductRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        Product product = (Product) args[0];
+                        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+                        jdbc.update(connection -> {
+                            PreparedStatement statement = connection.prepareStatement("INSERT INTO products "
+                                    + "(category, price, product_name, quantity) VALUES (?, ?, ?, ?)",
+                                    Statement.RETURN_GENERATED_KEYS);
+                            statement.setString(1, product.getCategory().name());
+                            statement.setDouble(2, product.getPrice());
+                            statement.setString(3, product.getProductName());
+                            statement.setInt(4, product.getQuantity());
+                            return statement;
+                        }, keys);
+                        product.setId(keys.getKey().longValue());
+                        yield product;
+                    }
+                    case "findAllProductDtos" -> {
+                        Pageable pageable = (Pageable) args[0];
+                        List<ProductDto> content = jdbc.query(SELECT_DTO + " ORDER BY id LIMIT ? OFFSET ?",
+                                (rs, row) -> toDto(rs), pageable.getPageSize(), pageable.getOffset());
+                        yield new PageImpl<>(content, pageable, jdbc.queryForObject("SELECT COUNT(*) FROM products", Long.class));
+                    }
+                    case "findProductDtoById" -> jdbc.query(SELECT_DTO + " WHERE id = ?", (rs, row) -> toDto(rs), args[0])
+                            .stream().findFirst();
+                    case "findProductDtosByIdIn" -> named.query(SELECT_DTO + " WHERE id IN (:ids)",
+                            new MapSqlParameterSource("ids", args[0]), (rs, row) -> toDto(rs));
+                    case "deleteProductsByIdIn" -> named.update("DELETE FROM products WHERE id IN (:ids)",
+                            new MapSqlParameterSource("ids", (Collection<Long>) args[0]));
+                    case "existsByProductName" -> jdbc.queryForObject(
+                            "SELECT COUNT(*) FROM products WHERE product_name = ?", Long.class, args[0]) > 0;
+                    case "count" -> jdbc.queryForObject("SELECT COUNT(*) FROM products", Long.class);
+                    case "findAll" -> {
+                        if (args == null) {
+                            yield jdbc.query(SELECT_DTO + " ORDER BY id", (rs, row) -> toProduct(rs));
+                        }
+                        if (args[0] instanceof Sort sort) {
+                            yield jdbc.query(SELECT_DTO + orderBy(sort), (rs, row) -> toProduct(rs));
+                        }
+                        Pageable pageable = (Pageable) args[0];
+                        List<Product> content = jdbc.query(SELECT_DTO + orderBy(pageable.getSort()) + " LIMIT ? OFFSET ?",
+                                (rs, row) -> toProduct(rs), pageable.getPageSize(), pageable.getOffset());
+                        yield new PageImpl<>(content, pageable, jdbc.queryForObject("SELECT COUNT(*) FROM products", Long.class));
+                    }
+                    case "findAllById" -> named.query(SELECT_DTO + " WHERE id IN (:ids)",
+                            new MapSqlParameterSource("ids", args[0]), (rs, row) -> toProduct(rs));
+                    case "findById" -> jdbc.query(SELECT_DTO + " WHERE id = ?", (rs, row) -> toProduct(rs), args[0])
+                            .stream().findFirst();
+                    case "deleteAllById" -> named.update("DELETE FROM products WHERE id IN (:ids)",
+                            new MapSqlParameterSource("ids", args[0]));
+                    case "deleteAll" -> jdbc.update("DELETE FROM products");
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static String orderBy(Sort sort) {
+        return " ORDER BY " + sort.stream()
+                .map(order -> order.getProperty().replaceAll("([A-Z])", "_$1").toLowerCase() + " " + order.getDirection())
+                .collect(Collectors.joining(", "));
+    }
+
+    private static Product toProduct(ResultSet rs) throws SQLException {
+        return new Product(rs.getLong("id"), Category.valueOf(rs.getString("category")), rs.getString("description"),
+                rs.getInt("quantity"), rs.getString("product_name"), rs.getDouble("price"));
+    }
+
+    private static ProductDto toDto(ResultSet rs) throws SQLException {
+        return new ProductDto(rs.getLong("id"), Category.valueOf(rs.getString("category")), rs.getDouble("price"),
+                rs.getString("product_name"), rs.getString("description"), rs.getInt("quantity"), rs.getLong("version"));
+    }
+
+    private List<Long> createProducts() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product(0, Category.values()[i % Category.values().length], null, i,
+                    "Product " + i, 10 + i);
+            ids.add(repository.save(product).getId());
+        }
+        return ids;
+    }
+
+    private long rowsOnShard(int shard, long id) {
+        return new JdbcTemplate(shards.get(shard))
+                .queryForObject("SELECT COUNT(*) FROM products WHERE id = ?", Long.class, id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private long connectionsOnShard(int shard) {
+        return ((List<Long>) routing.getStats().get("connectionsPerShard")).get(shard);
+    }
+
+    @Test
+    @DisplayName("TC1: Insert - id không trùng giữa các shard và mã hóa đúng shard chứa dòng")
+    void testSave_GlobalIdEncodesShard() {
+        List<Long> ids = createProducts();
+
+        assertEquals(PRODUCTS, new HashSet<>(ids).size());
+        Set<Integer> usedShards = new HashSet<>();
+        for (long id : ids) {
+            int shard = routing.shardOf(id);
+            assertTrue(shard >= 0 && shard < SHARDS);
+            assertEquals(1L, rowsOnShard(shard, id), "Id " + id + " phải nằm trên shard " + shard);
+            usedShards.add(shard);
+        }
+        // Hash của tên phân bố products lên mọi shard
+        assertEquals(SHARDS, usedShards.size());
+        assertEquals((long) PRODUCTS, repository.count());
+    }
+
+    @Test
+    @DisplayName("TC2: Phân trang scatter-gather - các trang nối lại đúng thứ tự id, tổng số là tổng các shard")
+    void testFindAllProductDtos_KWayMergeAcrossShards() {
+        List<Long> ids = createProducts();
+        ids.sort(Comparator.naturalOrder());
+
+        List<Long> paged = new ArrayList<>();
+        for (int page = 0; page < 5; page++) {
+            Page<ProductDto> result = repository.findAllProductDtos(PageRequest.of(page, 7));
+            assertEquals(PRODUCTS, result.getTotalElements());
+            assertEquals(5, result.getTotalPages());
+            result.forEach(product -> paged.add(product.getId()));
+        }
+        assertEquals(ids, paged);
+    }
+
+    @Test
+    @DisplayName("TC3: Tìm theo id - chỉ query shard trong id, id thuộc slot chưa có shard trả về rỗng")
+    void testFindProductDtoById_RoutesToSingleShard() {
+        List<Long> ids = createProducts();
+        long id = ids.get(0);
+        int shard = routing.shardOf(id);
+        long[] before = new long[SHARDS];
+        for (int s = 0; s < SHARDS; s++) {
+            before[s] = connectionsOnShard(s);
+        }
+
+        Optional<ProductDto> product = repository.findProductDtoById(id);
+
+        assertTrue(product.isPresent());
+        assertEquals("Product 0", product.get().getProductName());
+        for (int s = 0; s < SHARDS; s++) {
+            assertEquals(before[s] + (s == shard ? 1 : 0), connectionsOnShard(s));
+        }
+        // Slot 5 không có shard (chỉ có 3 shard) -> không tồn tại, không query
+        assertTrue(repository.findProductDtoById(ShardRoutingDataSource.MAX_SHARDS + 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("TC4: Theo danh sách id / theo tên - nhóm id theo shard, kiểm tra tên trên mọi shard")
+    void testByIdsAndByName_AcrossShards() {
+        List<Long> ids = createProducts();
+        List<Long> chunk = ids.subList(0, 10);
+
+        assertEquals(10, repository.findProductDtosByIdIn(chunk).size());
+        assertTrue(repository.existsByProductName("Product 29"));
+        assertFalse(repository.existsByProductName("Product 30"));
+
+        assertEquals(10, repository.deleteProductsByIdIn(chunk));
+        assertTrue(repository.findProductDtosByIdIn(chunk).isEmpty());
+        assertEquals((long) PRODUCTS - 10, repository.count());
+    }
+
+    @Test
+    @DisplayName("TC6: Identity của shard sai sơ đồ - insert bị rollback, không để lại dòng có id trùng shard khác")
+    void testSave_WrongIdentityRolledBack() {
+        String name = "Product wrong identity";
+        int shard = Math.floorMod(name.hashCode(), SHARDS);
+        // Giả lập identity bị đổi ngoài ứng dụng: bước nhảy 1 sinh id không mã hóa shard
+        JdbcTemplate shardJdbc = new JdbcTemplate(shards.get(shard));
+        shardJdbc.execute("ALTER TABLE products ALTER COLUMN id RESTART WITH " + (ShardRoutingDataSource.MAX_SHARDS * 10 + shard + 1));
+        shardJdbc.execute("ALTER TABLE products ALTER COLUMN id SET INCREMENT BY 1");
+
+        assertThrows(IllegalStateException.class,
+                () -> repository.save(new Product(0, Category.BOOKS, null, 1, name, 10)));
+
+        assertEquals(0L, shardJdbc.queryForObject("SELECT COUNT(*) FROM products", Long.class));
+        assertFalse(repository.existsByProductName(name));
+    }
+
+    @Test
+    @DisplayName("TC7: Đổi tên rồi tạo mới cùng tên - product đổi tên nằm ở shard khác vẫn chặn được trùng tên")
+    void testSave_RenamedProductOnOtherShardBlocksCreate() {
+        List<Long> ids = createProducts();
+        long id = ids.get(0);
+        int shard = routing.shardOf(id);
+        // Tên mới có hash trỏ tới shard khác shard đang chứa product
+        String newName = null;
+        for (int i = 0; newName == null || Math.floorMod(newName.hashCode(), SHARDS) == shard; i++) {
+            newName = "Renamed " + i;
+        }
+        // Đổi tên không chuyển shard (giống patchProductFields trên shard của id)
+        new JdbcTemplate(shards.get(shard)).update("UPDATE products SET product_name = ? WHERE id = ?", newName, id);
+
+        String duplicate = newName;
+        DataIntegrityViolationException exception = assertThrows(DataIntegrityViolationException.class,
+                () -> repository.save(new Product(0, Category.BOOKS, null, 1, duplicate, 10)));
+
+        assertTrue(exception.getMessage().contains(Product.UNIQUE_PRODUCT_NAME_CONSTRAINT));
+        assertEquals((long) PRODUCTS, repository.count());
+        assertTrue(repository.save(new Product(0, Category.BOOKS, null, 1, "Product 0", 10)).getId() > 0,
+                "Tên cũ đã được giải phóng");
+    }
+
+    @Test
+    @DisplayName("TC8: Method kế thừa từ JpaRepository - saveAll, findAll theo Sort / Pageable, theo id, xóa theo shard")
+    void testInheritedJpaRepositoryMethods_AcrossShards() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product(0, Category.BOOKS, null, i, String.format("Book %02d", i), 10 + i));
+        }
+        List<Long> ids = repository.saveAll(products).stream().map(Product::getId).toList();
+        assertEquals(PRODUCTS, new HashSet<>(ids).size());
+
+        // findAll(): mọi shard, theo id
+        List<Long> sortedIds = new ArrayList<>(ids);
+        sortedIds.sort(Comparator.naturalOrder());
+        assertEquals(sortedIds, repository.findAll().stream().map(Product::getId).toList());
+
+        // findAll(Pageable) theo tên giảm dần: các trang nối lại đúng thứ tự toàn cục
+        List<String> names = new ArrayList<>();
+        for (int page = 0; page < 4; page++) {
+            Page<Product> result = repository.findAll(PageRequest.of(page, 8, Sort.by("productName").descending()));
+            assertEquals(PRODUCTS, result.getTotalElements());
+            result.forEach(product -> names.add(product.getProductName()));
+        }
+        List<String> expected = products.stream().map(Product::getProductName)
+                .sorted(Comparator.reverseOrder()).toList();
+        assertEquals(expected, names);
+        assertEquals(expected, repository.findAll(Sort.by(Sort.Direction.DESC, "productName"))
+                .stream().map(Product::getProductName).toList());
+
+        // Theo id: nhóm theo shard, id không thuộc shard nào bị bỏ qua
+        List<Long> some = List.of(ids.get(3), ids.get(1), ShardRoutingDataSource.MAX_SHARDS + 5L);
+        assertEquals(List.of(Math.min(ids.get(1), ids.get(3)), Math.max(ids.get(1), ids.get(3))),
+                repository.findAllById(some).stream().map(Product::getId).toList());
+        assertEquals("Book 03", repository.getReferenceById(ids.get(3)).getProductName());
+
+        repository.deleteAllById(some);
+        assertEquals((long) PRODUCTS - 2, repository.count());
+        repository.deleteAll();
+        assertEquals(0L, repository.count());
+    }
+
+    @Test
+    @DisplayName("TC5: KWayMerge - trộn các danh sách đã sắp xếp, bỏ offset và giới hạn size")
+    void testKWayMerge_SkipAndLimit() {
+        List<List<Integer>> runs = List.of(List.of(1, 4, 7, 10), List.of(2, 5, 8), List.of(), List.of(3, 6, 9));
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), KWayMerge.merge(runs, Comparator.naturalOrder(), 0, 100));
+        assertEquals(List.of(4, 5, 6), KWayMerge.merge(runs, Comparator.naturalOrder(), 3, 3));
+        assertEquals(List.of(), KWayMerge.merge(runs, Comparator.naturalOrder(), 10, 5));
+    }
+}
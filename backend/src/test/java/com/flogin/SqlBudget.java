@@ -0,0 +1,25 @@
+package com.flogin;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Budget số câu SQL của một test (@SpringBootTest): đếm mọi câu SQL chạy qua DataSource trong thân test
+ * (không tính @BeforeEach / @AfterEach), vượt budget thì test fail và liệt kê từng câu SQL đã chạy
+ * Ví dụ: @SqlBudget(1) cho GET /api/products/{id}
+ * @see SqlBudgetExtension
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@ExtendWith(SqlBudgetExtension.class)
+public @interface SqlBudget {
+
+    /**
+     * Số câu SQL tối đa
+     */
+    int value();
+}
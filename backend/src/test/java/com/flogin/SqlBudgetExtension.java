@@ -0,0 +1,43 @@
+package com.flogin;
+
+import com.flogin.jdbc.StatementStatsDataSource;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+
+/**
+ * SqlBudgetExtension - Thực thi @SqlBudget: ghi lại câu SQL trong thân test bằng SqlStatementRecorder
+ * (listener của StatementStatsDataSource, yêu cầu flogin.sql-stats.enabled=true) rồi so với budget.
+ * Test đã fail vì lý do khác thì không kiểm tra budget.
+ */
+public class SqlBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(SqlBudgetExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) throws Exception {
+        DataSource dataSource = SpringExtension.getApplicationContext(context).getBean(DataSource.class);
+        if (!dataSource.isWrapperFor(StatementStatsDataSource.class)) {
+            throw new IllegalStateException("@SqlBudget cần flogin.sql-stats.enabled=true");
+        }
+        context.getStore(NAMESPACE).put(SqlStatementRecorder.class,
+                new SqlStatementRecorder(dataSource.unwrap(StatementStatsDataSource.class).getStats()));
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        SqlStatementRecorder recorder = context.getStore(NAMESPACE)
+                .remove(SqlStatementRecorder.class, SqlStatementRecorder.class);
+        if (recorder == null) {
+            return;
+        }
+        recorder.close();
+        if (context.getExecutionException().isEmpty()) {
+            SqlBudget budget = context.getRequiredTestMethod().getAnnotation(SqlBudget.class);
+            recorder.assertWithinBudget(budget.value(), context.getDisplayName());
+        }
+    }
+}
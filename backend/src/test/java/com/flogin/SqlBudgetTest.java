@@ -0,0 +1,213 @@
+package com.flogin;
+
+import com.flogin.entity.Category;
+import com.flogin.entity.Product;
+import com.flogin.entity.User;
+import com.flogin.jdbc.StatementStatsDataSource;
+import com.flogin.repository.interfaces.ProductRepository;
+import com.flogin.repository.interfaces.UserRepository;
+import com.flogin.service.JwtService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * SQL Budget Tests - Số câu SQL tối đa mỗi endpoint được chạy (@SqlBudget)
+ * Chạy trên H2 thật (khác ProductControllerIntegrationTest / AuthControllerIntegrationTest dùng service mock),
+ * endpoint chạy thêm câu SQL (vd: SELECT trước UPDATE / DELETE) thì test fail và liệt kê các câu SQL.
+ * Request dùng user() của spring-security-test nên không tính câu SQL load user của JWT filter (xem TC10).
+ * Dữ liệu chuẩn bị trong @BeforeEach (không tính vào budget).
+ * Database in-memory riêng (sqlbudgetdb): dữ liệu của test này không lọt sang các test @SpringBootTest dùng testdb.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sqlbudgetdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "flogin.reactive.r2dbc.url=r2dbc:h2:mem:///sqlbudgetdb?options=DB_CLOSE_DELAY=-1"
+})
+@DisplayName("SQL Budget Tests - số câu SQL mỗi endpoint")
+public class SqlBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private User admin;
+    private long productId;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+        admin = new User();
+        admin.setUserName("admin");
+        admin.setEmail("admin@example.com");
+        admin.setHashPassword(passwordEncoder.encode("admin123"));
+        admin = userRepository.save(admin);
+        productId = productRepository.save(new Product(0, Category.BOOKS, "Budget test", 5, "Budget Book", 100.0)).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    @SqlBudget(1)
+    @DisplayName("TC1: POST /api/products - 1 câu INSERT")
+    void testCreate() throws Exception {
+        mockMvc.perform(post("/api/products").with(user("admin"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"productName":"Budget New","price":10.5,"quantity":1,"description":"d","category":"Books"}
+                                """))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    @SqlBudget(1)
+    @DisplayName("TC2: GET /api/products/{id} - lần đầu 1 câu SELECT, lần sau trả từ cache (0 câu)")
+    void testGetById() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/products/" + productId).with(user("admin")))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.productName").value("Budget Book"));
+        }
+    }
+
+    @Test
+    @SqlBudget(2)
+    @DisplayName("TC3: GET /api/products - 1 câu SELECT trang + 1 câu COUNT")
+    void testList() throws Exception {
+        mockMvc.perform(get("/api/products").param("page", "0").param("size", "1").with(user("admin")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1));
+    }
+
+    @Test
+    @SqlBudget(1)
+    @DisplayName("TC4: GET /api/products/batch - 1 câu SELECT ... IN (...)")
+    void testBatch() throws Exception {
+        mockMvc.perform(get("/api/products/batch").param("ids", productId + "," + (productId + 1000)).with(user("admin")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @SqlBudget(2)
+    @DisplayName("TC5: PUT /api/products/{id} - tối đa 2 câu SQL")
+    void testUpdate() throws Exception {
+        mockMvc.perform(put("/api/products/" + productId).with(user("admin"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"productName":"Budget Book 2","price":20,"quantity":2,"description":"d","category":"Books"}
+                                """))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @SqlBudget(2)
+    @DisplayName("TC6: PATCH /api/products/{id} - tối đa 2 câu SQL")
+    void testPatch() throws Exception {
+        mockMvc.perform(patch("/api/products/" + productId).with(user("admin"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"price\":30}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @SqlBudget(1)
+    @DisplayName("TC7: DELETE /api/products/{id} - 1 câu DELETE")
+    void testDelete() throws Exception {
+        mockMvc.perform(delete("/api/products/" + productId).with(user("admin")))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    @SqlBudget(2)
+    @DisplayName("TC8: POST /api/products/bulk-delete theo category - 1 chunk: SELECT id + DELETE ... IN (...)")
+    void testBulkDeleteByCategory() throws Exception {
+        mockMvc.perform(post("/api/products/bulk-delete").with(user("admin"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"category\":\"Books\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount").value(1));
+    }
+
+    @Test
+    @SqlBudget(1)
+    @DisplayName("TC9: POST /api/auth/login - 1 câu SELECT user")
+    void testLogin() throws Exception {
+        mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userName\":\"admin\",\"password\":\"admin123\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @SqlBudget(2)
+    @DisplayName("TC10: GET /api/products/{id} với JWT - thêm 1 câu SELECT user của JWT filter")
+    void testGetByIdWithJwt() throws Exception {
+        mockMvc.perform(get("/api/products/" + productId)
+                        .header("Authorization", "Bearer " + jwtService.generateToken(admin)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("TC11: Vượt budget - AssertionError liệt kê từng câu SQL đã chạy")
+    void testOverBudget_ListsStatements() throws Exception {
+        SqlStatementRecorder recorder = new SqlStatementRecorder(
+                dataSource.unwrap(StatementStatsDataSource.class).getStats());
+        try {
+            mockMvc.perform(delete("/api/products/" + productId).with(user("admin")))
+                    .andExpect(status().isNoContent());
+        } finally {
+            recorder.close();
+        }
+
+        AssertionError error = assertThrows(AssertionError.class, () -> recorder.assertWithinBudget(0, "DELETE"));
+        assertTrue(error.getMessage().startsWith("DELETE: 1 câu SQL, vượt budget 0"), error.getMessage());
+        assertTrue(error.getMessage().toLowerCase().contains("delete from products"), error.getMessage());
+    }
+
+    @Test
+    @SqlBudget(3)
+    @DisplayName("TC12: PATCH /api/products/{id} đổi tên - SELECT ... FOR UPDATE tên cũ + UPDATE + SELECT, cùng transaction")
+    void testPatch_Rename() throws Exception {
+        mockMvc.perform(patch("/api/products/" + productId).with(user("admin"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productName\":\"Budget Book v2\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.productName").value("Budget Book v2"))
+                .andExpect(header().string("ETag", "\"1\""));
+    }
+}
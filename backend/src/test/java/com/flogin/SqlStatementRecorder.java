@@ -0,0 +1,53 @@
+package com.flogin;
+
+import com.flogin.jdbc.SqlStatementStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SqlStatementRecorder - Ghi lại (theo thứ tự) các câu SQL chạy qua StatementStatsDataSource
+ * từ lúc tạo tới lúc close, trên mọi thread (kể cả scatter-gather của sharding)
+ */
+public class SqlStatementRecorder implements SqlStatementStats.StatementListener, AutoCloseable {
+
+    private final SqlStatementStats stats;
+    private final List<String> statements = new ArrayList<>();
+
+    public SqlStatementRecorder(SqlStatementStats stats) {
+        this.stats = stats;
+        stats.addListener(this);
+    }
+
+    @Override
+    public synchronized void executed(String sql, long nanos, boolean failed) {
+        statements.add(String.format("%s  [%.2f ms%s, %s]", sql.replaceAll("\\s+", " ").trim(), nanos / 1e6,
+                failed ? ", lỗi" : "", Thread.currentThread().getName()));
+    }
+
+    public synchronized List<String> getStatements() {
+        return List.copyOf(statements);
+    }
+
+    /**
+     * @throws AssertionError nếu số câu SQL vượt budget, message liệt kê từng câu SQL đã chạy
+     */
+    public void assertWithinBudget(int budget, String label) {
+        List<String> executed = getStatements();
+        if (executed.size() <= budget) {
+            return;
+        }
+        StringBuilder message = new StringBuilder()
+                .append(label).append(": ").append(executed.size())
+                .append(" câu SQL, vượt budget ").append(budget).append(':');
+        for (int i = 0; i < executed.size(); i++) {
+            message.append("\n  ").append(i + 1).append(". ").append(executed.get(i));
+        }
+        throw new AssertionError(message.toString());
+    }
+
+    @Override
+    public void close() {
+        stats.removeListener(this);
+    }
+}
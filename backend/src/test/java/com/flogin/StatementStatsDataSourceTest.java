@@ -0,0 +1,129 @@
+package com.flogin;
+
+import com.flogin.jdbc.SqlStatementStats;
+import com.flogin.jdbc.StatementStatsDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StatementStatsDataSource / SqlStatementStats Unit Test (H2 in-memory)
+ * Test chuẩn hóa SQL, thống kê theo dạng SQL (count, lỗi, top-N), slow query log và che bind parameter
+ */
+@DisplayName("StatementStatsDataSource Unit Test")
+public class StatementStatsDataSourceTest {
+
+    private final StatementStatsDataSource dataSource = new StatementStatsDataSource(
+            new DriverManagerDataSource("jdbc:h2:mem:sql_stats_test;DB_CLOSE_DELAY=-1", "sa", ""),
+            new SqlStatementStats(10_000, 0, 500, 100));
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS items");
+        }
+        dataSource.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> find(Map<String, Object> stats, String list, String sql) {
+        return ((List<Map<String, Object>>) stats.get(list)).stream()
+                .filter(row -> row.get("sql").equals(sql))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Không có dòng thống kê cho: " + sql));
+    }
+
+    @Test
+    @DisplayName("TC1: Chuẩn hóa - literal thành ?, gộp khoảng trắng và danh sách IN, giữ nguyên tên như p1_0")
+    void testNormalize_LiteralsAndInLists() {
+        assertEquals("select p1_0.id from products p1_0 where p1_0.price>? and p1_0.product_name=?",
+                SqlStatementStats.normalize("select p1_0.id from products p1_0\n   where p1_0.price>10.5 and p1_0.product_name='It''s'"));
+        assertEquals("delete from products where id in (?...)",
+                SqlStatementStats.normalize("delete from products where id in (?,?,?)"));
+        assertEquals(SqlStatementStats.normalize("SELECT * FROM t WHERE id IN (1, 2)"),
+                SqlStatementStats.normalize("SELECT * FROM t WHERE id IN (3, 4, 5, 6)"));
+    }
+
+    @Test
+    @DisplayName("TC2: Thống kê - cùng dạng SQL dồn một dòng, đếm lỗi, top chạy nhiều nhất")
+    void testStats_GroupedByShapeWithErrors() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE items (id INT PRIMARY KEY, name VARCHAR(20))");
+            for (int i = 0; i < 5; i++) {
+                statement.executeUpdate("INSERT INTO items VALUES (" + i + ", 'item " + i + "')");
+            }
+            try (PreparedStatement select = connection.prepareStatement("SELECT name FROM items WHERE id = ?")) {
+                for (int i = 0; i < 3; i++) {
+                    select.setInt(1, i);
+                    select.executeQuery().close();
+                }
+            }
+            assertThrows(SQLException.class, () -> statement.executeQuery("SELECT missing FROM items"));
+        }
+
+        Map<String, Object> stats = dataSource.getStats().getStats(10);
+
+        assertEquals(10L, stats.get("statements"));
+        assertEquals(1L, stats.get("errors"));
+        Map<String, Object> insert = find(stats, "mostFrequent", "INSERT INTO items VALUES (?, ?)");
+        assertEquals(5L, insert.get("count"));
+        assertEquals(3L, find(stats, "mostFrequent", "SELECT name FROM items WHERE id = ?").get("count"));
+        assertEquals(1L, find(stats, "mostFrequent", "SELECT missing FROM items").get("errors"));
+        // Sắp theo số lần chạy, INSERT đứng đầu
+        assertEquals(insert, ((List<?>) stats.get("mostFrequent")).get(0));
+        assertTrue((Double) insert.get("p99Ms") <= (Double) insert.get("maxMs"));
+    }
+
+    @Test
+    @DisplayName("TC3: Slow query log - câu vượt threshold được log, bind parameter chỉ còn kiểu")
+    void testSlowLog_RedactedParameters() throws SQLException {
+        StatementStatsDataSource slow = new StatementStatsDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:sql_stats_slow;DB_CLOSE_DELAY=-1", "sa", ""),
+                new SqlStatementStats(0, 0, 500, 100));
+        try (Connection connection = slow.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT ? || ?")) {
+            statement.setString(1, "secret-password");
+            statement.setNull(2, Types.VARCHAR);
+            statement.executeQuery().close();
+        } finally {
+            slow.close();
+        }
+
+        assertEquals(1L, slow.getStats().getStats(5).get("slowLogged"));
+        String redacted = SqlStatementStats.redact(Arrays.asList("secret-password", null, 42L));
+        assertEquals("[String(15), null, Long]", redacted);
+        assertFalse(redacted.contains("secret"));
+    }
+
+    @Test
+    @DisplayName("TC4: Giới hạn số dạng SQL - dạng mới vượt max-statements dồn vào (other)")
+    void testMaxStatements_OverflowToOther() {
+        SqlStatementStats stats = new SqlStatementStats(10_000, 0, 2, 10);
+        try {
+            stats.record("SELECT a FROM t", 1_000, null, false);
+            stats.record("SELECT b FROM t", 1_000, null, false);
+            stats.record("SELECT c FROM t", 1_000, null, false);
+            stats.record("SELECT d FROM t", 1_000, null, true);
+
+            Map<String, Object> result = stats.getStats(10);
+            assertEquals(3, result.get("distinctStatements"));
+            Map<String, Object> other = find(result, "mostFrequent", "(other)");
+            assertEquals(2L, other.get("count"));
+            assertEquals(1L, other.get("errors"));
+        } finally {
+            stats.close();
+        }
+    }
+}
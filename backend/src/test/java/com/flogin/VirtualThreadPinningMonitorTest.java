@@ -0,0 +1,61 @@
+package com.flogin;
+
+import com.flogin.service.VirtualThreadPinningMonitor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VirtualThreadPinningMonitor Unit Test
+ * Test phân loại lần pin theo stack trace (jdbc / bcrypt / other), vị trí pin và số liệu khi chưa có event
+ */
+@DisplayName("VirtualThreadPinningMonitor Unit Test")
+public class VirtualThreadPinningMonitorTest {
+
+    @Test
+    @DisplayName("TC1: Phân loại theo frame - driver JDBC / Hikari là jdbc, BCrypt là bcrypt, còn lại là other")
+    void testClassify() {
+        assertEquals("jdbc", VirtualThreadPinningMonitor.classify(List.of(
+                "java.lang.Object.wait0:-1",
+                "com.microsoft.sqlserver.jdbc.TDSChannel.read:2001",
+                "com.flogin.service.ProductService.getProductById:240")));
+        assertEquals("jdbc", VirtualThreadPinningMonitor.classify(List.of(
+                "jdk.internal.misc.Unsafe.park:-1",
+                "com.zaxxer.hikari.pool.HikariPool.getConnection:181")));
+        assertEquals("jdbc", VirtualThreadPinningMonitor.classify(List.of(
+                "org.h2.engine.SessionLocal.lock:120", "java.sql.DriverManager.getConnection:683")));
+        // Frame trên cùng quyết định: BCrypt chạy trong khi đang giữ connection vẫn là bcrypt
+        assertEquals("bcrypt", VirtualThreadPinningMonitor.classify(List.of(
+                "org.springframework.security.crypto.bcrypt.BCrypt.hashpw:620",
+                "com.zaxxer.hikari.pool.ProxyConnection.commit:378")));
+        assertEquals("other", VirtualThreadPinningMonitor.classify(List.of(
+                "java.io.FileOutputStream.writeBytes:-1", "com.flogin.service.TraceFileExporter.write:150")));
+        assertEquals("other", VirtualThreadPinningMonitor.classify(List.of()));
+    }
+
+    @Test
+    @DisplayName("TC2: Vị trí pin - frame đầu tiên không thuộc JDK, chỉ có frame JDK thì lấy frame trên cùng")
+    void testPinLocation() {
+        assertEquals("org.h2.engine.SessionLocal.lock:120", VirtualThreadPinningMonitor.pinLocation(List.of(
+                "java.lang.Object.wait0:-1", "jdk.internal.misc.Unsafe.park:-1",
+                "org.h2.engine.SessionLocal.lock:120", "com.flogin.service.ProductService.getProductById:240")));
+        assertEquals("java.lang.Object.wait0:-1", VirtualThreadPinningMonitor.pinLocation(List.of(
+                "java.lang.Object.wait0:-1", "jdk.internal.misc.Unsafe.park:-1")));
+        assertEquals("<không có stack trace>", VirtualThreadPinningMonitor.pinLocation(List.of()));
+    }
+
+    @Test
+    @DisplayName("TC3: Số liệu khi chưa có lần pin nào")
+    void testStats_Empty() {
+        Map<String, Object> stats = new VirtualThreadPinningMonitor().getStats();
+
+        assertEquals(0L, stats.get("pinned"));
+        assertEquals(Map.of(), stats.get("pinnedByCategory"));
+        assertEquals(0, stats.get("locations"));
+        assertEquals(Map.of(), stats.get("topLocations"));
+    }
+}
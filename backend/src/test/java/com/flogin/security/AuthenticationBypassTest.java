@@ -3,15 +3,18 @@ package com.flogin.security;
 import com.flogin.dto.LoginDto.LoginRequest;
 import com.flogin.entity.User;
 import com.flogin.repository.interfaces.UserRepository;
+import com.flogin.service.JwtService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -31,9 +34,13 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * - Token manipulation
  * - Token expiration
  * - Authorization header tampering
+ * - Privilege escalation (/api/ops/** và /actuator/prometheus chỉ dành cho role ADMIN)
  */
 @SpringBootTest
 @AutoConfigureMockMvc
+// Test mặc định tắt export metrics; bật lại để /actuator/prometheus tồn tại khi kiểm tra phân quyền
+@AutoConfigureObservability(tracing = false)
+@TestPropertySource(properties = "management.endpoints.web.exposure.include=health,prometheus")
 @Transactional
 @DisplayName("Authentication Bypass Security Tests")
 public class AuthenticationBypassTest {
@@ -50,20 +57,26 @@ public class AuthenticationBypassTest {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private JwtService jwtService;
+
+    private User admin;
+    private User user;
+
     @BeforeEach
     void setUp() {
         userRepository.deleteAll();
-        User admin = new User();
+        admin = new User();
         admin.setUserName("admin");
         admin.setEmail("admin@example.com");
         admin.setHashPassword(passwordEncoder.encode("admin123"));
-        userRepository.save(admin);
+        admin = userRepository.save(admin);
 
-        User user = new User();
+        user = new User();
         user.setUserName("user01");
         user.setEmail("user01@example.com");
         user.setHashPassword(passwordEncoder.encode("password123"));
-        userRepository.save(user);
+        user = userRepository.save(user);
     }
 
     @Test
@@ -99,5 +112,39 @@ public class AuthenticationBypassTest {
                 .andExpect(status().isForbidden());
     }
 
-}
+    @Test
+    @DisplayName("TC5.1: Privilege escalation - User thường gọi /api/ops/** bị 403, admin được 200")
+    void testPrivilegeEscalation_OpsEndpoints() throws Exception {
+        mockMvc.perform(get("/api/ops/bulkheads")
+                .header("Authorization", "Bearer " + jwtService.generateToken(user)))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get("/api/ops/bulkheads")
+                .header("Authorization", "Bearer " + jwtService.generateToken(admin)))
+                .andExpect(status().isOk());
+
+        // User thường vẫn gọi được API products
+        mockMvc.perform(get("/api/products")
+                .header("Authorization", "Bearer " + jwtService.generateToken(user)))
+                .andExpect(status().isOk());
+    }
 
+    @Test
+    @DisplayName("TC5.2: Privilege escalation - /actuator/prometheus cần role ADMIN, /actuator/health thì không")
+    void testPrivilegeEscalation_PrometheusEndpoint() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get("/actuator/prometheus")
+                .header("Authorization", "Bearer " + jwtService.generateToken(user)))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(get("/actuator/prometheus")
+                .header("Authorization", "Bearer " + jwtService.generateToken(admin)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isOk());
+    }
+
+}
@@ -33,16 +33,21 @@ const getApiUrl = () => {
 /** @constant {string} API base URL for all authentication requests */
 const API_BASE_URL = getApiUrl();
 
+/** @constant {number} Client timeout (ms) for all requests */
+const REQUEST_TIMEOUT_MS = 10000;
+
 /**
  * @constant {AxiosInstance} axiosInstance
  * @private
  */
 const axiosInstance = axios.create({
   baseURL: API_BASE_URL,
-  timeout: 10000,
+  timeout: REQUEST_TIMEOUT_MS,
   headers: {
     "Content-Type": "application/json",
     "ngrok-skip-browser-warning": "true",
+    // Backend dừng xử lý (hủy query) trước khi axios bỏ cuộc
+    "X-Request-Timeout-Ms": String(REQUEST_TIMEOUT_MS - 1000),
   },
 });
 
@@ -42,6 +42,15 @@ const getApiUrl = () => {
 /** @constant {string} API base URL for all product requests */
 const API_BASE_URL = getApiUrl();
 
+/** @constant {string} Header carrying the read-your-writes consistency token */
+const CONSISTENCY_TOKEN_HEADER = "X-Consistency-Token";
+
+/** @constant {string} localStorage key of the latest consistency token */
+const CONSISTENCY_TOKEN_KEY = "consistencyToken";
+
+/** @constant {number} Client timeout (ms) for all requests */
+const REQUEST_TIMEOUT_MS = 10000;
+
 /**
  * Axios instance configured for product API calls
  *
@@ -50,10 +59,12 @@ const API_BASE_URL = getApiUrl();
  */
 const axiosInstance = axios.create({
   baseURL: API_BASE_URL,
-  timeout: 10000,
+  timeout: REQUEST_TIMEOUT_MS,
   headers: {
     "Content-Type": "application/json",
     "ngrok-skip-browser-warning": "true",
+    // Backend dừng xử lý (hủy query) trước khi axios bỏ cuộc
+    "X-Request-Timeout-Ms": String(REQUEST_TIMEOUT_MS - 1000),
   },
 });
 
@@ -67,6 +78,11 @@ axiosInstance.interceptors.request.use(
     if (token) {
       config.headers.Authorization = `Bearer ${token}`;
     }
+    // Đọc lại dữ liệu vừa ghi: backend đọc từ primary cho tới khi replica theo kịp token
+    const consistencyToken = localStorage.getItem(CONSISTENCY_TOKEN_KEY);
+    if (consistencyToken) {
+      config.headers[CONSISTENCY_TOKEN_HEADER] = consistencyToken;
+    }
     return config;
   },
   (error) => {
@@ -74,6 +90,21 @@ axiosInstance.interceptors.request.use(
   }
 );
 
+/**
+ * Response interceptor to keep the latest consistency token
+ * Backend returns X-Consistency-Token after each write (read/write routing enabled)
+ */
+axiosInstance.interceptors.response.use((response) => {
+  const consistencyToken = response.headers?.[CONSISTENCY_TOKEN_HEADER.toLowerCase()];
+  if (
+    consistencyToken &&
+    Number(consistencyToken) > Number(localStorage.getItem(CONSISTENCY_TOKEN_KEY) || 0)
+  ) {
+    localStorage.setItem(CONSISTENCY_TOKEN_KEY, consistencyToken);
+  }
+  return response;
+});
+
 /**
  * @async
  * @function getAllProducts
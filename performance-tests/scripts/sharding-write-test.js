@@ -0,0 +1,91 @@
+import http from "k6/http";
+import { check } from "k6";
+import { Rate, Trend, Counter } from "k6/metrics";
+import { BASE_URL, TEST_USERS } from "./config.js";
+
+// Write throughput theo số shard: chạy cùng script với backend bật 1, 2, 4 shard
+// (flogin.sharding.enabled=true, flogin.sharding.shard-urls=...) rồi so sánh products_created/s
+
+// Custom metrics
+const createProductSuccessRate = new Rate("create_product_success_rate");
+const createProductDuration = new Trend("create_product_duration", true);
+const productsCreated = new Counter("products_created");
+
+// Số shard đang chạy, chỉ để gắn nhãn kết quả: k6 run -e SHARDS=4 sharding-write-test.js
+const SHARDS = __ENV.SHARDS || "?";
+
+export const options = {
+  // Chỉ ghi: 50 VUs liên tục tạo products trong 1 phút
+  scenarios: {
+    write_50: {
+      executor: "constant-vus",
+      vus: 50,
+      duration: "1m",
+    },
+  },
+
+  thresholds: {
+    http_req_failed: ["rate<0.01"], // < 1% errors
+    create_product_success_rate: ["rate>0.99"],
+  },
+};
+
+export function setup() {
+  console.log(`=== Starting Sharding Write Test (${SHARDS} shards) ===`);
+  console.log(`Base URL: ${BASE_URL}`);
+
+  const loginRes = http.post(
+    `${BASE_URL}/api/auth/login`,
+    JSON.stringify({
+      userName: TEST_USERS[0].userName,
+      password: TEST_USERS[0].password,
+    }),
+    {
+      headers: { "Content-Type": "application/json" },
+    }
+  );
+
+  return { token: JSON.parse(loginRes.body).token, runId: Date.now() };
+}
+
+export default function (data) {
+  const params = {
+    headers: {
+      "Content-Type": "application/json",
+      Authorization: `Bearer ${data.token}`,
+    },
+    tags: { name: "CreateProduct" },
+  };
+
+  // Tên không trùng giữa các VU / iteration / lần chạy -> shard được chọn theo hash của tên
+  const payload = JSON.stringify({
+    productName: `Shard ${data.runId}-${__VU}-${__ITER}`,
+    price: 10.5,
+    quantity: 1,
+    description: "Sharding write throughput test",
+    category: "Books",
+  });
+
+  const res = http.post(`${BASE_URL}/api/products`, payload, params);
+  const success = check(res, {
+    "create product status is 201": (r) => r.status === 201,
+  });
+
+  createProductSuccessRate.add(success);
+  createProductDuration.add(res.timings.duration);
+  if (success) {
+    productsCreated.add(1);
+  }
+}
+
+export function teardown(data) {
+  // Phân bố insert giữa các shard (GET /api/ops/sharding)
+  const res = http.get(`${BASE_URL}/api/ops/sharding`, {
+    headers: { Authorization: `Bearer ${data.token}` },
+  });
+  if (res.status === 200) {
+    const stats = JSON.parse(res.body);
+    console.log(`Shards: ${stats.shardCount}, inserts per shard: ${JSON.stringify(stats.insertsPerShard)}`);
+  }
+  console.log("=== Sharding Write Test Completed ===");
+}